@@ -0,0 +1,91 @@
+--
+-- Copyright © 2016-2024 The Thingsboard Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+CREATE TABLE IF NOT EXISTS ts_rollup_hourly (
+    entity_id varchar (255) NOT NULL,
+    key int NOT NULL,
+    ts bigint NOT NULL,
+    min_v bigint NOT NULL,
+    max_v bigint NOT NULL,
+    sum_v bigint NOT NULL,
+    count_v bigint NOT NULL,
+    CONSTRAINT ts_rollup_hourly_pkey PRIMARY KEY (entity_id, key, ts)
+) PARTITION BY RANGE (ts);
+
+CREATE TABLE IF NOT EXISTS ts_rollup_daily (
+    entity_id varchar (255) NOT NULL,
+    key int NOT NULL,
+    ts bigint NOT NULL,
+    min_v bigint NOT NULL,
+    max_v bigint NOT NULL,
+    sum_v bigint NOT NULL,
+    count_v bigint NOT NULL,
+    CONSTRAINT ts_rollup_daily_pkey PRIMARY KEY (entity_id, key, ts)
+) PARTITION BY RANGE (ts);
+
+-- Backfill the rollups from the stored raw values, using the same partition names as the broker creates at runtime:
+-- monthly 'ts_rollup_hourly_yyyy_MM' and yearly 'ts_rollup_daily_yyyy' partitions.
+DO
+$$
+    DECLARE
+        min_ts          bigint;
+        max_ts          bigint;
+        max_time        timestamp;
+        partition_start timestamp;
+        partition_end   timestamp;
+    BEGIN
+        SELECT MIN(ts), MAX(ts) INTO min_ts, max_ts FROM ts_kv WHERE long_v IS NOT NULL;
+        IF min_ts IS NULL THEN
+            RETURN;
+        END IF;
+        max_time := to_timestamp(max_ts / 1000.0) AT TIME ZONE 'UTC';
+
+        partition_start := date_trunc('month', to_timestamp(min_ts / 1000.0) AT TIME ZONE 'UTC');
+        WHILE partition_start <= max_time LOOP
+            partition_end := partition_start + INTERVAL '1 month';
+            EXECUTE format('CREATE TABLE IF NOT EXISTS ts_rollup_hourly_%s PARTITION OF ts_rollup_hourly FOR VALUES FROM (%s) TO (%s)',
+                           to_char(partition_start, 'YYYY_MM'),
+                           (extract(EPOCH FROM partition_start) * 1000)::bigint,
+                           (extract(EPOCH FROM partition_end) * 1000)::bigint);
+            partition_start := partition_end;
+        END LOOP;
+
+        partition_start := date_trunc('year', to_timestamp(min_ts / 1000.0) AT TIME ZONE 'UTC');
+        WHILE partition_start <= max_time LOOP
+            partition_end := partition_start + INTERVAL '1 year';
+            EXECUTE format('CREATE TABLE IF NOT EXISTS ts_rollup_daily_%s PARTITION OF ts_rollup_daily FOR VALUES FROM (%s) TO (%s)',
+                           to_char(partition_start, 'YYYY'),
+                           (extract(EPOCH FROM partition_start) * 1000)::bigint,
+                           (extract(EPOCH FROM partition_end) * 1000)::bigint);
+            partition_start := partition_end;
+        END LOOP;
+
+        INSERT INTO ts_rollup_hourly (entity_id, key, ts, min_v, max_v, sum_v, count_v)
+        SELECT entity_id, key, ts - ts % 3600000, MIN(long_v), MAX(long_v), SUM(long_v), COUNT(long_v)
+        FROM ts_kv
+        WHERE long_v IS NOT NULL
+        GROUP BY entity_id, key, ts - ts % 3600000
+        ON CONFLICT (entity_id, key, ts) DO UPDATE SET
+            min_v = EXCLUDED.min_v, max_v = EXCLUDED.max_v, sum_v = EXCLUDED.sum_v, count_v = EXCLUDED.count_v;
+
+        INSERT INTO ts_rollup_daily (entity_id, key, ts, min_v, max_v, sum_v, count_v)
+        SELECT entity_id, key, ts - ts % 86400000, MIN(min_v), MAX(max_v), SUM(sum_v), SUM(count_v)
+        FROM ts_rollup_hourly
+        GROUP BY entity_id, key, ts - ts % 86400000
+        ON CONFLICT (entity_id, key, ts) DO UPDATE SET
+            min_v = EXCLUDED.min_v, max_v = EXCLUDED.max_v, sum_v = EXCLUDED.sum_v, count_v = EXCLUDED.count_v;
+    END
+$$;
@@ -28,6 +28,7 @@ import org.thingsboard.mqtt.broker.dao.client.device.DeviceSessionCtxService;
 import org.thingsboard.mqtt.broker.dao.messages.DeviceMsgService;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
 
@@ -48,6 +49,7 @@ public class ActorSystemContext {
     private final ActorProcessingMetricService actorProcessingMetricService;
     private final ClientLogger clientLogger;
     private final SharedSubscriptionCacheService sharedSubscriptionCacheService;
+    private final PayloadCompressionService payloadCompressionService;
 
     private final ClientActorContext clientActorContext;
 
@@ -96,7 +96,7 @@ public class ClientActor extends ContextAwareActor {
         if (msg instanceof TimedMsg) {
             clientActorStats.logMsgQueueTime(msg, TimeUnit.NANOSECONDS);
         }
-        clientLogger.logEvent(state.getClientId(), this.getClass(), "Received msg - " + msg.getMsgType());
+        clientLogger.logEvent(state.getClientId(), this.getClass(), "Received msg - {}", msg.getMsgType());
 
         long startTime = System.nanoTime();
 
@@ -181,7 +181,7 @@ public class ClientActor extends ContextAwareActor {
             return success;
         } finally {
             clientActorStats.logMsgProcessingTime(msg.getMsgType(), startTime, TimeUnit.NANOSECONDS);
-            clientLogger.logEvent(state.getClientId(), this.getClass(), "Finished msg processing - " + msg.getMsgType());
+            clientLogger.logEvent(state.getClientId(), this.getClass(), "Finished msg processing - {}", msg.getMsgType());
         }
     }
 
@@ -21,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.mqtt.broker.actors.TbActorId;
 import org.thingsboard.mqtt.broker.actors.msg.MsgType;
 import org.thingsboard.mqtt.broker.actors.msg.TbActorMsg;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 
 @Slf4j
@@ -29,8 +30,7 @@ import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 public class SessionInitMsg extends AbstractTimedMsg implements TbActorMsg {
 
     private final ClientSessionCtx clientSessionCtx;
-    private final String username;
-    private final byte[] passwordBytes;
+    private final AuthResponse authResponse;
 
     @Override
     public MsgType getMsgType() {
@@ -22,16 +22,23 @@ import org.thingsboard.mqtt.broker.actors.msg.MsgType;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Getter
 public class MqttPublishMsg extends QueueableMqttMsg {
 
     private final PublishMsg publishMsg;
+    private final AtomicInteger pendingMsgsCounter;
 
     public MqttPublishMsg(UUID sessionId, PublishMsg publishMsg) {
+        this(sessionId, publishMsg, null);
+    }
+
+    public MqttPublishMsg(UUID sessionId, PublishMsg publishMsg, AtomicInteger pendingMsgsCounter) {
         super(sessionId);
         this.publishMsg = publishMsg;
+        this.pendingMsgsCounter = pendingMsgsCounter;
     }
 
     @Override
@@ -42,6 +49,9 @@ public class MqttPublishMsg extends QueueableMqttMsg {
     @Override
     public void release() {
         this.publishMsg.getByteBuf().release();
+        if (pendingMsgsCounter != null) {
+            pendingMsgsCounter.decrementAndGet();
+        }
     }
 
     @Override
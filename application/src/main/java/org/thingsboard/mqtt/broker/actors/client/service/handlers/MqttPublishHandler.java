@@ -29,6 +29,7 @@ import org.thingsboard.mqtt.broker.actors.client.messages.PubRecResponseMsg;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttDisconnectMsg;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttPublishMsg;
 import org.thingsboard.mqtt.broker.actors.client.state.OrderedProcessingQueue;
+import org.thingsboard.mqtt.broker.actors.client.state.PubResponseProcessingCtx;
 import org.thingsboard.mqtt.broker.common.data.MqttQoS;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
 import org.thingsboard.mqtt.broker.dao.exception.DataValidationException;
@@ -71,6 +72,8 @@ public class MqttPublishHandler {
 
     @Value("${mqtt.handler.all_msg_callback_threads:0}")
     private int threadsCount;
+    @Value("${mqtt.handler.pub_response_on_event_loop:false}")
+    private boolean pubResponseOnEventLoop;
 
     private ExecutorService callbackProcessor;
 
@@ -79,6 +82,14 @@ public class MqttPublishHandler {
         this.callbackProcessor = ThingsBoardExecutors.initExecutorService(threadsCount, "publish-callback-processor");
     }
 
+    /**
+     * Processes the PUBLISH message of a connected session right on the channel event loop, bypassing the client actor.
+     * The PUBACK/PUBREC responses are then sent from the channel event loop as well.
+     */
+    public void processOnEventLoop(ClientSessionCtx ctx, MqttPublishMsg msg) throws MqttException {
+        process(ctx, msg, null);
+    }
+
     public void process(ClientSessionCtx ctx, MqttPublishMsg msg, TbActorRef actorRef) throws MqttException {
         PublishMsg publishMsg = msg.getPublishMsg();
         int msgId = publishMsg.getPacketId();
@@ -200,6 +211,11 @@ public class MqttPublishHandler {
         msgDispatcherService.persistPublishMsg(ctx.getSessionInfo(), publishMsg, new TbQueueCallback() {
             @Override
             public void onSuccess(TbQueueMsgMetadata metadata) {
+                if (isPubResponseOnEventLoop(actorRef)) {
+                    clientLogger.logEvent(ctx.getClientId(), this.getClass(), "PUBLISH acknowledged");
+                    sendPubResponseOnEventLoop(ctx, publishMsg.getPacketId(), MqttQoS.valueOf(publishMsg.getQosLevel()));
+                    return;
+                }
                 callbackProcessor.submit(() -> {
                     clientLogger.logEvent(ctx.getClientId(), this.getClass(), "PUBLISH acknowledged");
                     if (isTraceEnabled) {
@@ -220,21 +236,29 @@ public class MqttPublishHandler {
     }
 
     public void processPubAckResponse(ClientSessionCtx ctx, int msgId) {
+        writePubAckResponses(ctx, msgId);
+        ctx.getChannel().flush();
+    }
+
+    public void processPubRecResponse(ClientSessionCtx ctx, int msgId) {
+        writePubRecResponses(ctx, msgId);
+        ctx.getChannel().flush();
+    }
+
+    private void writePubAckResponses(ClientSessionCtx ctx, int msgId) {
         MqttReasonCodes.PubAck code = MqttReasonCodeResolver.pubAckSuccess(ctx);
         List<Integer> finishedMsgIds = ctx.getPubResponseProcessingCtx().getQos1PubAckResponseMessages().finish(msgId);
         for (var finishedMsgId : finishedMsgIds) {
             ctx.getChannel().write(mqttMessageGenerator.createPubAckMsg(finishedMsgId, code));
         }
-        ctx.getChannel().flush();
     }
 
-    public void processPubRecResponse(ClientSessionCtx ctx, int msgId) {
+    private void writePubRecResponses(ClientSessionCtx ctx, int msgId) {
         MqttReasonCodes.PubRec code = MqttReasonCodeResolver.pubRecSuccess(ctx);
         List<Integer> finishedMsgIds = ctx.getPubResponseProcessingCtx().getQos2PubRecResponseMessages().finishAll(msgId);
         for (var finishedMsgId : finishedMsgIds) {
             ctx.getChannel().write(mqttMessageGenerator.createPubRecMsg(finishedMsgId, code));
         }
-        ctx.getChannel().flush();
 
         AwaitingPubRelPacketsCtx.QoS2PubRelPacketInfo awaitingPacketInfo = ctx.getAwaitingPubRelPacketsCtx().getAwaitingPacket(msgId);
         if (isNotPersisted(awaitingPacketInfo)) {
@@ -242,6 +266,57 @@ public class MqttPublishHandler {
         }
     }
 
+    /**
+     * Queues the PUBACK/PUBREC response of a persisted message and makes sure the channel event loop flushes
+     * the queued responses, so all the messages persisted before the flush task runs are acknowledged with one flush.
+     */
+    void sendPubResponseOnEventLoop(ClientSessionCtx ctx, int msgId, MqttQoS mqttQoS) {
+        PubResponseProcessingCtx pubResponseProcessingCtx = ctx.getPubResponseProcessingCtx();
+        switch (mqttQoS) {
+            case AT_MOST_ONCE:
+                return;
+            case AT_LEAST_ONCE:
+                pubResponseProcessingCtx.addPersistedQos1MsgId(msgId);
+                break;
+            case EXACTLY_ONCE:
+                pubResponseProcessingCtx.addPersistedQos2MsgId(msgId);
+                break;
+            default:
+                throw new NotSupportedQoSLevelException("QoS level " + mqttQoS + " is not supported.");
+        }
+        if (pubResponseProcessingCtx.getPubResponsesFlushScheduled().compareAndSet(false, true)) {
+            ctx.getChannel().executor().execute(() -> flushPubResponses(ctx));
+        }
+    }
+
+    void flushPubResponses(ClientSessionCtx ctx) {
+        PubResponseProcessingCtx pubResponseProcessingCtx = ctx.getPubResponseProcessingCtx();
+        // reset before draining, so that a message persisted while draining schedules one more flush
+        pubResponseProcessingCtx.getPubResponsesFlushScheduled().set(false);
+        try {
+            boolean written = false;
+            Integer msgId;
+            while ((msgId = pubResponseProcessingCtx.pollPersistedQos1MsgId()) != null) {
+                writePubAckResponses(ctx, msgId);
+                written = true;
+            }
+            while ((msgId = pubResponseProcessingCtx.pollPersistedQos2MsgId()) != null) {
+                writePubRecResponses(ctx, msgId);
+                written = true;
+            }
+            if (written) {
+                ctx.getChannel().flush();
+            }
+        } catch (Exception e) {
+            log.warn("[{}][{}] Failed to send PUBLISH responses.", ctx.getClientId(), ctx.getSessionId(), e);
+            disconnectClient(ctx, DisconnectReasonType.ON_ERROR, "Failed to send PUBLISH responses. Exception message - " + e.getMessage());
+        }
+    }
+
+    private boolean isPubResponseOnEventLoop(TbActorRef actorRef) {
+        return pubResponseOnEventLoop || actorRef == null;
+    }
+
     private boolean isNotPersisted(AwaitingPubRelPacketsCtx.QoS2PubRelPacketInfo awaitingPacketInfo) {
         return awaitingPacketInfo != null && !awaitingPacketInfo.isPersisted();
     }
@@ -261,7 +336,11 @@ public class MqttPublishHandler {
             if (isTraceEnabled) {
                 log.trace("[{}][{}] Message {} is awaiting for PUBREL packet.", clientId, sessionId, msgId);
             }
-            sendPubResponseEventToActor(actorRef, sessionId, msgId, MqttQoS.EXACTLY_ONCE);
+            if (isPubResponseOnEventLoop(actorRef)) {
+                sendPubResponseOnEventLoop(ctx, msgId, MqttQoS.EXACTLY_ONCE);
+            } else {
+                sendPubResponseEventToActor(actorRef, sessionId, msgId, MqttQoS.EXACTLY_ONCE);
+            }
         }
         return awaitingPacketInfo != null;
     }
@@ -15,12 +15,14 @@
  */
 package org.thingsboard.mqtt.broker.actors.client.service.handlers;
 
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import io.netty.handler.codec.mqtt.MqttReasonCodes;
 import io.netty.handler.codec.mqtt.MqttSubAckMessage;
 import io.netty.handler.codec.mqtt.MqttVersion;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttDisconnectMsg;
@@ -55,8 +57,12 @@ import org.thingsboard.mqtt.broker.util.MqttReasonCodeUtil;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -77,6 +83,11 @@ public class MqttSubscribeHandler {
     private final ApplicationPersistenceProcessor applicationPersistenceProcessor;
     private final RateLimitService rateLimitService;
 
+    @Value("${mqtt.retain-msg.delivery-chunk-size:100}")
+    private int retainedMsgDeliveryChunkSize;
+    @Value("${mqtt.retain-msg.delivery-pause-ms:10}")
+    private long retainedMsgDeliveryPauseMs;
+
     public void process(ClientSessionCtx ctx, MqttSubscribeMsg msg) {
         Set<TopicSharedSubscription> currentSharedSubscriptions = clientSubscriptionService.getClientSharedSubscriptions(ctx.getClientId());
         List<TopicSubscription> topicSubscriptions = msg.getTopicSubscriptions();
@@ -210,12 +221,13 @@ public class MqttSubscribeHandler {
         return subAckMessage.payload().reasonCodes().contains(MqttReasonCodeUtil.byteToInt(MqttReasonCodes.SubAck.SUBSCRIPTION_IDENTIFIERS_NOT_SUPPORTED.byteValue()));
     }
 
-    private void processRetainedMessages(ClientSessionCtx ctx,
-                                         List<TopicSubscription> newSubscriptions,
-                                         Set<TopicSubscription> currentSubscriptions) {
-        Set<RetainedMsg> retainedMsgSet = getRetainedMessagesForTopicSubscriptions(newSubscriptions, currentSubscriptions);
-        retainedMsgSet = applyRateLimits(retainedMsgSet);
-        retainedMsgSet.forEach(retainedMsg -> publishMsgDeliveryService.sendPublishRetainedMsgToClient(ctx, retainedMsg));
+    void processRetainedMessages(ClientSessionCtx ctx,
+                                 List<TopicSubscription> newSubscriptions,
+                                 Set<TopicSubscription> currentSubscriptions) {
+        Iterator<RetainedMsg> retainedMsgs = getRetainedMessagesForTopicSubscriptions(newSubscriptions, currentSubscriptions);
+        if (retainedMsgs.hasNext()) {
+            ctx.getChannel().executor().execute(new RetainedMsgDelivery(ctx, retainedMsgs));
+        }
     }
 
     Set<RetainedMsg> applyRateLimits(Set<RetainedMsg> retainedMsgSet) {
@@ -236,41 +248,171 @@ public class MqttSubscribeHandler {
         return retainedMsgSet;
     }
 
-    Set<RetainedMsg> getRetainedMessagesForTopicSubscriptions(List<TopicSubscription> newSubscriptions,
-                                                              Set<TopicSubscription> currentSubscriptions) {
-        return newSubscriptions
+    Iterator<RetainedMsg> getRetainedMessagesForTopicSubscriptions(List<TopicSubscription> newSubscriptions,
+                                                                   Set<TopicSubscription> currentSubscriptions) {
+        List<TopicSubscription> retainedMsgSubscriptions = newSubscriptions
                 .stream()
                 .filter(topicSubscription -> StringUtils.isEmpty(topicSubscription.getShareName()))
                 .filter(topicSubscription ->
                         topicSubscription.getOptions().needSendRetainedForTopicSubscription(
                                 ts -> !currentSubscriptions.contains(ts), topicSubscription))
-                .map(this::getRetainedMessagesForTopicSubscription)
-                .flatMap(List::stream)
-                .collect(Collectors.toSet());
+                .toList();
+        return new RetainedMsgIterator(retainedMsgSubscriptions);
     }
 
-    List<RetainedMsg> getRetainedMessagesForTopicSubscription(TopicSubscription topicSubscription) {
-        long currentTs = System.currentTimeMillis();
-        List<RetainedMsg> retainedMessages = getRetainedMessages(topicSubscription);
-        List<RetainedMsg> result = new ArrayList<>(retainedMessages.size());
-        for (RetainedMsg retainedMsg : retainedMessages) {
-            MsgExpiryResult msgExpiryResult = MqttPropertiesUtil.getMsgExpiryResult(retainedMsg, currentTs);
-            if (msgExpiryResult.isExpired()) {
-                continue;
+    Iterator<RetainedMsg> getRetainedMessagesForTopicSubscription(TopicSubscription topicSubscription) {
+        return new RetainedMsgIterator(List.of(topicSubscription));
+    }
+
+    private RetainedMsg toSubscriptionRetainedMsg(TopicSubscription topicSubscription, RetainedMsg retainedMsg, long currentTs) {
+        MsgExpiryResult msgExpiryResult = MqttPropertiesUtil.getMsgExpiryResult(retainedMsg, currentTs);
+        if (msgExpiryResult.isExpired()) {
+            return null;
+        }
+        int minQoSValue = getMinQoSValue(topicSubscription, retainedMsg);
+        RetainedMsg newRetainedMsg = newRetainedMsg(retainedMsg, minQoSValue);
+
+        if (msgExpiryResult.isMsgExpiryIntervalPresent()) {
+            MqttPropertiesUtil.addMsgExpiryIntervalToPublish(newRetainedMsg.getProperties(), msgExpiryResult.getMsgExpiryInterval());
+        }
+        return newRetainedMsg;
+    }
+
+    private Iterator<RetainedMsg> getRetainedMessages(TopicSubscription topicSubscription) {
+        return retainedMsgService.iterateRetainedMessages(topicSubscription.getTopicFilter());
+    }
+
+    /**
+     * Lazily walks the retained messages of the subscriptions one after another. A message whose topic also matches the
+     * filter of a previous subscription of the same SUBSCRIBE has already been returned for it and is skipped, so the
+     * overlapping filters are de-duplicated without keeping the returned messages.
+     */
+    private class RetainedMsgIterator implements Iterator<RetainedMsg> {
+
+        private final Iterator<TopicSubscription> subscriptions;
+        private final List<String> previousTopicFilters;
+        private final long currentTs = System.currentTimeMillis();
+        private TopicSubscription subscription;
+        private Iterator<RetainedMsg> retainedMsgs = Collections.emptyIterator();
+        private RetainedMsg next;
+
+        RetainedMsgIterator(List<TopicSubscription> subscriptions) {
+            this.subscriptions = subscriptions.iterator();
+            this.previousTopicFilters = new ArrayList<>(subscriptions.size());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (!retainedMsgs.hasNext()) {
+                    if (!subscriptions.hasNext()) {
+                        return false;
+                    }
+                    if (subscription != null) {
+                        previousTopicFilters.add(subscription.getTopicFilter());
+                    }
+                    subscription = subscriptions.next();
+                    retainedMsgs = getRetainedMessages(subscription);
+                    continue;
+                }
+                RetainedMsg retainedMsg = retainedMsgs.next();
+                if (isReturnedForPreviousSubscription(retainedMsg.getTopic())) {
+                    continue;
+                }
+                next = toSubscriptionRetainedMsg(subscription, retainedMsg, currentTs);
+            }
+            return true;
+        }
+
+        private boolean isReturnedForPreviousSubscription(String topic) {
+            for (String topicFilter : previousTopicFilters) {
+                if (topicFilterMatches(topicFilter, topic)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public RetainedMsg next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            int minQoSValue = getMinQoSValue(topicSubscription, retainedMsg);
-            RetainedMsg newRetainedMsg = newRetainedMsg(retainedMsg, minQoSValue);
+            RetainedMsg retainedMsg = next;
+            next = null;
+            return retainedMsg;
+        }
+    }
 
-            if (msgExpiryResult.isMsgExpiryIntervalPresent()) {
-                MqttPropertiesUtil.addMsgExpiryIntervalToPublish(newRetainedMsg.getProperties(), msgExpiryResult.getMsgExpiryInterval());
+    /**
+     * Matches the topic against the filter the same way the retained msg trie does: '#' also matches the parent level,
+     * and a wildcard at the first level does not match topics starting with '$'.
+     */
+    static boolean topicFilterMatches(String topicFilter, String topic) {
+        if (topic.startsWith("$") && (topicFilter.startsWith(BrokerConstants.SINGLE_LEVEL_WILDCARD)
+                || topicFilter.startsWith(BrokerConstants.MULTI_LEVEL_WILDCARD))) {
+            return false;
+        }
+        String[] filterLevels = topicFilter.split(BrokerConstants.TOPIC_DELIMITER_STR, -1);
+        String[] topicLevels = topic.split(BrokerConstants.TOPIC_DELIMITER_STR, -1);
+        for (int i = 0; i < filterLevels.length; i++) {
+            if (filterLevels[i].equals(BrokerConstants.MULTI_LEVEL_WILDCARD)) {
+                return true;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!filterLevels[i].equals(BrokerConstants.SINGLE_LEVEL_WILDCARD) && !filterLevels[i].equals(topicLevels[i])) {
+                return false;
             }
-            result.add(newRetainedMsg);
         }
-        return result;
+        return filterLevels.length == topicLevels.length;
     }
 
-    private List<RetainedMsg> getRetainedMessages(TopicSubscription topicSubscription) {
-        return retainedMsgService.getRetainedMessages(topicSubscription.getTopicFilter());
+    /**
+     * Sends retained messages in bounded chunks on the channel event loop, yielding between the chunks and pausing
+     * while the client's receive maximum is exhausted or the channel is not writable.
+     */
+    @RequiredArgsConstructor
+    private class RetainedMsgDelivery implements Runnable {
+
+        private final ClientSessionCtx ctx;
+        private final Iterator<RetainedMsg> retainedMsgs;
+
+        @Override
+        public void run() {
+            ChannelHandlerContext channelCtx = ctx.getChannel();
+            if (!channelCtx.channel().isActive()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}][{}] Channel is closed, stopping retained messages delivery", ctx.getClientId(), ctx.getSessionId());
+                }
+                return;
+            }
+            int chunkSize = Math.min(retainedMsgDeliveryChunkSize, ctx.getAvailableInFlightSlots());
+            if (chunkSize <= 0 || !channelCtx.channel().isWritable()) {
+                channelCtx.executor().schedule(this, retainedMsgDeliveryPauseMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+            try {
+                Set<RetainedMsg> chunk = new LinkedHashSet<>(chunkSize);
+                while (chunk.size() < chunkSize && retainedMsgs.hasNext()) {
+                    chunk.add(retainedMsgs.next());
+                }
+                Set<RetainedMsg> allowedChunk = applyRateLimits(chunk);
+                allowedChunk.forEach(retainedMsg -> publishMsgDeliveryService.sendPublishRetainedMsgToClient(ctx, retainedMsg));
+                if (allowedChunk.size() < chunk.size()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}][{}] Rate limits reached, skipping the rest of retained messages", ctx.getClientId(), ctx.getSessionId());
+                    }
+                    return;
+                }
+                if (retainedMsgs.hasNext()) {
+                    channelCtx.executor().execute(this);
+                }
+            } catch (Exception e) {
+                log.warn("[{}][{}] Failed to deliver retained messages", ctx.getClientId(), ctx.getSessionId(), e);
+            }
+        }
     }
 
     private RetainedMsg newRetainedMsg(RetainedMsg retainedMsg, int minQoSValue) {
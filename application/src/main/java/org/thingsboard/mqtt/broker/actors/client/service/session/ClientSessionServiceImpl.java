@@ -28,14 +28,13 @@ import org.thingsboard.mqtt.broker.exception.MqttException;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionConsumer;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionIndex;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionPersistenceService;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
@@ -49,13 +48,12 @@ public class ClientSessionServiceImpl implements ClientSessionService {
     private final ClientSessionPersistenceService clientSessionPersistenceService;
     private final ServiceInfoProvider serviceInfoProvider;
     private final StatsManager statsManager;
-
-    private ConcurrentMap<String, ClientSessionInfo> clientSessionMap;
+    private final ClientSessionIndex clientSessionIndex;
 
     @Override
     public void init(Map<String, ClientSessionInfo> clientSessionInfos) {
-        this.clientSessionMap = new ConcurrentHashMap<>(clientSessionInfos);
-        statsManager.registerAllClientSessionsStats(clientSessionMap);
+        clientSessionIndex.init(clientSessionInfos);
+        statsManager.registerAllClientSessionsStats(clientSessionIndex.asMap());
     }
 
     @Override
@@ -75,7 +73,7 @@ public class ClientSessionServiceImpl implements ClientSessionService {
         }
 
         ClientSessionInfo clientSessionInfo = ClientSessionInfoFactory.clientSessionToClientSessionInfo(clientSession);
-        clientSessionMap.put(clientId, clientSessionInfo);
+        clientSessionIndex.put(clientId, clientSessionInfo);
 
         QueueProtos.ClientSessionInfoProto clientSessionInfoProto = ProtoConverter.convertToClientSessionInfoProto(clientSessionInfo);
         clientSessionPersistenceService.persistClientSessionInfoAsync(clientId, clientSessionInfoProto, callback);
@@ -90,7 +88,7 @@ public class ClientSessionServiceImpl implements ClientSessionService {
         if (log.isTraceEnabled()) {
             log.trace("[{}] Clearing ClientSession.", clientId);
         }
-        ClientSessionInfo removedClientSessionInfo = clientSessionMap.remove(clientId);
+        ClientSessionInfo removedClientSessionInfo = clientSessionIndex.remove(clientId);
         if (removedClientSessionInfo == null) {
             log.warn("[{}] No client session found while clearing session.", clientId);
         }
@@ -99,14 +97,14 @@ public class ClientSessionServiceImpl implements ClientSessionService {
 
     @Override
     public Map<String, ClientSessionInfo> getPersistentClientSessionInfos() {
-        return clientSessionMap.entrySet().stream()
+        return clientSessionIndex.asMap().entrySet().stream()
                 .filter(entry -> isPersistent(entry.getValue()))
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
     @Override
     public ClientSession getClientSession(String clientId) {
-        ClientSessionInfo clientSessionInfo = clientSessionMap.getOrDefault(clientId, null);
+        ClientSessionInfo clientSessionInfo = clientSessionIndex.get(clientId);
         if (clientSessionInfo != null) {
             SessionInfo sessionInfo = ClientSessionInfoFactory.clientSessionInfoToSessionInfo(clientSessionInfo);
             return new ClientSession(clientSessionInfo.isConnected(), sessionInfo);
@@ -116,18 +114,17 @@ public class ClientSessionServiceImpl implements ClientSessionService {
 
     @Override
     public ClientSessionInfo getClientSessionInfo(String clientId) {
-        return clientSessionMap.get(clientId);
+        return clientSessionIndex.get(clientId);
     }
 
     @Override
     public Map<String, ClientSessionInfo> getAllClientSessions() {
-        Map<String, ClientSessionInfo> allClientSessionsMap = clientSessionMap == null ? Map.of() : clientSessionMap;
-        return new HashMap<>(allClientSessionsMap);
+        return new HashMap<>(clientSessionIndex.asMap());
     }
 
     @Override
     public int getClientSessionsCount() {
-        return clientSessionMap == null ? 0 : clientSessionMap.size();
+        return clientSessionIndex.getTotalCount();
     }
 
     private void processSessionUpdate(String clientId, String serviceId, ClientSessionInfo clientSessionInfo) {
@@ -141,12 +138,12 @@ public class ClientSessionServiceImpl implements ClientSessionService {
             if (log.isTraceEnabled()) {
                 log.trace("[{}][{}] Clearing remote ClientSession.", serviceId, clientId);
             }
-            clientSessionMap.remove(clientId);
+            clientSessionIndex.remove(clientId);
         } else {
             if (log.isTraceEnabled()) {
                 log.trace("[{}][{}] Saving remote ClientSession.", serviceId, clientId);
             }
-            clientSessionMap.put(clientId, clientSessionInfo);
+            clientSessionIndex.put(clientId, clientSessionInfo);
         }
     }
 
@@ -28,9 +28,9 @@ import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptio
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionProcessor;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,7 +52,8 @@ public class ClientSubscriptionServiceImpl implements ClientSubscriptionService
     private final SharedSubscriptionCacheService sharedSubscriptionCacheService;
     private final StatsManager statsManager;
 
-    private ConcurrentMap<String, Set<TopicSubscription>> clientSubscriptionsMap;
+    // the subscriptions of a client are replaced as a whole on every change, clients without subscriptions are not kept
+    private ConcurrentMap<String, ClientSubscriptions> clientSubscriptionsMap;
 
     // TODO: sync subscriptions (and probably ClientSession)
     //      - store events for each action in separate topic + sometimes make snapshots (apply events on 'value' sequentially)
@@ -60,7 +61,13 @@ public class ClientSubscriptionServiceImpl implements ClientSubscriptionService
 
     @Override
     public void init(Map<String, Set<TopicSubscription>> clientTopicSubscriptions) {
-        this.clientSubscriptionsMap = new ConcurrentHashMap<>(clientTopicSubscriptions);
+        this.clientSubscriptionsMap = new ConcurrentHashMap<>(clientTopicSubscriptions.size());
+        clientTopicSubscriptions.forEach((clientId, topicSubscriptions) -> {
+            ClientSubscriptions clientSubscriptions = ClientSubscriptions.of(topicSubscriptions);
+            if (!clientSubscriptions.isEmpty()) {
+                clientSubscriptionsMap.put(clientId, clientSubscriptions);
+            }
+        });
         statsManager.registerClientSubscriptionsStats(clientSubscriptionsMap);
 
         log.info("Restoring persisted subscriptions for {} clients.", clientSubscriptionsMap.size());
@@ -104,14 +111,13 @@ public class ClientSubscriptionServiceImpl implements ClientSubscriptionService
     }
 
     private Set<TopicSubscription> subscribe(String clientId, Collection<TopicSubscription> topicSubscriptions) {
-        subscriptionService.subscribe(clientId, topicSubscriptions);
+        List<TopicSubscription> canonicalSubscriptions = topicSubscriptions.stream().map(ClientSubscriptions::canonical).toList();
+        subscriptionService.subscribe(clientId, canonicalSubscriptions);
 
-        sharedSubscriptionCacheService.put(clientId, topicSubscriptions);
+        sharedSubscriptionCacheService.put(clientId, canonicalSubscriptions);
 
-        Set<TopicSubscription> clientSubscriptions = clientSubscriptionsMap.computeIfAbsent(clientId, s -> new HashSet<>());
-        clientSubscriptions.removeIf(topicSubscriptions::contains);
-        clientSubscriptions.addAll(topicSubscriptions);
-        return clientSubscriptions;
+        return clientSubscriptionsMap.compute(clientId, (id, clientSubscriptions) ->
+                (clientSubscriptions == null ? ClientSubscriptions.EMPTY : clientSubscriptions).with(canonicalSubscriptions));
     }
 
     @Override
@@ -148,15 +154,13 @@ public class ClientSubscriptionServiceImpl implements ClientSubscriptionService
         List<String> topics = extractTopicFilterFromSharedTopic(topicFilters);
         subscriptionService.unsubscribe(clientId, topics);
 
-        Set<TopicSubscription> clientSubscriptions = clientSubscriptionsMap.computeIfAbsent(clientId, s -> new HashSet<>());
-        clientSubscriptions.removeIf(topicSubscription -> {
-            boolean unsubscribe = topics.contains(topicSubscription.getTopicFilter());
-            if (unsubscribe) {
-                processSharedUnsubscribe(clientId, topicSubscription);
-            }
-            return unsubscribe;
+        List<TopicSubscription> removedSubscriptions = new ArrayList<>();
+        ClientSubscriptions clientSubscriptions = clientSubscriptionsMap.computeIfPresent(clientId, (id, currentSubscriptions) -> {
+            ClientSubscriptions updatedSubscriptions = currentSubscriptions.without(topics, removedSubscriptions::add);
+            return updatedSubscriptions.isEmpty() ? null : updatedSubscriptions;
         });
-        return clientSubscriptions;
+        removedSubscriptions.forEach(topicSubscription -> processSharedUnsubscribe(clientId, topicSubscription));
+        return clientSubscriptions == null ? ClientSubscriptions.EMPTY : clientSubscriptions;
     }
 
     private List<String> extractTopicFilterFromSharedTopic(Collection<String> topicFilters) {
@@ -188,7 +192,7 @@ public class ClientSubscriptionServiceImpl implements ClientSubscriptionService
     }
 
     private void clearSubscriptions(String clientId) {
-        Set<TopicSubscription> clientSubscriptions = clientSubscriptionsMap.remove(clientId);
+        ClientSubscriptions clientSubscriptions = clientSubscriptionsMap.remove(clientId);
         if (clientSubscriptions == null) {
             if (log.isDebugEnabled()) {
                 log.debug("[{}] There were no active subscriptions for client.", clientId);
@@ -204,7 +208,7 @@ public class ClientSubscriptionServiceImpl implements ClientSubscriptionService
 
     @Override
     public Set<TopicSubscription> getClientSubscriptions(String clientId) {
-        return new HashSet<>(clientSubscriptionsMap.getOrDefault(clientId, Collections.emptySet()));
+        return clientSubscriptionsMap.getOrDefault(clientId, ClientSubscriptions.EMPTY);
     }
 
     @Override
@@ -0,0 +1,167 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors.client.service.subscription;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Immutable set of the subscriptions of one client, backed by an array sorted by topic filter.
+ * <p>
+ * Like {@link TopicSubscription#equals}, the set holds at most one subscription per topic filter. Every change creates
+ * a new instance that replaces the previous one in the registry, so an instance can be handed out without copying.
+ * Topic filters and share names are interned and options are replaced by their shared instances, so many clients
+ * subscribed to the same filters do not keep copies of the same strings and option objects.
+ */
+public final class ClientSubscriptions extends AbstractSet<TopicSubscription> {
+
+    public static final ClientSubscriptions EMPTY = new ClientSubscriptions(new TopicSubscription[0]);
+
+    private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+    private static final Comparator<TopicSubscription> TOPIC_FILTER_COMPARATOR = Comparator.comparing(TopicSubscription::getTopicFilter);
+
+    private final TopicSubscription[] subscriptions;
+
+    private ClientSubscriptions(TopicSubscription[] subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    public static ClientSubscriptions of(Collection<TopicSubscription> topicSubscriptions) {
+        if (topicSubscriptions instanceof ClientSubscriptions clientSubscriptions) {
+            return clientSubscriptions;
+        }
+        return EMPTY.with(topicSubscriptions);
+    }
+
+    /**
+     * Returns the subscription with interned topic filter and share name and with the shared options instance.
+     * The subscription itself is returned when it already uses them.
+     */
+    public static TopicSubscription canonical(TopicSubscription topicSubscription) {
+        String topicFilter = intern(topicSubscription.getTopicFilter());
+        String shareName = intern(topicSubscription.getShareName());
+        SubscriptionOptions options = SubscriptionOptions.canonical(topicSubscription.getOptions());
+        if (topicFilter == topicSubscription.getTopicFilter()
+                && shareName == topicSubscription.getShareName()
+                && options == topicSubscription.getOptions()) {
+            return topicSubscription;
+        }
+        return new TopicSubscription(topicFilter, topicSubscription.getQos(), shareName, options);
+    }
+
+    /**
+     * Returns the subscriptions with the given ones added, replacing the current subscriptions to the same topic filters.
+     * The first of several given subscriptions to the same topic filter wins.
+     */
+    public ClientSubscriptions with(Collection<TopicSubscription> topicSubscriptions) {
+        if (topicSubscriptions.isEmpty()) {
+            return this;
+        }
+        TreeMap<String, TopicSubscription> added = new TreeMap<>();
+        for (TopicSubscription topicSubscription : topicSubscriptions) {
+            added.putIfAbsent(topicSubscription.getTopicFilter(), topicSubscription);
+        }
+
+        TopicSubscription[] merged = new TopicSubscription[subscriptions.length + added.size()];
+        int size = 0;
+        int i = 0;
+        for (TopicSubscription addedSubscription : added.values()) {
+            while (i < subscriptions.length && subscriptions[i].getTopicFilter().compareTo(addedSubscription.getTopicFilter()) < 0) {
+                merged[size++] = subscriptions[i++];
+            }
+            if (i < subscriptions.length && subscriptions[i].getTopicFilter().equals(addedSubscription.getTopicFilter())) {
+                i++;
+            }
+            merged[size++] = canonical(addedSubscription);
+        }
+        while (i < subscriptions.length) {
+            merged[size++] = subscriptions[i++];
+        }
+        return new ClientSubscriptions(size == merged.length ? merged : Arrays.copyOf(merged, size));
+    }
+
+    /**
+     * Returns the subscriptions without the ones to the given topic filters, passing each removed subscription
+     * to the given consumer.
+     */
+    public ClientSubscriptions without(Collection<String> topicFilters, Consumer<TopicSubscription> removedSubscriptionConsumer) {
+        if (subscriptions.length == 0 || topicFilters.isEmpty()) {
+            return this;
+        }
+        Set<String> removedTopicFilters = topicFilters instanceof Set<String> set ? set : new HashSet<>(topicFilters);
+        TopicSubscription[] remaining = new TopicSubscription[subscriptions.length];
+        int size = 0;
+        for (TopicSubscription subscription : subscriptions) {
+            if (removedTopicFilters.contains(subscription.getTopicFilter())) {
+                removedSubscriptionConsumer.accept(subscription);
+            } else {
+                remaining[size++] = subscription;
+            }
+        }
+        if (size == subscriptions.length) {
+            return this;
+        }
+        return size == 0 ? EMPTY : new ClientSubscriptions(Arrays.copyOf(remaining, size));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof TopicSubscription topicSubscription
+                && Arrays.binarySearch(subscriptions, topicSubscription, TOPIC_FILTER_COMPARATOR) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return subscriptions.length;
+    }
+
+    @Override
+    public Iterator<TopicSubscription> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < subscriptions.length;
+            }
+
+            @Override
+            public TopicSubscription next() {
+                if (next >= subscriptions.length) {
+                    throw new NoSuchElementException();
+                }
+                return subscriptions[next++];
+            }
+        };
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : STRING_INTERNER.intern(value);
+    }
+}
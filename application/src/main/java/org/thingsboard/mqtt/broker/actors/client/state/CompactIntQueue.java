@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors.client.state;
+
+import java.util.NoSuchElementException;
+
+/**
+ * FIFO queue of int values backed by a circular array. The array is allocated with the first element,
+ * grows by doubling, shrinks when mostly empty and is released once the queue is drained,
+ * so an idle queue holds no array and a queue of one element holds a single-slot array.
+ * <p>
+ * Not thread-safe
+ */
+public class CompactIntQueue {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_SHRINK_CAPACITY = 8;
+
+    private int[] elements = EMPTY;
+    private int head;
+    private int size;
+
+    public void add(int value) {
+        if (size == elements.length) {
+            resize(Math.max(1, size << 1));
+        }
+        elements[index(size)] = value;
+        size++;
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elements[head];
+    }
+
+    public int poll() {
+        int value = peek();
+        head = index(1);
+        size--;
+        onRemoved();
+        return value;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int count(int value) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (elements[index(i)] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean removeFirstOccurrence(int value) {
+        int position = indexOf(value);
+        if (position < 0) {
+            return false;
+        }
+        for (int i = position; i < size - 1; i++) {
+            elements[index(i)] = elements[index(i + 1)];
+        }
+        size--;
+        onRemoved();
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+
+    private int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[index(i)] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void onRemoved() {
+        if (size == 0) {
+            elements = EMPTY;
+            head = 0;
+        } else if (elements.length > MIN_SHRINK_CAPACITY && size <= elements.length >> 2) {
+            resize(elements.length >> 1);
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] newElements = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            newElements[i] = elements[index(i)];
+        }
+        elements = newElements;
+        head = 0;
+    }
+
+    private int index(int position) {
+        int index = head + position;
+        return index < elements.length ? index : index - elements.length;
+    }
+}
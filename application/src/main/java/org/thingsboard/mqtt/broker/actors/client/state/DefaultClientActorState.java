@@ -74,6 +74,9 @@ public class DefaultClientActorState implements ClientActorState {
     @Override
     public void updateSessionState(SessionState newState) {
         this.currentSessionState = newState;
+        if (clientSessionCtx != null) {
+            clientSessionCtx.setConnected(newState == SessionState.CONNECTED);
+        }
     }
 
     @Override
@@ -19,10 +19,9 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.thingsboard.mqtt.broker.exception.FullMsgQueueException;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 /**
  * Not thread-safe
@@ -31,13 +30,13 @@ import java.util.Queue;
 @Getter
 public class OrderedProcessingQueueImpl implements OrderedProcessingQueue {
 
-    private final Queue<Integer> awaitingMsgIds = new LinkedList<>();
-    private final Queue<Integer> finishedMsgIds = new LinkedList<>();
+    private final CompactIntQueue awaitingMsgIds = new CompactIntQueue();
+    private final CompactIntQueue finishedMsgIds = new CompactIntQueue();
 
     private final int maxAwaitingQueueSize;
 
     @Override
-    public void addAwaiting(int msgId) throws FullMsgQueueException {
+    public synchronized void addAwaiting(int msgId) throws FullMsgQueueException {
         if (awaitingMsgIds.size() >= maxAwaitingQueueSize) {
             throw new FullMsgQueueException("In-flight queue size is already " + awaitingMsgIds.size());
         }
@@ -45,7 +44,7 @@ public class OrderedProcessingQueueImpl implements OrderedProcessingQueue {
     }
 
     @Override
-    public List<Integer> finish(int msgId) throws FullMsgQueueException {
+    public synchronized List<Integer> finish(int msgId) throws FullMsgQueueException {
         if (awaitingMsgIds.isEmpty()) {
             throw new FullMsgQueueException("In-flight messages queue is empty, nothing to acknowledge");
         }
@@ -57,45 +56,34 @@ public class OrderedProcessingQueueImpl implements OrderedProcessingQueue {
             return Collections.emptyList();
         }
         awaitingMsgIds.poll();
-        LinkedList<Integer> orderedFinishedMessages = getOrderedFinishedMessages();
-        orderedFinishedMessages.addFirst(msgId);
+        if (awaitingMsgIds.isEmpty() || finishedMsgIds.isEmpty()) {
+            return Collections.singletonList(msgId);
+        }
+        List<Integer> orderedFinishedMessages = new ArrayList<>();
+        orderedFinishedMessages.add(msgId);
+        addOrderedFinishedMessages(orderedFinishedMessages);
         return orderedFinishedMessages;
     }
 
     @Override
-    public List<Integer> finishAll(int msgId) throws FullMsgQueueException {
-        long numberOfAwaitingMessages = getCountOfAwaitingMessagesById(msgId);
-        LinkedList<Integer> orderedFinishedMessages = new LinkedList<>();
+    public synchronized List<Integer> finishAll(int msgId) throws FullMsgQueueException {
+        int numberOfAwaitingMessages = awaitingMsgIds.count(msgId);
+        List<Integer> orderedFinishedMessages = new ArrayList<>();
         for (int i = 0; i < numberOfAwaitingMessages; i++) {
             orderedFinishedMessages.addAll(finish(msgId));
         }
         return orderedFinishedMessages;
     }
 
-    private LinkedList<Integer> getOrderedFinishedMessages() {
-        LinkedList<Integer> orderedFinishedMessages = new LinkedList<>();
-        boolean isSequenceBroken = false;
-        while (!awaitingMsgIds.isEmpty() && !isSequenceBroken) {
+    private void addOrderedFinishedMessages(List<Integer> orderedFinishedMessages) {
+        while (!awaitingMsgIds.isEmpty()) {
             int firstAwaitingMsg = awaitingMsgIds.peek();
-            if (finishedMsgIds.contains(firstAwaitingMsg)) {
-                finishedMsgIds.remove(firstAwaitingMsg);
-                awaitingMsgIds.poll();
-                orderedFinishedMessages.add(firstAwaitingMsg);
-            } else {
-                isSequenceBroken = true;
-            }
-        }
-        return orderedFinishedMessages;
-    }
-
-    private long getCountOfAwaitingMessagesById(int msgId) {
-        int count = 0;
-        for (int i : awaitingMsgIds) {
-            if (i == msgId) {
-                count++;
+            if (!finishedMsgIds.removeFirstOccurrence(firstAwaitingMsg)) {
+                return;
             }
+            awaitingMsgIds.poll();
+            orderedFinishedMessages.add(firstAwaitingMsg);
         }
-        return count;
     }
 
 }
@@ -15,16 +15,69 @@
  */
 package org.thingsboard.mqtt.broker.actors.client.state;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 @Getter
 public class PubResponseProcessingCtx {
 
     private final OrderedProcessingQueue qos1PubAckResponseMessages;
     private final OrderedProcessingQueue qos2PubRecResponseMessages;
 
+    // messages persisted since the last flush of PUBACK/PUBREC responses on the channel event loop,
+    // the queues are created with the first persisted message as most of the sessions never use them
+    @Getter(AccessLevel.NONE)
+    private volatile Queue<Integer> persistedQos1MsgIds;
+    @Getter(AccessLevel.NONE)
+    private volatile Queue<Integer> persistedQos2MsgIds;
+    private final AtomicBoolean pubResponsesFlushScheduled = new AtomicBoolean();
+
     public PubResponseProcessingCtx(int maxAwaitingQueueSize) {
         this.qos1PubAckResponseMessages = new OrderedProcessingQueueImpl(maxAwaitingQueueSize);
         this.qos2PubRecResponseMessages = new OrderedProcessingQueueImpl(maxAwaitingQueueSize);
     }
+
+    public void addPersistedQos1MsgId(int msgId) {
+        Queue<Integer> msgIds = persistedQos1MsgIds;
+        if (msgIds == null) {
+            msgIds = initPersistedQos1MsgIds();
+        }
+        msgIds.add(msgId);
+    }
+
+    public void addPersistedQos2MsgId(int msgId) {
+        Queue<Integer> msgIds = persistedQos2MsgIds;
+        if (msgIds == null) {
+            msgIds = initPersistedQos2MsgIds();
+        }
+        msgIds.add(msgId);
+    }
+
+    public Integer pollPersistedQos1MsgId() {
+        Queue<Integer> msgIds = persistedQos1MsgIds;
+        return msgIds != null ? msgIds.poll() : null;
+    }
+
+    public Integer pollPersistedQos2MsgId() {
+        Queue<Integer> msgIds = persistedQos2MsgIds;
+        return msgIds != null ? msgIds.poll() : null;
+    }
+
+    private synchronized Queue<Integer> initPersistedQos1MsgIds() {
+        if (persistedQos1MsgIds == null) {
+            persistedQos1MsgIds = new ConcurrentLinkedQueue<>();
+        }
+        return persistedQos1MsgIds;
+    }
+
+    private synchronized Queue<Integer> initPersistedQos2MsgIds() {
+        if (persistedQos2MsgIds == null) {
+            persistedQos2MsgIds = new ConcurrentLinkedQueue<>();
+        }
+        return persistedQos2MsgIds;
+    }
 }
@@ -24,4 +24,6 @@ public interface PublishedInFlightCtx {
     void ackInFlightMsg(int msgId);
 
     boolean processMsg(long ttlMs);
+
+    int getAvailableInFlightSlots();
 }
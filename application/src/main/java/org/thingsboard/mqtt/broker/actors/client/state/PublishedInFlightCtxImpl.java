@@ -180,6 +180,11 @@ public class PublishedInFlightCtxImpl implements PublishedInFlightCtx {
         }
     }
 
+    @Override
+    public int getAvailableInFlightSlots() {
+        return Math.max(0, clientReceiveMax - publishedInFlightMsgQueueSize() - delayedMsgQueueSize());
+    }
+
     public void sendDelayedMsg(MqttPublishMessage mqttPubMsg) {
         clientSessionCtx.getChannel().writeAndFlush(mqttPubMsg);
     }
@@ -20,7 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.QueueableMqttMsg;
 import org.thingsboard.mqtt.broker.exception.FullMsgQueueException;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.function.Consumer;
 
@@ -31,28 +31,38 @@ import java.util.function.Consumer;
 @RequiredArgsConstructor
 public class QueuedMqttMessages {
 
-    private final Queue<QueueableMqttMsg> queuedMessages = new LinkedList<>();
+    // created with the first message queued before the session is connected and released once processed
+    private Queue<QueueableMqttMsg> queuedMessages;
 
     private final int maxQueueSize;
 
     public void process(Consumer<QueueableMqttMsg> processor) {
+        if (queuedMessages == null) {
+            return;
+        }
         while (!queuedMessages.isEmpty()) {
             QueueableMqttMsg msg = queuedMessages.poll();
             processor.accept(msg);
         }
+        queuedMessages = null;
     }
 
     public void add(QueueableMqttMsg msg) throws FullMsgQueueException {
-        if (queuedMessages.size() >= maxQueueSize) {
-            throw new FullMsgQueueException("Current queue size is " + queuedMessages.size());
-        } else {
-            queuedMessages.add(msg);
+        int size = queuedMessages != null ? queuedMessages.size() : 0;
+        if (size >= maxQueueSize) {
+            throw new FullMsgQueueException("Current queue size is " + size);
+        }
+        if (queuedMessages == null) {
+            queuedMessages = new ArrayDeque<>();
         }
+        queuedMessages.add(msg);
     }
 
     public void clear() {
-        queuedMessages.forEach(QueueableMqttMsg::release);
-        queuedMessages.clear();
+        if (queuedMessages != null) {
+            queuedMessages.forEach(QueueableMqttMsg::release);
+            queuedMessages = null;
+        }
     }
 
 }
@@ -48,7 +48,7 @@ public class PersistedDeviceActor extends ContextAwareActor {
         if (log.isTraceEnabled()) {
             log.trace("[{}] Received {} msg.", clientId, msg.getMsgType());
         }
-        clientLogger.logEvent(clientId, this.getClass(), "Received msg - " + msg.getMsgType());
+        clientLogger.logEvent(clientId, this.getClass(), "Received msg - {}", msg.getMsgType());
         switch (msg.getMsgType()) {
             case DEVICE_CONNECTED_EVENT_MSG:
                 processor.processDeviceConnect((DeviceConnectedEventMsg) msg);
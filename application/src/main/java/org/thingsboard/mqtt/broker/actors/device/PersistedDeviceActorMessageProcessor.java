@@ -47,6 +47,7 @@ import org.thingsboard.mqtt.broker.dto.SharedSubscriptionPublishPacket;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
@@ -75,6 +76,7 @@ class PersistedDeviceActorMessageProcessor extends AbstractContextAwareMsgProces
     private final ClientLogger clientLogger;
     private final DeviceActorConfiguration deviceActorConfig;
     private final SharedSubscriptionCacheService sharedSubscriptionCacheService;
+    private final PayloadCompressionService payloadCompressionService;
 
     private final Set<Integer> inFlightPacketIds = Sets.newConcurrentHashSet();
     private final ConcurrentMap<Integer, SharedSubscriptionPublishPacket> sentPacketIdsFromSharedSubscription = Maps.newConcurrentMap();
@@ -98,6 +100,7 @@ class PersistedDeviceActorMessageProcessor extends AbstractContextAwareMsgProces
         this.clientLogger = systemContext.getClientLogger();
         this.deviceActorConfig = systemContext.getDeviceActorConfiguration();
         this.sharedSubscriptionCacheService = systemContext.getSharedSubscriptionCacheService();
+        this.payloadCompressionService = systemContext.getPayloadCompressionService();
     }
 
     public void processDeviceConnect(DeviceConnectedEventMsg msg) {
@@ -283,7 +286,7 @@ class PersistedDeviceActorMessageProcessor extends AbstractContextAwareMsgProces
         return PublishMsg.builder()
                 .packetId(publishMsg.getPacketId())
                 .topicName(publishMsg.getTopic())
-                .payload(publishMsg.getPayload())
+                .payload(payloadCompressionService.getPayload(publishMsg))
                 .qosLevel(publishMsg.getQos())
                 .isDup(isDup)
                 .properties(publishMsg.getProperties())
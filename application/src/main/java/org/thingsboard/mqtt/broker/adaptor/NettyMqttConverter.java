@@ -49,6 +49,7 @@ import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -107,6 +108,10 @@ public class NettyMqttConverter {
         return new MqttPublishMsg(sessionId, extractPublishMsg(nettyPublishMsg));
     }
 
+    public static MqttPublishMsg createMqttPublishMsg(UUID sessionId, MqttPublishMessage nettyPublishMsg, AtomicInteger pendingMsgsCounter) {
+        return new MqttPublishMsg(sessionId, extractPublishMsg(nettyPublishMsg), pendingMsgsCounter);
+    }
+
     public static MqttPubAckMsg createMqttPubAckMsg(UUID sessionId, MqttPubReplyMessageVariableHeader variableHeader) {
         MqttReasonCodes.PubAck pubAckReasonCode = MqttReasonCodes.PubAck.valueOf(variableHeader.reasonCode());
         return new MqttPubAckMsg(sessionId, variableHeader.messageId(), pubAckReasonCode);
@@ -174,6 +179,7 @@ public class NettyMqttConverter {
                 .isDup(mqttPublishMessage.fixedHeader().isDup())
                 .byteBuf(byteBuf)
                 .properties(mqttPublishMessage.variableHeader().properties())
+                .receivedTimeNanos(System.nanoTime())
                 .build();
     }
 
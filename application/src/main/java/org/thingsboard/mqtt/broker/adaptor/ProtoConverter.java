@@ -56,6 +56,20 @@ public class ProtoConverter {
      */
 
     public static QueueProtos.PublishMsgProto convertToPublishMsgProto(SessionInfo sessionInfo, PublishMsg publishMsg) {
+        return toPublishMsgProtoBuilder(sessionInfo, publishMsg).build();
+    }
+
+    public static QueueProtos.PublishMsgProto convertToPublishMsgProto(SessionInfo sessionInfo, PublishMsg publishMsg,
+                                                                      long receivedTimeMicros, long producedTimeMicros) {
+        return toPublishMsgProtoBuilder(sessionInfo, publishMsg)
+                .setTiming(QueueProtos.PublishMsgTimingProto.newBuilder()
+                        .setReceivedTime(receivedTimeMicros)
+                        .setProducedTime(producedTimeMicros)
+                        .build())
+                .build();
+    }
+
+    private static QueueProtos.PublishMsgProto.Builder toPublishMsgProtoBuilder(SessionInfo sessionInfo, PublishMsg publishMsg) {
         UserProperties userProperties = MqttPropertiesUtil.getUserProperties(publishMsg.getProperties());
         QueueProtos.PublishMsgProto.Builder builder = QueueProtos.PublishMsgProto.newBuilder()
                 .setPacketId(publishMsg.getPacketId())
@@ -73,7 +87,13 @@ public class ProtoConverter {
             builder.setMqttProperties(mqttPropsProtoBuilder);
         }
 
-        return builder.build();
+        return builder;
+    }
+
+    public static QueueProtos.PublishMsgProto withDispatchedTime(QueueProtos.PublishMsgProto publishMsgProto, long dispatchedTimeMicros) {
+        return publishMsgProto.toBuilder()
+                .setTiming(publishMsgProto.getTiming().toBuilder().setDispatchedTime(dispatchedTimeMicros))
+                .build();
     }
 
     public static QueueProtos.PublishMsgProto convertToPublishMsgProto(DevicePublishMsg devicePublishMsg) {
@@ -84,7 +104,8 @@ public class ProtoConverter {
                 .setQos(devicePublishMsg.getQos())
                 .setPayload(ByteString.copyFrom(devicePublishMsg.getPayload()))
                 .addAllUserProperties(toUserPropertyProtos(userProperties))
-                .setRetain(devicePublishMsg.isRetained());
+                .setRetain(devicePublishMsg.isRetained())
+                .setPayloadCompressed(devicePublishMsg.isPayloadCompressed());
 
         QueueProtos.MqttPropertiesProto.Builder mqttPropsProtoBuilder = getMqttPropsProtoBuilder(devicePublishMsg.getProperties());
         if (mqttPropsProtoBuilder != null) {
@@ -96,10 +117,15 @@ public class ProtoConverter {
 
     public static PublishMsg convertToPublishMsg(QueueProtos.PublishMsgProto msg, int packetId,
                                                  int qos, boolean isDup) {
-        return convertProtoToPublishMsg(msg, packetId, qos, isDup);
+        return convertProtoToPublishMsg(msg, msg.getPayload().toByteArray(), packetId, qos, isDup);
+    }
+
+    public static PublishMsg convertToPublishMsg(QueueProtos.PublishMsgProto msg, byte[] payload, int packetId,
+                                                 int qos, boolean isDup) {
+        return convertProtoToPublishMsg(msg, payload, packetId, qos, isDup);
     }
 
-    private static PublishMsg convertProtoToPublishMsg(QueueProtos.PublishMsgProto msg, int packetId, int qos, boolean isDup) {
+    private static PublishMsg convertProtoToPublishMsg(QueueProtos.PublishMsgProto msg, byte[] payload, int packetId, int qos, boolean isDup) {
         MqttProperties properties = createMqttPropertiesWithUserPropsIfPresent(msg.getUserPropertiesList());
         if (msg.hasMqttProperties()) {
             addFromProtoToMqttProperties(msg.getMqttProperties(), properties);
@@ -107,7 +133,7 @@ public class ProtoConverter {
         return PublishMsg.builder()
                 .topicName(msg.getTopicName())
                 .isRetained(msg.getRetain())
-                .payload(msg.getPayload().toByteArray())
+                .payload(payload)
                 .properties(properties)
                 .packetId(packetId)
                 .qosLevel(qos)
@@ -129,6 +155,7 @@ public class ProtoConverter {
                 .payload(publishMsgProto.getPayload().toByteArray())
                 .properties(mqttProperties)
                 .isRetained(publishMsgProto.getRetain())
+                .payloadCompressed(publishMsgProto.getPayloadCompressed())
                 .packetId(BrokerConstants.BLANK_PACKET_ID)
                 .serialNumber(BrokerConstants.BLANK_SERIAL_NUMBER)
                 .packetType(PersistedPacketType.PUBLISH)
@@ -148,7 +175,8 @@ public class ProtoConverter {
                 .setClientId(devicePublishMsg.getClientId())
                 .setPacketType(devicePublishMsg.getPacketType().toString())
                 .addAllUserProperties(toUserPropertyProtos(userProperties))
-                .setRetain(devicePublishMsg.isRetained());
+                .setRetain(devicePublishMsg.isRetained())
+                .setPayloadCompressed(devicePublishMsg.isPayloadCompressed());
 
         QueueProtos.MqttPropertiesProto.Builder mqttPropsProtoBuilder = getMqttPropsProtoBuilder(devicePublishMsg.getProperties());
         if (mqttPropsProtoBuilder != null) {
@@ -175,6 +203,7 @@ public class ProtoConverter {
                 .packetType(PersistedPacketType.valueOf(devicePublishMsgProto.getPacketType()))
                 .properties(properties)
                 .isRetained(devicePublishMsgProto.getRetain())
+                .payloadCompressed(devicePublishMsgProto.getPayloadCompressed())
                 .build();
     }
 
@@ -393,7 +422,7 @@ public class ProtoConverter {
     }
 
     private static SubscriptionOptions createSubscriptionOptions(QueueProtos.TopicSubscriptionProto topicSubscriptionProto) {
-        return new SubscriptionOptions(
+        return SubscriptionOptions.of(
                 topicSubscriptionProto.getOptions().getNoLocal(),
                 topicSubscriptionProto.getOptions().getRetainAsPublish(),
                 getRetainHandling(topicSubscriptionProto));
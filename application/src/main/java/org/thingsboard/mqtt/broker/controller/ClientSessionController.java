@@ -31,8 +31,10 @@ import org.thingsboard.mqtt.broker.common.data.page.PageData;
 import org.thingsboard.mqtt.broker.common.data.page.PageLink;
 import org.thingsboard.mqtt.broker.common.data.page.TimePageLink;
 import org.thingsboard.mqtt.broker.dto.ClientSessionStatsInfoDto;
+import org.thingsboard.mqtt.broker.dto.ClientTraceEventDto;
 import org.thingsboard.mqtt.broker.dto.DetailedClientSessionInfoDto;
 import org.thingsboard.mqtt.broker.dto.ShortClientSessionInfoDto;
+import org.thingsboard.mqtt.broker.service.analysis.ClientEventTracer;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionPageInfos;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.SessionSubscriptionService;
 
@@ -40,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
@@ -48,6 +51,7 @@ public class ClientSessionController extends BaseController {
 
     private final SessionSubscriptionService sessionSubscriptionService;
     private final ClientSessionPageInfos clientSessionPageInfos;
+    private final ClientEventTracer clientEventTracer;
 
     @PreAuthorize("hasAnyAuthority('SYS_ADMIN')")
     @RequestMapping(value = "/client-session/remove", params = {"clientId", "sessionId"}, method = RequestMethod.DELETE)
@@ -114,7 +118,8 @@ public class ClientSessionController extends BaseController {
                                                                             @RequestParam(required = false) String[] clientTypeList,
                                                                             @RequestParam(required = false) String[] cleanStartList,
                                                                             @RequestParam(required = false) String[] nodeIdList,
-                                                                            @RequestParam(required = false) Integer subscriptions) throws ThingsboardException {
+                                                                            @RequestParam(required = false) Integer subscriptions,
+                                                                            @RequestParam(required = false) String afterClientId) throws ThingsboardException {
         try {
             List<ConnectionState> connectedStatuses = new ArrayList<>();
             if (connectedStatusList != null) {
@@ -146,7 +151,7 @@ public class ClientSessionController extends BaseController {
             TimePageLink pageLink = createTimePageLink(pageSize, page, textSearch, sortProperty, sortOrder, startTime, endTime);
 
             return checkNotNull(clientSessionPageInfos.getClientSessionInfos(
-                    new ClientSessionQuery(pageLink, connectedStatuses, clientTypes, cleanStarts, brokerNodeIdList, subscriptions)
+                    new ClientSessionQuery(pageLink, connectedStatuses, clientTypes, cleanStarts, brokerNodeIdList, subscriptions, afterClientId)
             ));
         } catch (Exception e) {
             throw handleException(e);
@@ -164,4 +169,48 @@ public class ClientSessionController extends BaseController {
         }
     }
 
+    @PreAuthorize("hasAnyAuthority('SYS_ADMIN')")
+    @RequestMapping(value = "/client-session/trace", params = {"clientId"}, method = RequestMethod.POST)
+    @ResponseBody
+    public void enableClientTracing(@RequestParam String clientId) throws ThingsboardException {
+        try {
+            clientEventTracer.enableTracing(clientId);
+        } catch (Exception e) {
+            throw handleException(e);
+        }
+    }
+
+    @PreAuthorize("hasAnyAuthority('SYS_ADMIN')")
+    @RequestMapping(value = "/client-session/trace", params = {"clientId"}, method = RequestMethod.DELETE)
+    @ResponseBody
+    public void disableClientTracing(@RequestParam String clientId) throws ThingsboardException {
+        try {
+            clientEventTracer.disableTracing(clientId);
+        } catch (Exception e) {
+            throw handleException(e);
+        }
+    }
+
+    @PreAuthorize("hasAnyAuthority('SYS_ADMIN')")
+    @RequestMapping(value = "/client-session/trace", params = {"clientId"}, method = RequestMethod.GET)
+    @ResponseBody
+    public List<ClientTraceEventDto> getClientTraceEvents(@RequestParam String clientId) throws ThingsboardException {
+        try {
+            return checkNotNull(clientEventTracer.getTraceEvents(clientId));
+        } catch (Exception e) {
+            throw handleException(e);
+        }
+    }
+
+    @PreAuthorize("hasAnyAuthority('SYS_ADMIN')")
+    @RequestMapping(value = "/client-session/trace/clients", method = RequestMethod.GET)
+    @ResponseBody
+    public Set<String> getTracedClientIds() throws ThingsboardException {
+        try {
+            return checkNotNull(clientEventTracer.getTracedClientIds());
+        } catch (Exception e) {
+            throw handleException(e);
+        }
+    }
+
 }
@@ -78,10 +78,12 @@ public class RetainedMsgController extends BaseController {
                                                         @RequestParam int page,
                                                         @RequestParam(required = false) String textSearch,
                                                         @RequestParam(required = false) String sortProperty,
-                                                        @RequestParam(required = false) String sortOrder) throws ThingsboardException {
+                                                        @RequestParam(required = false) String sortOrder,
+                                                        @RequestParam(required = false) String topicPrefix,
+                                                        @RequestParam(required = false) String afterTopic) throws ThingsboardException {
         try {
             PageLink pageLink = createPageLink(pageSize, page, textSearch, sortProperty, sortOrder);
-            return checkNotNull(retainedMsgPageService.getRetainedMessages(pageLink));
+            return checkNotNull(retainedMsgPageService.getRetainedMessages(pageLink, topicPrefix, afterTopic));
         } catch (Exception e) {
             throw handleException(e);
         }
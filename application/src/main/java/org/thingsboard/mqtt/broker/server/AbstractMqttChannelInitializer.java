@@ -58,7 +58,7 @@ public abstract class AbstractMqttChannelInitializer extends ChannelInitializer<
         pipeline.addLast("decoder", new MqttDecoder(getMaxPayloadSize(), getMaxClientIdLength()));
         pipeline.addLast("encoder", MqttEncoder.INSTANCE);
 
-        MqttSessionHandler handler = handlerFactory.create(sslHandler, getChannelInitializerName());
+        MqttSessionHandler handler = handlerFactory.create(sslHandler, getChannelInitializerName(), isPublishOnEventLoop());
 
         pipeline.addLast(handler);
         ch.closeFuture().addListener(handler);
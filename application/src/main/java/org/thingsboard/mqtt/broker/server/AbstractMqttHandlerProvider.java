@@ -15,38 +15,136 @@
  */
 package org.thingsboard.mqtt.broker.server;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import jakarta.annotation.PreDestroy;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.mqtt.broker.common.data.StringUtils;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.stats.TlsHandshakeStats;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
+import org.thingsboard.mqtt.broker.ssl.config.SslSessionConfig;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public abstract class AbstractMqttHandlerProvider {
 
+    private static final long DEFAULT_OPENSSL_SESSION_TIMEOUT_SEC = 300;
+    private static final long MIN_KNOWN_SESSION_IDS = 100_000;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Setter
+    @Autowired
+    private StatsManager statsManager;
+
     private SSLContext sslContext;
+    private SslContext openSslContext;
+    private TlsHandshakeStats handshakeStats;
+    private ScheduledExecutorService ticketKeysRotationScheduler;
+    private OpenSslSessionTicketKey currentTicketKey;
+    private Cache<ByteBuffer, Boolean> knownSessionIds;
+
+    @PreDestroy
+    public void destroy() {
+        if (ticketKeysRotationScheduler != null) {
+            ticketKeysRotationScheduler.shutdownNow();
+        }
+    }
 
     public SslHandler getSslHandler(String[] enabledCipherSuites) {
-        if (sslContext == null) {
-            sslContext = createSslContext();
+        if (sslContext == null && openSslContext == null) {
+            initSslContext();
         }
-        SSLEngine sslEngine = sslContext.createSSLEngine();
+        SSLEngine sslEngine = openSslContext != null ?
+                openSslContext.newEngine(ByteBufAllocator.DEFAULT) : sslContext.createSSLEngine();
         sslEngine.setUseClientMode(false);
         sslEngine.setNeedClientAuth(false);
         sslEngine.setWantClientAuth(true);
-        sslEngine.setEnabledProtocols(sslEngine.getSupportedProtocols());
+        if (openSslContext == null) {
+            // the OpenSSL context is built with the configured protocols already
+            sslEngine.setEnabledProtocols(sslEngine.getSupportedProtocols());
+        }
         sslEngine.setEnabledCipherSuites(getEnabledCipherSuites(enabledCipherSuites, sslEngine));
-        sslEngine.setEnableSessionCreation(true);
-        return new SslHandler(sslEngine);
+        if (openSslContext == null) {
+            // OpenSSL engines always allow session creation and reject this call
+            sslEngine.setEnableSessionCreation(true);
+        }
+        SslHandler sslHandler = new SslHandler(sslEngine);
+        trackHandshake(sslHandler);
+        return sslHandler;
+    }
+
+    private void trackHandshake(SslHandler sslHandler) {
+        long handshakeStartTs = System.currentTimeMillis();
+        sslHandler.handshakeFuture().addListener(future -> {
+            if (future.isSuccess()) {
+                SSLSession session = sslHandler.engine().getSession();
+                boolean resumed = openSslContext != null ?
+                        isOpenSslSessionResumed(session) : session.getCreationTime() < handshakeStartTs;
+                handshakeStats.logSuccessfulHandshake(resumed);
+            } else {
+                handshakeStats.logFailedHandshake();
+            }
+        });
+    }
+
+    /**
+     * A resumed session (from the session cache or from a ticket) keeps the id of the session established by the full
+     * handshake, while every full handshake gets a new id. The ids are remembered for the session timeout, sessions
+     * evicted from the bounded set of known ids before they expire are counted as full handshakes.
+     */
+    private boolean isOpenSslSessionResumed(SSLSession session) {
+        byte[] sessionId = session.getId();
+        if (sessionId == null || sessionId.length == 0) {
+            return false;
+        }
+        return knownSessionIds.asMap().putIfAbsent(ByteBuffer.wrap(sessionId), Boolean.TRUE) != null;
+    }
+
+    private synchronized void initSslContext() {
+        if (sslContext != null || openSslContext != null) {
+            return;
+        }
+        handshakeStats = statsManager.createTlsHandshakeStats(getListenerName());
+        if (getSslProvider() == SslProvider.OPENSSL) {
+            if (OpenSsl.isAvailable()) {
+                knownSessionIds = createKnownSessionIdsCache();
+                openSslContext = createOpenSslContext();
+                return;
+            }
+            log.warn("[{}] OpenSSL provider is not available, falling back to JDK provider.", getListenerName(), OpenSsl.unavailabilityCause());
+        }
+        sslContext = createSslContext();
     }
 
     private SSLContext createSslContext() {
@@ -69,6 +167,7 @@ public abstract class AbstractMqttHandlerProvider {
             }
             SSLContext sslContext = SSLContext.getInstance(sslProtocol);
             sslContext.init(km, tm, null);
+            configureSessionContext(sslContext.getServerSessionContext());
             return sslContext;
         } catch (Exception e) {
             log.error("Unable to set up SSL context.", e);
@@ -76,6 +175,113 @@ public abstract class AbstractMqttHandlerProvider {
         }
     }
 
+    private SslContext createOpenSslContext() {
+        try {
+            SslCredentials sslCredentials = getSslCredentials();
+            SslContext sslContext = SslContextBuilder.forServer(sslCredentials.createKeyManagerFactory())
+                    .trustManager(getX509TrustManager(sslCredentials.createTrustManagerFactory()))
+                    .sslProvider(SslProvider.OPENSSL)
+                    .clientAuth(ClientAuth.OPTIONAL)
+                    .protocols(getOpenSslProtocols())
+                    .build();
+            configureSessionContext(sslContext.sessionContext());
+            if (getSslSessionConfig().getTickets().isEnabled()) {
+                initSessionTicketKeys((OpenSslSessionContext) sslContext.sessionContext());
+            }
+            log.info("[{}] Using OpenSSL provider {}", getListenerName(), OpenSsl.versionString());
+            return sslContext;
+        } catch (Exception e) {
+            log.error("Unable to set up OpenSSL context.", e);
+            throw new RuntimeException("Failed to get OpenSSL context", e);
+        }
+    }
+
+    /**
+     * The JDK provider takes the protocol as the SSLContext algorithm, OpenSSL enables exactly the listed protocols.
+     * An empty value or the generic 'TLS' keeps the OpenSSL defaults.
+     */
+    private String[] getOpenSslProtocols() {
+        String sslProtocol = getSslProtocol();
+        if (StringUtils.isEmpty(sslProtocol) || "TLS".equalsIgnoreCase(sslProtocol.trim())) {
+            return null;
+        }
+        return Arrays.stream(sslProtocol.split(","))
+                .map(String::trim)
+                .filter(protocol -> !protocol.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private Cache<ByteBuffer, Boolean> createKnownSessionIdsCache() {
+        SslSessionConfig sessionConfig = getSslSessionConfig();
+        long timeout = sessionConfig.getTimeout() > 0 ? sessionConfig.getTimeout() : DEFAULT_OPENSSL_SESSION_TIMEOUT_SEC;
+        return Caffeine.newBuilder()
+                .maximumSize(Math.max(sessionConfig.getCacheSize(), MIN_KNOWN_SESSION_IDS))
+                .expireAfterAccess(timeout, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private void configureSessionContext(SSLSessionContext sessionContext) {
+        SslSessionConfig sessionConfig = getSslSessionConfig();
+        if (sessionConfig.getCacheSize() > 0) {
+            sessionContext.setSessionCacheSize((int) Math.min(Integer.MAX_VALUE, sessionConfig.getCacheSize()));
+        }
+        if (sessionConfig.getTimeout() > 0) {
+            sessionContext.setSessionTimeout((int) Math.min(Integer.MAX_VALUE, sessionConfig.getTimeout()));
+        }
+    }
+
+    private void initSessionTicketKeys(OpenSslSessionContext sessionContext) {
+        SslSessionConfig.SslSessionTicketsConfig ticketsConfig = getSslSessionConfig().getTickets();
+        if (!StringUtils.isEmpty(ticketsConfig.getKeys())) {
+            OpenSslSessionTicketKey[] keys = Arrays.stream(ticketsConfig.getKeys().split(","))
+                    .map(String::trim)
+                    .filter(key -> !key.isEmpty())
+                    .map(key -> toTicketKey(Base64.getDecoder().decode(key)))
+                    .toArray(OpenSslSessionTicketKey[]::new);
+            sessionContext.setTicketKeys(keys);
+            log.info("[{}] Configured {} session ticket keys", getListenerName(), keys.length);
+            return;
+        }
+        rotateSessionTicketKeys(sessionContext);
+        long rotationInterval = ticketsConfig.getRotationInterval();
+        if (rotationInterval > 0) {
+            ticketKeysRotationScheduler = ThingsBoardExecutors.initScheduledExecutorService(1,
+                    getListenerName().toLowerCase() + "-ticket-keys-rotation");
+            ticketKeysRotationScheduler.scheduleAtFixedRate(() -> rotateSessionTicketKeys(sessionContext),
+                    rotationInterval, rotationInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * New tickets are encrypted with a fresh key while the previous key is kept to resume the tickets issued before rotation.
+     */
+    private void rotateSessionTicketKeys(OpenSslSessionContext sessionContext) {
+        byte[] keyBytes = new byte[OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+        secureRandom.nextBytes(keyBytes);
+        OpenSslSessionTicketKey newKey = toTicketKey(keyBytes);
+        if (currentTicketKey == null) {
+            sessionContext.setTicketKeys(newKey);
+        } else {
+            sessionContext.setTicketKeys(newKey, currentTicketKey);
+        }
+        currentTicketKey = newKey;
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Rotated session ticket keys", getListenerName());
+        }
+    }
+
+    private OpenSslSessionTicketKey toTicketKey(byte[] keyBytes) {
+        if (keyBytes.length != OpenSslSessionTicketKey.TICKET_KEY_SIZE) {
+            throw new IllegalArgumentException("Session ticket key must be " + OpenSslSessionTicketKey.TICKET_KEY_SIZE + " bytes long");
+        }
+        int hmacKeyOffset = OpenSslSessionTicketKey.NAME_SIZE;
+        int aesKeyOffset = hmacKeyOffset + OpenSslSessionTicketKey.HMAC_KEY_SIZE;
+        return new OpenSslSessionTicketKey(
+                Arrays.copyOfRange(keyBytes, 0, hmacKeyOffset),
+                Arrays.copyOfRange(keyBytes, hmacKeyOffset, aesKeyOffset),
+                Arrays.copyOfRange(keyBytes, aesKeyOffset, OpenSslSessionTicketKey.TICKET_KEY_SIZE));
+    }
+
     private TrustManager getX509TrustManager(TrustManagerFactory tmf) {
         X509TrustManager x509Tm = null;
         if (tmf.getTrustManagers().length == 0) {
@@ -128,6 +334,12 @@ public abstract class AbstractMqttHandlerProvider {
 
     protected abstract SslCredentials getSslCredentials();
 
+    protected abstract SslProvider getSslProvider();
+
+    protected abstract SslSessionConfig getSslSessionConfig();
+
+    protected abstract String getListenerName();
+
     private String[] getEnabledCipherSuites(String[] enabledCipherSuites, SSLEngine sslEngine) {
         return enabledCipherSuites == null || enabledCipherSuites.length == 0 ? sslEngine.getSupportedCipherSuites() : enabledCipherSuites;
     }
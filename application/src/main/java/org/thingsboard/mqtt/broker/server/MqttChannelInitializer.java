@@ -25,6 +25,8 @@ public interface MqttChannelInitializer {
 
     String getChannelInitializerName();
 
+    boolean isPublishOnEventLoop();
+
     default SslHandler getSslHandler() {
         return null;
     }
@@ -19,11 +19,14 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.actors.client.service.handlers.MqttPublishHandler;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.auth.AuthenticationService;
 import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitBatchProcessor;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
 import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
+import org.thingsboard.mqtt.broker.service.mqtt.keepalive.KeepAliveService;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
 
 @Component
@@ -36,6 +39,9 @@ public class MqttHandlerCtx {
     private final MqttMessageGenerator mqttMessageGenerator;
     private final RateLimitBatchProcessor rateLimitBatchProcessor;
     private final TbMessageStatsReportClient tbMessageStatsReportClient;
+    private final AuthenticationService authenticationService;
+    private final MqttPublishHandler publishHandler;
+    private final KeepAliveService keepAliveService;
 
     @Value("${mqtt.max-in-flight-msgs:1000}")
     private int maxInFlightMsgs;
@@ -48,12 +54,18 @@ public class MqttHandlerCtx {
                           RateLimitService rateLimitService,
                           MqttMessageGenerator mqttMessageGenerator,
                           @Autowired(required = false) RateLimitBatchProcessor rateLimitBatchProcessor,
-                          TbMessageStatsReportClient tbMessageStatsReportClient) {
+                          TbMessageStatsReportClient tbMessageStatsReportClient,
+                          AuthenticationService authenticationService,
+                          MqttPublishHandler publishHandler,
+                          KeepAliveService keepAliveService) {
         this.actorManager = actorManager;
         this.clientLogger = clientLogger;
         this.rateLimitService = rateLimitService;
         this.mqttMessageGenerator = mqttMessageGenerator;
         this.rateLimitBatchProcessor = rateLimitBatchProcessor;
         this.tbMessageStatsReportClient = tbMessageStatsReportClient;
+        this.authenticationService = authenticationService;
+        this.publishHandler = publishHandler;
+        this.keepAliveService = keepAliveService;
     }
 }
@@ -20,7 +20,7 @@ import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReport
 
 public interface MqttHandlerFactory {
 
-    MqttSessionHandler create(SslHandler sslHandler, String initializerName);
+    MqttSessionHandler create(SslHandler sslHandler, String initializerName, boolean publishOnEventLoop);
 
     TbMessageStatsReportClient getTbMessageStatsReportClient();
 }
@@ -27,8 +27,8 @@ public class MqttHandlerFactoryImpl implements MqttHandlerFactory {
     private final MqttHandlerCtx mqttHandlerCtx;
 
     @Override
-    public MqttSessionHandler create(SslHandler sslHandler, String initializerName) {
-        return new MqttSessionHandler(mqttHandlerCtx, sslHandler, initializerName);
+    public MqttSessionHandler create(SslHandler sslHandler, String initializerName, boolean publishOnEventLoop) {
+        return new MqttSessionHandler(mqttHandlerCtx, sslHandler, initializerName, publishOnEventLoop);
     }
 
     @Override
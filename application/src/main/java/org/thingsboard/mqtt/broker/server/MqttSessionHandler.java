@@ -15,10 +15,13 @@
  */
 package org.thingsboard.mqtt.broker.server;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
 import io.netty.handler.codec.mqtt.MqttMessage;
 import io.netty.handler.codec.mqtt.MqttMessageType;
 import io.netty.handler.codec.mqtt.MqttPubReplyMessageVariableHeader;
@@ -39,25 +42,34 @@ import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.mqtt.broker.actors.client.messages.SessionInitMsg;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttDisconnectMsg;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttPublishMsg;
+import org.thingsboard.mqtt.broker.actors.client.service.handlers.MqttPublishHandler;
 import org.thingsboard.mqtt.broker.adaptor.NettyMqttConverter;
 import org.thingsboard.mqtt.broker.common.data.StringUtils;
 import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.exception.ProtocolViolationException;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.auth.AuthenticationService;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthContext;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
 import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitBatchProcessor;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
 import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
+import org.thingsboard.mqtt.broker.service.mqtt.keepalive.KeepAliveService;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 import org.thingsboard.mqtt.broker.session.DisconnectReason;
 import org.thingsboard.mqtt.broker.session.DisconnectReasonType;
 import org.thingsboard.mqtt.broker.session.SessionContext;
+import org.thingsboard.mqtt.broker.util.MqttReasonCodeResolver;
 
 import javax.net.ssl.SSLHandshakeException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements GenericFutureListener<Future<? super Void>>, SessionContext {
@@ -70,21 +82,30 @@ public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements
     private final MqttMessageGenerator mqttMessageGenerator;
     private final RateLimitBatchProcessor rateLimitBatchProcessor;
     private final TbMessageStatsReportClient tbMessageStatsReportClient;
+    private final AuthenticationService authenticationService;
+    private final MqttPublishHandler publishHandler;
+    private final KeepAliveService keepAliveService;
     private final ClientSessionCtx clientSessionCtx;
+    private final boolean publishOnEventLoop;
     @Getter
     private final UUID sessionId = UUID.randomUUID();
 
     private String clientId;
     private InetSocketAddress address;
+    private Queue<Object> pendingMsgs;
 
-    public MqttSessionHandler(MqttHandlerCtx mqttHandlerCtx, SslHandler sslHandler, String initializerName) {
+    public MqttSessionHandler(MqttHandlerCtx mqttHandlerCtx, SslHandler sslHandler, String initializerName, boolean publishOnEventLoop) {
         this.clientMqttActorManager = mqttHandlerCtx.getActorManager();
         this.clientLogger = mqttHandlerCtx.getClientLogger();
         this.rateLimitService = mqttHandlerCtx.getRateLimitService();
         this.mqttMessageGenerator = mqttHandlerCtx.getMqttMessageGenerator();
         this.rateLimitBatchProcessor = mqttHandlerCtx.getRateLimitBatchProcessor();
         this.tbMessageStatsReportClient = mqttHandlerCtx.getTbMessageStatsReportClient();
+        this.authenticationService = mqttHandlerCtx.getAuthenticationService();
+        this.publishHandler = mqttHandlerCtx.getPublishHandler();
+        this.keepAliveService = mqttHandlerCtx.getKeepAliveService();
         this.clientSessionCtx = new ClientSessionCtx(mqttHandlerCtx, sessionId, sslHandler, initializerName);
+        this.publishOnEventLoop = publishOnEventLoop;
     }
 
     @Override
@@ -97,30 +118,38 @@ public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements
             log.trace("[{}][{}][{}] Processing msg: {}", address, clientId, sessionId, msg);
         }
         clientSessionCtx.setChannel(ctx);
+        if (pendingMsgs != null) {
+            pendingMsgs.add(msg);
+            return;
+        }
         try {
-            if (!(msg instanceof MqttMessage)) {
-                log.warn("[{}][{}] Received unknown message", clientId, sessionId);
-                disconnect(new DisconnectReason(DisconnectReasonType.ON_PROTOCOL_ERROR, "Received unknown message"));
-                return;
-            }
-
-            MqttMessage message = (MqttMessage) msg;
-            if (!message.decoderResult().isSuccess()) {
-                log.warn("[{}][{}] Message decoding failed: {}", clientId, sessionId, message.decoderResult().cause().getMessage());
-                if (message.decoderResult().cause() instanceof TooLongFrameException) {
-                    disconnect(new DisconnectReason(DisconnectReasonType.ON_PACKET_TOO_LARGE));
-                } else {
-                    disconnect(new DisconnectReason(DisconnectReasonType.ON_MALFORMED_PACKET, "Message decoding failed"));
-                }
-                return;
-            }
-
-            processMqttMsg(message);
+            processMsg(msg);
         } finally {
             ReferenceCountUtil.safeRelease(msg);
         }
     }
 
+    private void processMsg(Object msg) {
+        if (!(msg instanceof MqttMessage)) {
+            log.warn("[{}][{}] Received unknown message", clientId, sessionId);
+            disconnect(new DisconnectReason(DisconnectReasonType.ON_PROTOCOL_ERROR, "Received unknown message"));
+            return;
+        }
+
+        MqttMessage message = (MqttMessage) msg;
+        if (!message.decoderResult().isSuccess()) {
+            log.warn("[{}][{}] Message decoding failed: {}", clientId, sessionId, message.decoderResult().cause().getMessage());
+            if (message.decoderResult().cause() instanceof TooLongFrameException) {
+                disconnect(new DisconnectReason(DisconnectReasonType.ON_PACKET_TOO_LARGE));
+            } else {
+                disconnect(new DisconnectReason(DisconnectReasonType.ON_MALFORMED_PACKET, "Message decoding failed"));
+            }
+            return;
+        }
+
+        processMqttMsg(message);
+    }
+
     private void processMqttMsg(MqttMessage msg) {
         if (msg.fixedHeader() == null) {
             throw new ProtocolViolationException("Invalid message received");
@@ -129,13 +158,14 @@ public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements
         MqttMessageType msgType = msg.fixedHeader().messageType();
         if (StringUtils.isEmpty(clientId)) {
             if (msgType == MqttMessageType.CONNECT) {
-                initSession((MqttConnectMessage) msg);
+                authenticateAndInitSession((MqttConnectMessage) msg);
+                return;
             } else {
                 throw new ProtocolViolationException("Received " + msgType + " while session wasn't initialized");
             }
         }
 
-        clientLogger.logEvent(clientId, this.getClass(), "Received msg " + msgType);
+        clientLogger.logEvent(clientId, this.getClass(), "Received msg {}", msgType);
         switch (msgType) {
             case DISCONNECT:
                 reportTraffic(BrokerConstants.TLS_DISCONNECT_BYTES_OVERHEAD);
@@ -174,7 +204,11 @@ public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements
 
     private void processPublish(MqttMessage msg) {
         if (checkClientLimits(msg)) {
-            MqttPublishMsg mqttPublishMsg = NettyMqttConverter.createMqttPublishMsg(sessionId, (MqttPublishMessage) msg);
+            if (canProcessPublishOnEventLoop()) {
+                processPublishOnEventLoop(NettyMqttConverter.createMqttPublishMsg(sessionId, (MqttPublishMessage) msg));
+                return;
+            }
+            MqttPublishMsg mqttPublishMsg = createActorMqttPublishMsg((MqttPublishMessage) msg);
             if (rateLimitService.isTotalMsgsLimitEnabled()) {
                 rateLimitBatchProcessor.addMessage(mqttPublishMsg,
                         mqttMsg -> clientMqttActorManager.processMqttMsg(clientId, mqttMsg),
@@ -191,6 +225,39 @@ public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements
         }
     }
 
+    /**
+     * PUBLISH messages of a connected session skip the client actor mailbox when it is enabled for the listener.
+     * Until the session is connected, or while earlier PUBLISH messages of the session are still waiting in the actor,
+     * the messages go through the actor, so the order in which the client sent them is preserved.
+     */
+    private boolean canProcessPublishOnEventLoop() {
+        return publishOnEventLoop
+                && !rateLimitService.isTotalMsgsLimitEnabled()
+                && clientSessionCtx.isConnected()
+                && clientSessionCtx.getPublishesInActor().get() == 0;
+    }
+
+    /**
+     * Mirrors the client actor: the PUBLISH counts as a control packet for the keep-alive, and a failure disconnects the session.
+     */
+    private void processPublishOnEventLoop(MqttPublishMsg mqttPublishMsg) {
+        try {
+            keepAliveService.acknowledgeControlPacket(sessionId);
+            publishHandler.processOnEventLoop(clientSessionCtx, mqttPublishMsg);
+        } catch (Exception e) {
+            log.warn("[{}][{}] Failed to process MQTT message.", clientId, sessionId, e);
+            disconnect(new DisconnectReason(DisconnectReasonType.ON_ERROR, "Failed to process MQTT message. Exception message - " + e.getMessage()));
+        } finally {
+            mqttPublishMsg.release();
+        }
+    }
+
+    private MqttPublishMsg createActorMqttPublishMsg(MqttPublishMessage msg) {
+        AtomicInteger publishesInActor = clientSessionCtx.getPublishesInActor();
+        publishesInActor.incrementAndGet();
+        return NettyMqttConverter.createMqttPublishMsg(sessionId, msg, publishesInActor);
+    }
+
     private void processMsgOnRateLimits(int packetId, int qos, String message) {
         if (MqttVersion.MQTT_5.equals(clientSessionCtx.getMqttVersion())) {
             replyWithAck(packetId, qos);
@@ -211,15 +278,75 @@ public class MqttSessionHandler extends ChannelInboundHandlerAdapter implements
         return rateLimitService.checkIncomingLimits(clientId, sessionId, msg);
     }
 
-    private void initSession(MqttConnectMessage connectMessage) {
-        clientId = connectMessage.payload().clientIdentifier();
-        boolean isClientIdGenerated = StringUtils.isEmpty(clientId);
-        clientId = isClientIdGenerated ? generateClientId() : clientId;
+    /**
+     * Authentication runs on the dedicated executor. Reading from the channel is suspended until it is finished,
+     * the messages that were already decoded are kept and processed after the CONNECT in the same order.
+     */
+    private void authenticateAndInitSession(MqttConnectMessage connectMessage) {
+        String connectClientId = connectMessage.payload().clientIdentifier();
+        boolean isClientIdGenerated = StringUtils.isEmpty(connectClientId);
+        String clientIdToInit = isClientIdGenerated ? generateClientId() : connectClientId;
         clientSessionCtx.setMqttVersion(getMqttVersion(connectMessage));
-        clientMqttActorManager.initSession(clientId, isClientIdGenerated, new SessionInitMsg(
-                clientSessionCtx,
-                connectMessage.payload().userName(),
-                connectMessage.payload().passwordInBytes()));
+
+        ChannelHandlerContext ctx = clientSessionCtx.getChannel();
+        pendingMsgs = new ArrayDeque<>();
+        ctx.channel().config().setAutoRead(false);
+
+        AuthContext authContext = AuthContext.builder()
+                .clientId(clientIdToInit)
+                .username(connectMessage.payload().userName())
+                .passwordBytes(connectMessage.payload().passwordInBytes())
+                .sslHandler(clientSessionCtx.getSslHandler())
+                .build();
+        ListenableFuture<AuthResponse> authFuture = authenticationService.authenticateAsync(authContext);
+        authFuture.addListener(() -> onAuthenticated(ctx, authFuture, connectMessage, clientIdToInit, isClientIdGenerated), ctx.executor());
+    }
+
+    private void onAuthenticated(ChannelHandlerContext ctx, ListenableFuture<AuthResponse> authFuture,
+                                 MqttConnectMessage connectMessage, String clientIdToInit, boolean isClientIdGenerated) {
+        Queue<Object> msgs = pendingMsgs;
+        pendingMsgs = null;
+        try {
+            if (!ctx.channel().isActive()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}][{}] Channel was closed during authentication.", clientIdToInit, sessionId);
+                }
+                return;
+            }
+            AuthResponse authResponse;
+            try {
+                authResponse = Futures.getDone(authFuture);
+            } catch (Exception e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}][{}] Authentication was rejected.", clientIdToInit, sessionId, e);
+                }
+                refuseConnectionOnServerBusy();
+                return;
+            }
+            clientId = clientIdToInit;
+            clientMqttActorManager.initSession(clientId, isClientIdGenerated, new SessionInitMsg(clientSessionCtx, authResponse));
+            processMqttMsg(connectMessage);
+
+            Object msg;
+            while ((msg = msgs.poll()) != null) {
+                try {
+                    processMsg(msg);
+                } finally {
+                    ReferenceCountUtil.safeRelease(msg);
+                }
+            }
+            ctx.channel().config().setAutoRead(true);
+        } catch (Exception e) {
+            exceptionCaught(ctx, e);
+        } finally {
+            msgs.forEach(ReferenceCountUtil::safeRelease);
+        }
+    }
+
+    private void refuseConnectionOnServerBusy() {
+        MqttConnectReturnCode code = MqttReasonCodeResolver.connectionRefusedServerBusy(clientSessionCtx);
+        clientSessionCtx.getChannel().writeAndFlush(mqttMessageGenerator.createMqttConnAckMsg(code));
+        clientSessionCtx.closeChannel();
     }
 
     private String generateClientId() {
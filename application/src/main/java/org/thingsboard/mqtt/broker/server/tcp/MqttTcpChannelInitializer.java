@@ -19,6 +19,7 @@ import io.netty.channel.socket.SocketChannel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.server.AbstractMqttChannelInitializer;
@@ -32,6 +33,9 @@ public class MqttTcpChannelInitializer extends AbstractMqttChannelInitializer {
 
     private final MqttTcpServerContext context;
 
+    @Value("${listener.tcp.publish_on_event_loop:false}")
+    private boolean publishOnEventLoop;
+
     public MqttTcpChannelInitializer(MqttHandlerFactory handlerFactory, MqttTcpServerContext context) {
         super(handlerFactory);
         this.context = context;
@@ -36,6 +36,8 @@ public class MqttSslChannelInitializer extends AbstractMqttChannelInitializer {
 
     @Value("${listener.ssl.config.enabled_cipher_suites}")
     private String[] enabledCipherSuites;
+    @Value("${listener.ssl.publish_on_event_loop:false}")
+    private boolean publishOnEventLoop;
 
     public MqttSslChannelInitializer(MqttHandlerFactory handlerFactory, MqttSslServerContext context) {
         super(handlerFactory);
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.server.tls;
 
+import io.netty.handler.ssl.SslProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -24,9 +25,11 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.server.AbstractMqttHandlerProvider;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentialsConfig;
+import org.thingsboard.mqtt.broker.ssl.config.SslSessionConfig;
 
 @Slf4j
 @Component("MqttSslHandlerProvider")
@@ -36,6 +39,9 @@ public class MqttSslHandlerProvider extends AbstractMqttHandlerProvider {
     @Value("${listener.ssl.config.protocol}")
     private String sslProtocol;
 
+    @Value("${listener.ssl.config.provider:JDK}")
+    private SslProvider sslProvider;
+
     @Bean
     @ConfigurationProperties(prefix = "listener.ssl.config.credentials")
     public SslCredentialsConfig mqttSslCredentials() {
@@ -47,6 +53,17 @@ public class MqttSslHandlerProvider extends AbstractMqttHandlerProvider {
     @Qualifier("mqttSslCredentials")
     private SslCredentialsConfig mqttSslCredentialsConfig;
 
+    @Bean
+    @ConfigurationProperties(prefix = "listener.ssl.config.session")
+    public SslSessionConfig mqttSslSessionConfig() {
+        return new SslSessionConfig();
+    }
+
+    @Autowired(required = false)
+    @Lazy
+    @Qualifier("mqttSslSessionConfig")
+    private SslSessionConfig mqttSslSessionConfig;
+
     @Override
     protected String getSslProtocol() {
         return sslProtocol;
@@ -57,4 +74,19 @@ public class MqttSslHandlerProvider extends AbstractMqttHandlerProvider {
         return this.mqttSslCredentialsConfig.getCredentials();
     }
 
+    @Override
+    protected SslProvider getSslProvider() {
+        return sslProvider;
+    }
+
+    @Override
+    protected SslSessionConfig getSslSessionConfig() {
+        return this.mqttSslSessionConfig;
+    }
+
+    @Override
+    protected String getListenerName() {
+        return BrokerConstants.SSL;
+    }
+
 }
@@ -35,6 +35,8 @@ public class MqttWsChannelInitializer extends AbstractMqttWsChannelInitializer {
     private String subprotocols;
     @Value("${listener.ws.netty.max_payload_size}")
     private int maxPayloadSize;
+    @Value("${listener.ws.publish_on_event_loop:false}")
+    private boolean publishOnEventLoop;
 
     public MqttWsChannelInitializer(MqttHandlerFactory handlerFactory) {
         super(handlerFactory);
@@ -38,6 +38,8 @@ public class MqttWssChannelInitializer extends AbstractMqttWsChannelInitializer
     private String subprotocols;
     @Value("${listener.wss.config.enabled_cipher_suites}")
     private String[] enabledCipherSuites;
+    @Value("${listener.wss.publish_on_event_loop:false}")
+    private boolean publishOnEventLoop;
 
     public MqttWssChannelInitializer(MqttHandlerFactory handlerFactory, MqttWssServerContext context) {
         super(handlerFactory);
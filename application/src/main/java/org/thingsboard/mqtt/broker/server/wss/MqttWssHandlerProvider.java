@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.server.wss;
 
+import io.netty.handler.ssl.SslProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -24,9 +25,11 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.server.AbstractMqttHandlerProvider;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
 import org.thingsboard.mqtt.broker.ssl.config.SslCredentialsConfig;
+import org.thingsboard.mqtt.broker.ssl.config.SslSessionConfig;
 
 @Slf4j
 @Component("MqttWssHandlerProvider")
@@ -36,6 +39,9 @@ public class MqttWssHandlerProvider extends AbstractMqttHandlerProvider {
     @Value("${listener.wss.config.protocol}")
     private String sslProtocol;
 
+    @Value("${listener.wss.config.provider:JDK}")
+    private SslProvider sslProvider;
+
     @Bean
     @ConfigurationProperties(prefix = "listener.wss.config.credentials")
     public SslCredentialsConfig mqttWssCredentials() {
@@ -47,6 +53,17 @@ public class MqttWssHandlerProvider extends AbstractMqttHandlerProvider {
     @Qualifier("mqttWssCredentials")
     private SslCredentialsConfig mqttWssCredentialsConfig;
 
+    @Bean
+    @ConfigurationProperties(prefix = "listener.wss.config.session")
+    public SslSessionConfig mqttWssSessionConfig() {
+        return new SslSessionConfig();
+    }
+
+    @Autowired(required = false)
+    @Lazy
+    @Qualifier("mqttWssSessionConfig")
+    private SslSessionConfig mqttWssSessionConfig;
+
     @Override
     protected String getSslProtocol() {
         return sslProtocol;
@@ -57,4 +74,19 @@ public class MqttWssHandlerProvider extends AbstractMqttHandlerProvider {
         return this.mqttWssCredentialsConfig.getCredentials();
     }
 
+    @Override
+    protected SslProvider getSslProvider() {
+        return sslProvider;
+    }
+
+    @Override
+    protected SslSessionConfig getSslSessionConfig() {
+        return this.mqttWssSessionConfig;
+    }
+
+    @Override
+    protected String getListenerName() {
+        return BrokerConstants.WSS;
+    }
+
 }
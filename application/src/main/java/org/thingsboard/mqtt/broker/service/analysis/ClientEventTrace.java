@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.analysis;
+
+import org.slf4j.helpers.MessageFormatter;
+import org.thingsboard.mqtt.broker.dto.ClientTraceEventDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of the latest events of one traced client.
+ * Events are stored as references to their location, description pattern and argument,
+ * so recording does not allocate and formatting is deferred until the trace is read.
+ */
+class ClientEventTrace {
+
+    private final long[] timestamps;
+    private final Class<?>[] locations;
+    private final String[] descriptions;
+    private final Object[] args;
+
+    private int next;
+    private long count;
+
+    ClientEventTrace(int capacity) {
+        this.timestamps = new long[capacity];
+        this.locations = new Class<?>[capacity];
+        this.descriptions = new String[capacity];
+        this.args = new Object[capacity];
+    }
+
+    synchronized void record(Class<?> eventLocation, String eventDescription, Object arg) {
+        timestamps[next] = System.currentTimeMillis();
+        locations[next] = eventLocation;
+        descriptions[next] = eventDescription;
+        args[next] = arg;
+        next = (next + 1) % timestamps.length;
+        count++;
+    }
+
+    synchronized List<ClientTraceEventDto> getEvents() {
+        int size = (int) Math.min(count, timestamps.length);
+        List<ClientTraceEventDto> events = new ArrayList<>(size);
+        int start = count > timestamps.length ? next : 0;
+        for (int i = 0; i < size; i++) {
+            int idx = (start + i) % timestamps.length;
+            events.add(new ClientTraceEventDto(timestamps[idx], locations[idx].getSimpleName(),
+                    format(descriptions[idx], args[idx])));
+        }
+        return events;
+    }
+
+    static String format(String eventDescription, Object arg) {
+        return arg == null ? eventDescription : MessageFormatter.format(eventDescription, arg).getMessage();
+    }
+}
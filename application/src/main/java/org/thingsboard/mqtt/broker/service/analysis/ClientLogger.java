@@ -17,4 +17,10 @@ package org.thingsboard.mqtt.broker.service.analysis;
 
 public interface ClientLogger {
     void logEvent(String clientId, Class<?> eventLocation, String eventDescription);
+
+    /**
+     * The description is formatted from the pattern only if the event is actually traced,
+     * so the hot paths do not pay for string concatenation when tracing is off.
+     */
+    void logEvent(String clientId, Class<?> eventLocation, String eventDescriptionPattern, Object arg);
 }
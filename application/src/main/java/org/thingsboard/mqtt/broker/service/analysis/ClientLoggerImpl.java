@@ -15,29 +15,88 @@
  */
 package org.thingsboard.mqtt.broker.service.analysis;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.thingsboard.mqtt.broker.dto.ClientTraceEventDto;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class ClientLoggerImpl implements ClientLogger {
+public class ClientLoggerImpl implements ClientLogger, ClientEventTracer {
 
     private final boolean isDebugEnabled = log.isDebugEnabled();
+    private final ConcurrentMap<String, ClientEventTrace> traces = new ConcurrentHashMap<>();
 
     @Value("${analysis.log.analyzed-client-ids:}")
     private Set<String> analyzedClientIds;
+    @Setter
+    @Value("${analysis.trace.buffer-size:256}")
+    private int traceBufferSize;
+
+    @PostConstruct
+    public void init() {
+        if (!CollectionUtils.isEmpty(analyzedClientIds)) {
+            analyzedClientIds.forEach(this::enableTracing);
+        }
+    }
 
     @Override
     public void logEvent(String clientId, Class<?> eventLocation, String eventDescription) {
-        if (!isDebugEnabled || CollectionUtils.isEmpty(analyzedClientIds) || !analyzedClientIds.contains(clientId)) {
+        logEvent(clientId, eventLocation, eventDescription, null);
+    }
+
+    @Override
+    public void logEvent(String clientId, Class<?> eventLocation, String eventDescriptionPattern, Object arg) {
+        if (traces.isEmpty() || clientId == null) {
             return;
         }
-        log.debug("[{}][{}] {}", clientId, eventLocation.getSimpleName(), eventDescription);
+        ClientEventTrace trace = traces.get(clientId);
+        if (trace == null) {
+            return;
+        }
+        trace.record(eventLocation, eventDescriptionPattern, arg);
+        if (isDebugEnabled) {
+            log.debug("[{}][{}] {}", clientId, eventLocation.getSimpleName(), ClientEventTrace.format(eventDescriptionPattern, arg));
+        }
+    }
+
+    @Override
+    public void enableTracing(String clientId) {
+        log.info("[{}] Enabling client events tracing", clientId);
+        traces.computeIfAbsent(clientId, id -> new ClientEventTrace(traceBufferSize));
+    }
+
+    @Override
+    public void disableTracing(String clientId) {
+        log.info("[{}] Disabling client events tracing", clientId);
+        traces.remove(clientId);
+    }
+
+    @Override
+    public boolean isTracingEnabled(String clientId) {
+        return traces.containsKey(clientId);
+    }
+
+    @Override
+    public Set<String> getTracedClientIds() {
+        return new HashSet<>(traces.keySet());
+    }
+
+    @Override
+    public List<ClientTraceEventDto> getTraceEvents(String clientId) {
+        ClientEventTrace trace = traces.get(clientId);
+        return trace == null ? Collections.emptyList() : trace.getEvents();
     }
 }
@@ -15,10 +15,17 @@
  */
 package org.thingsboard.mqtt.broker.service.auth;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.thingsboard.mqtt.broker.exception.AuthenticationException;
 import org.thingsboard.mqtt.broker.service.auth.providers.AuthContext;
 import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
 
 public interface AuthenticationService {
     AuthResponse authenticate(AuthContext authContext) throws AuthenticationException;
+
+    /**
+     * Authenticates the client on the dedicated authentication executor. Failed authentication is returned as
+     * unsuccessful response, while the future fails with RejectedExecutionException if too many authentications are pending.
+     */
+    ListenableFuture<AuthResponse> authenticateAsync(AuthContext authContext);
 }
@@ -15,11 +15,18 @@
  */
 package org.thingsboard.mqtt.broker.service.auth;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.mqtt.broker.exception.AuthenticationException;
 import org.thingsboard.mqtt.broker.service.auth.providers.AuthContext;
 import org.thingsboard.mqtt.broker.service.auth.providers.AuthProviderType;
@@ -28,6 +35,10 @@ import org.thingsboard.mqtt.broker.service.auth.providers.MqttClientAuthProvider
 import org.thingsboard.mqtt.broker.service.auth.providers.MqttClientAuthProviderManager;
 
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -42,6 +53,56 @@ public class DefaultAuthenticationService implements AuthenticationService {
     @Setter
     @Value("${security.mqtt.auth_strategy:BOTH}")
     private AuthStrategy authStrategy;
+    @Setter
+    @Value("${security.mqtt.auth_executor.threads:4}")
+    private int authThreads;
+    @Setter
+    @Value("${security.mqtt.auth_executor.max_queue_size:10000}")
+    private int authMaxQueueSize;
+
+    private ListeningExecutorService authExecutor;
+
+    @PostConstruct
+    public void init() {
+        // bounded queue makes the executor reject authentications during reconnect storms instead of piling them up
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(authThreads, authThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(authMaxQueueSize), ThingsBoardThreadFactory.forName("mqtt-auth"));
+        this.authExecutor = MoreExecutors.listeningDecorator(executor);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (authExecutor != null) {
+            authExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ListenableFuture<AuthResponse> authenticateAsync(AuthContext authContext) {
+        if (authProviders.isEmpty()) {
+            return Futures.immediateFuture(new AuthResponse(true, ClientType.DEVICE, null));
+        }
+        try {
+            return authExecutor.submit(() -> authenticateSafely(authContext));
+        } catch (RejectedExecutionException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Authentication queue is full, rejecting client.", authContext.getClientId());
+            }
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    private AuthResponse authenticateSafely(AuthContext authContext) {
+        try {
+            // TODO: make it with Plugin architecture (to be able to use LDAP, OAuth etc.)
+            return authenticate(authContext);
+        } catch (AuthenticationException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Authentication failed.", authContext.getClientId(), e);
+            }
+            return AuthResponse.builder().success(false).build();
+        }
+    }
 
     @Override
     public AuthResponse authenticate(AuthContext authContext) throws AuthenticationException {
@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.auth.providers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.thingsboard.mqtt.broker.common.data.security.MqttClientCredentials;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Resolved basic credentials for a single credentials id. The credentials are null when there are no credentials
+ * with such id, so unknown clients that keep reconnecting do not hit the database each time.
+ * The password digest is set once the password was successfully verified against these credentials.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasicCredentialsCacheEntry implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 4725019834567120934L;
+
+    private MqttClientCredentials credentials;
+    private String passwordDigest;
+
+}
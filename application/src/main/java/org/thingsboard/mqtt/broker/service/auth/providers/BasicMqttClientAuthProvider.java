@@ -40,7 +40,9 @@ import org.thingsboard.mqtt.broker.service.security.authorization.AuthRulePatter
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -85,28 +87,48 @@ public class BasicMqttClientAuthProvider implements MqttClientAuthProvider {
 
     private MqttClientCredentials authWithBasicCredentials(String clientId, String username, byte[] passwordBytes) {
         List<String> credentialIds = getCredentialIds(clientId, username);
-        List<MqttClientCredentials> matchingCredentialsList = clientCredentialsService.findMatchingCredentials(credentialIds);
-        if (log.isDebugEnabled()) {
-            log.debug("Found credentials {} for credentialIds {}", matchingCredentialsList, credentialIds);
-        }
+        Map<String, BasicCredentialsCacheEntry> entries = resolveCredentials(credentialIds);
         String password = passwordBytesToString(passwordBytes);
-        if (password != null) {
-            MqttClientCredentials credentialsFromCache = getBasicCredsPwCache().get(toHashString(password), MqttClientCredentials.class);
-            if (credentialsFromCache != null && matchingCredentialsList.contains(credentialsFromCache)) {
-                return credentialsFromCache;
+        for (String credentialsId : credentialIds) {
+            BasicCredentialsCacheEntry entry = entries.get(credentialsId);
+            if (entry.getCredentials() != null && isMatchingPassword(entry, password)) {
+                return entry.getCredentials();
             }
         }
+        return null;
+    }
 
-        for (MqttClientCredentials credentials : matchingCredentialsList) {
-            BasicMqttCredentials basicMqttCredentials = MqttClientCredentialsUtil.getMqttCredentials(credentials, BasicMqttCredentials.class);
-            if (isMatchingPassword(password, basicMqttCredentials)) {
-                if (password != null && basicMqttCredentials.getPassword() != null) {
-                    getBasicCredsPwCache().put(toHashString(password), credentials);
-                }
-                return credentials;
+    /**
+     * Resolves every credentials id from the cache. Only the ids missing in the cache are looked up with a single
+     * query, and the result is cached per id - including the ids that have no credentials.
+     */
+    private Map<String, BasicCredentialsCacheEntry> resolveCredentials(List<String> credentialIds) {
+        Cache cache = getBasicCredsPwCache();
+        Map<String, BasicCredentialsCacheEntry> entries = new HashMap<>(credentialIds.size());
+        List<String> missingCredentialIds = new ArrayList<>(credentialIds.size());
+        for (String credentialsId : credentialIds) {
+            BasicCredentialsCacheEntry entry = cache.get(credentialsId, BasicCredentialsCacheEntry.class);
+            if (entry != null) {
+                entries.put(credentialsId, entry);
+            } else {
+                missingCredentialIds.add(credentialsId);
             }
         }
-        return null;
+        if (missingCredentialIds.isEmpty()) {
+            return entries;
+        }
+        List<MqttClientCredentials> matchingCredentialsList = clientCredentialsService.findMatchingCredentials(missingCredentialIds);
+        if (log.isDebugEnabled()) {
+            log.debug("Found credentials {} for credentialIds {}", matchingCredentialsList, missingCredentialIds);
+        }
+        for (MqttClientCredentials credentials : matchingCredentialsList) {
+            entries.put(credentials.getCredentialsId(), new BasicCredentialsCacheEntry(credentials, null));
+        }
+        for (String credentialsId : missingCredentialIds) {
+            BasicCredentialsCacheEntry entry = entries.computeIfAbsent(credentialsId, id -> new BasicCredentialsCacheEntry());
+            cache.put(credentialsId, entry);
+        }
+        return entries;
     }
 
     private List<String> getCredentialIds(String clientId, String username) {
@@ -123,9 +145,28 @@ public class BasicMqttClientAuthProvider implements MqttClientAuthProvider {
         return credentialIds;
     }
 
-    private boolean isMatchingPassword(String password, BasicMqttCredentials basicMqttCredentials) {
-        return basicMqttCredentials.getPassword() == null
-                || (password != null && passwordEncoder.matches(password, basicMqttCredentials.getPassword()));
+    /**
+     * The digest of the successfully verified password is kept in the credentials cache entry, so repeated reconnects
+     * skip BCrypt verification. The entry is evicted when the credentials are updated or deleted.
+     */
+    private boolean isMatchingPassword(BasicCredentialsCacheEntry entry, String password) {
+        MqttClientCredentials credentials = entry.getCredentials();
+        BasicMqttCredentials basicMqttCredentials = MqttClientCredentialsUtil.getMqttCredentials(credentials, BasicMqttCredentials.class);
+        if (basicMqttCredentials.getPassword() == null) {
+            return true;
+        }
+        if (password == null) {
+            return false;
+        }
+        String passwordDigest = toPasswordDigest(password);
+        if (passwordDigest.equals(entry.getPasswordDigest())) {
+            return true;
+        }
+        if (passwordEncoder.matches(password, basicMqttCredentials.getPassword())) {
+            getBasicCredsPwCache().put(credentials.getCredentialsId(), new BasicCredentialsCacheEntry(credentials, passwordDigest));
+            return true;
+        }
+        return false;
     }
 
     private String passwordBytesToString(byte[] passwordBytes) {
@@ -136,7 +177,7 @@ public class BasicMqttClientAuthProvider implements MqttClientAuthProvider {
         return cacheNameResolver.getCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE);
     }
 
-    private String toHashString(String rawPassword) {
+    private String toPasswordDigest(String rawPassword) {
         return hashFunction.newHasher().putString(rawPassword, StandardCharsets.UTF_8).hash().toString();
     }
 }
@@ -111,8 +111,10 @@ public class HistoricalStatsTotalConsumer {
                 if (msgs.isEmpty()) {
                     continue;
                 }
-                for (TbProtoQueueMsg<QueueProtos.ToUsageStatsMsgProto> msg : msgs) {
-                    processSaveHistoricalStatsTotal(msg);
+                List<TsKvEntry> entries = aggregateHistoricalStatsTotal(msgs);
+                timeseriesService.saveBatch(ENTITY_ID_TOTAL, entries).get();
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Successfully saved {} timeseries entries for {} msgs", ENTITY_ID_TOTAL, entries.size(), msgs.size());
                 }
                 consumer.commitSync();
             } catch (Exception e) {
@@ -149,17 +151,21 @@ public class HistoricalStatsTotalConsumer {
         }, throwable -> log.error("[{}] Failed to save timeseries entries {}", ENTITY_ID_TOTAL, entries, throwable));
     }
 
-    private void processSaveHistoricalStatsTotal(TbProtoQueueMsg<QueueProtos.ToUsageStatsMsgProto> msg) {
-        String key = msg.getValue().getUsageStats().getKey();
-        TsMsgTotalPair pair = calculatePairUsingProvidedMsg(msg);
-        TsKvEntry tsKvEntry = new BasicTsKvEntry(pair.getTs(), new LongDataEntry(key, pair.getTotalMsgCounter()));
-
-        ListenableFuture<Void> savedTsFuture = timeseriesService.save(ENTITY_ID_TOTAL, tsKvEntry);
-        DonAsynchron.withCallback(savedTsFuture, unused -> {
-            if (log.isTraceEnabled()) {
-                log.trace("[{}] Successfully saved timeseries for key {} with value {}", ENTITY_ID_TOTAL, tsKvEntry.getKey(), tsKvEntry.getValue());
-            }
-        }, throwable -> log.error("[{}] Failed to save timeseries for key {} with value {}", ENTITY_ID_TOTAL, tsKvEntry.getKey(), tsKvEntry.getValue(), throwable));
+    /**
+     * Folds the polled msgs into the latest total per (key, ts), so every total is written once per poll
+     * regardless of how many msgs contributed to it.
+     */
+    protected List<TsKvEntry> aggregateHistoricalStatsTotal(List<TbProtoQueueMsg<QueueProtos.ToUsageStatsMsgProto>> msgs) {
+        Map<String, Map<Long, Long>> totals = new HashMap<>();
+        for (TbProtoQueueMsg<QueueProtos.ToUsageStatsMsgProto> msg : msgs) {
+            String key = msg.getValue().getUsageStats().getKey();
+            TsMsgTotalPair pair = calculatePairUsingProvidedMsg(msg);
+            totals.computeIfAbsent(key, k -> new HashMap<>()).put(pair.getTs(), pair.getTotalMsgCounter());
+        }
+        List<TsKvEntry> entries = new ArrayList<>();
+        totals.forEach((key, tsTotals) ->
+                tsTotals.forEach((ts, total) -> entries.add(new BasicTsKvEntry(ts, new LongDataEntry(key, total)))));
+        return entries;
     }
 
     protected TsMsgTotalPair calculatePairUsingProvidedMsg(TbProtoQueueMsg<QueueProtos.ToUsageStatsMsgProto> msg) {
@@ -133,6 +133,28 @@ public class SqlDatabaseUpgradeService implements DatabaseEntitiesUpgradeService
                         } catch (Exception ignored) {
                         }
                     }
+                    if (isOldSchema(conn, 1003001)) {
+                        try {
+                            conn.createStatement().execute("ALTER TABLE device_publish_msg ADD COLUMN payload_compressed boolean;");
+                        } catch (Exception ignored) {
+                        }
+                        try {
+                            conn.createStatement().execute("ALTER TABLE application_session_ctx ADD COLUMN msg_infos bytea;");
+                        } catch (Exception ignored) {
+                        }
+                        try {
+                            conn.createStatement().execute("UPDATE tb_schema_settings SET schema_version = 1003002;");
+                        } catch (Exception ignored) {
+                        }
+                    }
+                    if (isOldSchema(conn, 1003002)) {
+                        log.info("Creating timeseries rollup tables and backfilling them from the stored timeseries ...");
+                        runSchemaUpdateScript(conn, "1.3.1");
+                        try {
+                            conn.createStatement().execute("UPDATE tb_schema_settings SET schema_version = 1003003;");
+                        } catch (Exception ignored) {
+                        }
+                    }
                     log.info("Schema updated.");
                 }
                 break;
@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.limits;
+
+import io.github.bucket4j.distributed.BucketProxy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumes tokens of a cluster-wide bucket from a local lease.
+ * <p>
+ * When the lease cannot serve a request, the missing tokens plus {@code leaseSize} more are taken from the bucket in
+ * one round trip. A node holds at most {@code leaseSize} unused tokens, so the cluster may consume a batch of tokens
+ * later than it was granted, but never more tokens than the bucket granted.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BucketProxyTokenLease {
+
+    private final BucketProxy bucketProxy;
+    private final long leaseSize;
+
+    private long leasedTokens;
+
+    public synchronized boolean tryConsume() {
+        return tryConsumeAsMuchAsPossible(1) == 1;
+    }
+
+    public synchronized long tryConsumeAsMuchAsPossible(long limit) {
+        if (leasedTokens < limit) {
+            long granted = bucketProxy.tryConsumeAsMuchAsPossible(limit - leasedTokens + leaseSize);
+            if (log.isTraceEnabled()) {
+                log.trace("Leased {} tokens, {} tokens left from the previous lease", granted, leasedTokens);
+            }
+            leasedTokens += granted;
+        }
+        long consumed = Math.min(limit, leasedTokens);
+        leasedTokens -= consumed;
+        return consumed;
+    }
+}
@@ -44,9 +44,15 @@ public class RateLimitRedisCacheServiceImpl extends AbstractRateLimitCacheServic
     @Value("${mqtt.application-clients-limit:0}")
     @Setter
     private int applicationClientsLimit;
+    @Value("${mqtt.rate-limits.cluster-token-lease-size:0}")
+    @Setter
+    private long tokenLeaseSize;
 
     private BucketProxy devicePersistedMsgsBucketProxy;
     private BucketProxy totalMsgsBucketProxy;
+    private BucketProxyTokenLease devicePersistedMsgsTokenLease;
+    private BucketProxyTokenLease totalMsgsTokenLease;
+    private RedisCounterBatcher counterBatcher;
     private String clientSessionsLimitCacheKey;
     private String appClientsLimitCacheKey;
 
@@ -69,6 +75,13 @@ public class RateLimitRedisCacheServiceImpl extends AbstractRateLimitCacheServic
                 jedisBasedProxyManager.getProxy(devicePersistedMsgsLimitCacheKey, () -> devicePersistedMsgsBucketConfiguration);
         this.totalMsgsBucketProxy = totalMsgsBucketConfiguration == null ? null :
                 jedisBasedProxyManager.getProxy(totalMsgsLimitCacheKey, () -> totalMsgsBucketConfiguration);
+        if (tokenLeaseSize > 0) {
+            this.devicePersistedMsgsTokenLease = devicePersistedMsgsBucketProxy == null ? null :
+                    new BucketProxyTokenLease(devicePersistedMsgsBucketProxy, tokenLeaseSize);
+            this.totalMsgsTokenLease = totalMsgsBucketProxy == null ? null :
+                    new BucketProxyTokenLease(totalMsgsBucketProxy, tokenLeaseSize);
+        }
+        this.counterBatcher = new RedisCounterBatcher(redisTemplate);
 
         if (sessionsLimit > 0) {
             clientSessionsLimitCacheKey = cachePrefix + CacheConstants.CLIENT_SESSIONS_LIMIT_CACHE_KEY;
@@ -144,11 +157,17 @@ public class RateLimitRedisCacheServiceImpl extends AbstractRateLimitCacheServic
      */
     @Override
     public boolean tryConsumeDevicePersistedMsg() {
+        if (devicePersistedMsgsTokenLease != null) {
+            return devicePersistedMsgsTokenLease.tryConsume();
+        }
         return devicePersistedMsgsBucketProxy.tryConsume(1);
     }
 
     @Override
     public long tryConsumeAsMuchAsPossibleDevicePersistedMsgs(long limit) {
+        if (devicePersistedMsgsTokenLease != null) {
+            return devicePersistedMsgsTokenLease.tryConsumeAsMuchAsPossible(limit);
+        }
         return devicePersistedMsgsBucketProxy.tryConsumeAsMuchAsPossible(limit);
     }
 
@@ -157,11 +176,17 @@ public class RateLimitRedisCacheServiceImpl extends AbstractRateLimitCacheServic
      */
     @Override
     public boolean tryConsumeTotalMsg() {
+        if (totalMsgsTokenLease != null) {
+            return totalMsgsTokenLease.tryConsume();
+        }
         return totalMsgsBucketProxy.tryConsume(1);
     }
 
     @Override
     public long tryConsumeAsMuchAsPossibleTotalMsgs(long limit) {
+        if (totalMsgsTokenLease != null) {
+            return totalMsgsTokenLease.tryConsumeAsMuchAsPossible(limit);
+        }
         return totalMsgsBucketProxy.tryConsumeAsMuchAsPossible(limit);
     }
 
@@ -169,12 +194,12 @@ public class RateLimitRedisCacheServiceImpl extends AbstractRateLimitCacheServic
         return redisTemplate.opsForValue().setIfAbsent(key, Integer.toString(count));
     }
 
-    private Long increment(String key) {
-        return redisTemplate.opsForValue().increment(key);
+    private long increment(String key) {
+        return counterBatcher.increment(key);
     }
 
     private void decrement(String key) {
-        redisTemplate.opsForValue().decrement(key);
+        counterBatcher.decrement(key);
     }
 
 }
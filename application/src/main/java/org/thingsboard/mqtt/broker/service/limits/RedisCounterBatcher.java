@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.limits;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Combines concurrent updates of a Redis counter into one round trip.
+ * <p>
+ * An update is queued and the caller takes the lock of the counter. The first caller that gets the lock sends the
+ * sum of all queued updates with a single INCRBY and hands out the results, the others find their updates done.
+ * Increments get the values they would get if the increments of a batch were applied one by one before its
+ * decrements, so the limit checks based on them stay exact. A single update is sent as INCR or DECR.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RedisCounterBatcher {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public long increment(String key) {
+        return update(key, 1).value;
+    }
+
+    public void decrement(String key) {
+        update(key, -1);
+    }
+
+    private CounterUpdate update(String key, long delta) {
+        Counter counter = counters.computeIfAbsent(key, Counter::new);
+        CounterUpdate update = new CounterUpdate(delta);
+        counter.pendingUpdates.add(update);
+        counter.lock.lock();
+        try {
+            if (!update.done) {
+                flush(counter);
+            }
+        } finally {
+            counter.lock.unlock();
+        }
+        if (update.error != null) {
+            throw update.error;
+        }
+        return update;
+    }
+
+    private void flush(Counter counter) {
+        List<CounterUpdate> updates = new ArrayList<>();
+        CounterUpdate pending;
+        while ((pending = counter.pendingUpdates.poll()) != null) {
+            updates.add(pending);
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Sending {} counter updates", counter.key, updates.size());
+        }
+        try {
+            if (updates.size() == 1) {
+                CounterUpdate update = updates.get(0);
+                if (update.delta > 0) {
+                    update.value = redisTemplate.opsForValue().increment(counter.key);
+                } else {
+                    redisTemplate.opsForValue().decrement(counter.key);
+                }
+            } else {
+                long totalDelta = 0;
+                for (CounterUpdate update : updates) {
+                    totalDelta += update.delta;
+                }
+                long value = redisTemplate.opsForValue().increment(counter.key, totalDelta);
+                long incrementedValue = value - totalDelta;
+                for (CounterUpdate update : updates) {
+                    if (update.delta > 0) {
+                        incrementedValue += update.delta;
+                        update.value = incrementedValue;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("[{}] Failed to send {} counter updates", counter.key, updates.size(), e);
+            updates.forEach(update -> update.error = e);
+        } finally {
+            updates.forEach(update -> update.done = true);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Counter {
+        private final String key;
+        private final Queue<CounterUpdate> pendingUpdates = new ConcurrentLinkedQueue<>();
+        private final ReentrantLock lock = new ReentrantLock();
+    }
+
+    // written and read by the holders of the counter lock
+    @RequiredArgsConstructor
+    private static class CounterUpdate {
+        private final long delta;
+        private long value;
+        private RuntimeException error;
+        private boolean done;
+    }
+}
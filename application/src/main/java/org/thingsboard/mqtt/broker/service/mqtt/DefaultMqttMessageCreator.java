@@ -39,12 +39,14 @@ import io.netty.handler.codec.mqtt.MqttUnsubAckMessage;
 import io.netty.handler.codec.mqtt.MqttUnsubAckPayload;
 import jakarta.annotation.PostConstruct;
 import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.actors.client.messages.ConnectionAcceptedMsg;
 import org.thingsboard.mqtt.broker.actors.client.state.ClientActorStateInfo;
 import org.thingsboard.mqtt.broker.common.data.StringUtils;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
@@ -92,6 +94,10 @@ public class DefaultMqttMessageCreator implements MqttMessageGenerator {
     @Value("${mqtt.max-in-flight-msgs:65535}")
     private int maxInFlightMessages;
 
+    @Setter
+    @Autowired
+    private PayloadCompressionService payloadCompressionService;
+
     @PostConstruct
     public void init() {
         if (maxInFlightMessages <= 0) {
@@ -210,7 +216,8 @@ public class DefaultMqttMessageCreator implements MqttMessageGenerator {
 
     @Override
     public MqttPublishMessage createPubMsg(PublishMsgProto msg, int qos, boolean retain, String topicName, int packetId, MqttProperties properties) {
-        return getMqttPublishMessage(false, qos, retain, topicName, packetId, msg.getPayload().toByteArray(), properties);
+        byte[] payload = msg.getPayloadCompressed() ? payloadCompressionService.getPayload(msg) : msg.getPayload().toByteArray();
+        return getMqttPublishMessage(false, qos, retain, topicName, packetId, payload, properties);
     }
 
     @Override
@@ -24,11 +24,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgTimingProto;
 import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retransmission.RetransmissionService;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.stats.timer.DeliveryTimerStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStage;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStats;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 import org.thingsboard.mqtt.broker.session.TopicAliasResult;
@@ -48,6 +51,7 @@ public class DefaultPublishMsgDeliveryService implements PublishMsgDeliveryServi
     private final MqttMessageGenerator mqttMessageGenerator;
     private final RetransmissionService retransmissionService;
     private final DeliveryTimerStats deliveryTimerStats;
+    private final PublishMsgLatencyStats publishMsgLatencyStats;
     private final TbMessageStatsReportClient tbMessageStatsReportClient;
 
     private final boolean isTraceEnabled = log.isTraceEnabled();
@@ -66,6 +70,7 @@ public class DefaultPublishMsgDeliveryService implements PublishMsgDeliveryServi
         this.mqttMessageGenerator = mqttMessageGenerator;
         this.retransmissionService = retransmissionService;
         this.deliveryTimerStats = statsManager.getDeliveryTimerStats();
+        this.publishMsgLatencyStats = statsManager.getPublishMsgLatencyStats();
         this.tbMessageStatsReportClient = tbMessageStatsReportClient;
     }
 
@@ -118,6 +123,15 @@ public class DefaultPublishMsgDeliveryService implements PublishMsgDeliveryServi
                 sessionCtx.getChannel().flush();
             }
         }
+        if (msg.hasTiming() && publishMsgLatencyStats != null && publishMsgLatencyStats.isEnabled()) {
+            logDeliveryLatency(msg.getTiming());
+        }
+    }
+
+    private void logDeliveryLatency(PublishMsgTimingProto timing) {
+        long deliveredTime = PublishMsgLatencyStats.currentTimeMicros();
+        publishMsgLatencyStats.logLatency(PublishMsgLatencyStage.DISPATCH_TO_DELIVERY, timing.getDispatchedTime(), deliveredTime);
+        publishMsgLatencyStats.logLatency(PublishMsgLatencyStage.END_TO_END, timing.getReceivedTime(), deliveredTime);
     }
 
     @Override
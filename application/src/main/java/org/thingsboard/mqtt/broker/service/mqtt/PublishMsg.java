@@ -37,6 +37,10 @@ public class PublishMsg {
     private final boolean isRetained;
     private final boolean isDup;
     private final MqttProperties properties;
+    /**
+     * Monotonic time of the PUBLISH read from the client channel, 0 if the message was not received from a client.
+     */
+    private final long receivedTimeNanos;
 
     public PublishMsg(int packetId, String topicName, byte[] payload, int qosLevel, boolean isRetained, boolean isDup) {
         this.packetId = packetId;
@@ -47,6 +51,7 @@ public class PublishMsg {
         this.isRetained = isRetained;
         this.isDup = isDup;
         this.properties = MqttProperties.NO_PROPERTIES;
+        this.receivedTimeNanos = 0;
     }
 
 }
@@ -0,0 +1,294 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.client.session;
+
+import com.google.common.util.concurrent.Striped;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * The store of the client sessions known to the broker, updated by {@link ClientSessionCache} on every local or remote
+ * change, together with its secondary indexes. A session and its index keys are changed under the same per-clientId lock.
+ * Sessions can be iterated in clientId, connectedAt or disconnectedAt order, per broker node or among connected
+ * sessions only, starting right after a given clientId (keyset pagination).
+ */
+@Slf4j
+@Component
+public class ClientSessionIndex {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+    private final ConcurrentSkipListMap<String, ClientSessionInfo> byClientId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<TsKey> byConnectedAt = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<TsKey> byDisconnectedAt = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<String> connectedClientIds = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<String, ConcurrentSkipListSet<String>> byNodeId = new ConcurrentHashMap<>();
+
+    private final AtomicInteger totalCount = new AtomicInteger();
+    private final AtomicInteger connectedCount = new AtomicInteger();
+
+    private final Map<String, ClientSessionInfo> readOnlyView = new AbstractMap<>() {
+        @Override
+        public Set<Entry<String, ClientSessionInfo>> entrySet() {
+            return Collections.unmodifiableMap(byClientId).entrySet();
+        }
+
+        @Override
+        public int size() {
+            return totalCount.get();
+        }
+
+        @Override
+        public boolean containsKey(Object clientId) {
+            return byClientId.containsKey(clientId);
+        }
+
+        @Override
+        public ClientSessionInfo get(Object clientId) {
+            return byClientId.get(clientId);
+        }
+    };
+
+    public void init(Map<String, ClientSessionInfo> clientSessionInfos) {
+        clear();
+        clientSessionInfos.forEach(this::put);
+    }
+
+    public void put(String clientId, ClientSessionInfo clientSessionInfo) {
+        Lock lock = locks.get(clientId);
+        lock.lock();
+        try {
+            ClientSessionInfo previous = byClientId.put(clientId, clientSessionInfo);
+            if (previous != null) {
+                removeSecondaryKeys(clientId, previous);
+            } else {
+                totalCount.incrementAndGet();
+            }
+            addSecondaryKeys(clientId, clientSessionInfo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ClientSessionInfo remove(String clientId) {
+        Lock lock = locks.get(clientId);
+        lock.lock();
+        try {
+            ClientSessionInfo previous = byClientId.remove(clientId);
+            if (previous != null) {
+                totalCount.decrementAndGet();
+                removeSecondaryKeys(clientId, previous);
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ClientSessionInfo get(String clientId) {
+        return byClientId.get(clientId);
+    }
+
+    /**
+     * Read-only view of the sessions by clientId, its size is the tracked total count and not a traversal of the map.
+     */
+    public Map<String, ClientSessionInfo> asMap() {
+        return readOnlyView;
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    public int getConnectedCount() {
+        return connectedCount.get();
+    }
+
+    public Collection<ClientSessionInfo> getAll() {
+        return Collections.unmodifiableCollection(byClientId.values());
+    }
+
+    public Iterator<ClientSessionInfo> iterateByClientId(boolean descending, String afterClientId) {
+        NavigableMap<String, ClientSessionInfo> map = descending ? byClientId.descendingMap() : byClientId;
+        if (afterClientId != null) {
+            map = map.tailMap(afterClientId, false);
+        }
+        return map.values().iterator();
+    }
+
+    public Iterator<ClientSessionInfo> iterateConnected(boolean descending, String afterClientId) {
+        return iterateClientIds(connectedClientIds, descending, afterClientId);
+    }
+
+    public Iterator<ClientSessionInfo> iterateByNodeId(String nodeId, boolean descending, String afterClientId) {
+        ConcurrentSkipListSet<String> nodeClientIds = byNodeId.get(nodeId);
+        if (nodeClientIds == null) {
+            return Collections.emptyIterator();
+        }
+        return iterateClientIds(nodeClientIds, descending, afterClientId);
+    }
+
+    public Iterator<ClientSessionInfo> iterateByConnectedAt(boolean descending, String afterClientId) {
+        return iterateByTs(byConnectedAt, ClientSessionInfo::getConnectedAt, descending, afterClientId);
+    }
+
+    public Iterator<ClientSessionInfo> iterateByDisconnectedAt(boolean descending, String afterClientId) {
+        return iterateByTs(byDisconnectedAt, ClientSessionInfo::getDisconnectedAt, descending, afterClientId);
+    }
+
+    void clear() {
+        byClientId.clear();
+        byConnectedAt.clear();
+        byDisconnectedAt.clear();
+        connectedClientIds.clear();
+        byNodeId.clear();
+        totalCount.set(0);
+        connectedCount.set(0);
+    }
+
+    private void addSecondaryKeys(String clientId, ClientSessionInfo clientSessionInfo) {
+        byConnectedAt.add(new TsKey(clientSessionInfo.getConnectedAt(), clientId));
+        byDisconnectedAt.add(new TsKey(clientSessionInfo.getDisconnectedAt(), clientId));
+        if (clientSessionInfo.isConnected()) {
+            connectedClientIds.add(clientId);
+            connectedCount.incrementAndGet();
+        }
+        if (clientSessionInfo.getServiceId() != null) {
+            byNodeId.computeIfAbsent(clientSessionInfo.getServiceId(), nodeId -> new ConcurrentSkipListSet<>()).add(clientId);
+        }
+    }
+
+    private void removeSecondaryKeys(String clientId, ClientSessionInfo clientSessionInfo) {
+        byConnectedAt.remove(new TsKey(clientSessionInfo.getConnectedAt(), clientId));
+        byDisconnectedAt.remove(new TsKey(clientSessionInfo.getDisconnectedAt(), clientId));
+        if (clientSessionInfo.isConnected()) {
+            connectedClientIds.remove(clientId);
+            connectedCount.decrementAndGet();
+        }
+        if (clientSessionInfo.getServiceId() != null) {
+            ConcurrentSkipListSet<String> nodeClientIds = byNodeId.get(clientSessionInfo.getServiceId());
+            if (nodeClientIds != null) {
+                nodeClientIds.remove(clientId);
+            }
+        }
+    }
+
+    private Iterator<ClientSessionInfo> iterateClientIds(NavigableSet<String> clientIds, boolean descending, String afterClientId) {
+        NavigableSet<String> set = descending ? clientIds.descendingSet() : clientIds;
+        if (afterClientId != null) {
+            set = set.tailSet(afterClientId, false);
+        }
+        return new ResolvingIterator<>(set.iterator(), clientId -> clientId, null);
+    }
+
+    private Iterator<ClientSessionInfo> iterateByTs(NavigableSet<TsKey> index, Function<ClientSessionInfo, Long> tsExtractor,
+                                                    boolean descending, String afterClientId) {
+        NavigableSet<TsKey> set = descending ? index.descendingSet() : index;
+        if (afterClientId != null) {
+            ClientSessionInfo after = byClientId.get(afterClientId);
+            if (after == null) {
+                log.debug("[{}] Client session used as a page cursor no longer exists", afterClientId);
+                return Collections.emptyIterator();
+            }
+            set = set.tailSet(new TsKey(tsExtractor.apply(after), afterClientId), false);
+        }
+        return new ResolvingIterator<>(set.iterator(), TsKey::getClientId, tsExtractor);
+    }
+
+    /**
+     * Maps index keys to the current session values. Keys of sessions removed or re-indexed (with another timestamp)
+     * after the iteration started are skipped, so every session is returned at most once.
+     */
+    private class ResolvingIterator<K> implements Iterator<ClientSessionInfo> {
+
+        private final Iterator<K> keys;
+        private final Function<K, String> clientIdExtractor;
+        private final Function<ClientSessionInfo, Long> tsExtractor;
+        private ClientSessionInfo next;
+
+        ResolvingIterator(Iterator<K> keys, Function<K, String> clientIdExtractor, Function<ClientSessionInfo, Long> tsExtractor) {
+            this.keys = keys;
+            this.clientIdExtractor = clientIdExtractor;
+            this.tsExtractor = tsExtractor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && keys.hasNext()) {
+                K key = keys.next();
+                ClientSessionInfo clientSessionInfo = byClientId.get(clientIdExtractor.apply(key));
+                if (clientSessionInfo == null) {
+                    continue;
+                }
+                if (tsExtractor != null && tsExtractor.apply(clientSessionInfo) != ((TsKey) key).getTs()) {
+                    continue;
+                }
+                next = clientSessionInfo;
+            }
+            return next != null;
+        }
+
+        @Override
+        public ClientSessionInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ClientSessionInfo result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class TsKey implements Comparable<TsKey> {
+
+        private static final Comparator<TsKey> COMPARATOR = Comparator.comparingLong(TsKey::getTs).thenComparing(TsKey::getClientId);
+
+        private final long ts;
+        private final String clientId;
+
+        @Override
+        public int compareTo(TsKey o) {
+            return COMPARATOR.compare(this, o);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.thingsboard.mqtt.broker.common.data.ClientType;
 import org.thingsboard.mqtt.broker.common.data.ConnectionState;
 import org.thingsboard.mqtt.broker.common.data.page.PageData;
 import org.thingsboard.mqtt.broker.common.data.page.PageLink;
+import org.thingsboard.mqtt.broker.common.data.page.SortOrder;
 import org.thingsboard.mqtt.broker.common.data.page.TimePageLink;
 import org.thingsboard.mqtt.broker.dto.ClientSessionStatsInfoDto;
 import org.thingsboard.mqtt.broker.dto.ShortClientSessionInfoDto;
@@ -33,8 +34,10 @@ import org.thingsboard.mqtt.broker.util.BytesUtil;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -42,22 +45,130 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ClientSessionPageInfosImpl implements ClientSessionPageInfos {
 
-    private final ClientSessionCache clientSessionCache;
+    private final ClientSessionIndex clientSessionIndex;
     private final ClientSubscriptionCache clientSubscriptionCache;
 
     @Override
     public PageData<ShortClientSessionInfoDto> getClientSessionInfos(PageLink pageLink) {
-        Map<String, ClientSessionInfo> allClientSessions = clientSessionCache.getAllClientSessions();
-        List<ClientSessionInfo> filteredClientSessionInfos = filterClientSessionInfos(allClientSessions, pageLink.getTextSearch());
-        return mapToPageDataResponse(filteredClientSessionInfos, pageLink);
+        String textSearch = pageLink.getTextSearch();
+        Integer knownTotal = textSearch == null ? clientSessionIndex.getTotalCount() : null;
+        return getPageData(pageLink, null, false, null, knownTotal,
+                clientSessionInfo -> filterClientSessionByTextSearch(textSearch, clientSessionInfo));
     }
 
-    // TODO: 26.09.23 improve the performance of this two methods (do mapping toShortSessionInfo at the end, mb use parallel processing)
-
     @Override
     public PageData<ShortClientSessionInfoDto> getClientSessionInfos(ClientSessionQuery query) {
-        var allClientSessions = clientSessionCache.getAllClientSessions();
+        TimePageLink pageLink = query.getPageLink();
+        ConnectionState connectionState = getSingleValue(query.getConnectedStatusList());
+        String nodeId = query.getNodeIdList() != null && query.getNodeIdList().size() == 1 ? query.getNodeIdList().get(0) : null;
+
+        boolean filteredByOtherFields = pageLink.getTextSearch() != null
+                || getSingleValue(query.getClientTypeList()) != null
+                || getSingleValue(query.getCleanStartList()) != null
+                || query.getSubscriptions() != null
+                || !CollectionUtils.isEmpty(query.getNodeIdList())
+                || (pageLink.getStartTime() != null && pageLink.getEndTime() != null);
+        Integer knownTotal = filteredByOtherFields ? null : getTotalCount(connectionState);
+
+        return getPageData(pageLink, query.getAfterClientId(), connectionState == ConnectionState.CONNECTED, nodeId, knownTotal,
+                clientSessionInfo -> filterClientSession(query, clientSessionInfo));
+    }
+
+    /**
+     * Walks the index matching the requested sort order and maps only the sessions of the requested page.
+     * When the total number of matching sessions is known from the index counters the walk stops right after the page,
+     * otherwise the remaining sessions are only tested against the filter to be counted.
+     * Sort properties without an index fall back to sorting all the filtered sessions in memory.
+     */
+    private PageData<ShortClientSessionInfoDto> getPageData(PageLink pageLink, String afterClientId, boolean connectedOnly,
+                                                            String nodeId, Integer knownTotal, Predicate<ClientSessionInfo> filter) {
+        Function<String, Iterator<ClientSessionInfo>> scan = getIndexScan(pageLink.getSortOrder(), connectedOnly, nodeId);
+        if (scan == null) {
+            List<ClientSessionInfo> filteredClientSessionInfos = clientSessionIndex.getAll().stream()
+                    .filter(filter)
+                    .collect(Collectors.toList());
+            return mapToPageDataResponse(filteredClientSessionInfos, pageLink);
+        }
+
+        long toSkip = afterClientId == null ? (long) pageLink.getPage() * pageLink.getPageSize() : 0;
+        List<ShortClientSessionInfoDto> data = new ArrayList<>(pageLink.getPageSize());
+        boolean hasNext = false;
+        long matched = 0;
+
+        Iterator<ClientSessionInfo> iterator = scan.apply(afterClientId);
+        while (iterator.hasNext()) {
+            ClientSessionInfo clientSessionInfo = iterator.next();
+            if (!filter.test(clientSessionInfo)) {
+                continue;
+            }
+            matched++;
+            if (toSkip > 0) {
+                toSkip--;
+                continue;
+            }
+            if (data.size() < pageLink.getPageSize()) {
+                data.add(toShortSessionInfo(clientSessionInfo));
+            } else {
+                hasNext = true;
+                if (knownTotal != null) {
+                    break;
+                }
+            }
+        }
+
+        long totalElements;
+        if (knownTotal != null) {
+            totalElements = knownTotal;
+        } else if (afterClientId == null) {
+            totalElements = matched;
+        } else {
+            totalElements = countMatching(scan.apply(null), filter);
+        }
+        int totalPages = (int) Math.ceil((double) totalElements / pageLink.getPageSize());
+        return new PageData<>(data, totalPages, totalElements, hasNext);
+    }
+
+    private Function<String, Iterator<ClientSessionInfo>> getIndexScan(SortOrder sortOrder, boolean connectedOnly, String nodeId) {
+        String property = sortOrder == null ? "clientId" : sortOrder.getProperty();
+        boolean descending = sortOrder != null && sortOrder.getDirection() == SortOrder.Direction.DESC;
+        return switch (property) {
+            case "id", "clientId" -> {
+                if (connectedOnly) {
+                    yield afterClientId -> clientSessionIndex.iterateConnected(descending, afterClientId);
+                } else if (nodeId != null) {
+                    yield afterClientId -> clientSessionIndex.iterateByNodeId(nodeId, descending, afterClientId);
+                }
+                yield afterClientId -> clientSessionIndex.iterateByClientId(descending, afterClientId);
+            }
+            case "connectedAt" -> afterClientId -> clientSessionIndex.iterateByConnectedAt(descending, afterClientId);
+            case "disconnectedAt" -> afterClientId -> clientSessionIndex.iterateByDisconnectedAt(descending, afterClientId);
+            default -> null;
+        };
+    }
+
+    private long countMatching(Iterator<ClientSessionInfo> iterator, Predicate<ClientSessionInfo> filter) {
+        long count = 0;
+        while (iterator.hasNext()) {
+            if (filter.test(iterator.next())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Integer getTotalCount(ConnectionState connectionState) {
+        if (connectionState == null) {
+            return clientSessionIndex.getTotalCount();
+        }
+        int connectedCount = clientSessionIndex.getConnectedCount();
+        return connectionState == ConnectionState.CONNECTED ? connectedCount : clientSessionIndex.getTotalCount() - connectedCount;
+    }
+
+    private <T> T getSingleValue(List<T> list) {
+        return !CollectionUtils.isEmpty(list) && list.size() == 1 ? list.get(0) : null;
+    }
 
+    private boolean filterClientSession(ClientSessionQuery query, ClientSessionInfo clientSessionInfo) {
         TimePageLink pageLink = query.getPageLink();
         Long startTime = pageLink.getStartTime();
         Long endTime = pageLink.getEndTime();
@@ -67,46 +178,42 @@ public class ClientSessionPageInfosImpl implements ClientSessionPageInfos {
         List<String> nodeIdList = query.getNodeIdList();
         Integer subscriptions = query.getSubscriptions();
 
-        List<ClientSessionInfo> filteredClientSessionInfos = new ArrayList<>(allClientSessions.size());
-        for (ClientSessionInfo clientSessionInfo : allClientSessions.values()) {
-            if (!filterClientSessionByTextSearch(pageLink.getTextSearch(), clientSessionInfo)) {
-                continue;
-            }
-            if (!CollectionUtils.isEmpty(connectedStatusList) && connectedStatusList.size() == 1) {
-                if (getSessionConnectionState(clientSessionInfo) != connectedStatusList.get(0)) {
-                    continue;
-                }
+        if (!filterClientSessionByTextSearch(pageLink.getTextSearch(), clientSessionInfo)) {
+            return false;
+        }
+        if (!CollectionUtils.isEmpty(connectedStatusList) && connectedStatusList.size() == 1) {
+            if (getSessionConnectionState(clientSessionInfo) != connectedStatusList.get(0)) {
+                return false;
             }
-            if (!CollectionUtils.isEmpty(clientTypeList) && clientTypeList.size() == 1) {
-                if (clientSessionInfo.getType() != clientTypeList.get(0)) {
-                    continue;
-                }
+        }
+        if (!CollectionUtils.isEmpty(clientTypeList) && clientTypeList.size() == 1) {
+            if (clientSessionInfo.getType() != clientTypeList.get(0)) {
+                return false;
             }
-            if (!CollectionUtils.isEmpty(cleanStartList) && cleanStartList.size() == 1) {
-                if (clientSessionInfo.isCleanStart() != cleanStartList.get(0)) {
-                    continue;
-                }
+        }
+        if (!CollectionUtils.isEmpty(cleanStartList) && cleanStartList.size() == 1) {
+            if (clientSessionInfo.isCleanStart() != cleanStartList.get(0)) {
+                return false;
             }
-            if (subscriptions != null) {
-                if (subscriptions != getSubscriptionsCount(clientSessionInfo)) {
-                    continue;
-                }
+        }
+        if (subscriptions != null) {
+            if (subscriptions != getSubscriptionsCount(clientSessionInfo)) {
+                return false;
             }
-            if (!CollectionUtils.isEmpty(nodeIdList)) {
-                if (!nodeIdList.contains(clientSessionInfo.getServiceId())) {
-                    continue;
-                }
+        }
+        if (!CollectionUtils.isEmpty(nodeIdList)) {
+            if (!nodeIdList.contains(clientSessionInfo.getServiceId())) {
+                return false;
             }
-            if (startTime != null && endTime != null) {
-                if (clientSessionInfo.isConnected()) {
-                    if (isOutOfTimeRange(clientSessionInfo.getConnectedAt(), startTime, endTime)) continue;
-                } else {
-                    if (isOutOfTimeRange(clientSessionInfo.getDisconnectedAt(), startTime, endTime)) continue;
-                }
+        }
+        if (startTime != null && endTime != null) {
+            if (clientSessionInfo.isConnected()) {
+                return !isOutOfTimeRange(clientSessionInfo.getConnectedAt(), startTime, endTime);
+            } else {
+                return !isOutOfTimeRange(clientSessionInfo.getDisconnectedAt(), startTime, endTime);
             }
-            filteredClientSessionInfos.add(clientSessionInfo);
         }
-        return mapToPageDataResponse(filteredClientSessionInfos, pageLink);
+        return true;
     }
 
     private PageData<ShortClientSessionInfoDto> mapToPageDataResponse(List<ClientSessionInfo> filteredClientSessionInfos, PageLink pageLink) {
@@ -130,9 +237,8 @@ public class ClientSessionPageInfosImpl implements ClientSessionPageInfos {
 
     @Override
     public ClientSessionStatsInfoDto getClientSessionStatsInfo() {
-        var allClientSessions = clientSessionCache.getAllClientSessions();
-        int totalCount = allClientSessions.size();
-        long connectedCount = allClientSessions.values().stream().filter(ClientSessionInfo::isConnected).count();
+        int totalCount = clientSessionIndex.getTotalCount();
+        long connectedCount = clientSessionIndex.getConnectedCount();
         long disconnectedCount = totalCount - connectedCount;
         return new ClientSessionStatsInfoDto(connectedCount, disconnectedCount, totalCount);
     }
@@ -166,12 +272,6 @@ public class ClientSessionPageInfosImpl implements ClientSessionPageInfos {
                 Comparator.nullsLast(ShortClientSessionInfoDto.getComparator(pageLink.getSortOrder()));
     }
 
-    private List<ClientSessionInfo> filterClientSessionInfos(Map<String, ClientSessionInfo> allClientSessions, String textSearch) {
-        return allClientSessions.values().stream()
-                .filter(clientSessionInfo -> filterClientSessionByTextSearch(textSearch, clientSessionInfo))
-                .collect(Collectors.toList());
-    }
-
     private boolean filterClientSessionByTextSearch(String textSearch, ClientSessionInfo clientSessionInfo) {
         if (textSearch != null) {
             return clientSessionInfo.getClientId().toLowerCase().contains(textSearch.toLowerCase());
@@ -31,6 +31,7 @@ import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.ApplicationMsgQueuePublisher;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.ApplicationPersistenceProcessor;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.DevicePersistenceProcessor;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.queue.DeviceMsgQueuePublisher;
 import org.thingsboard.mqtt.broker.service.processing.MultiplePublishMsgCallbackWrapper;
@@ -62,11 +63,10 @@ public class MsgPersistenceManagerImpl implements MsgPersistenceManager {
     private final DevicePersistenceProcessor devicePersistenceProcessor;
     private final ClientLogger clientLogger;
     private final RateLimitService rateLimitService;
+    private final PayloadCompressionService payloadCompressionService;
 
     @Override
-    public void processPublish(PublishMsgWithId publishMsgWithId, PersistentMsgSubscriptions persistentSubscriptions, PublishMsgCallback callback) {
-        PublishMsgProto publishMsgProto = publishMsgWithId.getPublishMsgProto();
-
+    public void processPublish(PublishMsgWithId receivedMsgWithId, PersistentMsgSubscriptions persistentSubscriptions, PublishMsgCallback callback) {
         List<Subscription> deviceSubscriptions = getSubscriptionsIfNotNull(persistentSubscriptions.getDeviceSubscriptions());
         List<Subscription> applicationSubscriptions = getSubscriptionsIfNotNull(persistentSubscriptions.getApplicationSubscriptions());
         Set<String> sharedTopics = getUniqueSharedTopics(persistentSubscriptions.getAllApplicationSharedSubscriptions());
@@ -77,6 +77,8 @@ public class MsgPersistenceManagerImpl implements MsgPersistenceManager {
             return;
         }
         PublishMsgCallback callbackWrapper = new MultiplePublishMsgCallbackWrapper(callbackCount, callback);
+        PublishMsgWithId publishMsgWithId = compressPayload(receivedMsgWithId);
+        PublishMsgProto publishMsgProto = publishMsgWithId.getPublishMsgProto();
 
         String senderClientId = ProtoConverter.getClientId(publishMsgProto);
         clientLogger.logEvent(senderClientId, this.getClass(), "Before msg persistence");
@@ -111,6 +113,14 @@ public class MsgPersistenceManagerImpl implements MsgPersistenceManager {
         clientLogger.logEvent(senderClientId, this.getClass(), "After msg persistence");
     }
 
+    private PublishMsgWithId compressPayload(PublishMsgWithId publishMsgWithId) {
+        PublishMsgProto publishMsgProto = payloadCompressionService.compress(publishMsgWithId.getPublishMsgProto());
+        if (publishMsgProto == publishMsgWithId.getPublishMsgProto()) {
+            return publishMsgWithId;
+        }
+        return new PublishMsgWithId(publishMsgWithId.getId(), publishMsgProto, publishMsgWithId.getHeaders());
+    }
+
     void processDeviceSubscriptionsWithRateLimits(List<Subscription> deviceSubscriptions,
                                                   PublishMsgWithId publishMsgWithId,
                                                   PublishMsgCallback callbackWrapper) {
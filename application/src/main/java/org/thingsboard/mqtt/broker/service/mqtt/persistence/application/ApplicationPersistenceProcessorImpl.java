@@ -57,6 +57,7 @@ import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processi
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.PersistedPublishMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationTopicService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.util.ApplicationClientHelperService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.stats.ApplicationProcessorStats;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
@@ -106,6 +107,7 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
     private final ClientLogger clientLogger;
     private final ApplicationTopicService applicationTopicService;
     private final ApplicationClientHelperService appClientHelperService;
+    private final PayloadCompressionService payloadCompressionService;
     private final boolean isTraceEnabled = log.isTraceEnabled();
     private final boolean isDebugEnabled = log.isDebugEnabled();
 
@@ -802,7 +804,8 @@ public class ApplicationPersistenceProcessorImpl implements ApplicationPersisten
             boolean isDup = msgPacketId != null;
             int minQoSValue = getMinQoSValue(subscription, msg.getValue().getQos());
 
-            PublishMsg publishMsg = ProtoConverter.convertToPublishMsg(msg.getValue(), packetId, minQoSValue, isDup);
+            byte[] payload = payloadCompressionService.getPayload(msg.getValue());
+            PublishMsg publishMsg = ProtoConverter.convertToPublishMsg(msg.getValue(), payload, packetId, minQoSValue, isDup);
             if (msgExpiryResult.isMsgExpiryIntervalPresent()) {
                 MqttPropertiesUtil.addMsgExpiryIntervalToPublish(publishMsg.getProperties(), msgExpiryResult.getMsgExpiryInterval());
             }
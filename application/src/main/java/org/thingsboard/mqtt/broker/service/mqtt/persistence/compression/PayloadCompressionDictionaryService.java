@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.compression;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.thingsboard.mqtt.broker.common.data.AdminSettings;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+import org.thingsboard.mqtt.broker.dao.settings.AdminSettingsService;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps zstd dictionaries trained per topic prefix from the sampled payloads of persisted messages.
+ * <p>
+ * Every node trains dictionaries for its own producers, while the trained dictionaries are stored in the admin settings
+ * so that any node is able to decompress the payload using the dictionary id written in the zstd frame.
+ * Stored dictionaries are never removed since persisted messages compressed with them may still be present.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayloadCompressionDictionaryService {
+
+    static final String DICTIONARY_KEY_PREFIX = "payloadCompressionDictionary_";
+    private static final String TOPIC_PREFIX_FIELD = "topicPrefix";
+    private static final String DICTIONARY_FIELD = "dictionary";
+
+    private final AdminSettingsService adminSettingsService;
+
+    private final ConcurrentMap<String, ZstdDictCompress> compressDictionaries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ZstdDictDecompress> decompressDictionaries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PayloadSamples> payloadSamples = new ConcurrentHashMap<>();
+
+    @Value("${mqtt.persistent-session.payload-compression.enabled:false}")
+    private boolean compressionEnabled;
+    @Value("${mqtt.persistent-session.payload-compression.level:3}")
+    private int level;
+    @Value("${mqtt.persistent-session.payload-compression.dictionary.enabled:true}")
+    private boolean dictionaryEnabled;
+    @Value("${mqtt.persistent-session.payload-compression.dictionary.topic-prefix-levels:1}")
+    private int topicPrefixLevels;
+    @Value("${mqtt.persistent-session.payload-compression.dictionary.max-dictionaries:16}")
+    private int maxDictionaries;
+    @Value("${mqtt.persistent-session.payload-compression.dictionary.samples-count:1000}")
+    private int samplesCount;
+    @Value("${mqtt.persistent-session.payload-compression.dictionary.max-sample-size:4096}")
+    private int maxSampleSize;
+    @Value("${mqtt.persistent-session.payload-compression.dictionary.dictionary-size:16384}")
+    private int dictionarySize;
+
+    /**
+     * Returns the dictionary trained for the topic prefix, or null if it is not trained yet.
+     * In the latter case the payload is kept as a sample for the next training.
+     */
+    public ZstdDictCompress getCompressDictionary(String topic, byte[] payload) {
+        if (!dictionaryEnabled) {
+            return null;
+        }
+        String topicPrefix = getTopicPrefix(topic);
+        ZstdDictCompress dictionary = compressDictionaries.get(topicPrefix);
+        if (dictionary == null) {
+            addSample(topicPrefix, payload);
+        }
+        return dictionary;
+    }
+
+    public ZstdDictDecompress getDecompressDictionary(long dictionaryId) {
+        return decompressDictionaries.computeIfAbsent(dictionaryId, this::loadDecompressDictionary);
+    }
+
+    @Scheduled(fixedDelayString = "${mqtt.persistent-session.payload-compression.dictionary.training-interval-ms:60000}")
+    public void trainDictionaries() {
+        if (!compressionEnabled || !dictionaryEnabled) {
+            return;
+        }
+        payloadSamples.forEach((topicPrefix, samples) -> {
+            if (!samples.isFull()) {
+                return;
+            }
+            payloadSamples.remove(topicPrefix);
+            try {
+                trainDictionary(topicPrefix, samples.getPayloads());
+            } catch (Exception e) {
+                log.warn("[{}] Failed to train payload compression dictionary", topicPrefix, e);
+            }
+        });
+    }
+
+    void trainDictionary(String topicPrefix, List<byte[]> samples) {
+        byte[] dictionary = trainDictionary(samples, dictionarySize);
+        long dictionaryId = Zstd.getDictIdFromDict(dictionary);
+        saveDictionary(topicPrefix, dictionaryId, dictionary);
+        decompressDictionaries.put(dictionaryId, new ZstdDictDecompress(dictionary));
+        compressDictionaries.put(topicPrefix, new ZstdDictCompress(dictionary, level));
+        log.info("[{}] Trained payload compression dictionary {} of {} bytes from {} samples",
+                topicPrefix, dictionaryId, dictionary.length, samples.size());
+    }
+
+    public static byte[] trainDictionary(List<byte[]> samples, int dictionarySize) {
+        int samplesSize = samples.stream().mapToInt(sample -> sample.length).sum();
+        ZstdDictTrainer trainer = new ZstdDictTrainer(samplesSize, dictionarySize);
+        samples.forEach(trainer::addSample);
+        return trainer.trainSamples();
+    }
+
+    String getTopicPrefix(String topic) {
+        int prefixEnd = -1;
+        for (int i = 0; i < topicPrefixLevels; i++) {
+            prefixEnd = topic.indexOf('/', prefixEnd + 1);
+            if (prefixEnd < 0) {
+                return topic;
+            }
+        }
+        return topic.substring(0, prefixEnd);
+    }
+
+    private void addSample(String topicPrefix, byte[] payload) {
+        if (payload.length > maxSampleSize) {
+            return;
+        }
+        PayloadSamples samples = payloadSamples.get(topicPrefix);
+        if (samples == null) {
+            if (compressDictionaries.size() + payloadSamples.size() >= maxDictionaries) {
+                return;
+            }
+            samples = payloadSamples.computeIfAbsent(topicPrefix, prefix -> new PayloadSamples(samplesCount));
+        }
+        samples.add(payload);
+    }
+
+    private void saveDictionary(String topicPrefix, long dictionaryId, byte[] dictionary) {
+        ObjectNode value = JacksonUtil.newObjectNode();
+        value.put(TOPIC_PREFIX_FIELD, topicPrefix);
+        value.put(DICTIONARY_FIELD, Base64.getEncoder().encodeToString(dictionary));
+        AdminSettings adminSettings = new AdminSettings();
+        adminSettings.setKey(DICTIONARY_KEY_PREFIX + dictionaryId);
+        adminSettings.setJsonValue(value);
+        adminSettingsService.saveAdminSettings(adminSettings);
+    }
+
+    private ZstdDictDecompress loadDecompressDictionary(long dictionaryId) {
+        AdminSettings adminSettings = adminSettingsService.findAdminSettingsByKey(DICTIONARY_KEY_PREFIX + dictionaryId);
+        if (adminSettings == null) {
+            throw new IllegalStateException("Payload compression dictionary " + dictionaryId + " is not found");
+        }
+        return new ZstdDictDecompress(Base64.getDecoder().decode(adminSettings.getJsonValue().get(DICTIONARY_FIELD).asText()));
+    }
+
+    private static class PayloadSamples {
+
+        private final int capacity;
+        private final List<byte[]> payloads;
+
+        PayloadSamples(int capacity) {
+            this.capacity = capacity;
+            this.payloads = new ArrayList<>(capacity);
+        }
+
+        synchronized void add(byte[] payload) {
+            if (payloads.size() < capacity) {
+                payloads.add(payload);
+            }
+        }
+
+        synchronized boolean isFull() {
+            return payloads.size() >= capacity;
+        }
+
+        synchronized List<byte[]> getPayloads() {
+            return new ArrayList<>(payloads);
+        }
+    }
+}
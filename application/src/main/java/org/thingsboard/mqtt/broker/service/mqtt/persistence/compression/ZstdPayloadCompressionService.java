@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.google.protobuf.ByteString;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ZstdPayloadCompressionService implements PayloadCompressionService {
+
+    private final PayloadCompressionDictionaryService dictionaryService;
+
+    // contexts are reused since allocating them costs more than compressing a typical payload
+    private final ThreadLocal<ZstdCompressCtx> compressCtx = ThreadLocal.withInitial(ZstdCompressCtx::new);
+    private final ThreadLocal<ZstdDecompressCtx> decompressCtx = ThreadLocal.withInitial(ZstdDecompressCtx::new);
+
+    @Value("${mqtt.persistent-session.payload-compression.enabled:false}")
+    private boolean enabled;
+    @Value("${mqtt.persistent-session.payload-compression.level:3}")
+    private int level;
+    @Value("${mqtt.persistent-session.payload-compression.min-payload-size:64}")
+    private int minPayloadSize;
+
+    @Override
+    public PublishMsgProto compress(PublishMsgProto publishMsgProto) {
+        if (!enabled || publishMsgProto.getPayloadCompressed() || publishMsgProto.getPayload().size() < minPayloadSize) {
+            return publishMsgProto;
+        }
+        byte[] payload = publishMsgProto.getPayload().toByteArray();
+        byte[] compressedPayload = compress(publishMsgProto.getTopicName(), payload);
+        if (compressedPayload.length >= payload.length) {
+            return publishMsgProto;
+        }
+        return publishMsgProto.toBuilder()
+                .setPayload(ByteString.copyFrom(compressedPayload))
+                .setPayloadCompressed(true)
+                .build();
+    }
+
+    @Override
+    public byte[] getPayload(PublishMsgProto publishMsgProto) {
+        byte[] payload = publishMsgProto.getPayload().toByteArray();
+        return publishMsgProto.getPayloadCompressed() ? decompress(payload) : payload;
+    }
+
+    @Override
+    public byte[] getPayload(DevicePublishMsg devicePublishMsg) {
+        return devicePublishMsg.isPayloadCompressed() ? decompress(devicePublishMsg.getPayload()) : devicePublishMsg.getPayload();
+    }
+
+    byte[] compress(String topic, byte[] payload) {
+        ZstdDictCompress dictionary = dictionaryService.getCompressDictionary(topic, payload);
+        ZstdCompressCtx ctx = compressCtx.get();
+        ctx.reset();
+        ctx.setLevel(level).setContentSize(true);
+        if (dictionary != null) {
+            ctx.loadDict(dictionary);
+        }
+        return ctx.compress(payload);
+    }
+
+    byte[] decompress(byte[] compressedPayload) {
+        long payloadSize = Zstd.getFrameContentSize(compressedPayload);
+        if (payloadSize < 0 || payloadSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Failed to read the payload size from the compressed frame: " + payloadSize);
+        }
+        long dictionaryId = Zstd.getDictIdFromFrame(compressedPayload);
+        ZstdDecompressCtx ctx = decompressCtx.get();
+        ctx.reset();
+        if (dictionaryId != 0) {
+            ctx.loadDict(dictionaryService.getDecompressDictionary(dictionaryId));
+        }
+        return ctx.decompress(compressedPayload, (int) payloadSize);
+    }
+}
@@ -25,10 +25,14 @@ import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -72,64 +76,104 @@ public class ConcurrentMapRetainMsgTrie<T> implements RetainMsgTrie<T> {
 
     @Override
     public List<T> get(String topicFilter) {
+        List<T> result = new ArrayList<>();
+        iterate(topicFilter).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public Iterator<T> iterate(String topicFilter) {
         if (topicFilter == null) {
             throw new IllegalArgumentException("Topic filter cannot be null");
         }
-        List<T> result = new ArrayList<>();
-        Stack<TopicPosition<T>> topicPositions = new Stack<>();
-        topicPositions.add(new TopicPosition<>(0, root, false));
-
-        while (!topicPositions.isEmpty()) {
-            TopicPosition<T> topicPosition = topicPositions.pop();
-            ConcurrentMap<String, Node<T>> childNodes = topicPosition.node.children;
-            T value = topicPosition.node.value.get();
-            if (topicPosition.isMultiLevelWildcard) {
-                if (value != null) {
-                    result.add(value);
+        return new RetainMsgCursor(topicFilter);
+    }
+
+    /**
+     * Walks the trie depth-first keeping only an iterator over the children of each visited level,
+     * so memory stays proportional to the topic depth rather than to the number of matched topics.
+     */
+    private class RetainMsgCursor implements Iterator<T> {
+
+        private final String topicFilter;
+        private final Deque<ChildNodes<T>> levels = new ArrayDeque<>();
+        private T next;
+
+        RetainMsgCursor(String topicFilter) {
+            this.topicFilter = topicFilter;
+            this.next = visit(root, 0, false);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !levels.isEmpty()) {
+                ChildNodes<T> childNodes = levels.peek();
+                if (!childNodes.nodes.hasNext()) {
+                    levels.pop();
+                    continue;
                 }
-                for (Node<T> childNode : childNodes.values()) {
-                    topicPositions.add(new TopicPosition<>(0, childNode, true));
+                Node<T> childNode = childNodes.nodes.next();
+                if (childNodes.skip$ && startsWith$(childNode)) {
+                    continue;
                 }
-                continue;
+                next = visit(childNode, childNodes.segmentStartIndex, childNodes.isMultiLevelWildcard);
             }
-            if (topicPosition.segmentStartIndex > topicFilter.length()) {
-                if (value != null) {
-                    result.add(value);
-                }
-                continue;
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next;
+            next = null;
+            return value;
+        }
+
+        private T visit(Node<T> node, int segmentStartIndex, boolean isMultiLevelWildcard) {
+            ConcurrentMap<String, Node<T>> childNodes = node.children;
+            T value = node.value.get();
+            if (isMultiLevelWildcard) {
+                pushChildNodes(childNodes.values().iterator(), 0, true, false);
+                return value;
+            }
+            if (segmentStartIndex > topicFilter.length()) {
+                return value;
             }
-            String segment = getSegment(topicFilter, topicPosition.segmentStartIndex);
-            int nextSegmentStartIndex = getNextSegmentStartIndex(topicPosition.segmentStartIndex, segment);
+            String segment = getSegment(topicFilter, segmentStartIndex);
+            int nextSegmentStartIndex = getNextSegmentStartIndex(segmentStartIndex, segment);
             if (segment.equals(BrokerConstants.MULTI_LEVEL_WILDCARD)) {
-                childNodes.values().stream()
-                        .filter(childNode -> notStartingWith$(topicPosition, childNode))
-                        .forEach(childNode -> topicPositions.add(new TopicPosition<>(0, childNode, true)));
-                if (value != null) {
-                    result.add(value);
-                }
+                pushChildNodes(childNodes.values().iterator(), 0, true, segmentStartIndex == 0);
+                return value;
             } else if (segment.equals(BrokerConstants.SINGLE_LEVEL_WILDCARD)) {
-                childNodes.values().stream()
-                        .filter(childNode -> notStartingWith$(topicPosition, childNode))
-                        .forEach(childNode -> topicPositions.add(new TopicPosition<>(nextSegmentStartIndex, childNode, false)));
+                pushChildNodes(childNodes.values().iterator(), nextSegmentStartIndex, false, segmentStartIndex == 0);
             } else {
                 Node<T> segmentNode = childNodes.get(segment);
                 if (segmentNode != null) {
-                    topicPositions.add(new TopicPosition<>(nextSegmentStartIndex, segmentNode, false));
+                    pushChildNodes(Collections.singletonList(segmentNode).iterator(), nextSegmentStartIndex, false, false);
                 }
             }
+            return null;
+        }
+
+        private void pushChildNodes(Iterator<Node<T>> nodes, int segmentStartIndex, boolean isMultiLevelWildcard, boolean skip$) {
+            if (nodes.hasNext()) {
+                levels.push(new ChildNodes<>(nodes, segmentStartIndex, isMultiLevelWildcard, skip$));
+            }
         }
-        return result;
     }
 
-    private boolean notStartingWith$(TopicPosition<T> topicPosition, Node<T> childNode) {
-        return topicPosition.segmentStartIndex != 0 || childNode.key.isEmpty() || childNode.key.charAt(0) != '$';
+    private boolean startsWith$(Node<T> childNode) {
+        return !childNode.key.isEmpty() && childNode.key.charAt(0) == '$';
     }
 
     @AllArgsConstructor
-    private static class TopicPosition<T> {
+    private static class ChildNodes<T> {
+        private final Iterator<Node<T>> nodes;
         private final int segmentStartIndex;
-        private final Node<T> node;
         private final boolean isMultiLevelWildcard;
+        private final boolean skip$;
     }
 
     @Override
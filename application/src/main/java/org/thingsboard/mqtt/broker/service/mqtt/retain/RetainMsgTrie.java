@@ -17,12 +17,15 @@ package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
 import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface RetainMsgTrie<T> {
 
     List<T> get(String topicFilter);
 
+    Iterator<T> iterate(String topicFilter);
+
     void put(String topic, T val);
 
     void delete(String topic);
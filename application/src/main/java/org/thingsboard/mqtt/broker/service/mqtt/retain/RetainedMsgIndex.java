@@ -0,0 +1,209 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import com.google.common.util.concurrent.Striped;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Secondary indexes over the retained messages, kept in sync by {@link RetainedMsgListenerServiceImpl}
+ * on every local or remote change. Messages can be iterated in topic or createdTime order, limited to a topic prefix
+ * (a range of the topic index), starting right after a given topic (keyset pagination).
+ */
+@Slf4j
+@Component
+public class RetainedMsgIndex {
+
+    private static final int LOCK_STRIPES = 256;
+    // sorts after any char that can appear in a topic name, closing the range of topics starting with a prefix
+    private static final char PREFIX_RANGE_END = Character.MAX_VALUE;
+
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+    private final ConcurrentSkipListMap<String, RetainedMsg> byTopic = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<TsKey> byCreatedTime = new ConcurrentSkipListSet<>();
+
+    private final AtomicInteger totalCount = new AtomicInteger();
+    // messages with a message expiry interval, while there are any the total count may include expired messages
+    private final AtomicInteger expiringCount = new AtomicInteger();
+
+    public void init(Map<String, RetainedMsg> retainedMsgMap) {
+        clear();
+        retainedMsgMap.forEach(this::put);
+    }
+
+    public void put(String topic, RetainedMsg retainedMsg) {
+        Lock lock = locks.get(topic);
+        lock.lock();
+        try {
+            RetainedMsg previous = byTopic.put(topic, retainedMsg);
+            if (previous != null) {
+                byCreatedTime.remove(new TsKey(previous.getCreatedTime(), topic));
+                if (isExpiring(previous)) {
+                    expiringCount.decrementAndGet();
+                }
+            } else {
+                totalCount.incrementAndGet();
+            }
+            byCreatedTime.add(new TsKey(retainedMsg.getCreatedTime(), topic));
+            if (isExpiring(retainedMsg)) {
+                expiringCount.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String topic) {
+        Lock lock = locks.get(topic);
+        lock.lock();
+        try {
+            RetainedMsg previous = byTopic.remove(topic);
+            if (previous != null) {
+                totalCount.decrementAndGet();
+                byCreatedTime.remove(new TsKey(previous.getCreatedTime(), topic));
+                if (isExpiring(previous)) {
+                    expiringCount.decrementAndGet();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Returns true if some of the messages can expire, the total count is then not the number of unexpired messages.
+     */
+    public boolean hasExpiringMsgs() {
+        return expiringCount.get() > 0;
+    }
+
+    public Collection<RetainedMsg> getAll() {
+        return Collections.unmodifiableCollection(byTopic.values());
+    }
+
+    public Iterator<RetainedMsg> iterateByTopic(String topicPrefix, boolean descending, String afterTopic) {
+        NavigableMap<String, RetainedMsg> map = topicPrefix == null ? byTopic :
+                byTopic.subMap(topicPrefix, true, topicPrefix + PREFIX_RANGE_END, false);
+        if (descending) {
+            map = map.descendingMap();
+        }
+        if (afterTopic != null) {
+            map = map.tailMap(afterTopic, false);
+        }
+        return map.values().iterator();
+    }
+
+    public Iterator<RetainedMsg> iterateByCreatedTime(boolean descending, String afterTopic) {
+        NavigableSet<TsKey> set = descending ? byCreatedTime.descendingSet() : byCreatedTime;
+        if (afterTopic != null) {
+            RetainedMsg after = byTopic.get(afterTopic);
+            if (after == null) {
+                log.debug("[{}] Retained msg used as a page cursor no longer exists", afterTopic);
+                return Collections.emptyIterator();
+            }
+            set = set.tailSet(new TsKey(after.getCreatedTime(), afterTopic), false);
+        }
+        return new ResolvingIterator(set.iterator());
+    }
+
+    void clear() {
+        byTopic.clear();
+        byCreatedTime.clear();
+        totalCount.set(0);
+        expiringCount.set(0);
+    }
+
+    private static boolean isExpiring(RetainedMsg retainedMsg) {
+        MqttProperties.IntegerProperty property = MqttPropertiesUtil.getPubExpiryIntervalProperty(retainedMsg);
+        return property != null && property.value() > 0;
+    }
+
+    /**
+     * Maps createdTime keys to the current retained messages. Keys of messages removed or replaced
+     * after the iteration started are skipped, so every topic is returned at most once.
+     */
+    private class ResolvingIterator implements Iterator<RetainedMsg> {
+
+        private final Iterator<TsKey> keys;
+        private RetainedMsg next;
+
+        ResolvingIterator(Iterator<TsKey> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && keys.hasNext()) {
+                TsKey key = keys.next();
+                RetainedMsg retainedMsg = byTopic.get(key.getTopic());
+                if (retainedMsg != null && retainedMsg.getCreatedTime() == key.getTs()) {
+                    next = retainedMsg;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public RetainedMsg next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RetainedMsg result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class TsKey implements Comparable<TsKey> {
+
+        private static final Comparator<TsKey> COMPARATOR = Comparator.comparingLong(TsKey::getTs).thenComparing(TsKey::getTopic);
+
+        private final long ts;
+        private final String topic;
+
+        @Override
+        public int compareTo(TsKey o) {
+            return COMPARATOR.compare(this, o);
+        }
+    }
+}
@@ -46,12 +46,14 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
     private final RetainedMsgPersistenceService retainedMsgPersistenceService;
     private final ServiceInfoProvider serviceInfoProvider;
     private final StatsManager statsManager;
+    private final RetainedMsgIndex retainedMsgIndex;
 
     private ConcurrentMap<String, RetainedMsg> retainedMessagesMap;
 
     @Override
     public void init(Map<String, RetainedMsg> retainedMsgMap) {
         this.retainedMessagesMap = new ConcurrentHashMap<>(retainedMsgMap);
+        retainedMsgIndex.init(retainedMsgMap);
         statsManager.registerRetainedMsgStats(retainedMessagesMap);
 
         log.info("Restoring stored retained messages for {} topics.", retainedMsgMap.size());
@@ -104,6 +106,7 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
         }
         retainedMsgService.saveRetainedMsg(topic, retainedMsg);
         retainedMessagesMap.put(topic, retainedMsg);
+        retainedMsgIndex.put(topic, retainedMsg);
     }
 
     @Override
@@ -135,6 +138,7 @@ public class RetainedMsgListenerServiceImpl implements RetainedMsgListenerServic
         }
         retainedMsgService.clearRetainedMsg(topic);
         retainedMessagesMap.remove(topic);
+        retainedMsgIndex.remove(topic);
     }
 
     @Override
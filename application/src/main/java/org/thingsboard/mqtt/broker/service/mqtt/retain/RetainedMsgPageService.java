@@ -23,4 +23,6 @@ public interface RetainedMsgPageService {
 
     PageData<RetainedMsgDto> getRetainedMessages(PageLink pageLink);
 
+    PageData<RetainedMsgDto> getRetainedMessages(PageLink pageLink, String topicPrefix, String afterTopic);
+
 }
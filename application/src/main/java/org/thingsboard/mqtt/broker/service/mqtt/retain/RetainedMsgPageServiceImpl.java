@@ -20,10 +20,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.common.data.page.PageData;
 import org.thingsboard.mqtt.broker.common.data.page.PageLink;
+import org.thingsboard.mqtt.broker.common.data.page.SortOrder;
 import org.thingsboard.mqtt.broker.dto.RetainedMsgDto;
+import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,25 +37,107 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RetainedMsgPageServiceImpl implements RetainedMsgPageService {
 
-    private final RetainedMsgListenerService retainedMsgListenerService;
+    private final RetainedMsgIndex retainedMsgIndex;
 
     @Override
     public PageData<RetainedMsgDto> getRetainedMessages(PageLink pageLink) {
-        List<RetainedMsg> retainedMessages = retainedMsgListenerService.getRetainedMessages();
+        return getRetainedMessages(pageLink, null, null);
+    }
+
+    /**
+     * Walks the index matching the requested sort order and maps only the messages of the requested page.
+     * Without text search, topic prefix and messages that can expire the total comes from the index counter and the walk
+     * stops right after the page, otherwise the remaining messages are only tested against the filter to be counted.
+     * Sorting by qos has no index and falls back to sorting all the filtered messages in memory.
+     */
+    @Override
+    public PageData<RetainedMsgDto> getRetainedMessages(PageLink pageLink, String topicPrefix, String afterTopic) {
+        long currentTs = System.currentTimeMillis();
+        String textSearch = pageLink.getTextSearch() != null ? pageLink.getTextSearch().toLowerCase() : null;
+        Predicate<RetainedMsg> filter = retainedMsg -> MqttPropertiesUtil.isRetainedMsgNotExpired(retainedMsg, currentTs)
+                && filterByTextSearch(textSearch, retainedMsg);
+
+        Function<String, Iterator<RetainedMsg>> scan = getIndexScan(pageLink.getSortOrder(), topicPrefix);
+        if (scan == null) {
+            List<RetainedMsg> filteredRetainedMessages = retainedMsgIndex.getAll().stream()
+                    .filter(filter)
+                    .filter(retainedMsg -> topicPrefix == null || retainedMsg.getTopic().startsWith(topicPrefix))
+                    .collect(Collectors.toList());
+            return mapToPageDataResponse(filteredRetainedMessages, pageLink);
+        }
+        Integer knownTotal = textSearch == null && topicPrefix == null && !retainedMsgIndex.hasExpiringMsgs() ?
+                retainedMsgIndex.getTotalCount() : null;
+
+        long toSkip = afterTopic == null ? (long) pageLink.getPage() * pageLink.getPageSize() : 0;
+        List<RetainedMsgDto> data = new ArrayList<>(pageLink.getPageSize());
+        boolean hasNext = false;
+        long matched = 0;
+
+        Iterator<RetainedMsg> iterator = scan.apply(afterTopic);
+        while (iterator.hasNext()) {
+            RetainedMsg retainedMsg = iterator.next();
+            if (!filter.test(retainedMsg)) {
+                continue;
+            }
+            matched++;
+            if (toSkip > 0) {
+                toSkip--;
+                continue;
+            }
+            if (data.size() < pageLink.getPageSize()) {
+                data.add(toRetainedMsgDto(retainedMsg));
+            } else {
+                hasNext = true;
+                if (knownTotal != null) {
+                    break;
+                }
+            }
+        }
+
+        long totalElements;
+        if (knownTotal != null) {
+            totalElements = knownTotal;
+        } else if (afterTopic == null) {
+            totalElements = matched;
+        } else {
+            totalElements = countMatching(scan.apply(null), filter);
+        }
+        int totalPages = (int) Math.ceil((double) totalElements / pageLink.getPageSize());
+        return new PageData<>(data, totalPages, totalElements, hasNext);
+    }
 
-        List<RetainedMsg> filteredByTextSearch = filterRetainedMessages(retainedMessages, pageLink);
+    private Function<String, Iterator<RetainedMsg>> getIndexScan(SortOrder sortOrder, String topicPrefix) {
+        String property = sortOrder == null ? "topic" : sortOrder.getProperty();
+        boolean descending = sortOrder != null && sortOrder.getDirection() == SortOrder.Direction.DESC;
+        return switch (property) {
+            case "topic" -> afterTopic -> retainedMsgIndex.iterateByTopic(topicPrefix, descending, afterTopic);
+            case "createdTime" -> topicPrefix == null ? afterTopic -> retainedMsgIndex.iterateByCreatedTime(descending, afterTopic) : null;
+            default -> null;
+        };
+    }
 
-        List<RetainedMsgDto> data = filteredByTextSearch.stream()
+    private long countMatching(Iterator<RetainedMsg> iterator, Predicate<RetainedMsg> filter) {
+        long count = 0;
+        while (iterator.hasNext()) {
+            if (filter.test(iterator.next())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private PageData<RetainedMsgDto> mapToPageDataResponse(List<RetainedMsg> filteredRetainedMessages, PageLink pageLink) {
+        List<RetainedMsgDto> data = filteredRetainedMessages.stream()
                 .map(this::toRetainedMsgDto)
                 .sorted(sorted(pageLink))
                 .skip((long) pageLink.getPage() * pageLink.getPageSize())
                 .limit(pageLink.getPageSize())
                 .collect(Collectors.toList());
 
-        int totalPages = (int) Math.ceil((double) filteredByTextSearch.size() / pageLink.getPageSize());
+        int totalPages = (int) Math.ceil((double) filteredRetainedMessages.size() / pageLink.getPageSize());
         return new PageData<>(data,
                 totalPages,
-                filteredByTextSearch.size(),
+                filteredRetainedMessages.size(),
                 pageLink.getPage() < totalPages - 1);
     }
 
@@ -62,15 +150,9 @@ public class RetainedMsgPageServiceImpl implements RetainedMsgPageService {
                 Comparator.nullsLast(RetainedMsgDto.getComparator(pageLink.getSortOrder()));
     }
 
-    private List<RetainedMsg> filterRetainedMessages(List<RetainedMsg> retainedMessages, PageLink pageLink) {
-        return retainedMessages.stream()
-                .filter(retainedMsg -> filter(pageLink, retainedMsg))
-                .collect(Collectors.toList());
-    }
-
-    private boolean filter(PageLink pageLink, RetainedMsg retainedMsg) {
-        if (pageLink.getTextSearch() != null) {
-            return retainedMsg.getTopic().toLowerCase().contains(pageLink.getTextSearch().toLowerCase());
+    private boolean filterByTextSearch(String lowerCaseTextSearch, RetainedMsg retainedMsg) {
+        if (lowerCaseTextSearch != null) {
+            return retainedMsg.getTopic().toLowerCase().contains(lowerCaseTextSearch);
         }
         return true;
     }
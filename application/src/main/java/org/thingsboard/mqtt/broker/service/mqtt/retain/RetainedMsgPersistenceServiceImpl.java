@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,6 +23,7 @@ import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
 import org.thingsboard.mqtt.broker.common.data.BasicCallback;
 import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.mqtt.broker.exception.QueuePersistenceException;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
@@ -32,6 +34,8 @@ import org.thingsboard.mqtt.broker.queue.provider.RetainedMsgQueueFactory;
 import org.thingsboard.mqtt.broker.util.BytesUtil;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -42,34 +46,35 @@ public class RetainedMsgPersistenceServiceImpl implements RetainedMsgPersistence
     @Value("${queue.retained-msg.acknowledge-wait-timeout-ms}")
     private long ackTimeoutMs;
 
+    @Value("${mqtt.retain-msg.persistence-coalescing-period-ms:0}")
+    private long coalescingPeriodMs;
+
     private final TbQueueProducer<TbProtoQueueMsg<QueueProtos.RetainedMsgProto>> retainedMsgProducer;
     private final ServiceInfoProvider serviceInfoProvider;
 
+    private RetainedMsgUpdatesCoalescer coalescer;
+    private ScheduledExecutorService coalescerFlushScheduler;
+
     public RetainedMsgPersistenceServiceImpl(RetainedMsgQueueFactory retainedMsgQueueFactory, ServiceInfoProvider serviceInfoProvider) {
         this.retainedMsgProducer = retainedMsgQueueFactory.createProducer();
         this.serviceInfoProvider = serviceInfoProvider;
     }
 
+    @PostConstruct
+    public void init() {
+        if (coalescingPeriodMs > 0) {
+            coalescer = new RetainedMsgUpdatesCoalescer(this::send);
+            coalescerFlushScheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("retained-msg-coalescer-flush-scheduler"));
+            coalescerFlushScheduler.scheduleWithFixedDelay(coalescer::flush, coalescingPeriodMs, coalescingPeriodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Override
     public void persistRetainedMsgAsync(String topic, QueueProtos.RetainedMsgProto retainedMsgProto, BasicCallback callback) {
         if (log.isTraceEnabled()) {
             log.trace("[{}] Persisting retained msg asynchronously - {}", topic, retainedMsgProto);
         }
-        retainedMsgProducer.send(generateRequest(topic, retainedMsgProto), new TbQueueCallback() {
-            @Override
-            public void onSuccess(TbQueueMsgMetadata metadata) {
-                if (callback != null) {
-                    callback.onSuccess();
-                }
-            }
-
-            @Override
-            public void onFailure(Throwable t) {
-                if (callback != null) {
-                    callback.onFailure(t);
-                }
-            }
-        });
+        sendOrCoalesce(topic, retainedMsgProto, null, callback);
     }
 
     @Override
@@ -77,7 +82,21 @@ public class RetainedMsgPersistenceServiceImpl implements RetainedMsgPersistence
         if (log.isTraceEnabled()) {
             log.trace("[{}] Persisting retained msg asynchronously - {} with expiry interval {}", topic, retainedMsgProto, messageExpiryInterval);
         }
-        retainedMsgProducer.send(generateRequest(topic, retainedMsgProto, messageExpiryInterval), new TbQueueCallback() {
+        sendOrCoalesce(topic, retainedMsgProto, messageExpiryInterval, callback);
+    }
+
+    private void sendOrCoalesce(String topic, QueueProtos.RetainedMsgProto retainedMsgProto, Integer messageExpiryInterval, BasicCallback callback) {
+        if (coalescer != null) {
+            coalescer.add(topic, retainedMsgProto, messageExpiryInterval, callback);
+        } else {
+            send(topic, retainedMsgProto, messageExpiryInterval, callback);
+        }
+    }
+
+    private void send(String topic, QueueProtos.RetainedMsgProto retainedMsgProto, Integer messageExpiryInterval, BasicCallback callback) {
+        TbProtoQueueMsg<QueueProtos.RetainedMsgProto> request = messageExpiryInterval == null ?
+                generateRequest(topic, retainedMsgProto) : generateRequest(topic, retainedMsgProto, messageExpiryInterval);
+        retainedMsgProducer.send(request, new TbQueueCallback() {
             @Override
             public void onSuccess(TbQueueMsgMetadata metadata) {
                 if (callback != null) {
@@ -99,6 +118,9 @@ public class RetainedMsgPersistenceServiceImpl implements RetainedMsgPersistence
         if (log.isTraceEnabled()) {
             log.trace("[{}] Persisting retained msg synchronously - {}", topic, retainedMsgProto);
         }
+        if (coalescer != null) {
+            coalescer.discard(topic);
+        }
         AtomicReference<Throwable> errorRef = new AtomicReference<>();
         CountDownLatch updateWaiter = new CountDownLatch(1);
         retainedMsgProducer.send(generateRequest(topic, retainedMsgProto), new TbQueueCallback() {
@@ -151,6 +173,10 @@ public class RetainedMsgPersistenceServiceImpl implements RetainedMsgPersistence
 
     @PreDestroy
     public void destroy() {
+        if (coalescerFlushScheduler != null) {
+            coalescerFlushScheduler.shutdownNow();
+            coalescer.flush();
+        }
         retainedMsgProducer.stop();
     }
 }
@@ -17,7 +17,15 @@ package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 
+import java.util.List;
+
 public interface RetainedMsgProcessor {
 
     PublishMsg process(PublishMsg publishMsg);
+
+    /**
+     * Processes the retained msgs of a batch, updating the retained msg of every topic once with the last msg of that topic.
+     * Returns the msgs ready to be persisted in the same order, with null in place of the msgs whose topic failed to update.
+     */
+    List<PublishMsg> process(List<PublishMsg> publishMsgs);
 }
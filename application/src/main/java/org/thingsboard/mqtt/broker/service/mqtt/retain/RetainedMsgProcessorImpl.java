@@ -23,6 +23,13 @@ import org.thingsboard.mqtt.broker.adaptor.NettyMqttConverter;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 import org.thingsboard.mqtt.broker.util.MqttPropertiesUtil;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -32,11 +39,45 @@ public class RetainedMsgProcessorImpl implements RetainedMsgProcessor {
 
     @Override
     public PublishMsg process(PublishMsg publishMsg) {
+        return processRetainedMsg(withPayloadBytes(publishMsg));
+    }
+
+    @Override
+    public List<PublishMsg> process(List<PublishMsg> publishMsgs) {
+        List<PublishMsg> processedMsgs = new ArrayList<>(publishMsgs.size());
+        Map<String, PublishMsg> lastMsgPerTopic = new LinkedHashMap<>();
+        for (PublishMsg publishMsg : publishMsgs) {
+            try {
+                publishMsg = withPayloadBytes(publishMsg);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to read retained msg payload.", publishMsg.getTopicName(), e);
+                processedMsgs.add(null);
+                continue;
+            }
+            processedMsgs.add(publishMsg);
+            lastMsgPerTopic.put(publishMsg.getTopicName(), publishMsg);
+        }
+        Set<String> failedTopics = new HashSet<>();
+        for (PublishMsg publishMsg : lastMsgPerTopic.values()) {
+            try {
+                processRetainedMsg(publishMsg);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to update retained msg.", publishMsg.getTopicName(), e);
+                failedTopics.add(publishMsg.getTopicName());
+            }
+        }
+        if (!failedTopics.isEmpty()) {
+            processedMsgs.replaceAll(msg -> msg != null && failedTopics.contains(msg.getTopicName()) ? null : msg);
+        }
+        return processedMsgs;
+    }
+
+    private PublishMsg withPayloadBytes(PublishMsg publishMsg) {
         if (publishMsg.getByteBuf() != null && publishMsg.getPayload() == null) {
             byte[] payload = NettyMqttConverter.toBytes(publishMsg.getByteBuf());
-            publishMsg = publishMsg.toBuilder().payload(payload).build();
+            return publishMsg.toBuilder().payload(payload).build();
         }
-        return processRetainedMsg(publishMsg);
+        return publishMsg;
     }
 
     private PublishMsg processRetainedMsg(PublishMsg publishMsg) {
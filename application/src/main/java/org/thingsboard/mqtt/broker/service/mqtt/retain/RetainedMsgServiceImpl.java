@@ -22,6 +22,7 @@ import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.stats.timer.RetainedMsgTimerStats;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -61,6 +62,11 @@ public class RetainedMsgServiceImpl implements RetainedMsgService {
         return retainedMsg;
     }
 
+    @Override
+    public Iterator<RetainedMsg> iterateRetainedMessages(String topicFilter) {
+        return retainMsgTrie.iterate(topicFilter);
+    }
+
     @Override
     public void clearEmptyTopicNodes() throws RetainMsgTrieClearException {
         if (log.isTraceEnabled()) {
@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.common.data.BasicCallback;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps at most one pending update of the retained msg per topic until the next flush, so a topic updated many times
+ * in between produces a single record with the latest value. Clearing the retained msg is an update with the empty msg,
+ * so it replaces a pending msg and is replaced by a later msg the same way. A msg that expires while pending is flushed
+ * as a clear.
+ * <p>
+ * The callbacks of the replaced updates are completed together with the update that replaced them.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RetainedMsgUpdatesCoalescer {
+
+    private final RetainedMsgUpdateSender sender;
+    private final ConcurrentMap<String, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>();
+
+    public void add(String topic, QueueProtos.RetainedMsgProto retainedMsgProto, Integer messageExpiryInterval, BasicCallback callback) {
+        pendingUpdates.compute(topic, (t, pendingUpdate) -> {
+            if (pendingUpdate == null) {
+                pendingUpdate = new PendingUpdate();
+            }
+            pendingUpdate.update(retainedMsgProto, messageExpiryInterval, callback);
+            return pendingUpdate;
+        });
+    }
+
+    /**
+     * Drops the pending update of the topic, completing its callbacks, before the topic is updated bypassing the coalescing.
+     */
+    public void discard(String topic) {
+        PendingUpdate pendingUpdate = pendingUpdates.remove(topic);
+        if (pendingUpdate != null) {
+            pendingUpdate.onSuccess();
+        }
+    }
+
+    /**
+     * Sends the pending updates and returns their number.
+     */
+    public int flush() {
+        int flushed = 0;
+        long now = System.currentTimeMillis();
+        for (String topic : pendingUpdates.keySet()) {
+            PendingUpdate pendingUpdate = pendingUpdates.remove(topic);
+            if (pendingUpdate != null) {
+                send(topic, pendingUpdate, now);
+                flushed++;
+            }
+        }
+        if (flushed > 0 && log.isDebugEnabled()) {
+            log.debug("Flushed {} retained msg updates.", flushed);
+        }
+        return flushed;
+    }
+
+    public int getPendingUpdatesCount() {
+        return pendingUpdates.size();
+    }
+
+    private void send(String topic, PendingUpdate pendingUpdate, long now) {
+        try {
+            if (pendingUpdate.isExpired(now)) {
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Retained msg expired while pending, clearing it.", topic);
+                }
+                sender.send(topic, QueueConstants.EMPTY_RETAINED_MSG_PROTO, null, pendingUpdate);
+            } else {
+                sender.send(topic, pendingUpdate.retainedMsgProto, pendingUpdate.messageExpiryInterval, pendingUpdate);
+            }
+        } catch (Exception e) {
+            log.warn("[{}] Failed to send retained msg update.", topic, e);
+            pendingUpdate.onFailure(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RetainedMsgUpdateSender {
+        void send(String topic, QueueProtos.RetainedMsgProto retainedMsgProto, Integer messageExpiryInterval, BasicCallback callback);
+    }
+
+    // mutated only inside ConcurrentMap.compute and read after it is removed from the map
+    private static class PendingUpdate implements BasicCallback {
+        private QueueProtos.RetainedMsgProto retainedMsgProto;
+        private Integer messageExpiryInterval;
+        private final List<BasicCallback> callbacks = new ArrayList<>(1);
+
+        void update(QueueProtos.RetainedMsgProto retainedMsgProto, Integer messageExpiryInterval, BasicCallback callback) {
+            this.retainedMsgProto = retainedMsgProto;
+            this.messageExpiryInterval = messageExpiryInterval;
+            if (callback != null) {
+                callbacks.add(callback);
+            }
+        }
+
+        boolean isExpired(long now) {
+            return messageExpiryInterval != null && messageExpiryInterval > 0
+                    && retainedMsgProto.getCreatedTime() + TimeUnit.SECONDS.toMillis(messageExpiryInterval) < now;
+        }
+
+        @Override
+        public void onSuccess() {
+            callbacks.forEach(BasicCallback::onSuccess);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            callbacks.forEach(callback -> callback.onFailure(t));
+        }
+    }
+}
@@ -16,31 +16,43 @@
 package org.thingsboard.mqtt.broker.service.mqtt.will;
 
 import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardExecutors;
 import org.thingsboard.mqtt.broker.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.queue.TbQueueMsgMetadata;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgProcessor;
 import org.thingsboard.mqtt.broker.service.processing.MsgDispatcherService;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgToPersist;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @Slf4j
@@ -48,25 +60,44 @@ import java.util.concurrent.TimeUnit;
 public class DefaultLastWillService implements LastWillService {
 
     private final ConcurrentMap<UUID, MsgWithSessionInfo> lastWillMessages = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, ScheduledFuture<?>> delayedLastWillFuturesMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ScheduledLastWill> scheduledLastWillsMap = new ConcurrentHashMap<>();
+    private final Queue<ScheduledLastWill> dueLastWills = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
 
     private final MsgDispatcherService msgDispatcherService;
     private final RetainedMsgProcessor retainedMsgProcessor;
     private final StatsManager statsManager;
 
     @Setter
-    private ScheduledExecutorService scheduler;
+    @Value("${mqtt.last-will.tick-duration-ms:100}")
+    private long tickDurationMs;
+    @Setter
+    @Value("${mqtt.last-will.ticks-per-wheel:512}")
+    private int ticksPerWheel;
+    @Setter
+    @Value("${mqtt.last-will.batch-size:1000}")
+    private int batchSize;
+
+    @Setter
+    private Timer timer;
+    @Setter
+    private ExecutorService dispatchExecutor;
 
     @PostConstruct
     public void init() {
         statsManager.registerLastWillStats(lastWillMessages);
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("last-will-scheduler"));
+        this.timer = new HashedWheelTimer(ThingsBoardThreadFactory.forName("last-will-timer"),
+                tickDurationMs, TimeUnit.MILLISECONDS, ticksPerWheel);
+        this.dispatchExecutor = ThingsBoardExecutors.initExecutorService(1, "last-will-dispatcher");
     }
 
     @PreDestroy
     public void destroy() {
-        if (this.scheduler != null) {
-            this.scheduler.shutdownNow();
+        if (this.timer != null) {
+            this.timer.stop();
+        }
+        if (this.dispatchExecutor != null) {
+            this.dispatchExecutor.shutdownNow();
         }
     }
 
@@ -110,15 +141,119 @@ public class DefaultLastWillService implements LastWillService {
 
     @Override
     public void cancelLastWillDelayIfScheduled(String clientId) {
-        ScheduledFuture<?> task = delayedLastWillFuturesMap.get(clientId);
-        if (task != null && !task.isCancelled()) {
-            task.cancel(true);
+        ScheduledLastWill scheduledLastWill = scheduledLastWillsMap.remove(clientId);
+        if (scheduledLastWill != null) {
+            scheduledLastWill.cancel();
         }
     }
 
     void scheduleLastWill(MsgWithSessionInfo lastWillMsgWithSessionInfo, UUID sessionId, int willDelay) {
-        ScheduledFuture<?> futureTask = scheduler.schedule(() -> processLastWill(lastWillMsgWithSessionInfo, sessionId), willDelay, TimeUnit.SECONDS);
-        delayedLastWillFuturesMap.put(getClientId(lastWillMsgWithSessionInfo), futureTask);
+        ScheduledLastWill scheduledLastWill = new ScheduledLastWill(lastWillMsgWithSessionInfo, sessionId);
+        scheduledLastWillsMap.put(getClientId(lastWillMsgWithSessionInfo), scheduledLastWill);
+        if (willDelay > 0) {
+            Timeout timeout = timer.newTimeout(t -> enqueueDueLastWill(scheduledLastWill), willDelay, TimeUnit.SECONDS);
+            scheduledLastWill.setTimeout(timeout);
+        } else {
+            enqueueDueLastWill(scheduledLastWill);
+        }
+    }
+
+    /**
+     * Wills expiring within the same timer tick (or disconnected at once without delay) are accumulated in the queue
+     * while the dispatcher is busy and then processed together, so only one dispatch task is in flight at a time.
+     */
+    private void enqueueDueLastWill(ScheduledLastWill scheduledLastWill) {
+        dueLastWills.add(scheduledLastWill);
+        if (dispatching.compareAndSet(false, true)) {
+            dispatchExecutor.execute(this::dispatchDueLastWills);
+        }
+    }
+
+    void dispatchDueLastWills() {
+        List<ScheduledLastWill> batch = new ArrayList<>(Math.min(batchSize, dueLastWills.size()));
+        while (true) {
+            ScheduledLastWill scheduledLastWill;
+            while (batch.size() < batchSize && (scheduledLastWill = dueLastWills.poll()) != null) {
+                batch.add(scheduledLastWill);
+            }
+            if (batch.isEmpty()) {
+                dispatching.set(false);
+                if (dueLastWills.isEmpty() || !dispatching.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            processLastWillBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * The retained wills of the batch update the retained msgs in one pass and all due wills are persisted with a single
+     * dispatcher call.
+     */
+    void processLastWillBatch(List<ScheduledLastWill> batch) {
+        if (log.isDebugEnabled()) {
+            log.debug("Processing batch of {} last will msgs", batch.size());
+        }
+        List<ScheduledLastWill> dueLastWills = new ArrayList<>(batch.size());
+        List<PublishMsg> retainedLastWillMsgs = new ArrayList<>();
+        for (ScheduledLastWill scheduledLastWill : batch) {
+            MsgWithSessionInfo lastWillMsgWithSessionInfo = scheduledLastWill.getLastWillMsgWithSessionInfo();
+            scheduledLastWillsMap.remove(getClientId(lastWillMsgWithSessionInfo), scheduledLastWill);
+            if (scheduledLastWill.isCancelled()) {
+                continue;
+            }
+            dueLastWills.add(scheduledLastWill);
+            if (lastWillMsgWithSessionInfo.getPublishMsg().isRetained()) {
+                retainedLastWillMsgs.add(lastWillMsgWithSessionInfo.getPublishMsg());
+            }
+        }
+        if (dueLastWills.isEmpty()) {
+            return;
+        }
+        Iterator<PublishMsg> processedRetainedMsgs = processRetainedLastWillMsgs(retainedLastWillMsgs);
+
+        List<PublishMsgToPersist> publishMsgs = new ArrayList<>(dueLastWills.size());
+        for (ScheduledLastWill scheduledLastWill : dueLastWills) {
+            MsgWithSessionInfo lastWillMsgWithSessionInfo = scheduledLastWill.getLastWillMsgWithSessionInfo();
+            PublishMsg publishMsg = lastWillMsgWithSessionInfo.getPublishMsg();
+            if (publishMsg.isRetained()) {
+                publishMsg = processedRetainedMsgs.next();
+                if (publishMsg == null) {
+                    continue;
+                }
+            }
+            publishMsgs.add(new PublishMsgToPersist(lastWillMsgWithSessionInfo.getSessionInfo(), publishMsg,
+                    newPersistCallback(scheduledLastWill.getSessionId())));
+        }
+        try {
+            msgDispatcherService.persistPublishMsgs(publishMsgs);
+        } catch (Exception e) {
+            log.warn("Failed to persist batch of {} last will msgs.", publishMsgs.size(), e);
+        }
+    }
+
+    // a will whose retained msg failed to update comes back as null and is not sent, the rest of the batch still is
+    private Iterator<PublishMsg> processRetainedLastWillMsgs(List<PublishMsg> retainedLastWillMsgs) {
+        if (retainedLastWillMsgs.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        try {
+            return retainedMsgProcessor.process(retainedLastWillMsgs).iterator();
+        } catch (Exception e) {
+            log.warn("Failed to process {} retained last will msgs together, processing them one by one.", retainedLastWillMsgs.size(), e);
+        }
+        List<PublishMsg> processedMsgs = new ArrayList<>(retainedLastWillMsgs.size());
+        for (PublishMsg retainedLastWillMsg : retainedLastWillMsgs) {
+            try {
+                processedMsgs.add(retainedMsgProcessor.process(retainedLastWillMsg));
+            } catch (Exception e) {
+                log.warn("[{}] Failed to process retained last will msg.", retainedLastWillMsg.getTopicName(), e);
+                processedMsgs.add(null);
+            }
+        }
+        return processedMsgs.iterator();
     }
 
     private int getWillDelay(MsgWithSessionInfo lastWillMsgWithSessionInfo, int sessionExpiryIntervalFromDisconnect) {
@@ -141,34 +276,24 @@ public class DefaultLastWillService implements LastWillService {
         return sessionExpiryIntervalFromDisconnect == -1 ? sessionInfo.safeGetSessionExpiryInterval() : sessionExpiryIntervalFromDisconnect;
     }
 
-    private void processLastWill(MsgWithSessionInfo lastWillMsgWithSessionInfo, UUID sessionId) {
-        PublishMsg publishMsg = lastWillMsgWithSessionInfo.getPublishMsg();
-        if (publishMsg.isRetained()) {
-            publishMsg = retainedMsgProcessor.process(publishMsg);
-        }
-        persistPublishMsg(lastWillMsgWithSessionInfo.getSessionInfo(), publishMsg, sessionId);
-        delayedLastWillFuturesMap.remove(getClientId(lastWillMsgWithSessionInfo));
-    }
-
     private String getClientId(MsgWithSessionInfo lastWillMsgWithSessionInfo) {
         return lastWillMsgWithSessionInfo.getSessionInfo().getClientInfo().getClientId();
     }
 
-    void persistPublishMsg(SessionInfo sessionInfo, PublishMsg publishMsg, UUID sessionId) {
-        msgDispatcherService.persistPublishMsg(sessionInfo, publishMsg,
-                new TbQueueCallback() {
-                    @Override
-                    public void onSuccess(TbQueueMsgMetadata metadata) {
-                        if (log.isTraceEnabled()) {
-                            log.trace("[{}] Successfully acknowledged last will msg.", sessionId);
-                        }
-                    }
+    private TbQueueCallback newPersistCallback(UUID sessionId) {
+        return new TbQueueCallback() {
+            @Override
+            public void onSuccess(TbQueueMsgMetadata metadata) {
+                if (log.isTraceEnabled()) {
+                    log.trace("[{}] Successfully acknowledged last will msg.", sessionId);
+                }
+            }
 
-                    @Override
-                    public void onFailure(Throwable t) {
-                        log.warn("[{}] Failed to acknowledge last will msg.", sessionId, t);
-                    }
-                });
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}] Failed to acknowledge last will msg.", sessionId, t);
+            }
+        };
     }
 
     @AllArgsConstructor
@@ -177,4 +302,22 @@ public class DefaultLastWillService implements LastWillService {
         private final PublishMsg publishMsg;
         private final SessionInfo sessionInfo;
     }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class ScheduledLastWill {
+        private final MsgWithSessionInfo lastWillMsgWithSessionInfo;
+        private final UUID sessionId;
+        @Setter
+        private volatile Timeout timeout;
+        private volatile boolean cancelled;
+
+        void cancel() {
+            cancelled = true;
+            Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunes the size of the packs processed by one 'tbmq.msg.all' consumer and the time the consumer may linger
+ * on polling to fill a pack. Not thread-safe, every consumer thread owns its own instance.
+ * <p>
+ * The pack size follows the observed pack processing time: it is halved when a pack takes longer than the target latency
+ * and doubled while the consumer lags behind (polled messages are still waiting for processing) and packs are processed
+ * well within the target latency. When the consumer has caught up, it lingers on polling for the part of the target latency
+ * that the last pack did not use, so that trickling messages are committed in bigger packs.
+ */
+@Slf4j
+public class AdaptivePackSizeController {
+
+    private final String consumerId;
+    private final boolean enabled;
+    private final long targetLatencyNanos;
+    private final int minPackSize;
+    private final int maxPackSize;
+    private final long maxLingerMs;
+
+    @Getter
+    private int packSize;
+    @Getter
+    private long lingerMs;
+
+    public AdaptivePackSizeController(String consumerId, AdaptivePollConfiguration configuration) {
+        this.consumerId = consumerId;
+        this.enabled = configuration.isEnabled();
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getTargetLatencyMs());
+        this.minPackSize = Math.max(1, configuration.getMinPackSize());
+        this.maxPackSize = Math.max(this.minPackSize, configuration.getMaxPackSize());
+        this.maxLingerMs = Math.max(0, configuration.getMaxLingerMs());
+        this.packSize = enabled ? this.minPackSize : Integer.MAX_VALUE;
+        this.lingerMs = 0;
+    }
+
+    public void onPackProcessed(int processedMsgCount, long processingTimeNanos, int backlogMsgCount) {
+        if (!enabled || processedMsgCount == 0) {
+            return;
+        }
+        int prevPackSize = packSize;
+        if (processingTimeNanos > targetLatencyNanos) {
+            packSize = Math.max(minPackSize, packSize / 2);
+            lingerMs = 0;
+        } else if (backlogMsgCount > 0) {
+            if (processingTimeNanos < targetLatencyNanos / 2) {
+                packSize = (int) Math.min(maxPackSize, 2L * packSize);
+            }
+            lingerMs = 0;
+        } else {
+            long unusedLatencyMs = TimeUnit.NANOSECONDS.toMillis(targetLatencyNanos - processingTimeNanos);
+            lingerMs = Math.min(maxLingerMs, unusedLatencyMs);
+        }
+        if (log.isDebugEnabled() && prevPackSize != packSize) {
+            log.debug("[{}] Pack size changed from {} to {}, last pack of {} msgs processed in {} ms, backlog {} msgs.",
+                    consumerId, prevPackSize, packSize, processedMsgCount,
+                    TimeUnit.NANOSECONDS.toMillis(processingTimeNanos), backlogMsgCount);
+        }
+    }
+}
@@ -19,10 +19,18 @@ import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 
+import java.util.List;
+
 public interface MsgDispatcherService {
 
     void persistPublishMsg(SessionInfo sessionInfo, PublishMsg publishMsg, TbQueueCallback callback);
 
+    /**
+     * Hands all msgs to the queue producer and then flushes it once, so the batch goes out together instead of waiting
+     * for the producer linger per msg. A msg that fails to be sent completes its own callback and does not stop the rest.
+     */
+    void persistPublishMsgs(List<PublishMsgToPersist> publishMsgs);
+
     void processPublishMsg(PublishMsgWithId publishMsgWithId, PublishMsgCallback callback);
 
 }
@@ -47,6 +47,8 @@ import org.thingsboard.mqtt.broker.service.processing.data.MsgSubscriptions;
 import org.thingsboard.mqtt.broker.service.processing.data.PersistentMsgSubscriptions;
 import org.thingsboard.mqtt.broker.service.processing.downlink.DownLinkProxy;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStage;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgProcessingTimerStats;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
 import org.thingsboard.mqtt.broker.service.subscription.Subscription;
@@ -92,6 +94,7 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
 
     private MessagesStats producerStats;
     private PublishMsgProcessingTimerStats publishMsgProcessingTimerStats;
+    private PublishMsgLatencyStats publishMsgLatencyStats;
 
     @Value("${mqtt.msg-subscriptions-parallel-processing:false}")
     private boolean processSubscriptionsInParallel;
@@ -100,12 +103,35 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
     public void init() {
         this.producerStats = statsManager.createMsgDispatcherPublishStats();
         this.publishMsgProcessingTimerStats = statsManager.getPublishMsgProcessingTimerStats();
+        this.publishMsgLatencyStats = statsManager.getPublishMsgLatencyStats();
     }
 
     @Override
     public void persistPublishMsg(SessionInfo sessionInfo, PublishMsg publishMsg, TbQueueCallback callback) {
-        PublishMsgProto publishMsgProto = ProtoConverter.convertToPublishMsgProto(sessionInfo, publishMsg);
         producerStats.incrementTotal();
+        sendPublishMsg(sessionInfo, publishMsg, callback);
+    }
+
+    @Override
+    public void persistPublishMsgs(List<PublishMsgToPersist> publishMsgs) {
+        if (publishMsgs.isEmpty()) {
+            return;
+        }
+        producerStats.incrementTotal(publishMsgs.size());
+        for (PublishMsgToPersist publishMsg : publishMsgs) {
+            try {
+                sendPublishMsg(publishMsg.getSessionInfo(), publishMsg.getPublishMsg(), publishMsg.getCallback());
+            } catch (Exception e) {
+                log.warn("[{}] Failed to persist publish msg of the batch.", publishMsg.getSessionInfo().getSessionId(), e);
+                producerStats.incrementFailed();
+                publishMsg.getCallback().onFailure(e);
+            }
+        }
+        publishMsgQueuePublisher.flush();
+    }
+
+    private void sendPublishMsg(SessionInfo sessionInfo, PublishMsg publishMsg, TbQueueCallback callback) {
+        PublishMsgProto publishMsgProto = toPublishMsgProto(sessionInfo, publishMsg);
         tbMessageStatsReportClient.reportStats(INCOMING_MSGS);
         callback = statsManager.wrapTbQueueCallback(callback, producerStats);
 
@@ -114,6 +140,16 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         publishMsgQueuePublisher.sendMsg(msgProto, callback);
     }
 
+    private PublishMsgProto toPublishMsgProto(SessionInfo sessionInfo, PublishMsg publishMsg) {
+        if (!isPublishMsgLatencyStatsEnabled()) {
+            return ProtoConverter.convertToPublishMsgProto(sessionInfo, publishMsg);
+        }
+        long producedTime = PublishMsgLatencyStats.currentTimeMicros();
+        long receivedTime = publishMsg.getReceivedTimeNanos() > 0 ? PublishMsgLatencyStats.toCurrentTimeMicros(publishMsg.getReceivedTimeNanos()) : 0;
+        publishMsgLatencyStats.logLatency(PublishMsgLatencyStage.RECEIVE_TO_PRODUCE, receivedTime, producedTime);
+        return ProtoConverter.convertToPublishMsgProto(sessionInfo, publishMsg, receivedTime, producedTime);
+    }
+
     @Override
     public void processPublishMsg(PublishMsgWithId publishMsgWithId, PublishMsgCallback callback) {
         PublishMsgProto publishMsgProto = publishMsgWithId.getPublishMsgProto();
@@ -121,6 +157,13 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
 
         clientLogger.logEvent(senderClientId, this.getClass(), "Start msg processing");
 
+        boolean logLatency = isPublishMsgLatencyStatsEnabled() && publishMsgProto.hasTiming();
+        long consumedTime = 0;
+        if (logLatency) {
+            consumedTime = PublishMsgLatencyStats.currentTimeMicros();
+            publishMsgLatencyStats.logLatency(PublishMsgLatencyStage.PRODUCE_TO_CONSUME, publishMsgProto.getTiming().getProducedTime(), consumedTime);
+        }
+
         MsgSubscriptions msgSubscriptions = getAllSubscriptionsForPubMsg(publishMsgProto, senderClientId);
         if (msgSubscriptions == null) {
             if (log.isDebugEnabled()) {
@@ -133,6 +176,9 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
 
         clientLogger.logEvent(senderClientId, this.getClass(), "Found msg subscribers");
 
+        if (logLatency) {
+            publishMsgProto = stampDispatchedTime(publishMsgProto, consumedTime);
+        }
         PersistentMsgSubscriptions persistentMsgSubscriptions = processBasicAndCollectPersistentSubscriptions(msgSubscriptions, publishMsgProto);
 
         if (persistentMsgSubscriptions.isNotEmpty()) {
@@ -144,6 +190,20 @@ public class MsgDispatcherServiceImpl implements MsgDispatcherService {
         clientLogger.logEvent(senderClientId, this.getClass(), "Finished msg processing");
     }
 
+    /**
+     * Only the messages delivered directly or through the downlink queue carry the dispatched time,
+     * the persistent subscriptions are processed with the original message.
+     */
+    private PublishMsgProto stampDispatchedTime(PublishMsgProto publishMsgProto, long consumedTime) {
+        long dispatchedTime = PublishMsgLatencyStats.currentTimeMicros();
+        publishMsgLatencyStats.logLatency(PublishMsgLatencyStage.CONSUME_TO_DISPATCH, consumedTime, dispatchedTime);
+        return ProtoConverter.withDispatchedTime(publishMsgProto, dispatchedTime);
+    }
+
+    private boolean isPublishMsgLatencyStatsEnabled() {
+        return publishMsgLatencyStats != null && publishMsgLatencyStats.isEnabled();
+    }
+
     private void processPersistentSubscriptions(PublishMsgWithId publishMsgWithId, PersistentMsgSubscriptions persistentSubscriptions, PublishMsgCallback callback) {
         long startTime = System.nanoTime();
         msgPersistenceManager.processPublish(publishMsgWithId, persistentSubscriptions, callback);
@@ -56,6 +56,7 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
     private final ServiceInfoProvider serviceInfoProvider;
     private final StatsManager statsManager;
     private final RateLimitService rateLimitService;
+    private final AdaptivePollConfiguration adaptivePollConfiguration;
 
     private volatile boolean stopped = false;
     private ExecutorService consumersExecutor;
@@ -88,11 +89,12 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
 
     private void launchConsumer(String consumerId, TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer) {
         PublishMsgConsumerStats stats = statsManager.createPublishMsgConsumerStats(consumerId);
+        AdaptivePackSizeController packSizeController = new AdaptivePackSizeController(consumerId, adaptivePollConfiguration);
         final AtomicLong counter = new AtomicLong(0);
         consumersExecutor.submit(() -> {
             while (!stopped) {
                 try {
-                    List<TbProtoQueueMsg<PublishMsgProto>> msgs = consumer.poll(pollDuration);
+                    List<TbProtoQueueMsg<PublishMsgProto>> msgs = pollMsgs(consumer, packSizeController);
                     if (msgs.isEmpty()) {
                         continue;
                     }
@@ -102,42 +104,23 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
                         continue;
                     }
 
-                    AckStrategy ackStrategy = ackStrategyFactory.newInstance(consumerId);
-                    SubmitStrategy submitStrategy = submitStrategyFactory.newInstance(consumerId);
-                    long packId = counter.incrementAndGet();
-                    if (packId == MAX_VALUE) {
-                        counter.set(0);
-                    }
-                    var pendingMsgMap = toPendingPubMsgWithIdMap(msgsAfterRateLimits, packId);
-                    submitStrategy.init(pendingMsgMap);
-
-                    long packProcessingStart = System.nanoTime();
-                    while (!stopped) {
-                        PackProcessingContext ctx = new PackProcessingContext(submitStrategy.getPendingMap());
-                        int totalMsgCount = ctx.getPendingMap().size();
-                        submitStrategy.process(msg -> {
-                            long msgProcessingStart = System.nanoTime();
-                            msgDispatcherService.processPublishMsg(msg, new BasePublishMsgCallback(msg.getId(), ctx));
-                            stats.logMsgProcessingTime(System.nanoTime() - msgProcessingStart, TimeUnit.NANOSECONDS);
-                        });
-
-                        if (!stopped) {
-                            ctx.await(packProcessingTimeout, TimeUnit.MILLISECONDS);
-                        }
-                        PackProcessingResult result = new PackProcessingResult(ctx);
-                        ctx.cleanup();
-                        ProcessingDecision decision = ackStrategy.analyze(result);
+                    boolean processed = true;
+                    int packStart = 0;
+                    while (processed && packStart < msgsAfterRateLimits.size()) {
+                        int packEnd = (int) Math.min(msgsAfterRateLimits.size(), (long) packStart + packSizeController.getPackSize());
+                        List<TbProtoQueueMsg<PublishMsgProto>> pack = msgsAfterRateLimits.subList(packStart, packEnd);
 
-                        stats.log(totalMsgCount, result, decision.isCommit());
+                        long packProcessingStart = System.nanoTime();
+                        processed = processPack(consumerId, stats, pack, nextPackId(counter));
+                        long packProcessingTime = System.nanoTime() - packProcessingStart;
 
-                        if (decision.isCommit()) {
-                            consumer.commitSync();
-                            break;
-                        } else {
-                            submitStrategy.update(decision.getReprocessMap());
-                        }
+                        stats.logPackProcessingTime(pack.size(), packProcessingTime, TimeUnit.NANOSECONDS);
+                        packSizeController.onPackProcessed(pack.size(), packProcessingTime, msgsAfterRateLimits.size() - packEnd);
+                        packStart = packEnd;
+                    }
+                    if (processed) {
+                        consumer.commitSync();
                     }
-                    stats.logPackProcessingTime(msgsAfterRateLimits.size(), System.nanoTime() - packProcessingStart, TimeUnit.NANOSECONDS);
                 } catch (Exception e) {
                     if (!stopped) {
                         log.error("[{}] Failed to process messages from queue.", consumerId, e);
@@ -155,6 +138,76 @@ public class PublishMsgConsumerServiceImpl implements PublishMsgConsumerService
         });
     }
 
+    private List<TbProtoQueueMsg<PublishMsgProto>> pollMsgs(TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer,
+                                                            AdaptivePackSizeController packSizeController) {
+        List<TbProtoQueueMsg<PublishMsgProto>> msgs = consumer.poll(pollDuration);
+        long lingerMs = packSizeController.getLingerMs();
+        if (msgs.isEmpty() || lingerMs <= 0 || msgs.size() >= packSizeController.getPackSize()) {
+            return msgs;
+        }
+        List<TbProtoQueueMsg<PublishMsgProto>> accumulatedMsgs = new ArrayList<>(msgs);
+        long lingerDeadline = System.currentTimeMillis() + lingerMs;
+        while (!stopped && accumulatedMsgs.size() < packSizeController.getPackSize()) {
+            long remainingLingerMs = lingerDeadline - System.currentTimeMillis();
+            if (remainingLingerMs <= 0) {
+                break;
+            }
+            List<TbProtoQueueMsg<PublishMsgProto>> moreMsgs = consumer.poll(remainingLingerMs);
+            if (moreMsgs.isEmpty()) {
+                break;
+            }
+            accumulatedMsgs.addAll(moreMsgs);
+        }
+        return accumulatedMsgs;
+    }
+
+    /**
+     * Processes the pack until the ack strategy decides it can be committed.
+     *
+     * @return false if the consumer was stopped before the pack was processed
+     */
+    private boolean processPack(String consumerId, PublishMsgConsumerStats stats,
+                                List<TbProtoQueueMsg<PublishMsgProto>> pack, long packId) throws InterruptedException {
+        AckStrategy ackStrategy = ackStrategyFactory.newInstance(consumerId);
+        SubmitStrategy submitStrategy = submitStrategyFactory.newInstance(consumerId);
+        var pendingMsgMap = toPendingPubMsgWithIdMap(pack, packId);
+        submitStrategy.init(pendingMsgMap);
+
+        while (!stopped) {
+            PackProcessingContext ctx = new PackProcessingContext(submitStrategy.getPendingMap());
+            int totalMsgCount = ctx.getPendingMap().size();
+            submitStrategy.process(msg -> {
+                long msgProcessingStart = System.nanoTime();
+                msgDispatcherService.processPublishMsg(msg, new BasePublishMsgCallback(msg.getId(), ctx));
+                stats.logMsgProcessingTime(System.nanoTime() - msgProcessingStart, TimeUnit.NANOSECONDS);
+            });
+
+            if (!stopped) {
+                ctx.await(packProcessingTimeout, TimeUnit.MILLISECONDS);
+            }
+            PackProcessingResult result = new PackProcessingResult(ctx);
+            ctx.cleanup();
+            ProcessingDecision decision = ackStrategy.analyze(result);
+
+            stats.log(totalMsgCount, result, decision.isCommit());
+
+            if (decision.isCommit()) {
+                return true;
+            } else {
+                submitStrategy.update(decision.getReprocessMap());
+            }
+        }
+        return false;
+    }
+
+    private long nextPackId(AtomicLong counter) {
+        long packId = counter.incrementAndGet();
+        if (packId == MAX_VALUE) {
+            counter.set(0);
+        }
+        return packId;
+    }
+
     private List<TbProtoQueueMsg<PublishMsgProto>> applyRateLimits(TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>> consumer,
                                                                    List<TbProtoQueueMsg<PublishMsgProto>> msgs) {
         if (rateLimitService.isTotalMsgsLimitEnabled()) {
@@ -23,4 +23,6 @@ public interface PublishMsgQueuePublisher {
 
     void sendMsg(TbProtoQueueMsg<QueueProtos.PublishMsgProto> msgProto, TbQueueCallback callback);
 
+    void flush();
+
 }
@@ -49,6 +49,11 @@ public class PublishMsgQueuePublisherImpl implements PublishMsgQueuePublisher {
         publisher.send(msgProto, callback);
     }
 
+    @Override
+    public void flush() {
+        publisher.flush();
+    }
+
     @PreDestroy
     public void destroy() {
         publisher.destroy();
@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import lombok.Getter;
+import org.thingsboard.mqtt.broker.common.stats.StatsCounter;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+
+import java.util.List;
+
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.FAILED_HANDSHAKES;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.LISTENER_TAG;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.RESUMED_HANDSHAKES;
+import static org.thingsboard.mqtt.broker.common.stats.StatsConstantNames.SUCCESSFUL_HANDSHAKES;
+
+public class DefaultTlsHandshakeStats implements TlsHandshakeStats {
+
+    @Getter
+    private final String listenerName;
+    private final List<StatsCounter> counters;
+
+    private final StatsCounter successfulHandshakesCounter;
+    private final StatsCounter resumedHandshakesCounter;
+    private final StatsCounter failedHandshakesCounter;
+
+    public DefaultTlsHandshakeStats(String listenerName, StatsFactory statsFactory) {
+        this.listenerName = listenerName;
+        String statsKey = StatsType.TLS_HANDSHAKE.getPrintName();
+        this.successfulHandshakesCounter = statsFactory.createStatsCounter(statsKey, SUCCESSFUL_HANDSHAKES, LISTENER_TAG, listenerName);
+        this.resumedHandshakesCounter = statsFactory.createStatsCounter(statsKey, RESUMED_HANDSHAKES, LISTENER_TAG, listenerName);
+        this.failedHandshakesCounter = statsFactory.createStatsCounter(statsKey, FAILED_HANDSHAKES, LISTENER_TAG, listenerName);
+
+        counters = List.of(successfulHandshakesCounter, resumedHandshakesCounter, failedHandshakesCounter);
+    }
+
+    @Override
+    public void logSuccessfulHandshake(boolean resumed) {
+        successfulHandshakesCounter.increment();
+        if (resumed) {
+            resumedHandshakesCounter.increment();
+        }
+    }
+
+    @Override
+    public void logFailedHandshake() {
+        failedHandshakesCounter.increment();
+    }
+
+    @Override
+    public double getResumptionRatio() {
+        int successful = successfulHandshakesCounter.get();
+        return successful == 0 ? 0 : (double) resumedHandshakesCounter.get() / successful;
+    }
+
+    @Override
+    public List<StatsCounter> getStatsCounters() {
+        return counters;
+    }
+
+    @Override
+    public void reset() {
+        counters.forEach(StatsCounter::clear);
+    }
+}
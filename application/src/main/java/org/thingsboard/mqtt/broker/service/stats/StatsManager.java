@@ -19,6 +19,7 @@ import org.thingsboard.mqtt.broker.common.stats.MessagesStats;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationSharedSubscriptionJob;
 import org.thingsboard.mqtt.broker.service.stats.timer.DeliveryTimerStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgProcessingTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.RetainedMsgTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.SubscriptionTimerStats;
@@ -48,6 +49,8 @@ public interface StatsManager {
 
     RetainedMsgConsumerStats getRetainedMsgConsumerStats();
 
+    TlsHandshakeStats createTlsHandshakeStats(String listenerName);
+
     void clearApplicationProcessorStats(String clientId);
 
     void clearSharedApplicationProcessorStats(String clientId);
@@ -86,5 +89,7 @@ public interface StatsManager {
 
     DeliveryTimerStats getDeliveryTimerStats();
 
+    PublishMsgLatencyStats getPublishMsgLatencyStats();
+
     ClientActorStats getClientActorStats();
 }
@@ -39,9 +39,12 @@ import org.thingsboard.mqtt.broker.queue.stats.ConsumerStatsManager;
 import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
 import org.thingsboard.mqtt.broker.queue.stats.Timer;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationSharedSubscriptionJob;
+import org.thingsboard.mqtt.broker.service.stats.timer.DefaultPublishMsgLatencyStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.DeliveryTimerStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgProcessingTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.RetainedMsgTimerStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.StubTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.SubscriptionTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.TimerStats;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
@@ -69,6 +72,7 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
     private final List<PublishMsgConsumerStats> managedPublishMsgConsumerStats = new CopyOnWriteArrayList<>();
     private final List<ClientSessionEventConsumerStats> managedClientSessionEventConsumerStats = new CopyOnWriteArrayList<>();
     private final List<DeviceProcessorStats> managedDeviceProcessorStats = new CopyOnWriteArrayList<>();
+    private final List<TlsHandshakeStats> managedTlsHandshakeStats = new CopyOnWriteArrayList<>();
     private final Map<String, ApplicationProcessorStats> managedApplicationProcessorStats = new ConcurrentHashMap<>();
     private final Map<String, List<String>> sharedSubscriptionCompoundClientIds = new ConcurrentHashMap<>();
     private final Map<String, ResettableTimer> managedQueueProducers = new ConcurrentHashMap<>();
@@ -81,12 +85,16 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
 
     @Value("${stats.application-processor.enabled}")
     private boolean applicationProcessorStatsEnabled;
+    @Value("${stats.publish-msg-latency.enabled:false}")
+    private boolean publishMsgLatencyStatsEnabled;
 
     private TimerStats timerStats;
+    private PublishMsgLatencyStats publishMsgLatencyStats;
 
     @PostConstruct
     public void init() {
         this.timerStats = new TimerStats(statsFactory);
+        this.publishMsgLatencyStats = publishMsgLatencyStatsEnabled ? new DefaultPublishMsgLatencyStats(statsFactory) : new StubTimerStats();
         this.managedClientSubscriptionConsumerStats = new DefaultClientSubscriptionConsumerStats(statsFactory);
         this.retainedMsgConsumerStats = new DefaultRetainedMsgConsumerStats(statsFactory);
         this.clientActorStats = new DefaultClientActorStats(statsFactory);
@@ -191,6 +199,16 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         return retainedMsgConsumerStats;
     }
 
+    @Override
+    public TlsHandshakeStats createTlsHandshakeStats(String listenerName) {
+        if (log.isTraceEnabled()) {
+            log.trace("Creating TlsHandshakeStats, listenerName - {}.", listenerName);
+        }
+        TlsHandshakeStats stats = new DefaultTlsHandshakeStats(listenerName, statsFactory);
+        managedTlsHandshakeStats.add(stats);
+        return stats;
+    }
+
     @Override
     public void clearApplicationProcessorStats(String clientId) {
         if (log.isTraceEnabled()) {
@@ -412,6 +430,11 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         return timerStats;
     }
 
+    @Override
+    public PublishMsgLatencyStats getPublishMsgLatencyStats() {
+        return publishMsgLatencyStats;
+    }
+
     @Override
     public ClientActorStats getClientActorStats() {
         return clientActorStats;
@@ -483,6 +506,15 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         log.info("[{}] Stats: {}", StatsType.RETAINED_MSG_CONSUMER.getPrintName(), retainedMsgStatsStr);
         retainedMsgConsumerStats.reset();
 
+        for (TlsHandshakeStats stats : managedTlsHandshakeStats) {
+            String tlsStatsStr = stats.getStatsCounters().stream()
+                    .map(statsCounter -> statsCounter.getName() + " = [" + statsCounter.get() + "]")
+                    .collect(Collectors.joining(" "));
+            log.info("[{}][{}] Stats: {}, resumption ratio - {}", StatsType.TLS_HANDSHAKE.getPrintName(), stats.getListenerName(),
+                    tlsStatsStr, stats.getResumptionRatio());
+            stats.reset();
+        }
+
         StringBuilder gaugeLogBuilder = new StringBuilder();
         for (Gauge gauge : gauges) {
             gaugeLogBuilder.append(gauge.getName()).append(" = [").append(gauge.getValueSupplier().get().intValue()).append("] ");
@@ -509,6 +541,16 @@ public class StatsManagerImpl implements StatsManager, ActorStatsManager, SqlQue
         }
         log.info("Timer Average Stats: {}", timerLogBuilder.toString());
 
+        if (publishMsgLatencyStats instanceof DefaultPublishMsgLatencyStats latencyStats) {
+            StringBuilder latencyLogBuilder = new StringBuilder();
+            latencyStats.getTimers().forEach((stage, timer) -> {
+                latencyLogBuilder.append(stage.getPrintName()).append(" = [").append(timer.getCount()).append(" | ")
+                        .append(timer.getAvg()).append(" | ").append(timer.getMax()).append("] ");
+                timer.reset();
+            });
+            log.info("Publish Msg Latency Stats: {}", latencyLogBuilder.toString());
+        }
+
         StringBuilder queueProducerLogBuilder = new StringBuilder();
         managedQueueProducers.forEach((producerId, timer) -> {
             queueProducerLogBuilder.append(producerId).append(" = [").append(timer.getCount()).append(" | ")
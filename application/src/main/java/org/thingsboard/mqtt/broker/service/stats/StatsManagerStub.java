@@ -27,6 +27,7 @@ import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
 import org.thingsboard.mqtt.broker.queue.stats.Timer;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.data.ApplicationSharedSubscriptionJob;
 import org.thingsboard.mqtt.broker.service.stats.timer.DeliveryTimerStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgProcessingTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.RetainedMsgTimerStats;
 import org.thingsboard.mqtt.broker.service.stats.timer.StubTimerStats;
@@ -89,6 +90,11 @@ public class StatsManagerStub implements StatsManager, ActorStatsManager, Produc
         return StubRetainedMsgConsumerStats.STUB_RETAINED_MSG_CONSUMER_STATS;
     }
 
+    @Override
+    public TlsHandshakeStats createTlsHandshakeStats(String listenerName) {
+        return StubTlsHandshakeStats.STUB_TLS_HANDSHAKE_STATS;
+    }
+
     @Override
     public void clearApplicationProcessorStats(String clientId) {
     }
@@ -168,6 +174,11 @@ public class StatsManagerStub implements StatsManager, ActorStatsManager, Produc
         return timerStats;
     }
 
+    @Override
+    public PublishMsgLatencyStats getPublishMsgLatencyStats() {
+        return timerStats;
+    }
+
     @Override
     public ClientActorStats getClientActorStats() {
         return StubClientActorStats.STUB_CLIENT_ACTOR_STATS;
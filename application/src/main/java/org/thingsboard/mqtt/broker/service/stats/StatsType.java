@@ -38,6 +38,7 @@ public enum StatsType {
     CLIENT_SUBSCRIPTIONS_CONSUMER("clientSubscriptionsConsumer"),
     RETAINED_MSG_CONSUMER("retainedMsgConsumer"),
     CLIENT_ACTOR("clientActor"),
+    TLS_HANDSHAKE("tlsHandshake"),
 
     SUBSCRIPTION_LOOKUP("subscriptionLookup"),
     RETAINED_MSG_LOOKUP("retainedMsgLookup"),
@@ -45,6 +46,7 @@ public enum StatsType {
     NOT_PERSISTENT_MESSAGES_PROCESSING("notPersistentMessagesProcessing"),
     PERSISTENT_MESSAGES_PROCESSING("persistentMessagesProcessing"),
     DELIVERY("delivery"),
+    PUBLISH_MSG_LATENCY("publishMsgLatency"),
 
     QUEUE_PRODUCER("producer"),
     QUEUE_CONSUMER("consumer"),
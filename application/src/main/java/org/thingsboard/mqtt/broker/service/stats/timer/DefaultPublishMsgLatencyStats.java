@@ -0,0 +1,61 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats.timer;
+
+import org.thingsboard.mqtt.broker.common.stats.ResettableTimer;
+import org.thingsboard.mqtt.broker.common.stats.StatsFactory;
+import org.thingsboard.mqtt.broker.service.stats.StatsType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultPublishMsgLatencyStats implements PublishMsgLatencyStats {
+
+    private static final String STAGE_TAG = "stage";
+
+    private final Map<PublishMsgLatencyStage, ResettableTimer> timers = new EnumMap<>(PublishMsgLatencyStage.class);
+
+    public DefaultPublishMsgLatencyStats(StatsFactory statsFactory) {
+        for (PublishMsgLatencyStage stage : PublishMsgLatencyStage.values()) {
+            timers.put(stage, new ResettableTimer(statsFactory.createHistogramTimer(StatsType.PUBLISH_MSG_LATENCY.getPrintName(),
+                    STAGE_TAG, stage.getPrintName()), true));
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Negative latencies are possible when the stages ran on nodes with clocks out of sync, such values are skipped.
+     */
+    @Override
+    public void logLatency(PublishMsgLatencyStage stage, long startTimeMicros, long endTimeMicros) {
+        if (startTimeMicros <= 0) {
+            return;
+        }
+        long latencyMicros = endTimeMicros - startTimeMicros;
+        if (latencyMicros >= 0) {
+            timers.get(stage).logTime(TimeUnit.MICROSECONDS.toNanos(latencyMicros), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Map<PublishMsgLatencyStage, ResettableTimer> getTimers() {
+        return timers;
+    }
+}
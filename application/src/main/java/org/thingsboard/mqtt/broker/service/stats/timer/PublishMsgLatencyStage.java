@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats.timer;
+
+import lombok.Getter;
+
+@Getter
+public enum PublishMsgLatencyStage {
+
+    /**
+     * From the PUBLISH read in the Netty handler to the produce to the 'tbmq.msg.all' topic.
+     */
+    RECEIVE_TO_PRODUCE("receiveToProduce"),
+    /**
+     * From the produce to the 'tbmq.msg.all' topic to the start of the message processing by the consumer.
+     */
+    PRODUCE_TO_CONSUME("produceToConsume"),
+    /**
+     * Subscriptions lookup of the consumed message.
+     */
+    CONSUME_TO_DISPATCH("consumeToDispatch"),
+    /**
+     * From the dispatch to the subscriber, including the downlink hop, to the write to the subscriber channel.
+     */
+    DISPATCH_TO_DELIVERY("dispatchToDelivery"),
+    /**
+     * From the PUBLISH read in the Netty handler to the write to the subscriber channel.
+     */
+    END_TO_END("endToEnd");
+
+    private final String printName;
+
+    PublishMsgLatencyStage(String printName) {
+        this.printName = printName;
+    }
+}
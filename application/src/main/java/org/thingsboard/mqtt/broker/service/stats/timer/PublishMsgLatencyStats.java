@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats.timer;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+public interface PublishMsgLatencyStats {
+
+    boolean isEnabled();
+
+    void logLatency(PublishMsgLatencyStage stage, long startTimeMicros, long endTimeMicros);
+
+    /**
+     * Stage timestamps are carried between the broker nodes, so the wall clock is used instead of the monotonic one.
+     */
+    static long currentTimeMicros() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(now.getNano());
+    }
+
+    /**
+     * Converts the monotonic time of a local event to the wall clock time in microseconds.
+     */
+    static long toCurrentTimeMicros(long eventTimeNanos) {
+        return currentTimeMicros() - TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - eventTimeNanos);
+    }
+}
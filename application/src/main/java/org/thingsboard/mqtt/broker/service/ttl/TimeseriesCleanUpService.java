@@ -29,6 +29,10 @@ public class TimeseriesCleanUpService extends AbstractCleanUpService {
 
     @Value("${sql.ttl.ts.ts_key_value_ttl}")
     protected long systemTtl;
+    @Value("${sql.ttl.ts.rollup_hourly_ttl}")
+    protected long rollupHourlyTtl;
+    @Value("${sql.ttl.ts.rollup_daily_ttl}")
+    protected long rollupDailyTtl;
     @Value("${sql.ttl.ts.enabled}")
     private boolean ttlTaskExecutionEnabled;
 
@@ -46,6 +50,7 @@ public class TimeseriesCleanUpService extends AbstractCleanUpService {
         if (ttlTaskExecutionEnabled && isCurrentNodeShouldCleanUp()) {
             log.info("Starting timeseries clean up!");
             timeseriesService.cleanUp(systemTtl);
+            timeseriesService.cleanUpRollups(rollupHourlyTtl, rollupDailyTtl);
         }
     }
 
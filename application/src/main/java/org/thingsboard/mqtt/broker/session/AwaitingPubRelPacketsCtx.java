@@ -21,6 +21,7 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,34 +32,63 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AwaitingPubRelPacketsCtx {
 
-    private final ConcurrentMap<Integer, QoS2PubRelPacketInfo> awaitingForQoS2PubRelPackets = new ConcurrentHashMap<>();
+    /**
+     * Created with the first awaited packet and released once no packets are awaited,
+     * as most of the sessions have no QoS 2 packets in flight. Modified only under the lock.
+     */
+    private volatile ConcurrentMap<Integer, QoS2PubRelPacketInfo> awaitingForQoS2PubRelPackets;
 
-    public void loadPersistedPackets(Set<Integer> awaitingPacketIds) {
+    public synchronized void loadPersistedPackets(Set<Integer> awaitingPacketIds) {
+        if (awaitingPacketIds.isEmpty()) {
+            return;
+        }
         Map<Integer, QoS2PubRelPacketInfo> newAwaitingPackets = awaitingPacketIds.stream()
                 .collect(Collectors.toMap(Function.identity(), id -> new QoS2PubRelPacketInfo(id, true)));
-        awaitingForQoS2PubRelPackets.putAll(newAwaitingPackets);
+        getOrCreateAwaitingPackets().putAll(newAwaitingPackets);
     }
 
-    public void await(String clientId, int packetId) {
+    public synchronized void await(String clientId, int packetId) {
         if (log.isDebugEnabled()) {
-            log.debug("[{}] Adding packet, awaitingForQoS2PubRelPackets size: {}", clientId, awaitingForQoS2PubRelPackets.size());
+            log.debug("[{}] Adding packet, awaitingForQoS2PubRelPackets size: {}", clientId, size());
         }
-        awaitingForQoS2PubRelPackets.put(packetId, new QoS2PubRelPacketInfo(packetId));
+        getOrCreateAwaitingPackets().put(packetId, new QoS2PubRelPacketInfo(packetId));
     }
 
-    public boolean complete(String clientId, int packetId) {
+    public synchronized boolean complete(String clientId, int packetId) {
         if (log.isDebugEnabled()) {
-            log.debug("[{}] Removing packet, awaitingForQoS2PubRelPackets size: {}", clientId, awaitingForQoS2PubRelPackets.size());
+            log.debug("[{}] Removing packet, awaitingForQoS2PubRelPackets size: {}", clientId, size());
+        }
+        ConcurrentMap<Integer, QoS2PubRelPacketInfo> awaitingPackets = awaitingForQoS2PubRelPackets;
+        if (awaitingPackets == null) {
+            return false;
         }
-        return awaitingForQoS2PubRelPackets.remove(packetId) != null;
+        boolean removed = awaitingPackets.remove(packetId) != null;
+        if (awaitingPackets.isEmpty()) {
+            awaitingForQoS2PubRelPackets = null;
+        }
+        return removed;
     }
 
     public QoS2PubRelPacketInfo getAwaitingPacket(int packetId) {
-        return awaitingForQoS2PubRelPackets.get(packetId);
+        ConcurrentMap<Integer, QoS2PubRelPacketInfo> awaitingPackets = awaitingForQoS2PubRelPackets;
+        return awaitingPackets != null ? awaitingPackets.get(packetId) : null;
     }
 
     public Collection<QoS2PubRelPacketInfo> getAwaitingPackets() {
-        return awaitingForQoS2PubRelPackets.values();
+        ConcurrentMap<Integer, QoS2PubRelPacketInfo> awaitingPackets = awaitingForQoS2PubRelPackets;
+        return awaitingPackets != null ? awaitingPackets.values() : Collections.emptyList();
+    }
+
+    private int size() {
+        ConcurrentMap<Integer, QoS2PubRelPacketInfo> awaitingPackets = awaitingForQoS2PubRelPackets;
+        return awaitingPackets != null ? awaitingPackets.size() : 0;
+    }
+
+    private ConcurrentMap<Integer, QoS2PubRelPacketInfo> getOrCreateAwaitingPackets() {
+        if (awaitingForQoS2PubRelPackets == null) {
+            awaitingForQoS2PubRelPackets = new ConcurrentHashMap<>();
+        }
+        return awaitingForQoS2PubRelPackets;
     }
 
     @Getter
@@ -19,6 +19,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import io.netty.handler.codec.mqtt.MqttVersion;
 import io.netty.handler.ssl.SslHandler;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +39,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Getter
@@ -48,9 +50,15 @@ public class ClientSessionCtx implements SessionContext {
     private final SslHandler sslHandler;
     private final String initializerName;
     private final PubResponseProcessingCtx pubResponseProcessingCtx;
-    private final ConcurrentMap<Integer, MqttPendingPublish> pendingPublishes;
+    // created with the first pending publish when retransmission is enabled
+    @Getter(AccessLevel.NONE)
+    private volatile ConcurrentMap<Integer, MqttPendingPublish> pendingPublishes;
     private final MsgIdSequence msgIdSeq = new MsgIdSequence();
     private final AwaitingPubRelPacketsCtx awaitingPubRelPacketsCtx = new AwaitingPubRelPacketsCtx();
+    /**
+     * Number of inbound PUBLISH messages handed over to the client actor and not processed yet.
+     */
+    private final AtomicInteger publishesInActor = new AtomicInteger();
 
     @Setter
     private volatile SessionInfo sessionInfo;
@@ -66,6 +74,8 @@ public class ClientSessionCtx implements SessionContext {
     private volatile TopicAliasCtx topicAliasCtx;
     @Setter
     private volatile PublishedInFlightCtx publishedInFlightCtx;
+    @Setter
+    private volatile boolean connected;
 
     @Setter
     private ChannelHandlerContext channel;
@@ -80,18 +90,25 @@ public class ClientSessionCtx implements SessionContext {
         this.sslHandler = sslHandler;
         this.initializerName = initializerName;
         this.pubResponseProcessingCtx = new PubResponseProcessingCtx(getMaxAwaitingQueueSize(mqttHandlerCtx));
-        this.pendingPublishes = initPendingPublishes(mqttHandlerCtx);
     }
 
     private int getMaxAwaitingQueueSize(MqttHandlerCtx mqttHandlerCtx) {
         return mqttHandlerCtx == null ? BrokerConstants.MAX_IN_FLIGHT_MESSAGES : mqttHandlerCtx.getMaxInFlightMsgs();
     }
 
-    private ConcurrentMap<Integer, MqttPendingPublish> initPendingPublishes(MqttHandlerCtx mqttHandlerCtx) {
-        if (mqttHandlerCtx == null) {
-            return null;
+    public ConcurrentMap<Integer, MqttPendingPublish> getPendingPublishes() {
+        ConcurrentMap<Integer, MqttPendingPublish> currentPendingPublishes = pendingPublishes;
+        if (currentPendingPublishes != null || mqttHandlerCtx == null || !mqttHandlerCtx.isRetransmissionEnabled()) {
+            return currentPendingPublishes;
+        }
+        return initPendingPublishes();
+    }
+
+    private synchronized ConcurrentMap<Integer, MqttPendingPublish> initPendingPublishes() {
+        if (pendingPublishes == null) {
+            pendingPublishes = new ConcurrentHashMap<>();
         }
-        return mqttHandlerCtx.isRetransmissionEnabled() ? new ConcurrentHashMap<>() : null;
+        return pendingPublishes;
     }
 
     public String getClientId() {
@@ -116,15 +133,20 @@ public class ClientSessionCtx implements SessionContext {
         }
     }
 
+    public int getAvailableInFlightSlots() {
+        return publishedInFlightCtx != null ? publishedInFlightCtx.getAvailableInFlightSlots() : Integer.MAX_VALUE;
+    }
+
     public void closeChannel() {
         if (log.isDebugEnabled()) {
             log.debug("[{}] Closing channel...", getClientId());
         }
         this.channel.flush();
         this.channel.close();
-        if (this.pendingPublishes != null) {
-            this.pendingPublishes.forEach((id, mqttPendingPublish) -> mqttPendingPublish.onChannelClosed());
-            this.pendingPublishes.clear();
+        ConcurrentMap<Integer, MqttPendingPublish> currentPendingPublishes = this.pendingPublishes;
+        if (currentPendingPublishes != null) {
+            currentPendingPublishes.forEach((id, mqttPendingPublish) -> mqttPendingPublish.onChannelClosed());
+            currentPendingPublishes.clear();
         }
     }
 }
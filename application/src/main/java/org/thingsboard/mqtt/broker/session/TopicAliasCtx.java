@@ -37,11 +37,12 @@ public class TopicAliasCtx {
 
     private final boolean enabled;
     private final int maxTopicAlias;
-    private final ConcurrentMap<Integer, String> clientMappings;
-    private final ConcurrentMap<String, Integer> serverMappings;
+    // the mappings are created with the first topic alias, most of the clients never use topic aliases
+    private volatile ConcurrentMap<Integer, String> clientMappings;
+    private volatile ConcurrentMap<String, Integer> serverMappings;
 
     public TopicAliasCtx(boolean enabled, int maxTopicAlias) {
-        this(enabled, maxTopicAlias, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        this(enabled, maxTopicAlias, null, null);
     }
 
     public TopicAliasCtx(boolean enabled, int maxTopicAlias,
@@ -83,7 +84,7 @@ public class TopicAliasCtx {
             if (topicName.length() > minTopicNameLengthForAliasReplacement) {
                 MqttProperties properties = publishMsg.getProperties();
 
-                Integer topicAlias = serverMappings.get(topicName);
+                Integer topicAlias = getServerTopicAlias(topicName);
                 if (topicAlias == null) {
                     int nextTopicAlias = getNextTopicAlias(topicName);
                     if (nextTopicAlias == 0) {
@@ -103,7 +104,7 @@ public class TopicAliasCtx {
         if (enabled) {
             String topicName = publishMsgProto.getTopicName();
             if (topicName.length() > minTopicNameLengthForAliasReplacement) {
-                Integer topicAlias = serverMappings.get(topicName);
+                Integer topicAlias = getServerTopicAlias(topicName);
                 if (topicAlias == null) {
                     int nextTopicAlias = getNextTopicAlias(topicName);
                     if (nextTopicAlias == 0) {
@@ -135,28 +136,53 @@ public class TopicAliasCtx {
 
     @Nullable
     private String getTopicByAlias(int topicAlias) {
-        return clientMappings.get(topicAlias);
+        ConcurrentMap<Integer, String> mappings = clientMappings;
+        return mappings != null ? mappings.get(topicAlias) : null;
+    }
+
+    @Nullable
+    private Integer getServerTopicAlias(String topicName) {
+        ConcurrentMap<String, Integer> mappings = serverMappings;
+        return mappings != null ? mappings.get(topicName) : null;
     }
 
     private void saveMapping(int topicAlias, String topicName) {
-        clientMappings.put(topicAlias, topicName);
+        getOrCreateClientMappings().put(topicAlias, topicName);
     }
 
     int getNextTopicAlias(String topicName) {
         if (isMoreTopicAliasAvailable()) {
-            int lastTopicAlias = serverMappings.size();
+            ConcurrentMap<String, Integer> mappings = getOrCreateServerMappings();
+            int lastTopicAlias = mappings.size();
             int nextTopicAlias = lastTopicAlias + 1;
-            serverMappings.put(topicName, nextTopicAlias);
+            mappings.put(topicName, nextTopicAlias);
             return nextTopicAlias;
         }
         return 0;
     }
 
+    private synchronized ConcurrentMap<Integer, String> getOrCreateClientMappings() {
+        if (clientMappings == null) {
+            clientMappings = new ConcurrentHashMap<>();
+        }
+        return clientMappings;
+    }
+
+    private synchronized ConcurrentMap<String, Integer> getOrCreateServerMappings() {
+        if (serverMappings == null) {
+            serverMappings = new ConcurrentHashMap<>();
+        }
+        return serverMappings;
+    }
+
     private boolean isMoreTopicAliasAvailable() {
         return currentTopicAliasesCount() < maxTopicAlias;
     }
 
     private int currentTopicAliasesCount() {
-        return clientMappings.size() + serverMappings.size();
+        ConcurrentMap<Integer, String> currentClientMappings = clientMappings;
+        ConcurrentMap<String, Integer> currentServerMappings = serverMappings;
+        return (currentClientMappings != null ? currentClientMappings.size() : 0)
+                + (currentServerMappings != null ? currentServerMappings.size() : 0);
     }
 }
@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.ssl.config;
+
+import lombok.Data;
+
+@Data
+public class SslSessionConfig {
+
+    /**
+     * Max number of sessions in the server-side session cache. 0 means the provider default is used
+     */
+    private long cacheSize;
+    /**
+     * Timeout in seconds for cached sessions. 0 means the provider default is used
+     */
+    private long timeout;
+    private SslSessionTicketsConfig tickets = new SslSessionTicketsConfig();
+
+    @Data
+    public static class SslSessionTicketsConfig {
+
+        private boolean enabled;
+        /**
+         * Comma-separated list of base64-encoded 48 bytes ticket keys. The first key encrypts new tickets,
+         * all keys are accepted to decrypt the tickets. When empty, random keys are generated and rotated
+         */
+        private String keys;
+        /**
+         * Interval in seconds to rotate generated ticket keys. The previous key stays valid for one more interval
+         */
+        private long rotationInterval;
+
+    }
+}
@@ -26,8 +26,6 @@ import org.thingsboard.mqtt.broker.actors.client.state.ClientActorState;
 import org.thingsboard.mqtt.broker.actors.client.state.DefaultClientActorState;
 import org.thingsboard.mqtt.broker.actors.client.state.SessionState;
 import org.thingsboard.mqtt.broker.common.data.ClientType;
-import org.thingsboard.mqtt.broker.exception.AuthenticationException;
-import org.thingsboard.mqtt.broker.service.auth.AuthenticationService;
 import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
 import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
 import org.thingsboard.mqtt.broker.service.security.authorization.AuthRulePatterns;
@@ -35,15 +33,15 @@ import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 import org.thingsboard.mqtt.broker.session.DisconnectReason;
 import org.thingsboard.mqtt.broker.session.DisconnectReasonType;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -55,7 +53,6 @@ public class ActorProcessorImplTest {
 
     ActorProcessorImpl actorProcessor;
     DisconnectService disconnectService;
-    AuthenticationService authenticationService;
     MqttMessageGenerator mqttMessageGenerator;
 
     ClientActorState clientActorState;
@@ -63,9 +60,8 @@ public class ActorProcessorImplTest {
     @Before
     public void setUp() {
         disconnectService = mock(DisconnectService.class);
-        authenticationService = mock(AuthenticationService.class);
         mqttMessageGenerator = mock(MqttMessageGenerator.class);
-        actorProcessor = spy(new ActorProcessorImpl(disconnectService, authenticationService, mqttMessageGenerator));
+        actorProcessor = spy(new ActorProcessorImpl(disconnectService, mqttMessageGenerator));
 
         clientActorState = new DefaultClientActorState("clientId", false, 0);
     }
@@ -81,6 +77,19 @@ public class ActorProcessorImplTest {
         verify(disconnectService, times(1)).disconnect(any(), any());
     }
 
+    @Test
+    public void givenConnectedSessionCtx_whenOnDisconnect_thenSessionCtxIsNotConnected() {
+        ClientSessionCtx clientSessionCtx = getClientSessionCtx();
+        clientActorState.setClientSessionCtx(clientSessionCtx);
+        updateSessionState(SessionState.CONNECTED);
+        assertTrue(clientSessionCtx.isConnected());
+
+        doNothing().when(disconnectService).disconnect(any(), any());
+        actorProcessor.onDisconnect(clientActorState, getDisconnectMsg());
+
+        assertFalse(clientSessionCtx.isConnected());
+    }
+
     @Test
     public void givenDisconnectedSession_whenOnDisconnect_thenOk() {
         updateSessionState(SessionState.DISCONNECTED);
@@ -92,13 +101,10 @@ public class ActorProcessorImplTest {
     }
 
     @Test
-    public void givenDisconnectedSession_whenOnInit_thenOk() throws AuthenticationException {
+    public void givenDisconnectedSession_whenOnInit_thenOk() {
         updateSessionState(SessionState.DISCONNECTED);
 
-        AuthResponse authResponse = getAuthResponse(true);
-        doReturn(authResponse).when(authenticationService).authenticate(any());
-
-        SessionInitMsg sessionInitMsg = getSessionInitMsg(getClientSessionCtx());
+        SessionInitMsg sessionInitMsg = getSessionInitMsg(getClientSessionCtx(), getAuthResponse(true));
         actorProcessor.onInit(clientActorState, sessionInitMsg);
 
         assertEquals(SessionState.INITIALIZED, clientActorState.getCurrentSessionState());
@@ -112,30 +118,27 @@ public class ActorProcessorImplTest {
     }
 
     @Test
-    public void givenSameSession_whenOnInit_thenDisconnect() throws AuthenticationException {
+    public void givenSameSession_whenOnInit_thenDisconnect() {
         updateSessionState(SessionState.CONNECTED);
 
         ClientSessionCtx clientSessionCtx = getClientSessionCtx();
         clientActorState.setClientSessionCtx(clientSessionCtx);
 
-        SessionInitMsg sessionInitMsg = getSessionInitMsg(clientSessionCtx);
+        SessionInitMsg sessionInitMsg = getSessionInitMsg(clientSessionCtx, getAuthResponse(true));
         actorProcessor.onInit(clientActorState, sessionInitMsg);
 
         assertEquals(SessionState.DISCONNECTING, clientActorState.getCurrentSessionState());
         verify(disconnectService, times(1)).disconnect(any(), any());
-        verify(authenticationService, never()).authenticate(any());
+        verify(actorProcessor, never()).updateClientActorState(any(), any());
     }
 
     @Test
-    public void givenDisconnectedSession_whenOnInitAndAuthenticateFailed_thenClose() throws AuthenticationException {
+    public void givenDisconnectedSession_whenOnInitAndAuthenticateFailed_thenClose() {
         updateSessionState(SessionState.DISCONNECTED);
 
-        AuthResponse authResponse = getAuthResponse(false);
-        doReturn(authResponse).when(authenticationService).authenticate(any());
-
         doNothing().when(actorProcessor).sendConnectionRefusedMsgAndCloseChannel(any());
 
-        SessionInitMsg sessionInitMsg = getSessionInitMsg(getClientSessionCtx());
+        SessionInitMsg sessionInitMsg = getSessionInitMsg(getClientSessionCtx(), getAuthResponse(false));
         actorProcessor.onInit(clientActorState, sessionInitMsg);
 
         assertEquals(SessionState.DISCONNECTED, clientActorState.getCurrentSessionState());
@@ -155,8 +158,8 @@ public class ActorProcessorImplTest {
         return new MqttDisconnectMsg(UUID.randomUUID(), new DisconnectReason(DisconnectReasonType.ON_DISCONNECT_MSG));
     }
 
-    private SessionInitMsg getSessionInitMsg(ClientSessionCtx clientSessionCtx) {
-        return new SessionInitMsg(clientSessionCtx, "userName", "password".getBytes(StandardCharsets.UTF_8));
+    private SessionInitMsg getSessionInitMsg(ClientSessionCtx clientSessionCtx, AuthResponse authResponse) {
+        return new SessionInitMsg(clientSessionCtx, authResponse);
     }
 
     private ClientSessionCtx getClientSessionCtx() {
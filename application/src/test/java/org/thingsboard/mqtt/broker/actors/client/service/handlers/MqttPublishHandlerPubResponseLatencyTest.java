@@ -0,0 +1,217 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors.client.service.handlers;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPubAckMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockSettings;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.actors.TbActorRef;
+import org.thingsboard.mqtt.broker.actors.client.messages.PubAckResponseMsg;
+import org.thingsboard.mqtt.broker.actors.client.state.PubResponseProcessingCtx;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgProcessor;
+import org.thingsboard.mqtt.broker.service.mqtt.validation.PublishMsgValidationService;
+import org.thingsboard.mqtt.broker.service.processing.MsgDispatcherService;
+import org.thingsboard.mqtt.broker.session.AwaitingPubRelPacketsCtx;
+import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Completes QoS 1 PUBLISH messages in small batches, the way the Kafka producer reports persisted records,
+ * and measures the time from the producer completion to the flush of the PUBACK on the channel event loop,
+ * both for the callback executor and client actor path and for the event loop path.
+ */
+@Slf4j
+public class MqttPublishHandlerPubResponseLatencyTest {
+
+    static final int MSGS = 5_000;
+    static final int COMPLETION_BATCH_SIZE = 10;
+    static final long COMPLETION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    // the mocks are on the measured path, so they must not record invocations
+    static final MockSettings STUB_ONLY = withSettings().stubOnly();
+    static final MqttFixedHeader PUBACK_FIXED_HEADER = new MqttFixedHeader(MqttMessageType.PUBACK, false, MqttQoS.AT_MOST_ONCE, false, 2);
+
+    private EventLoop eventLoop;
+    private ExecutorService actorExecutor;
+
+    @Before
+    public void setUp() {
+        eventLoop = new DefaultEventLoop();
+        actorExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        actorExecutor.shutdownNow();
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    @Test
+    public void givenQos1Msgs_whenPubResponseOnEventLoop_thenPubAckLatencyIsLowerThanThroughActor() throws Exception {
+        // warm up both paths
+        run(false, MSGS / 4);
+        run(true, MSGS / 4);
+
+        LatencyResult actorPath = run(false, MSGS);
+        LatencyResult eventLoopPath = run(true, MSGS);
+
+        log.info("Callback executor and actor: {}", actorPath);
+        log.info("Channel event loop: {}", eventLoopPath);
+
+        assertTrue(eventLoopPath.flushes <= actorPath.flushes);
+    }
+
+    private LatencyResult run(boolean pubResponseOnEventLoop, int msgs) throws Exception {
+        long[] completedTs = new long[msgs + 1];
+        long[] latencies = new long[msgs];
+        AtomicInteger acked = new AtomicInteger();
+        AtomicInteger flushes = new AtomicInteger();
+        List<Integer> writtenMsgIds = new ArrayList<>();
+        CountDownLatch allAcked = new CountDownLatch(msgs);
+
+        MqttMessageGenerator mqttMessageGenerator = mock(MqttMessageGenerator.class, STUB_ONLY);
+        when(mqttMessageGenerator.createPubAckMsg(anyInt(), any())).thenAnswer(invocation ->
+                new MqttPubAckMessage(PUBACK_FIXED_HEADER, MqttMessageIdVariableHeader.from(invocation.getArgument(0, Integer.class))));
+
+        // a write or flush outside the event loop is handed over to it, as Netty does
+        ChannelHandlerContext channelCtx = mock(ChannelHandlerContext.class, STUB_ONLY);
+        when(channelCtx.executor()).thenReturn(eventLoop);
+        doAnswer(invocation -> {
+            int msgId = invocation.getArgument(0, MqttPubAckMessage.class).variableHeader().messageId();
+            inEventLoop(() -> writtenMsgIds.add(msgId));
+            return null;
+        }).when(channelCtx).write(any());
+        doAnswer(invocation -> {
+            inEventLoop(() -> {
+                long now = System.nanoTime();
+                for (int msgId : writtenMsgIds) {
+                    latencies[acked.getAndIncrement()] = now - completedTs[msgId];
+                    allAcked.countDown();
+                }
+                writtenMsgIds.clear();
+                flushes.incrementAndGet();
+            });
+            return null;
+        }).when(channelCtx).flush();
+
+        ClientSessionCtx ctx = mock(ClientSessionCtx.class, STUB_ONLY);
+        when(ctx.getChannel()).thenReturn(channelCtx);
+        when(ctx.getClientId()).thenReturn("client");
+        when(ctx.getSessionId()).thenReturn(UUID.randomUUID());
+        when(ctx.getMqttVersion()).thenReturn(MqttVersion.MQTT_3_1_1);
+        when(ctx.getPubResponseProcessingCtx()).thenReturn(new PubResponseProcessingCtx(msgs));
+        when(ctx.getAwaitingPubRelPacketsCtx()).thenReturn(new AwaitingPubRelPacketsCtx());
+
+        MsgDispatcherService msgDispatcherService = mock(MsgDispatcherService.class, STUB_ONLY);
+        TbQueueCallback[] callbacks = new TbQueueCallback[msgs + 1];
+        doAnswer(invocation -> {
+            callbacks[invocation.getArgument(1, PublishMsg.class).getPacketId()] = invocation.getArgument(2);
+            return null;
+        }).when(msgDispatcherService).persistPublishMsg(any(), any(), any());
+
+        MqttPublishHandler mqttPublishHandler = new MqttPublishHandler(mqttMessageGenerator, msgDispatcherService,
+                mock(ClientMqttActorManager.class, STUB_ONLY), mock(ClientLogger.class, STUB_ONLY), mock(RetainedMsgProcessor.class, STUB_ONLY), mock(PublishMsgValidationService.class, STUB_ONLY));
+        ReflectionTestUtils.setField(mqttPublishHandler, "threadsCount", 2);
+        ReflectionTestUtils.setField(mqttPublishHandler, "pubResponseOnEventLoop", pubResponseOnEventLoop);
+        mqttPublishHandler.init();
+
+        // the client actor mailbox is processed by a single thread at a time
+        TbActorRef actorRef = mock(TbActorRef.class, STUB_ONLY);
+        doAnswer(invocation -> {
+            PubAckResponseMsg msg = invocation.getArgument(0);
+            actorExecutor.execute(() -> mqttPublishHandler.processPubAckResponse(ctx, msg.getMessageId()));
+            return null;
+        }).when(actorRef).tell(any());
+
+        try {
+            for (int batchStart = 1; batchStart <= msgs; batchStart += COMPLETION_BATCH_SIZE) {
+                int batchEnd = Math.min(msgs, batchStart + COMPLETION_BATCH_SIZE - 1);
+                for (int msgId = batchStart; msgId <= batchEnd; msgId++) {
+                    mqttPublishHandler.processAtLeastOnce(ctx, msgId);
+                    mqttPublishHandler.persistPubMsg(ctx, PublishMsg.builder().packetId(msgId).topicName("test").qosLevel(1).build(), actorRef);
+                }
+                for (int msgId = batchStart; msgId <= batchEnd; msgId++) {
+                    completedTs[msgId] = System.nanoTime();
+                    callbacks[msgId].onSuccess(null);
+                }
+                LockSupport.parkNanos(COMPLETION_INTERVAL_NANOS);
+            }
+            assertTrue(allAcked.await(30, TimeUnit.SECONDS));
+        } finally {
+            mqttPublishHandler.destroy();
+        }
+        Arrays.sort(latencies);
+        return new LatencyResult(msgs, flushes.get(), latencies[msgs / 2], latencies[(int) (msgs * 0.99)], latencies[msgs - 1]);
+    }
+
+    private void inEventLoop(Runnable task) {
+        if (eventLoop.inEventLoop()) {
+            task.run();
+        } else {
+            eventLoop.execute(task);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class LatencyResult {
+        private final int msgs;
+        private final int flushes;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        @Override
+        public String toString() {
+            return msgs + " msgs, " + flushes + " flushes, PUBACK latency p50 " + TimeUnit.NANOSECONDS.toMicros(p50Nanos)
+                    + " us, p99 " + TimeUnit.NANOSECONDS.toMicros(p99Nanos) + " us, max " + TimeUnit.NANOSECONDS.toMicros(maxNanos) + " us";
+        }
+    }
+}
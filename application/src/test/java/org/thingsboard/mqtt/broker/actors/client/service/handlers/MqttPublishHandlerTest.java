@@ -18,20 +18,25 @@ package org.thingsboard.mqtt.broker.actors.client.service.handlers;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttReasonCodes;
 import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.util.concurrent.EventExecutor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.mqtt.broker.actors.TbActorRef;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttDisconnectMsg;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttPublishMsg;
 import org.thingsboard.mqtt.broker.actors.client.state.PubResponseProcessingCtx;
+import org.thingsboard.mqtt.broker.common.data.MqttQoS;
 import org.thingsboard.mqtt.broker.dao.exception.DataValidationException;
 import org.thingsboard.mqtt.broker.exception.MqttException;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
@@ -48,8 +53,11 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -83,6 +91,7 @@ public class MqttPublishHandlerTest {
 
     @Before
     public void setUp() {
+        ReflectionTestUtils.setField(mqttPublishHandler, "pubResponseOnEventLoop", false);
         ctx = mock(ClientSessionCtx.class);
         actorRef = mock(TbActorRef.class);
 
@@ -314,6 +323,81 @@ public class MqttPublishHandlerTest {
         verify(retainedMsgProcessor, times(1)).process(eq(publishMsg));
     }
 
+    @Test
+    public void givenPubResponseOnEventLoop_whenQos1MsgsPersisted_thenSendPubAcksWithOneFlush() {
+        ReflectionTestUtils.setField(mqttPublishHandler, "pubResponseOnEventLoop", true);
+        EventExecutor executor = mock(EventExecutor.class);
+        when(ctx.getChannel().executor()).thenReturn(executor);
+        for (int msgId = 1; msgId <= 3; msgId++) {
+            mqttPublishHandler.processAtLeastOnce(ctx, msgId);
+        }
+
+        mqttPublishHandler.sendPubResponseOnEventLoop(ctx, 2, MqttQoS.AT_LEAST_ONCE);
+        mqttPublishHandler.sendPubResponseOnEventLoop(ctx, 1, MqttQoS.AT_LEAST_ONCE);
+        mqttPublishHandler.sendPubResponseOnEventLoop(ctx, 3, MqttQoS.AT_LEAST_ONCE);
+
+        ArgumentCaptor<Runnable> flushTaskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(flushTaskCaptor.capture());
+        verify(mqttMessageGenerator, never()).createPubAckMsg(anyInt(), any());
+
+        flushTaskCaptor.getValue().run();
+
+        InOrder inOrder = inOrder(mqttMessageGenerator);
+        inOrder.verify(mqttMessageGenerator).createPubAckMsg(1, null);
+        inOrder.verify(mqttMessageGenerator).createPubAckMsg(2, null);
+        inOrder.verify(mqttMessageGenerator).createPubAckMsg(3, null);
+        verify(ctx.getChannel(), times(3)).write(any());
+        verify(ctx.getChannel(), times(1)).flush();
+
+        mqttPublishHandler.processAtLeastOnce(ctx, 4);
+        mqttPublishHandler.sendPubResponseOnEventLoop(ctx, 4, MqttQoS.AT_LEAST_ONCE);
+        verify(executor, times(2)).execute(any());
+    }
+
+    @Test
+    public void givenPubResponseOnEventLoop_whenQos2MsgPersisted_thenSendPubRecFromEventLoop() {
+        ReflectionTestUtils.setField(mqttPublishHandler, "pubResponseOnEventLoop", true);
+        EventExecutor executor = mock(EventExecutor.class);
+        when(ctx.getChannel().executor()).thenReturn(executor);
+        doAnswer(invocation -> {
+            invocation.getArgument(2, TbQueueCallback.class).onSuccess(null);
+            return null;
+        }).when(msgDispatcherService).persistPublishMsg(any(), any(), any());
+
+        mqttPublishHandler.processExactlyOnceAndCheckIfAlreadyPublished(ctx, actorRef, 1);
+        mqttPublishHandler.persistPubMsg(ctx, getPublishMsg(1, 2), actorRef);
+
+        ArgumentCaptor<Runnable> flushTaskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(flushTaskCaptor.capture());
+        flushTaskCaptor.getValue().run();
+
+        verify(mqttMessageGenerator, times(1)).createPubRecMsg(1, null);
+        verify(ctx.getChannel(), times(1)).flush();
+        verify(actorRef, never()).tell(any());
+        assertThat(ctx.getAwaitingPubRelPacketsCtx().getAwaitingPacket(1).isPersisted()).isTrue();
+    }
+
+    @Test
+    public void givenQos1PubMsg_whenProcessOnEventLoop_thenSendPubAckFromEventLoop() throws Exception {
+        when(publishMsgValidationService.validatePubMsg(any(), any())).thenReturn(true);
+        EventExecutor executor = mock(EventExecutor.class);
+        when(ctx.getChannel().executor()).thenReturn(executor);
+        doAnswer(invocation -> {
+            invocation.getArgument(2, TbQueueCallback.class).onSuccess(null);
+            return null;
+        }).when(msgDispatcherService).persistPublishMsg(any(), any(), any());
+
+        mqttPublishHandler.processOnEventLoop(ctx, createMqttPubMsg(getPublishMsg(1, 1)));
+
+        ArgumentCaptor<Runnable> flushTaskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).execute(flushTaskCaptor.capture());
+        flushTaskCaptor.getValue().run();
+
+        verify(mqttMessageGenerator, times(1)).createPubAckMsg(1, null);
+        verify(ctx.getChannel(), times(1)).flush();
+        verify(mqttPublishHandler, times(1)).persistPubMsg(eq(ctx), any(), eq(null));
+    }
+
     private MqttPublishMsg createMqttPubMsg(PublishMsg publishMsg) {
         return new MqttPublishMsg(UUID.randomUUID(), publishMsg);
     }
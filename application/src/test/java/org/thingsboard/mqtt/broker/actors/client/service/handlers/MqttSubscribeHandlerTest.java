@@ -15,18 +15,25 @@
  */
 package org.thingsboard.mqtt.broker.actors.client.service.handlers;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import io.netty.handler.codec.mqtt.MqttReasonCodes;
 import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.util.concurrent.EventExecutor;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttSubscribeMsg;
 import org.thingsboard.mqtt.broker.actors.client.service.subscription.ClientSubscriptionService;
 import org.thingsboard.mqtt.broker.common.data.ApplicationSharedSubscription;
@@ -53,10 +60,12 @@ import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
 import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 import static org.junit.Assert.assertEquals;
@@ -69,8 +78,10 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -334,8 +345,8 @@ public class MqttSubscribeHandlerTest {
 
     @Test
     public void givenTopicSubscription_whenGetRetainedMessagesForTopicSubscription_thenReturnEmptyResult() {
-        when(retainedMsgService.getRetainedMessages("tf")).thenReturn(List.of());
-        List<RetainedMsg> messages = mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 1));
+        when(retainedMsgService.iterateRetainedMessages("tf")).thenAnswer(invocation -> List.of().iterator());
+        List<RetainedMsg> messages = Lists.newArrayList(mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 1)));
         assertTrue(messages.isEmpty());
     }
 
@@ -343,8 +354,8 @@ public class MqttSubscribeHandlerTest {
     public void givenTopicSubscription_whenGetRetainedMessagesForTopicSubscription_thenReturnExpectedResult() {
         MqttProperties properties = new MqttProperties();
 
-        when(retainedMsgService.getRetainedMessages("tf")).thenReturn(List.of(new RetainedMsg("tf", null, 1, properties)));
-        List<RetainedMsg> messages = mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 0));
+        when(retainedMsgService.iterateRetainedMessages("tf")).thenAnswer(invocation -> List.of(new RetainedMsg("tf", null, 1, properties)).iterator());
+        List<RetainedMsg> messages = Lists.newArrayList(mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 0)));
         assertEquals(1, messages.size());
         assertEquals(0, messages.get(0).getQosLevel());
     }
@@ -354,8 +365,8 @@ public class MqttSubscribeHandlerTest {
         MqttProperties properties = new MqttProperties();
         properties.add(new MqttProperties.IntegerProperty(BrokerConstants.PUB_EXPIRY_INTERVAL_PROP_ID, -10));
 
-        when(retainedMsgService.getRetainedMessages("tf")).thenReturn(List.of(new RetainedMsg("tf", null, 1, properties)));
-        List<RetainedMsg> messages = mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 0));
+        when(retainedMsgService.iterateRetainedMessages("tf")).thenAnswer(invocation -> List.of(new RetainedMsg("tf", null, 1, properties)).iterator());
+        List<RetainedMsg> messages = Lists.newArrayList(mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 0)));
         assertTrue(messages.isEmpty());
     }
 
@@ -364,8 +375,8 @@ public class MqttSubscribeHandlerTest {
         MqttProperties properties = new MqttProperties();
         properties.add(new MqttProperties.IntegerProperty(BrokerConstants.PUB_EXPIRY_INTERVAL_PROP_ID, 30));
 
-        when(retainedMsgService.getRetainedMessages("tf")).thenReturn(List.of(new RetainedMsg("tf", null, 1, properties)));
-        List<RetainedMsg> messages = mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 0));
+        when(retainedMsgService.iterateRetainedMessages("tf")).thenAnswer(invocation -> List.of(new RetainedMsg("tf", null, 1, properties)).iterator());
+        List<RetainedMsg> messages = Lists.newArrayList(mqttSubscribeHandler.getRetainedMessagesForTopicSubscription(new TopicSubscription("tf", 0)));
         assertEquals(1, messages.size());
     }
 
@@ -472,23 +483,23 @@ public class MqttSubscribeHandlerTest {
     @Test
     public void givenNewAndCurrentSubscriptions_whenGetRetainedMessagesForTopicSubscriptions_thenReturnExpectedResult() {
         long ts = System.currentTimeMillis();
-        when(retainedMsgService.getRetainedMessages(eq("one"))).thenReturn(List.of(
+        when(retainedMsgService.iterateRetainedMessages(eq("one"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload1", 1, ts), newRetainedMsg("payload2", 1, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("two"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("two"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload3", 0, ts), newRetainedMsg("payload4", 0, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("three"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("three"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload5", 2, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("four"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("four"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload6", 1, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("five"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("five"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload7", 2, ts)
-        ));
+        ).iterator());
 
-        Set<RetainedMsg> retainedMsgSet = mqttSubscribeHandler.getRetainedMessagesForTopicSubscriptions(
+        Set<RetainedMsg> retainedMsgSet = Sets.newHashSet(mqttSubscribeHandler.getRetainedMessagesForTopicSubscriptions(
                 List.of(
                         getTopicSubscription("one", 1),
                         getTopicSubscription("two", 2),
@@ -496,30 +507,30 @@ public class MqttSubscribeHandlerTest {
                         getTopicSubscription("four", 1),
                         getTopicSubscription("five", 0)
                 ), Collections.emptySet()
-        );
+        ));
         assertEquals(7, retainedMsgSet.size());
     }
 
     @Test
     public void givenNewAndCurrentSubscriptions_whenGetRetainedMessagesForTopicSubscriptionsWithOptions_thenReturnExpectedResult() {
         long ts = System.currentTimeMillis();
-        when(retainedMsgService.getRetainedMessages(eq("one"))).thenReturn(List.of(
+        when(retainedMsgService.iterateRetainedMessages(eq("one"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload1", 1, ts), newRetainedMsg("payload2", 1, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("two"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("two"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload3", 0, ts), newRetainedMsg("payload4", 0, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("three"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("three"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload5", 2, ts), newRetainedMsg("payload5", 2, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("four"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("four"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload6", 1, ts), newRetainedMsg("payload1", 1, ts)
-        ));
-        when(retainedMsgService.getRetainedMessages(eq("five"))).thenReturn(List.of(
+        ).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("five"))).thenAnswer(invocation -> List.of(
                 newRetainedMsg("payload6", 2, ts), newRetainedMsg("payload4", 1, ts)
-        ));
+        ).iterator());
 
-        Set<RetainedMsg> retainedMsgSet = mqttSubscribeHandler.getRetainedMessagesForTopicSubscriptions(
+        Set<RetainedMsg> retainedMsgSet = Sets.newHashSet(mqttSubscribeHandler.getRetainedMessagesForTopicSubscriptions(
                 List.of(
                         getTopicSubscription("one", 1, getOptions(SubscriptionOptions.RetainHandlingPolicy.SEND_AT_SUBSCRIBE)),
                         getTopicSubscription("two", 2, getOptions(SubscriptionOptions.RetainHandlingPolicy.SEND_AT_SUBSCRIBE_IF_NOT_YET_EXISTS)),
@@ -528,10 +539,122 @@ public class MqttSubscribeHandlerTest {
                         getTopicSubscription("five", 0, getOptions(SubscriptionOptions.RetainHandlingPolicy.DONT_SEND_AT_SUBSCRIBE))
                 ),
                 Set.of(getTopicSubscription("two", 1))
-        );
+        ));
         assertEquals(3, retainedMsgSet.size());
     }
 
+    @Test
+    public void givenOverlappingTopicFilters_whenGetRetainedMessagesForTopicSubscriptions_thenReturnEachMsgOnce() {
+        RetainedMsg msgA1 = new RetainedMsg("a/1", "p1".getBytes(StandardCharsets.UTF_8), 1);
+        RetainedMsg msgA2 = new RetainedMsg("a/2", "p2".getBytes(StandardCharsets.UTF_8), 1);
+        RetainedMsg msgB1 = new RetainedMsg("b/1", "p3".getBytes(StandardCharsets.UTF_8), 1);
+        when(retainedMsgService.iterateRetainedMessages(eq("a/+"))).thenAnswer(invocation -> List.of(msgA1, msgA2).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("#"))).thenAnswer(invocation -> List.of(msgA1, msgA2, msgB1).iterator());
+        when(retainedMsgService.iterateRetainedMessages(eq("a/1"))).thenAnswer(invocation -> List.of(msgA1).iterator());
+
+        List<RetainedMsg> retainedMsgs = Lists.newArrayList(mqttSubscribeHandler.getRetainedMessagesForTopicSubscriptions(
+                List.of(
+                        getTopicSubscription("a/+", 1),
+                        getTopicSubscription("#", 1),
+                        getTopicSubscription("a/1", 1)
+                ), Collections.emptySet()
+        ));
+        assertEquals(List.of("a/1", "a/2", "b/1"), retainedMsgs.stream().map(RetainedMsg::getTopic).toList());
+    }
+
+    @Test
+    public void givenTopicFilters_whenTopicFilterMatches_thenMatchLikeRetainedMsgTrie() {
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("a/b", "a/b"));
+        assertFalse(MqttSubscribeHandler.topicFilterMatches("a/b", "a/b/c"));
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("a/+", "a/b"));
+        assertFalse(MqttSubscribeHandler.topicFilterMatches("a/+", "a"));
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("a/+/c", "a//c"));
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("a/#", "a"));
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("a/#", "a/b/c"));
+        assertFalse(MqttSubscribeHandler.topicFilterMatches("a/#", "b/c"));
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("#", "a/b"));
+        assertFalse(MqttSubscribeHandler.topicFilterMatches("#", "$SYS/a"));
+        assertFalse(MqttSubscribeHandler.topicFilterMatches("+/a", "$SYS/a"));
+        assertTrue(MqttSubscribeHandler.topicFilterMatches("$SYS/#", "$SYS/a"));
+    }
+
+    @Test
+    public void givenManyRetainedMsgs_whenProcessRetainedMessages_thenDeliverThemInChunks() {
+        ReflectionTestUtils.setField(mqttSubscribeHandler, "retainedMsgDeliveryChunkSize", 100);
+        EventExecutor executor = mockChannel(true);
+        when(ctx.getAvailableInFlightSlots()).thenReturn(Integer.MAX_VALUE);
+        when(retainedMsgService.iterateRetainedMessages(eq("#"))).thenAnswer(invocation -> newRetainedMsgs(250).iterator());
+
+        mqttSubscribeHandler.processRetainedMessages(ctx, List.of(getTopicSubscription("#", 1)), Collections.emptySet());
+
+        ArgumentCaptor<Runnable> deliveryCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(deliveryCaptor.capture());
+        verify(publishMsgDeliveryService, never()).sendPublishRetainedMsgToClient(any(), any());
+
+        Runnable delivery = deliveryCaptor.getValue();
+        delivery.run();
+        verify(publishMsgDeliveryService, times(100)).sendPublishRetainedMsgToClient(eq(ctx), any());
+        delivery.run();
+        verify(publishMsgDeliveryService, times(200)).sendPublishRetainedMsgToClient(eq(ctx), any());
+        delivery.run();
+        verify(publishMsgDeliveryService, times(250)).sendPublishRetainedMsgToClient(eq(ctx), any());
+        verify(executor, times(3)).execute(delivery);
+    }
+
+    @Test
+    public void givenClientReceiveMaximumReached_whenDeliverRetainedMessages_thenPauseUntilInFlightSlotsAreAvailable() {
+        EventExecutor executor = mockChannel(true);
+        when(ctx.getAvailableInFlightSlots()).thenReturn(0);
+        when(retainedMsgService.iterateRetainedMessages(eq("#"))).thenAnswer(invocation -> newRetainedMsgs(20).iterator());
+
+        mqttSubscribeHandler.processRetainedMessages(ctx, List.of(getTopicSubscription("#", 1)), Collections.emptySet());
+        ArgumentCaptor<Runnable> deliveryCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(deliveryCaptor.capture());
+        Runnable delivery = deliveryCaptor.getValue();
+
+        delivery.run();
+        verify(publishMsgDeliveryService, never()).sendPublishRetainedMsgToClient(any(), any());
+        verify(executor).schedule(eq(delivery), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        when(ctx.getAvailableInFlightSlots()).thenReturn(5);
+        delivery.run();
+        verify(publishMsgDeliveryService, times(5)).sendPublishRetainedMsgToClient(eq(ctx), any());
+    }
+
+    @Test
+    public void givenClosedChannel_whenDeliverRetainedMessages_thenStopDelivery() {
+        EventExecutor executor = mockChannel(false);
+        when(retainedMsgService.iterateRetainedMessages(eq("#"))).thenAnswer(invocation -> newRetainedMsgs(20).iterator());
+
+        mqttSubscribeHandler.processRetainedMessages(ctx, List.of(getTopicSubscription("#", 1)), Collections.emptySet());
+        ArgumentCaptor<Runnable> deliveryCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(deliveryCaptor.capture());
+
+        deliveryCaptor.getValue().run();
+        verify(publishMsgDeliveryService, never()).sendPublishRetainedMsgToClient(any(), any());
+        verifyNoMoreInteractions(executor);
+    }
+
+    private EventExecutor mockChannel(boolean active) {
+        ChannelHandlerContext channelCtx = mock(ChannelHandlerContext.class);
+        Channel channel = mock(Channel.class);
+        EventExecutor executor = mock(EventExecutor.class);
+        when(ctx.getChannel()).thenReturn(channelCtx);
+        when(channelCtx.channel()).thenReturn(channel);
+        when(channelCtx.executor()).thenReturn(executor);
+        when(channel.isActive()).thenReturn(active);
+        when(channel.isWritable()).thenReturn(true);
+        return executor;
+    }
+
+    private List<RetainedMsg> newRetainedMsgs(int count) {
+        List<RetainedMsg> retainedMsgs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            retainedMsgs.add(new RetainedMsg("topic/" + i, "payload".getBytes(StandardCharsets.UTF_8), 1));
+        }
+        return retainedMsgs;
+    }
+
     private static SubscriptionOptions getOptions(SubscriptionOptions.RetainHandlingPolicy retainHandlingPolicy) {
         return new SubscriptionOptions(false, false, retainHandlingPolicy);
     }
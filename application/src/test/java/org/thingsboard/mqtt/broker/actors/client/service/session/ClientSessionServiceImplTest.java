@@ -30,6 +30,7 @@ import org.thingsboard.mqtt.broker.common.data.ConnectionInfo;
 import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.common.data.util.CallbackUtil;
 import org.thingsboard.mqtt.broker.exception.MqttException;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionIndex;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionPersistenceService;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
@@ -68,7 +69,7 @@ public class ClientSessionServiceImplTest {
         ClientSessionPersistenceService clientSessionPersistenceServiceMock = Mockito.mock(ClientSessionPersistenceService.class);
         StatsManager statsManagerMock = Mockito.mock(StatsManager.class);
         ServiceInfoProvider serviceInfoProviderMock = Mockito.mock(ServiceInfoProvider.class);
-        this.clientSessionService = spy(new ClientSessionServiceImpl(clientSessionPersistenceServiceMock, serviceInfoProviderMock, statsManagerMock));
+        this.clientSessionService = spy(new ClientSessionServiceImpl(clientSessionPersistenceServiceMock, serviceInfoProviderMock, statsManagerMock, new ClientSessionIndex()));
         this.clientSessionService.init(Collections.emptyMap());
     }
 
@@ -102,6 +103,22 @@ public class ClientSessionServiceImplTest {
         Assert.assertTrue(persistedClients.isEmpty());
     }
 
+    @Test
+    public void givenSession_whenSaveAndClearSession_thenGetReturnsIndexedSession() {
+        saveClientSession("persistent", prepareSession("persistent", 1, false));
+
+        Assert.assertNotNull(clientSessionService.getClientSessionInfo("persistent"));
+        Assert.assertNotNull(clientSessionService.getClientSession("persistent"));
+        Assert.assertEquals(1, clientSessionService.getClientSessionsCount());
+        Assert.assertEquals(Set.of("persistent"), clientSessionService.getAllClientSessions().keySet());
+
+        clearClientSession();
+        Assert.assertNull(clientSessionService.getClientSessionInfo("persistent"));
+        Assert.assertNull(clientSessionService.getClientSession("persistent"));
+        Assert.assertEquals(0, clientSessionService.getClientSessionsCount());
+        Assert.assertTrue(clientSessionService.getAllClientSessions().isEmpty());
+    }
+
     @Test(expected = MqttException.class)
     public void givenSession_whenSaveWithDifferentClientIds_thenThrowException() {
         ClientSession notValidClientSession = prepareSession(DEFAULT_CLIENT_ID + "_not_valid", 1, true);
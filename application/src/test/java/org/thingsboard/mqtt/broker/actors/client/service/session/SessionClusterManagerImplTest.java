@@ -100,6 +100,10 @@ public class SessionClusterManagerImplTest {
             public void send(String topic, Integer partition, TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto> msg, TbQueueCallback callback) {
             }
 
+            @Override
+            public void flush() {
+            }
+
             @Override
             public void stop() {
             }
@@ -179,6 +179,25 @@ public class ClientSubscriptionServiceImplTest {
         assertThat(clientSubscriptionsCount).isEqualTo(7);
     }
 
+    @Test
+    public void givenClientSubscriptions_whenSubscribeAndUnsubscribe_thenPreviouslyReturnedSubscriptionsAreUnchanged() {
+        Set<TopicSubscription> clientSubscriptions = getAndVerifyClientSubscriptionsForClient("clientId1", 1);
+
+        clientSubscriptionService.subscribeInternally("clientId1", Set.of(getTopicSubscription("topic11")));
+        clientSubscriptionService.unsubscribeInternally("clientId1", Set.of("topic1"));
+
+        assertEquals(Set.of(getTopicSubscription("topic1")), clientSubscriptions);
+        assertEquals(Set.of(getTopicSubscription("topic11")), clientSubscriptionService.getClientSubscriptions("clientId1"));
+    }
+
+    @Test
+    public void givenClientTopicSubscriptions_whenUnsubscribeFromAllTopics_thenClientIsNotCounted() {
+        clientSubscriptionService.unsubscribeInternally("clientId1", Set.of("topic1"));
+
+        getAndVerifyClientSubscriptionsForClient("clientId1", 0);
+        assertThat(clientSubscriptionService.getClientSubscriptionsCount()).isEqualTo(1);
+    }
+
     private Set<TopicSubscription> getAndVerifyClientSubscriptionsForClient(String clientId, int expected) {
         Set<TopicSubscription> clientSubscriptions = clientSubscriptionService.getClientSubscriptions(clientId);
         assertEquals(expected, clientSubscriptions.size());
@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors.client.service.subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.subscription.SubscriptionPersistenceService;
+import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
+import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionProcessor;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Subscribes 1M clients to the same 10 topic filters, i.e. keeps 10M subscriptions in the registry, and reports
+ * the heap retained per subscription, together with the heap a set of the decoded subscriptions per client would take.
+ * The latter is measured for a tenth of the clients only, since 10M of such subscriptions do not fit the default test heap.
+ * Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+public class ClientSubscriptionsMemoryFootprintBenchmark {
+
+    static final int CLIENTS = 1_000_000;
+    static final int LEGACY_CLIENTS = CLIENTS / 10;
+    static final List<String> TOPIC_FILTERS = List.of(
+            "fleet/firmware/#", "fleet/config/+", "fleet/broadcast", "fleet/commands/+/request", "fleet/time",
+            "tenant/alarms/+", "tenant/rules/#", "tenant/notifications", "ota/+/chunks/#", "ota/status");
+
+    @Test
+    public void givenClientsSubscribedToSameTopicFilters_whenMeasureRetainedHeap_thenReportBytesPerSubscription() throws Exception {
+        ClientSubscriptionServiceImpl clientSubscriptionService = new ClientSubscriptionServiceImpl(
+                mock(SubscriptionPersistenceService.class, withSettings().stubOnly()),
+                mock(SubscriptionService.class, withSettings().stubOnly()),
+                mock(SharedSubscriptionProcessor.class, withSettings().stubOnly()),
+                mock(SharedSubscriptionCacheService.class, withSettings().stubOnly()),
+                mock(StatsManager.class, withSettings().stubOnly()));
+        clientSubscriptionService.init(Collections.emptyMap());
+
+        String[] clientIds = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clientIds[i] = "client-" + i;
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (String clientId : clientIds) {
+            clientSubscriptionService.subscribeInternally(clientId, newDecodedSubscriptions());
+        }
+        long subscribeTimeMs = (System.nanoTime() - start) / 1_000_000;
+        long registryHeap = usedHeap() - heapBefore;
+
+        Map<String, Set<TopicSubscription>> legacyRegistry = new ConcurrentHashMap<>();
+        heapBefore = usedHeap();
+        for (int i = 0; i < LEGACY_CLIENTS; i++) {
+            legacyRegistry.put(clientIds[i], new HashSet<>(newDecodedSubscriptions()));
+        }
+        long legacyRegistryHeap = usedHeap() - heapBefore;
+
+        long subscriptions = (long) CLIENTS * TOPIC_FILTERS.size();
+        long legacySubscriptions = (long) LEGACY_CLIENTS * TOPIC_FILTERS.size();
+        log.info("Compact registry: {} subscriptions of {} clients subscribed in {} ms, {} MB retained, {} bytes per subscription; " +
+                        "set of decoded subscriptions per client: {} bytes per subscription, ~{} MB for {} subscriptions",
+                subscriptions, CLIENTS, subscribeTimeMs, registryHeap >> 20, registryHeap / subscriptions,
+                legacyRegistryHeap / legacySubscriptions, (legacyRegistryHeap * (subscriptions / legacySubscriptions)) >> 20, subscriptions);
+
+        assertEquals(subscriptions, clientSubscriptionService.getClientSubscriptionsCount());
+        Reference.reachabilityFence(legacyRegistry);
+    }
+
+    // every SUBSCRIBE packet is decoded into its own strings and options
+    private List<TopicSubscription> newDecodedSubscriptions() {
+        List<TopicSubscription> subscriptions = new ArrayList<>(TOPIC_FILTERS.size());
+        for (String topicFilter : TOPIC_FILTERS) {
+            subscriptions.add(new TopicSubscription(new String(topicFilter), 1,
+                    new SubscriptionOptions(false, false, SubscriptionOptions.RetainHandlingPolicy.SEND_AT_SUBSCRIBE)));
+        }
+        return subscriptions;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
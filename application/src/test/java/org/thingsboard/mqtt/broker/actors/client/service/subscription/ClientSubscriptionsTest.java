@@ -0,0 +1,90 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors.client.service.subscription;
+
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ClientSubscriptionsTest {
+
+    @Test
+    public void givenSubscriptions_whenWith_thenReplaceSubscriptionsToSameTopicFilters() {
+        ClientSubscriptions subscriptions = ClientSubscriptions.of(List.of(
+                new TopicSubscription("b/c", 0), new TopicSubscription("a/#", 1)));
+
+        ClientSubscriptions updated = subscriptions.with(List.of(
+                new TopicSubscription("a/#", 2), new TopicSubscription("c/+", 1), new TopicSubscription("c/+", 0)));
+
+        assertThat(updated).extracting(TopicSubscription::getTopicFilter).containsExactly("a/#", "b/c", "c/+");
+        assertThat(updated).extracting(TopicSubscription::getQos).containsExactly(2, 0, 1);
+        assertEquals(2, subscriptions.size());
+        assertTrue(updated.contains(new TopicSubscription("c/+", 2)));
+        assertFalse(updated.contains(new TopicSubscription("c/#", 1)));
+    }
+
+    @Test
+    public void givenSubscriptions_whenWithout_thenReturnRemainingAndPassRemoved() {
+        ClientSubscriptions subscriptions = ClientSubscriptions.of(List.of(
+                new TopicSubscription("a", 0), new TopicSubscription("b", 1), new TopicSubscription("c", 1)));
+
+        List<TopicSubscription> removed = new ArrayList<>();
+        ClientSubscriptions updated = subscriptions.without(List.of("a", "c", "d"), removed::add);
+
+        assertThat(updated).extracting(TopicSubscription::getTopicFilter).containsExactly("b");
+        assertThat(removed).extracting(TopicSubscription::getTopicFilter).containsExactly("a", "c");
+        assertSame(updated, updated.without(Set.of("d"), removed::add));
+        assertSame(ClientSubscriptions.EMPTY, updated.without(Set.of("b"), removed::add));
+    }
+
+    @Test
+    public void givenEqualSubscriptionsOfDifferentClients_whenWith_thenShareTopicFiltersAndOptions() {
+        ClientSubscriptions first = ClientSubscriptions.of(List.of(newSubscription("devices/+/cmd")));
+        ClientSubscriptions second = ClientSubscriptions.of(List.of(newSubscription("devices/+/cmd")));
+
+        TopicSubscription firstSubscription = first.iterator().next();
+        TopicSubscription secondSubscription = second.iterator().next();
+        assertSame(firstSubscription.getTopicFilter(), secondSubscription.getTopicFilter());
+        assertSame(firstSubscription.getShareName(), secondSubscription.getShareName());
+        assertSame(firstSubscription.getOptions(), secondSubscription.getOptions());
+        assertSame(firstSubscription, ClientSubscriptions.canonical(firstSubscription));
+    }
+
+    @Test
+    public void givenSubscriptions_whenModify_thenThrowUnsupportedOperationException() {
+        ClientSubscriptions subscriptions = ClientSubscriptions.of(List.of(new TopicSubscription("a", 0)));
+
+        assertThrows(UnsupportedOperationException.class, () -> subscriptions.add(new TopicSubscription("b", 0)));
+        assertThrows(UnsupportedOperationException.class, () -> subscriptions.removeIf(subscription -> true));
+        assertEquals(1, subscriptions.size());
+    }
+
+    private TopicSubscription newSubscription(String topicFilter) {
+        return new TopicSubscription(new String(topicFilter), 1, new String("group"),
+                new SubscriptionOptions(true, false, SubscriptionOptions.RetainHandlingPolicy.DONT_SEND_AT_SUBSCRIBE));
+    }
+}
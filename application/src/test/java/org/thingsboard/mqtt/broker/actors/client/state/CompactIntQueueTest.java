@@ -0,0 +1,106 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.actors.client.state;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactIntQueueTest {
+
+    CompactIntQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new CompactIntQueue();
+    }
+
+    @Test
+    public void givenEmptyQueue_whenPeek_thenThrowExceptionAndNoArrayAllocated() {
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.capacity());
+        assertThrows(NoSuchElementException.class, () -> queue.peek());
+    }
+
+    @Test
+    public void givenOneElement_whenPoll_thenSingleSlotArrayIsReleased() {
+        queue.add(7);
+        assertEquals(1, queue.capacity());
+
+        assertEquals(7, queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.capacity());
+    }
+
+    @Test
+    public void givenWrappedElements_whenAddMore_thenOrderIsPreserved() {
+        for (int i = 1; i <= 4; i++) {
+            queue.add(i);
+        }
+        assertEquals(1, queue.poll());
+        assertEquals(2, queue.poll());
+        for (int i = 5; i <= 9; i++) {
+            queue.add(i);
+        }
+
+        for (int i = 3; i <= 9; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void givenElements_whenRemoveFirstOccurrence_thenOnlyFirstMatchRemoved() {
+        queue.add(1);
+        queue.add(2);
+        queue.add(1);
+        queue.add(3);
+        assertEquals(2, queue.count(1));
+
+        assertTrue(queue.removeFirstOccurrence(1));
+        assertFalse(queue.removeFirstOccurrence(5));
+
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.poll());
+        assertEquals(1, queue.poll());
+        assertEquals(3, queue.poll());
+    }
+
+    @Test
+    public void givenManyElements_whenDrainMostOfThem_thenQueueShrinks() {
+        for (int i = 0; i < 64; i++) {
+            queue.add(i);
+        }
+        assertEquals(64, queue.capacity());
+
+        for (int i = 0; i < 60; i++) {
+            assertEquals(i, queue.poll());
+        }
+
+        assertTrue(queue.capacity() < 64);
+        for (int i = 60; i < 64; i++) {
+            assertTrue(queue.contains(i));
+            assertEquals(i, queue.poll());
+        }
+        assertEquals(0, queue.capacity());
+    }
+}
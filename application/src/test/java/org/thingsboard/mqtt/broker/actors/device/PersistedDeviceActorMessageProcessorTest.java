@@ -42,6 +42,8 @@ import org.thingsboard.mqtt.broker.dto.PacketIdAndSerialNumberDto;
 import org.thingsboard.mqtt.broker.dto.SharedSubscriptionPublishPacket;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsgDeliveryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionDictionaryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.ZstdPayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
@@ -105,6 +107,7 @@ public class PersistedDeviceActorMessageProcessorTest {
         when(actorSystemContext.getClientLogger()).thenReturn(clientLogger);
         when(actorSystemContext.getDeviceActorConfiguration()).thenReturn(deviceActorConfig);
         when(actorSystemContext.getSharedSubscriptionCacheService()).thenReturn(sharedSubscriptionCacheService);
+        when(actorSystemContext.getPayloadCompressionService()).thenReturn(new ZstdPayloadCompressionService(mock(PayloadCompressionDictionaryService.class)));
 
         this.persistedDeviceActorMessageProcessor = spy(new PersistedDeviceActorMessageProcessor(actorSystemContext, CLIENT));
     }
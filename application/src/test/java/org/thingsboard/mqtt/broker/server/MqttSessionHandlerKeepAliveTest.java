@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.server;
+
+import com.google.common.util.concurrent.Futures;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.actors.client.messages.SessionInitMsg;
+import org.thingsboard.mqtt.broker.actors.client.service.handlers.MqttPublishHandler;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.auth.AuthenticationService;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
+import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
+import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
+import org.thingsboard.mqtt.broker.service.mqtt.keepalive.KeepAliveService;
+import org.thingsboard.mqtt.broker.service.mqtt.keepalive.KeepAliveServiceImpl;
+import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MqttSessionHandlerKeepAliveTest {
+
+    private static final String CLIENT_ID = "publish-only-client";
+    private static final int KEEP_ALIVE_SECONDS = 1;
+
+    private ClientMqttActorManager clientMqttActorManager;
+    private KeepAliveService keepAliveService;
+    private MqttPublishHandler publishHandler;
+    private EmbeddedChannel channel;
+    private MqttSessionHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        clientMqttActorManager = mock(ClientMqttActorManager.class);
+        keepAliveService = new KeepAliveServiceImpl(clientMqttActorManager);
+        publishHandler = mock(MqttPublishHandler.class);
+
+        RateLimitService rateLimitService = mock(RateLimitService.class);
+        when(rateLimitService.checkIncomingLimits(anyString(), any(), any())).thenReturn(true);
+        AuthenticationService authenticationService = mock(AuthenticationService.class);
+        when(authenticationService.authenticateAsync(any())).thenReturn(Futures.immediateFuture(new AuthResponse(true, ClientType.DEVICE, null)));
+
+        MqttHandlerCtx mqttHandlerCtx = mock(MqttHandlerCtx.class);
+        when(mqttHandlerCtx.getActorManager()).thenReturn(clientMqttActorManager);
+        when(mqttHandlerCtx.getClientLogger()).thenReturn(mock(ClientLogger.class));
+        when(mqttHandlerCtx.getRateLimitService()).thenReturn(rateLimitService);
+        when(mqttHandlerCtx.getMqttMessageGenerator()).thenReturn(mock(MqttMessageGenerator.class));
+        when(mqttHandlerCtx.getAuthenticationService()).thenReturn(authenticationService);
+        when(mqttHandlerCtx.getPublishHandler()).thenReturn(publishHandler);
+        when(mqttHandlerCtx.getKeepAliveService()).thenReturn(keepAliveService);
+
+        AtomicReference<ClientSessionCtx> sessionCtxRef = new AtomicReference<>();
+        doAnswer(invocation -> {
+            sessionCtxRef.set(invocation.getArgument(2, SessionInitMsg.class).getClientSessionCtx());
+            return null;
+        }).when(clientMqttActorManager).initSession(eq(CLIENT_ID), eq(false), any());
+
+        handler = new MqttSessionHandler(mqttHandlerCtx, null, BrokerConstants.TCP, true);
+        channel = new EmbeddedChannel();
+        channel.attr(MqttSessionHandler.ADDRESS).set(new InetSocketAddress("127.0.0.1", 1883));
+        channel.pipeline().addLast(handler);
+
+        channel.writeInbound(MqttMessageBuilders.connect()
+                .clientId(CLIENT_ID)
+                .protocolVersion(MqttVersion.MQTT_3_1_1)
+                .keepAlive(KEEP_ALIVE_SECONDS)
+                .build());
+        channel.runPendingTasks();
+        assertNotNull(sessionCtxRef.get());
+        // the client actor registers the keep-alive and marks the session connected once the CONNECT is accepted
+        keepAliveService.registerSession(CLIENT_ID, handler.getSessionId(), KEEP_ALIVE_SECONDS);
+        sessionCtxRef.get().setConnected(true);
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void givenPublishOnlySession_whenPublishedOnEventLoopWithinKeepAlive_thenSessionIsNotExpired() throws Exception {
+        long endTs = System.currentTimeMillis() + 3000;
+        int packetId = 1;
+        while (System.currentTimeMillis() < endTs) {
+            channel.writeInbound(MqttMessageBuilders.publish()
+                    .topicName("sensors/temperature")
+                    .qos(MqttQoS.AT_LEAST_ONCE)
+                    .messageId(packetId++)
+                    .payload(Unpooled.wrappedBuffer(new byte[8]))
+                    .build());
+            Thread.sleep(250);
+            ReflectionTestUtils.invokeMethod(keepAliveService, "processKeepAlive");
+        }
+
+        verify(publishHandler, times(packetId - 1)).processOnEventLoop(any(), any());
+        verify(clientMqttActorManager, never()).disconnect(anyString(), any());
+    }
+
+    @Test
+    public void givenIdleSession_whenKeepAliveElapsed_thenSessionIsExpired() throws Exception {
+        Thread.sleep(1600);
+        ReflectionTestUtils.invokeMethod(keepAliveService, "processKeepAlive");
+
+        verify(clientMqttActorManager, times(1)).disconnect(eq(CLIENT_ID), any());
+    }
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.server;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.common.util.concurrent.Futures;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPubAckMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.util.Attribute;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockSettings;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.actors.TbActorRef;
+import org.thingsboard.mqtt.broker.actors.client.messages.PubAckResponseMsg;
+import org.thingsboard.mqtt.broker.actors.client.messages.SessionInitMsg;
+import org.thingsboard.mqtt.broker.actors.client.messages.mqtt.MqttPublishMsg;
+import org.thingsboard.mqtt.broker.actors.client.service.handlers.MqttPublishHandler;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.auth.AuthenticationService;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
+import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
+import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.keepalive.KeepAliveService;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgProcessor;
+import org.thingsboard.mqtt.broker.service.mqtt.validation.PublishMsgValidationService;
+import org.thingsboard.mqtt.broker.service.processing.MsgDispatcherService;
+import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+import org.thingsboard.mqtt.broker.session.TopicAliasCtx;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Sends QoS 1 PUBLISH messages of one connection through {@link MqttSessionHandler} the way the decoder hands them over,
+ * in read batches followed by the read complete event, and measures the publish rate of the connection until all the
+ * messages are acknowledged, both through the client actor mailbox and on the channel event loop.
+ */
+@Slf4j
+public class MqttSessionHandlerPublishRateTest {
+
+    static final int MSGS = 20_000;
+    static final int READ_BATCH_SIZE = 16;
+    // the mocks are on the measured path, so they must not record invocations
+    static final MockSettings STUB_ONLY = withSettings().stubOnly();
+    static final MqttFixedHeader PUBACK_FIXED_HEADER = new MqttFixedHeader(MqttMessageType.PUBACK, false, MqttQoS.AT_MOST_ONCE, false, 2);
+    static final byte[] PAYLOAD = new byte[64];
+
+    private EventLoop eventLoop;
+    private ExecutorService actorExecutor;
+    private Level sessionHandlerLogLevel;
+
+    @Before
+    public void setUp() {
+        eventLoop = new DefaultEventLoop();
+        actorExecutor = Executors.newSingleThreadExecutor();
+        Logger sessionHandlerLogger = (Logger) LoggerFactory.getLogger(MqttSessionHandler.class);
+        sessionHandlerLogLevel = sessionHandlerLogger.getLevel();
+        sessionHandlerLogger.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ((Logger) LoggerFactory.getLogger(MqttSessionHandler.class)).setLevel(sessionHandlerLogLevel);
+        actorExecutor.shutdownNow();
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    @Test
+    public void givenConnectedSession_whenPublishOnEventLoop_thenMsgsArePersistedInOrderAndPublishRateIsHigher() throws Exception {
+        // warm up both paths
+        run(false, MSGS / 4);
+        run(true, MSGS / 4);
+
+        RateResult actorPath = run(false, MSGS);
+        RateResult eventLoopPath = run(true, MSGS);
+
+        log.info("Client actor mailbox: {}", actorPath);
+        log.info("Channel event loop: {}", eventLoopPath);
+
+        assertEquals(MSGS, actorPath.msgsThroughActor);
+        assertTrue(eventLoopPath.msgsThroughActor < MSGS);
+    }
+
+    /**
+     * The session becomes connected after the first read batch, so the first messages go through the actor
+     * and the following ones are processed on the event loop once the actor has no messages of the session left.
+     */
+    private RateResult run(boolean publishOnEventLoop, int msgs) throws Exception {
+        AtomicInteger msgsThroughActor = new AtomicInteger();
+        List<Integer> persistedMsgIds = new ArrayList<>(msgs);
+        List<Integer> writtenMsgIds = new ArrayList<>();
+        AtomicInteger ackedMsgs = new AtomicInteger();
+        CountDownLatch allAcked = new CountDownLatch(1);
+
+        MqttMessageGenerator mqttMessageGenerator = mock(MqttMessageGenerator.class, STUB_ONLY);
+        when(mqttMessageGenerator.createPubAckMsg(anyInt(), any())).thenAnswer(invocation ->
+                new MqttPubAckMessage(PUBACK_FIXED_HEADER, MqttMessageIdVariableHeader.from(invocation.getArgument(0, Integer.class))));
+
+        MsgDispatcherService msgDispatcherService = mock(MsgDispatcherService.class, STUB_ONLY);
+        doAnswer(invocation -> {
+            synchronized (persistedMsgIds) {
+                persistedMsgIds.add(invocation.getArgument(1, PublishMsg.class).getPacketId());
+            }
+            invocation.getArgument(2, TbQueueCallback.class).onSuccess(null);
+            return null;
+        }).when(msgDispatcherService).persistPublishMsg(any(), any(), any());
+
+        PublishMsgValidationService publishMsgValidationService = mock(PublishMsgValidationService.class, STUB_ONLY);
+        when(publishMsgValidationService.validatePubMsg(any(), any())).thenReturn(true);
+
+        ClientMqttActorManager clientMqttActorManager = mock(ClientMqttActorManager.class, STUB_ONLY);
+        MqttPublishHandler mqttPublishHandler = new MqttPublishHandler(mqttMessageGenerator, msgDispatcherService,
+                clientMqttActorManager, mock(ClientLogger.class, STUB_ONLY), mock(RetainedMsgProcessor.class, STUB_ONLY), publishMsgValidationService);
+        ReflectionTestUtils.setField(mqttPublishHandler, "threadsCount", 1);
+        mqttPublishHandler.init();
+
+        RateLimitService rateLimitService = mock(RateLimitService.class, STUB_ONLY);
+        when(rateLimitService.checkIncomingLimits(anyString(), any(), any())).thenReturn(true);
+        AuthenticationService authenticationService = mock(AuthenticationService.class, STUB_ONLY);
+        when(authenticationService.authenticateAsync(any())).thenReturn(Futures.immediateFuture(new AuthResponse(true, ClientType.DEVICE, null)));
+
+        MqttHandlerCtx mqttHandlerCtx = mock(MqttHandlerCtx.class, STUB_ONLY);
+        when(mqttHandlerCtx.getActorManager()).thenReturn(clientMqttActorManager);
+        when(mqttHandlerCtx.getClientLogger()).thenReturn(mock(ClientLogger.class, STUB_ONLY));
+        when(mqttHandlerCtx.getRateLimitService()).thenReturn(rateLimitService);
+        when(mqttHandlerCtx.getMqttMessageGenerator()).thenReturn(mqttMessageGenerator);
+        when(mqttHandlerCtx.getAuthenticationService()).thenReturn(authenticationService);
+        when(mqttHandlerCtx.getPublishHandler()).thenReturn(mqttPublishHandler);
+        when(mqttHandlerCtx.getKeepAliveService()).thenReturn(mock(KeepAliveService.class, STUB_ONLY));
+        when(mqttHandlerCtx.getMaxInFlightMsgs()).thenReturn(MSGS);
+
+        // a write or flush outside the event loop is handed over to it, as Netty does
+        ChannelHandlerContext channelCtx = mockChannelHandlerContext();
+        doAnswer(invocation -> {
+            int msgId = invocation.getArgument(0, MqttPubAckMessage.class).variableHeader().messageId();
+            inEventLoop(() -> writtenMsgIds.add(msgId));
+            return null;
+        }).when(channelCtx).write(any());
+        doAnswer(invocation -> {
+            inEventLoop(() -> {
+                if (ackedMsgs.addAndGet(writtenMsgIds.size()) == msgs) {
+                    allAcked.countDown();
+                }
+                writtenMsgIds.clear();
+            });
+            return null;
+        }).when(channelCtx).flush();
+
+        MqttSessionHandler handler = new MqttSessionHandler(mqttHandlerCtx, null, BrokerConstants.TCP, publishOnEventLoop);
+
+        AtomicReference<ClientSessionCtx> sessionCtxRef = new AtomicReference<>();
+        doAnswer(invocation -> {
+            ClientSessionCtx sessionCtx = invocation.getArgument(2, SessionInitMsg.class).getClientSessionCtx();
+            sessionCtx.setTopicAliasCtx(TopicAliasCtx.DISABLED_TOPIC_ALIASES);
+            sessionCtxRef.set(sessionCtx);
+            return null;
+        }).when(clientMqttActorManager).initSession(anyString(), eq(false), any());
+
+        // the client actor mailbox is processed by a single thread at a time
+        TbActorRef actorRef = mock(TbActorRef.class, STUB_ONLY);
+        doAnswer(invocation -> {
+            PubAckResponseMsg msg = invocation.getArgument(0);
+            actorExecutor.execute(() -> mqttPublishHandler.processPubAckResponse(sessionCtxRef.get(), msg.getMessageId()));
+            return null;
+        }).when(actorRef).tell(any());
+        doAnswer(invocation -> {
+            MqttPublishMsg msg = invocation.getArgument(1);
+            msgsThroughActor.incrementAndGet();
+            actorExecutor.execute(() -> {
+                try {
+                    mqttPublishHandler.process(sessionCtxRef.get(), msg, actorRef);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    msg.release();
+                }
+            });
+            return null;
+        }).when(clientMqttActorManager).processMqttMsg(anyString(), any());
+
+        try {
+            eventLoop.submit(() -> handler.channelRead(channelCtx, newConnectMessage())).sync();
+            // authentication listener
+            eventLoop.submit(() -> {
+            }).sync();
+            assertNotNull(sessionCtxRef.get());
+
+            long startTs = System.nanoTime();
+            for (int batchStart = 1; batchStart <= msgs; batchStart += READ_BATCH_SIZE) {
+                int firstMsgId = batchStart;
+                int lastMsgId = Math.min(msgs, batchStart + READ_BATCH_SIZE - 1);
+                eventLoop.execute(() -> {
+                    sessionCtxRef.get().setConnected(firstMsgId > 1);
+                    for (int msgId = firstMsgId; msgId <= lastMsgId; msgId++) {
+                        handler.channelRead(channelCtx, newPublishMessage(msgId));
+                    }
+                    handler.channelReadComplete(channelCtx);
+                });
+            }
+            assertTrue(allAcked.await(60, TimeUnit.SECONDS));
+            long elapsedNanos = System.nanoTime() - startTs;
+
+            for (int i = 0; i < msgs; i++) {
+                assertEquals(i + 1, (int) persistedMsgIds.get(i));
+            }
+            return new RateResult(msgs, msgsThroughActor.get(), elapsedNanos);
+        } finally {
+            mqttPublishHandler.destroy();
+        }
+    }
+
+    private ChannelHandlerContext mockChannelHandlerContext() {
+        @SuppressWarnings("unchecked")
+        Attribute<InetSocketAddress> addressAttribute = mock(Attribute.class, STUB_ONLY);
+        when(addressAttribute.get()).thenReturn(new InetSocketAddress("127.0.0.1", 1883));
+        Channel channel = mock(Channel.class, STUB_ONLY);
+        when(channel.attr(MqttSessionHandler.ADDRESS)).thenReturn(addressAttribute);
+        when(channel.config()).thenReturn(mock(ChannelConfig.class, STUB_ONLY));
+        when(channel.isActive()).thenReturn(true);
+
+        ChannelHandlerContext channelCtx = mock(ChannelHandlerContext.class, STUB_ONLY);
+        when(channelCtx.executor()).thenReturn(eventLoop);
+        when(channelCtx.channel()).thenReturn(channel);
+        return channelCtx;
+    }
+
+    private MqttConnectMessage newConnectMessage() {
+        return MqttMessageBuilders.connect()
+                .clientId("publish-rate-client")
+                .protocolVersion(MqttVersion.MQTT_3_1_1)
+                .build();
+    }
+
+    private Object newPublishMessage(int msgId) {
+        return MqttMessageBuilders.publish()
+                .topicName("sensors/temperature")
+                .qos(MqttQoS.AT_LEAST_ONCE)
+                .messageId(msgId)
+                .payload(Unpooled.wrappedBuffer(PAYLOAD))
+                .build();
+    }
+
+    private void inEventLoop(Runnable task) {
+        if (eventLoop.inEventLoop()) {
+            task.run();
+        } else {
+            eventLoop.execute(task);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class RateResult {
+        private final int msgs;
+        private final int msgsThroughActor;
+        private final long elapsedNanos;
+
+        @Override
+        public String toString() {
+            return msgs + " msgs (" + msgsThroughActor + " through the actor) acknowledged in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                    + " ms, " + (long) (msgs / (elapsedNanos / 1e9)) + " msgs/s per connection";
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.server.tls;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import org.awaitility.Awaitility;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.common.stats.DefaultStatsFactory;
+import org.thingsboard.mqtt.broker.server.AbstractMqttHandlerProvider;
+import org.thingsboard.mqtt.broker.service.stats.DefaultTlsHandshakeStats;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+import org.thingsboard.mqtt.broker.service.stats.TlsHandshakeStats;
+import org.thingsboard.mqtt.broker.ssl.config.PemSslCredentials;
+import org.thingsboard.mqtt.broker.ssl.config.SslCredentials;
+import org.thingsboard.mqtt.broker.ssl.config.SslSessionConfig;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class TlsHandshakeTest {
+
+    private static final int NUMBER_OF_HANDSHAKES = 100;
+    private static final String HOST = "localhost";
+    /**
+     * With TLSv1.3 the tickets are sent after the handshake is completed, so short-lived test connections would
+     * be closed before the client receives them. TLSv1.2 delivers the ticket within the handshake.
+     */
+    private static final String CLIENT_PROTOCOL = "TLSv1.2";
+
+    private SelfSignedCertificate certificate;
+    private PemSslCredentials sslCredentials;
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+
+    @Before
+    public void before() throws Exception {
+        certificate = new SelfSignedCertificate(HOST);
+        sslCredentials = new PemSslCredentials();
+        sslCredentials.setCertFile(certificate.certificate().getAbsolutePath());
+        sslCredentials.setKeyFile(certificate.privateKey().getAbsolutePath());
+        sslCredentials.init(false);
+        serverGroup = new NioEventLoopGroup(1);
+        clientGroup = new NioEventLoopGroup(1);
+    }
+
+    @After
+    public void after() {
+        serverGroup.shutdownGracefully();
+        clientGroup.shutdownGracefully();
+        certificate.delete();
+    }
+
+    @Test
+    public void testJdkFullHandshakes() throws Exception {
+        runHandshakes(SslProvider.JDK, SslProvider.JDK, false);
+    }
+
+    @Test
+    public void testOpenSslFullHandshakes() throws Exception {
+        Assume.assumeTrue(OpenSsl.isAvailable());
+        double resumptionRatio = runHandshakes(SslProvider.OPENSSL, SslProvider.OPENSSL, false);
+        Assert.assertEquals(0, resumptionRatio, 0);
+    }
+
+    @Test
+    public void testOpenSslResumedHandshakes() throws Exception {
+        Assume.assumeTrue(OpenSsl.isAvailable());
+        double resumptionRatio = runHandshakes(SslProvider.OPENSSL, SslProvider.OPENSSL, true);
+        Assert.assertTrue(resumptionRatio > 0.9);
+    }
+
+    @Test
+    public void testOpenSslEnabledProtocolsAreConfiguredOnes() {
+        Assume.assumeTrue(OpenSsl.isAvailable());
+        TestMqttHandlerProvider handlerProvider = new TestMqttHandlerProvider(SslProvider.OPENSSL, new SslSessionConfig(), sslCredentials);
+        StatsManager statsManager = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManager.createTlsHandshakeStats(Mockito.anyString())).thenReturn(Mockito.mock(TlsHandshakeStats.class));
+        handlerProvider.setStatsManager(statsManager);
+
+        SslHandler sslHandler = handlerProvider.getSslHandler(null);
+        try {
+            List<String> enabledProtocols = Arrays.asList(sslHandler.engine().getEnabledProtocols());
+            Assert.assertTrue(enabledProtocols.contains("TLSv1.2"));
+            Assert.assertFalse(enabledProtocols.contains("TLSv1"));
+            Assert.assertFalse(enabledProtocols.contains("TLSv1.1"));
+            Assert.assertFalse(enabledProtocols.contains("TLSv1.3"));
+        } finally {
+            ReferenceCountUtil.release(sslHandler.engine());
+            handlerProvider.destroy();
+        }
+    }
+
+    private double runHandshakes(SslProvider serverProvider, SslProvider clientProvider, boolean resume) throws Exception {
+        TlsHandshakeStats handshakeStats = new DefaultTlsHandshakeStats("TEST",
+                new DefaultStatsFactory(new SimpleMeterRegistry()));
+        StatsManager statsManager = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManager.createTlsHandshakeStats(Mockito.anyString())).thenReturn(handshakeStats);
+
+        SslSessionConfig sessionConfig = new SslSessionConfig();
+        sessionConfig.getTickets().setEnabled(resume);
+        TestMqttHandlerProvider handlerProvider = new TestMqttHandlerProvider(serverProvider, sessionConfig, sslCredentials);
+        handlerProvider.setStatsManager(statsManager);
+
+        Channel serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(handlerProvider.getSslHandler(null));
+                    }
+                })
+                .bind(HOST, 0).sync().channel();
+        int port = ((InetSocketAddress) serverChannel.localAddress()).getPort();
+
+        SslContext clientSslContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(clientProvider)
+                .protocols(CLIENT_PROTOCOL)
+                .build();
+        try {
+            // the first connection establishes the session to resume
+            connectAndHandshake(clientSslContext, port, resume);
+            awaitHandshakes(handshakeStats, 1);
+            handshakeStats.reset();
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < NUMBER_OF_HANDSHAKES; i++) {
+                connectAndHandshake(clientSslContext, port, resume);
+            }
+            long endTime = System.nanoTime();
+
+            awaitHandshakes(handshakeStats, NUMBER_OF_HANDSHAKES);
+            double handshakesPerSec = NUMBER_OF_HANDSHAKES * 1_000_000_000.0 / (endTime - startTime);
+            log.info("Server {}, client {}, resumption {}: {} handshakes/sec, resumption ratio {}",
+                    serverProvider, clientProvider, resume, (long) handshakesPerSec, handshakeStats.getResumptionRatio());
+            return handshakeStats.getResumptionRatio();
+        } finally {
+            serverChannel.close().sync();
+            handlerProvider.destroy();
+        }
+    }
+
+    private void awaitHandshakes(TlsHandshakeStats handshakeStats, int expectedHandshakes) {
+        Awaitility.await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> handshakeStats.getStatsCounters().get(0).get() == expectedHandshakes);
+    }
+
+    /**
+     * Client engines created with the peer host and port share the client-side session cache, so the following
+     * connections offer the session (ticket) of the previous one. Engines without the peer address always do a full handshake.
+     */
+    private void connectAndHandshake(SslContext clientSslContext, int port, boolean resume) throws Exception {
+        AtomicReference<SslHandler> sslHandlerRef = new AtomicReference<>();
+        Channel channel = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        SslHandler sslHandler = resume ?
+                                clientSslContext.newHandler(ch.alloc(), HOST, port) : clientSslContext.newHandler(ch.alloc());
+                        sslHandlerRef.set(sslHandler);
+                        ch.pipeline().addLast(sslHandler);
+                    }
+                })
+                .connect(HOST, port).sync().channel();
+        try {
+            Future<Channel> handshakeFuture = sslHandlerRef.get().handshakeFuture().await();
+            Assert.assertTrue(String.valueOf(handshakeFuture.cause()), handshakeFuture.isSuccess());
+        } finally {
+            channel.close().sync();
+        }
+    }
+
+    private static class TestMqttHandlerProvider extends AbstractMqttHandlerProvider {
+
+        private final SslProvider sslProvider;
+        private final SslSessionConfig sslSessionConfig;
+        private final SslCredentials sslCredentials;
+
+        TestMqttHandlerProvider(SslProvider sslProvider, SslSessionConfig sslSessionConfig, SslCredentials sslCredentials) {
+            this.sslProvider = sslProvider;
+            this.sslSessionConfig = sslSessionConfig;
+            this.sslCredentials = sslCredentials;
+        }
+
+        @Override
+        protected String getSslProtocol() {
+            return "TLSv1.2";
+        }
+
+        @Override
+        protected SslCredentials getSslCredentials() {
+            return sslCredentials;
+        }
+
+        @Override
+        protected SslProvider getSslProvider() {
+            return sslProvider;
+        }
+
+        @Override
+        protected SslSessionConfig getSslSessionConfig() {
+            return sslSessionConfig;
+        }
+
+        @Override
+        protected String getListenerName() {
+            return "TEST";
+        }
+    }
+
+}
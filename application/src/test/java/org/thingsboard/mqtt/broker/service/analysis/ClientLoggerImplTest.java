@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.analysis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.dto.ClientTraceEventDto;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClientLoggerImplTest {
+
+    ClientLoggerImpl clientLogger;
+
+    @Before
+    public void setUp() {
+        clientLogger = new ClientLoggerImpl();
+        clientLogger.setTraceBufferSize(3);
+    }
+
+    @Test
+    public void givenTracingDisabled_whenLogEvent_thenNothingRecorded() {
+        clientLogger.logEvent("test", this.getClass(), "Received msg - {}", "PUBLISH");
+
+        assertFalse(clientLogger.isTracingEnabled("test"));
+        assertTrue(clientLogger.getTraceEvents("test").isEmpty());
+    }
+
+    @Test
+    public void givenTracingEnabled_whenLogEvent_thenEventRecordedAndFormatted() {
+        clientLogger.enableTracing("test");
+        clientLogger.logEvent("test", this.getClass(), "Received msg - {}", "PUBLISH");
+        clientLogger.logEvent("other", this.getClass(), "Received msg - {}", "PUBLISH");
+
+        List<ClientTraceEventDto> events = clientLogger.getTraceEvents("test");
+        assertEquals(1, events.size());
+        assertEquals("Received msg - PUBLISH", events.get(0).getDescription());
+        assertEquals(this.getClass().getSimpleName(), events.get(0).getLocation());
+        assertTrue(clientLogger.getTraceEvents("other").isEmpty());
+    }
+
+    @Test
+    public void givenBufferOverflow_whenGetTraceEvents_thenLatestEventsReturnedInOrder() {
+        clientLogger.enableTracing("test");
+        for (int i = 0; i < 5; i++) {
+            clientLogger.logEvent("test", this.getClass(), "Event {}", i);
+        }
+
+        List<ClientTraceEventDto> events = clientLogger.getTraceEvents("test");
+        assertEquals(3, events.size());
+        assertEquals("Event 2", events.get(0).getDescription());
+        assertEquals("Event 4", events.get(2).getDescription());
+    }
+
+    @Test
+    public void givenTracingDisabledAtRuntime_whenLogEvent_thenTraceDropped() {
+        clientLogger.enableTracing("test");
+        clientLogger.logEvent("test", this.getClass(), "Event");
+        clientLogger.disableTracing("test");
+
+        assertFalse(clientLogger.getTracedClientIds().contains("test"));
+        assertTrue(clientLogger.getTraceEvents("test").isEmpty());
+    }
+}
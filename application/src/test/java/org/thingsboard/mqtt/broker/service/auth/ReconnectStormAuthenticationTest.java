@@ -0,0 +1,244 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.auth;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.thingsboard.mqtt.broker.cache.CacheConstants;
+import org.thingsboard.mqtt.broker.cache.CacheNameResolver;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.data.client.credentials.BasicMqttCredentials;
+import org.thingsboard.mqtt.broker.common.data.security.ClientCredentialsType;
+import org.thingsboard.mqtt.broker.common.data.security.MqttClientCredentials;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+import org.thingsboard.mqtt.broker.dao.client.MqttClientCredentialsService;
+import org.thingsboard.mqtt.broker.dao.util.protocol.ProtocolUtil;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthContext;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthProviderType;
+import org.thingsboard.mqtt.broker.service.auth.providers.AuthResponse;
+import org.thingsboard.mqtt.broker.service.auth.providers.BasicMqttClientAuthProvider;
+import org.thingsboard.mqtt.broker.service.auth.providers.MqttClientAuthProviderManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class ReconnectStormAuthenticationTest {
+
+    private static final int NUMBER_OF_CLIENTS = 1000;
+    private static final int AUTH_THREADS = 4;
+    private static final int BCRYPT_STRENGTH = 4;
+
+    private final Map<String, MqttClientCredentials> credentialsById = new HashMap<>();
+    private final AtomicInteger passwordVerifications = new AtomicInteger();
+    private DefaultAuthenticationService authenticationService;
+
+    @Before
+    public void before() {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(BCRYPT_STRENGTH);
+        for (int i = 0; i < NUMBER_OF_CLIENTS; i++) {
+            MqttClientCredentials credentials = newCredentials(i, passwordEncoder);
+            credentialsById.put(credentials.getCredentialsId(), credentials);
+        }
+    }
+
+    @After
+    public void after() {
+        if (authenticationService != null) {
+            authenticationService.destroy();
+        }
+    }
+
+    @Test
+    public void testReconnectStormWithoutVerifiedCredentialsCache() throws Exception {
+        initAuthenticationService(new NoOpCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE), NUMBER_OF_CLIENTS);
+
+        StormResult initialConnect = runConnectStorm();
+        StormResult reconnect = runConnectStorm();
+
+        logResult("without cache", initialConnect, reconnect);
+        Assert.assertEquals(NUMBER_OF_CLIENTS, initialConnect.authenticated);
+        Assert.assertEquals(NUMBER_OF_CLIENTS, reconnect.authenticated);
+        Assert.assertEquals(2 * NUMBER_OF_CLIENTS, passwordVerifications.get());
+    }
+
+    @Test
+    public void testReconnectStormWithVerifiedCredentialsCache() throws Exception {
+        initAuthenticationService(new ConcurrentMapCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE), NUMBER_OF_CLIENTS);
+
+        StormResult initialConnect = runConnectStorm();
+        Assert.assertEquals(NUMBER_OF_CLIENTS, passwordVerifications.get());
+        StormResult reconnect = runConnectStorm();
+
+        logResult("with cache", initialConnect, reconnect);
+        Assert.assertEquals(NUMBER_OF_CLIENTS, initialConnect.authenticated);
+        Assert.assertEquals(NUMBER_OF_CLIENTS, reconnect.authenticated);
+        // the reconnect is authenticated against the verified credentials cache without BCrypt
+        Assert.assertEquals(NUMBER_OF_CLIENTS, passwordVerifications.get());
+    }
+
+    @Test
+    public void testReconnectStormIsRejectedAboveQueueLimit() throws Exception {
+        int maxQueueSize = NUMBER_OF_CLIENTS / 10;
+        initAuthenticationService(new NoOpCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE), maxQueueSize);
+
+        StormResult result = runConnectStorm();
+
+        log.info("Queue limit {}: authenticated {}, rejected with SERVER_BUSY {}, max connect latency {} ms",
+                maxQueueSize, result.authenticated, result.rejected, result.maxLatencyMs);
+        Assert.assertEquals(NUMBER_OF_CLIENTS, result.authenticated + result.rejected);
+        Assert.assertTrue(result.rejected > 0);
+        Assert.assertTrue(result.authenticated >= maxQueueSize);
+    }
+
+    private void initAuthenticationService(Cache verifiedCredentialsCache, int maxQueueSize) {
+        MqttClientCredentialsService credentialsService = mock(MqttClientCredentialsService.class);
+        when(credentialsService.findMatchingCredentials(anyList())).thenAnswer(invocation -> {
+            List<String> credentialIds = invocation.getArgument(0);
+            List<MqttClientCredentials> result = new ArrayList<>();
+            for (String credentialsId : credentialIds) {
+                MqttClientCredentials credentials = credentialsById.get(credentialsId);
+                if (credentials != null) {
+                    result.add(credentials);
+                }
+            }
+            return result;
+        });
+        CacheNameResolver cacheNameResolver = mock(CacheNameResolver.class);
+        when(cacheNameResolver.getCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE)).thenReturn(verifiedCredentialsCache);
+
+        BasicMqttClientAuthProvider basicAuthProvider = new BasicMqttClientAuthProvider(mock(AuthorizationRuleService.class),
+                credentialsService, cacheNameResolver, new CountingPasswordEncoder());
+        MqttClientAuthProviderManager authProviderManager = mock(MqttClientAuthProviderManager.class);
+        when(authProviderManager.getActiveAuthProviders()).thenReturn(Map.of(AuthProviderType.BASIC, basicAuthProvider));
+
+        authenticationService = new DefaultAuthenticationService(authProviderManager);
+        authenticationService.setAuthStrategy(AuthStrategy.BOTH);
+        authenticationService.setAuthThreads(AUTH_THREADS);
+        authenticationService.setAuthMaxQueueSize(maxQueueSize);
+        authenticationService.init();
+    }
+
+    /**
+     * All the clients send CONNECT at the same moment, as they do after a load balancer or broker node restart.
+     */
+    private StormResult runConnectStorm() throws Exception {
+        CountDownLatch latch = new CountDownLatch(NUMBER_OF_CLIENTS);
+        AtomicLong maxLatencyNanos = new AtomicLong();
+        List<ListenableFuture<AuthResponse>> futures = new ArrayList<>(NUMBER_OF_CLIENTS);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < NUMBER_OF_CLIENTS; i++) {
+            long connectTime = System.nanoTime();
+            ListenableFuture<AuthResponse> future = authenticationService.authenticateAsync(newAuthContext(i));
+            future.addListener(() -> {
+                maxLatencyNanos.accumulateAndGet(System.nanoTime() - connectTime, Math::max);
+                latch.countDown();
+            }, MoreExecutors.directExecutor());
+            futures.add(future);
+        }
+        Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+        long totalTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        AtomicInteger authenticated = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        for (ListenableFuture<AuthResponse> future : futures) {
+            try {
+                if (future.get().isSuccess()) {
+                    authenticated.incrementAndGet();
+                }
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                rejected.incrementAndGet();
+            }
+        }
+        return new StormResult(authenticated.get(), rejected.get(), totalTimeMs, TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()));
+    }
+
+    private void logResult(String mode, StormResult initialConnect, StormResult reconnect) {
+        log.info("Clients {}, {}: initial connect took {} ms (max latency {} ms), reconnect took {} ms (max latency {} ms), " +
+                        "{} BCrypt verifications", NUMBER_OF_CLIENTS, mode, initialConnect.totalTimeMs, initialConnect.maxLatencyMs,
+                reconnect.totalTimeMs, reconnect.maxLatencyMs, passwordVerifications.get());
+    }
+
+    private AuthContext newAuthContext(int i) {
+        return AuthContext.builder()
+                .clientId("client_" + i)
+                .username("user_" + i)
+                .passwordBytes(("password_" + i).getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private MqttClientCredentials newCredentials(int i, BCryptPasswordEncoder passwordEncoder) {
+        BasicMqttCredentials basicMqttCredentials = BasicMqttCredentials.newInstance(null, "user_" + i,
+                passwordEncoder.encode("password_" + i), List.of(".*"));
+        MqttClientCredentials credentials = new MqttClientCredentials();
+        credentials.setName("credentials_" + i);
+        credentials.setClientType(ClientType.DEVICE);
+        credentials.setCredentialsType(ClientCredentialsType.MQTT_BASIC);
+        credentials.setCredentialsId(ProtocolUtil.usernameCredentialsId("user_" + i));
+        credentials.setCredentialsValue(JacksonUtil.toString(basicMqttCredentials));
+        return credentials;
+    }
+
+    private class CountingPasswordEncoder extends BCryptPasswordEncoder {
+
+        CountingPasswordEncoder() {
+            super(BCRYPT_STRENGTH);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            passwordVerifications.incrementAndGet();
+            return super.matches(rawPassword, encodedPassword);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class StormResult {
+        private final int authenticated;
+        private final int rejected;
+        private final long totalTimeMs;
+        private final long maxLatencyMs;
+    }
+
+}
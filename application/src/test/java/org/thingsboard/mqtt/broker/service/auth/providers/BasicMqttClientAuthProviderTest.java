@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.auth.providers;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.thingsboard.mqtt.broker.cache.CacheConstants;
+import org.thingsboard.mqtt.broker.cache.CacheNameResolver;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.data.client.credentials.BasicMqttCredentials;
+import org.thingsboard.mqtt.broker.common.data.security.ClientCredentialsType;
+import org.thingsboard.mqtt.broker.common.data.security.MqttClientCredentials;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+import org.thingsboard.mqtt.broker.dao.client.MqttClientCredentialsService;
+import org.thingsboard.mqtt.broker.dao.util.protocol.ProtocolUtil;
+import org.thingsboard.mqtt.broker.exception.AuthenticationException;
+import org.thingsboard.mqtt.broker.service.auth.AuthorizationRuleService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BasicMqttClientAuthProviderTest {
+
+    private static final String USERNAME = "test_user";
+    private static final String PASSWORD = "test_password";
+
+    @Mock
+    AuthorizationRuleService authorizationRuleService;
+    @Mock
+    MqttClientCredentialsService clientCredentialsService;
+    @Mock
+    CacheNameResolver cacheNameResolver;
+
+    ConcurrentMapCache basicCredentialsPasswordCache;
+    BCryptPasswordEncoder passwordEncoder;
+    BasicMqttClientAuthProvider basicMqttClientAuthProvider;
+
+    @Before
+    public void setUp() {
+        basicCredentialsPasswordCache = new ConcurrentMapCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE);
+        when(cacheNameResolver.getCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE)).thenReturn(basicCredentialsPasswordCache);
+        passwordEncoder = spy(new BCryptPasswordEncoder(4));
+        basicMqttClientAuthProvider = new BasicMqttClientAuthProvider(authorizationRuleService, clientCredentialsService,
+                cacheNameResolver, passwordEncoder);
+    }
+
+    @Test
+    public void givenUnknownClient_whenAuthenticateTwice_thenCredentialsAreLookedUpOnce() throws AuthenticationException {
+        when(clientCredentialsService.findMatchingCredentials(anyList())).thenReturn(List.of());
+
+        Assert.assertFalse(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+        Assert.assertFalse(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+
+        verify(clientCredentialsService, times(1)).findMatchingCredentials(anyList());
+        BasicCredentialsCacheEntry entry = basicCredentialsPasswordCache.get(ProtocolUtil.usernameCredentialsId(USERNAME), BasicCredentialsCacheEntry.class);
+        Assert.assertNotNull(entry);
+        Assert.assertNull(entry.getCredentials());
+    }
+
+    @Test
+    public void givenVerifiedPassword_whenAuthenticateAgain_thenPasswordIsNotVerifiedAgain() throws AuthenticationException {
+        MqttClientCredentials credentials = newCredentials();
+        when(clientCredentialsService.findMatchingCredentials(anyList())).thenReturn(List.of(credentials));
+
+        Assert.assertTrue(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+        Assert.assertTrue(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+
+        verify(clientCredentialsService, times(1)).findMatchingCredentials(anyList());
+        verify(passwordEncoder, times(1)).matches(any(), any());
+    }
+
+    @Test
+    public void givenVerifiedPassword_whenAuthenticateWithOtherPassword_thenAuthenticationFails() throws AuthenticationException {
+        MqttClientCredentials credentials = newCredentials();
+        when(clientCredentialsService.findMatchingCredentials(anyList())).thenReturn(List.of(credentials));
+
+        Assert.assertTrue(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+        Assert.assertFalse(basicMqttClientAuthProvider.authenticate(newAuthContext("other_password")).isSuccess());
+
+        verify(passwordEncoder, times(2)).matches(any(), any());
+    }
+
+    @Test
+    public void givenCachedEntryEvicted_whenAuthenticate_thenCredentialsAreLookedUpAgain() throws AuthenticationException {
+        MqttClientCredentials credentials = newCredentials();
+        when(clientCredentialsService.findMatchingCredentials(anyList())).thenReturn(List.of(credentials));
+
+        Assert.assertTrue(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+        basicCredentialsPasswordCache.evict(credentials.getCredentialsId());
+        Assert.assertTrue(basicMqttClientAuthProvider.authenticate(newAuthContext(PASSWORD)).isSuccess());
+
+        verify(clientCredentialsService, times(2)).findMatchingCredentials(anyList());
+        verify(passwordEncoder, times(2)).matches(any(), any());
+    }
+
+    private AuthContext newAuthContext(String password) {
+        return AuthContext.builder()
+                .username(USERNAME)
+                .passwordBytes(password.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private MqttClientCredentials newCredentials() {
+        BasicMqttCredentials basicMqttCredentials = BasicMqttCredentials.newInstance(null, USERNAME,
+                passwordEncoder.encode(PASSWORD), List.of(".*"));
+        MqttClientCredentials credentials = new MqttClientCredentials();
+        credentials.setName("test_credentials");
+        credentials.setClientType(ClientType.DEVICE);
+        credentials.setCredentialsType(ClientCredentialsType.MQTT_BASIC);
+        credentials.setCredentialsId(ProtocolUtil.usernameCredentialsId(USERNAME));
+        credentials.setCredentialsValue(JacksonUtil.toString(basicMqttCredentials));
+        return credentials;
+    }
+
+}
@@ -256,6 +256,32 @@ public class HistoricalStatsTotalConsumerTest {
         verify(timeseriesService, times(3)).findLatest(any(), any());
     }
 
+    @Test
+    public void givenPolledStatsMsgs_whenAggregate_thenProduceOneEntryPerKeyAndTs() {
+        List<TsKvEntry> entries = new ArrayList<>();
+        var futuresEntry = Futures.immediateFuture(entries);
+        when(timeseriesService.findLatest(any(), any())).thenReturn(futuresEntry);
+
+        int nextTsMsg = 100;
+
+        var msg1 = buildMessage(INCOMING_MSGS, 5);
+        var msg2 = buildMessage(INCOMING_MSGS, 10);
+        var msg3 = buildMessageWithDifferentTs(INCOMING_MSGS, 3, nextTsMsg);
+        var msg4 = buildMessageWithDifferentTs(INCOMING_MSGS, 11, nextTsMsg);
+        var msg5 = buildMessage(OUTGOING_MSGS, 25);
+        var msg6 = buildMessage(OUTGOING_MSGS, 11);
+
+        List<TsKvEntry> result = historicalStatsTotalConsumer.aggregateHistoricalStatsTotal(List.of(msg1, msg2, msg3, msg4, msg5, msg6));
+
+        Assert.assertEquals(3, result.size());
+        Map<String, Long> totals = new HashMap<>();
+        result.forEach(entry -> totals.put(entry.getKey() + "_" + entry.getTs(), entry.getLongValue().orElseThrow()));
+        Assert.assertEquals(15L, (long) totals.get(INCOMING_MSGS + "_" + ts));
+        Assert.assertEquals(14L, (long) totals.get(INCOMING_MSGS + "_" + (ts + nextTsMsg)));
+        Assert.assertEquals(36L, (long) totals.get(OUTGOING_MSGS + "_" + ts));
+        verify(timeseriesService, times(2)).findLatest(any(), any());
+    }
+
     private TbProtoQueueMsg<QueueProtos.ToUsageStatsMsgProto> buildMessage(String key, int value) {
 
         QueueProtos.UsageStatsKVProto statsItem = QueueProtos.UsageStatsKVProto.newBuilder()
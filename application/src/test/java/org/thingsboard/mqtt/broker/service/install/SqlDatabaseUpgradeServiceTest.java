@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.install;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SqlDatabaseUpgradeServiceTest {
+
+    @ClassRule
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    private SqlDatabaseUpgradeService upgradeService;
+    private Connection conn;
+
+    @Before
+    public void setUp() throws Exception {
+        InstallScripts installScripts = mock(InstallScripts.class);
+        when(installScripts.getUpgradeDataDir()).thenReturn(Paths.get("src", "main", "data").toString());
+
+        upgradeService = new SqlDatabaseUpgradeService();
+        ReflectionTestUtils.setField(upgradeService, "dbUrl", postgres.getJdbcUrl());
+        ReflectionTestUtils.setField(upgradeService, "dbUserName", postgres.getUsername());
+        ReflectionTestUtils.setField(upgradeService, "dbPassword", postgres.getPassword());
+        ReflectionTestUtils.setField(upgradeService, "installScripts", installScripts);
+
+        conn = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("DROP SCHEMA public CASCADE; CREATE SCHEMA public;");
+            statement.execute(readResource("update/130/schema_1003001.sql"));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        conn.close();
+    }
+
+    @Test
+    public void givenSchema1003001_whenUpgradeFrom130_thenDeviceMsgAndApplicationSessionColumnsAdded() throws Exception {
+        upgradeService.upgradeDatabase("1.3.0");
+
+        Assert.assertEquals(1003003L, queryForLong("SELECT schema_version FROM tb_schema_settings"));
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("INSERT INTO device_publish_msg (client_id, serial_number, topic, time, qos, payload, payload_compressed) " +
+                    "VALUES ('client', 0, 'topic', 0, 1, '\\x00', true)");
+            statement.execute("INSERT INTO application_session_ctx (client_id, last_updated_time, msg_infos) VALUES ('client', 0, '\\x00')");
+        }
+        Assert.assertEquals(1L, queryForLong("SELECT count(*) FROM device_publish_msg WHERE payload_compressed"));
+    }
+
+    @Test
+    public void givenSchema1003001_whenUpgradeFrom130_thenRollupsBackfilledFromTimeseries() throws Exception {
+        upgradeService.upgradeDatabase("1.3.0");
+
+        Assert.assertEquals(2L, queryForLong("SELECT count(*) FROM ts_rollup_hourly"));
+        Assert.assertEquals(40L, queryForLong("SELECT sum_v FROM ts_rollup_hourly WHERE ts = 1704067200000"));
+        Assert.assertEquals(2L, queryForLong("SELECT count_v FROM ts_rollup_hourly WHERE ts = 1704067200000"));
+        Assert.assertEquals(45L, queryForLong("SELECT sum_v FROM ts_rollup_daily WHERE ts = 1704067200000"));
+        Assert.assertEquals(5L, queryForLong("SELECT min_v FROM ts_rollup_daily WHERE ts = 1704067200000"));
+        Assert.assertEquals(3L, queryForLong("SELECT count_v FROM ts_rollup_daily WHERE ts = 1704067200000"));
+    }
+
+    private long queryForLong(String sql) throws Exception {
+        try (Statement statement = conn.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            Assert.assertTrue(resultSet.next());
+            return resultSet.getLong(1);
+        }
+    }
+
+    private String readResource(String name) throws Exception {
+        return new String(Files.readAllBytes(Paths.get(getClass().getClassLoader().getResource(name).toURI())), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.limits;
+
+import io.github.bucket4j.distributed.BucketProxy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BucketProxyTokenLeaseTest {
+
+    private BucketProxy bucketProxy;
+    private AtomicLong bucketTokens;
+
+    @Before
+    public void setUp() {
+        bucketProxy = mock(BucketProxy.class);
+        bucketTokens = new AtomicLong();
+        when(bucketProxy.tryConsumeAsMuchAsPossible(anyLong())).thenAnswer(invocation -> {
+            long consumed = Math.min(invocation.<Long>getArgument(0), bucketTokens.get());
+            bucketTokens.addAndGet(-consumed);
+            return consumed;
+        });
+    }
+
+    @Test
+    public void givenLease_whenTryConsume_thenTakeTokensFromBucketOncePerLease() {
+        bucketTokens.set(1000);
+        BucketProxyTokenLease tokenLease = new BucketProxyTokenLease(bucketProxy, 100);
+
+        for (int i = 0; i < 101; i++) {
+            assertTrue(tokenLease.tryConsume());
+        }
+
+        verify(bucketProxy, times(1)).tryConsumeAsMuchAsPossible(101);
+        assertEquals(899, bucketTokens.get());
+    }
+
+    @Test
+    public void givenExhaustedBucket_whenTryConsume_thenConsumeNoMoreThanGranted() {
+        bucketTokens.set(30);
+        BucketProxyTokenLease tokenLease = new BucketProxyTokenLease(bucketProxy, 100);
+
+        int consumed = 0;
+        while (tokenLease.tryConsume()) {
+            consumed++;
+        }
+
+        assertEquals(30, consumed);
+        assertFalse(tokenLease.tryConsume());
+    }
+
+    @Test
+    public void givenLeasedTokens_whenTryConsumeAsMuchAsPossible_thenServeFromLeaseFirst() {
+        bucketTokens.set(1000);
+        BucketProxyTokenLease tokenLease = new BucketProxyTokenLease(bucketProxy, 100);
+
+        assertTrue(tokenLease.tryConsume());
+        assertEquals(50, tokenLease.tryConsumeAsMuchAsPossible(50));
+        verify(bucketProxy, times(1)).tryConsumeAsMuchAsPossible(anyLong());
+
+        assertEquals(80, tokenLease.tryConsumeAsMuchAsPossible(80));
+        verify(bucketProxy).tryConsumeAsMuchAsPossible(130);
+        assertEquals(1000 - 101 - 130, bucketTokens.get());
+    }
+}
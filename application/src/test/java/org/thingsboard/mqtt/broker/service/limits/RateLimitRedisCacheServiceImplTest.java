@@ -209,6 +209,25 @@ public class RateLimitRedisCacheServiceImplTest {
         verify(bucketProxy, times(1)).tryConsume(1);
     }
 
+    @Test
+    public void testTryConsumeTotalMsgWithTokenLease() {
+        Bandwidth limit = Bandwidth.builder().capacity(10).refillGreedy(10, Duration.ofMinutes(1)).build();
+        BucketConfiguration bucketConfig = BucketConfiguration.builder().addLimit(limit).build();
+        when(jedisBasedProxyManager.getProxy(anyString(), any())).thenReturn(bucketProxy);
+        rateLimitRedisCacheService = new RateLimitRedisCacheServiceImpl(redisTemplate, jedisBasedProxyManager, null, bucketConfig);
+        rateLimitRedisCacheService.setTokenLeaseSize(10);
+        setCachePrefixAndInit();
+
+        when(bucketProxy.tryConsumeAsMuchAsPossible(11)).thenReturn(11L);
+
+        for (int i = 0; i < 11; i++) {
+            assertTrue(rateLimitRedisCacheService.tryConsumeTotalMsg());
+        }
+
+        verify(bucketProxy, times(1)).tryConsumeAsMuchAsPossible(11);
+        verify(bucketProxy, never()).tryConsume(1);
+    }
+
     @Test(expected = NullPointerException.class)
     public void testTryConsumeWithNullDevicePersistedMsgsBucketProxy() {
         RateLimitRedisCacheServiceImpl serviceWithoutBucketProxy = new RateLimitRedisCacheServiceImpl(redisTemplate, jedisBasedProxyManager, null, null);
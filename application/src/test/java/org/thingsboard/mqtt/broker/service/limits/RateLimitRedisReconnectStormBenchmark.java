@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.limits;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.serialization.Mapper;
+import io.github.bucket4j.redis.jedis.Bucket4jJedis;
+import io.github.bucket4j.redis.jedis.cas.JedisBasedProxyManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+import org.thingsboard.mqtt.broker.cache.CacheConstants;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import redis.clients.jedis.JedisPooled;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a reconnect storm against Redis: many threads connect clients at once, and every CONNECT increments the
+ * cluster-wide session counter (decrementing it back when the sessions limit is hit) and consumes a token of the
+ * Device persisted messages rate limit for the message queued for the client. Compares one Redis call per operation
+ * with the combined counter updates and the local token lease. Reports the wall time, the CONNECT latency and the
+ * number of commands Redis processed. Not a part of the default build, run with -Pbenchmarks (needs Docker for the Redis
+ * test container).
+ */
+@Slf4j(topic = "benchmark")
+public class RateLimitRedisReconnectStormBenchmark {
+
+    static final int THREADS = 64;
+    static final int CONNECTS = 20_000;
+    static final int SESSIONS_LIMIT = 15_000;
+    static final long TOKEN_LEASE_SIZE = 100;
+
+    @ClassRule
+    public static GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7.2")).withExposedPorts(6379);
+
+    private JedisConnectionFactory connectionFactory;
+    private JedisPooled jedis;
+    private RedisTemplate<String, Object> redisTemplate;
+    private JedisBasedProxyManager<String> proxyManager;
+    private BucketConfiguration bucketConfiguration;
+
+    @Before
+    public void setUp() {
+        connectionFactory = new JedisConnectionFactory(new RedisStandaloneConfiguration(redis.getHost(), redis.getFirstMappedPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new StringRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+
+        jedis = new JedisPooled(redis.getHost(), redis.getFirstMappedPort());
+        proxyManager = Bucket4jJedis.casBasedBuilder(jedis).keyMapper(Mapper.STRING).build();
+        bucketConfiguration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.builder().capacity(1_000_000).refillGreedy(1_000_000, Duration.ofSeconds(60)).build())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        jedis.flushAll();
+        jedis.close();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    public void givenReconnectStorm_whenCheckLimits_thenReportLatencyAndRedisCommands() throws Exception {
+        // one Redis call per counter update and per token, as before the combined updates and the token lease
+        BucketProxy bucketProxy = proxyManager.getProxy("direct:" + CacheConstants.DEVICE_PERSISTED_MSGS_LIMIT_CACHE, () -> bucketConfiguration);
+        String sessionsKey = "direct:" + CacheConstants.CLIENT_SESSIONS_LIMIT_CACHE_KEY;
+        String direct = runStorm(() -> {
+            long sessions = redisTemplate.opsForValue().increment(sessionsKey);
+            if (sessions > SESSIONS_LIMIT) {
+                redisTemplate.opsForValue().decrement(sessionsKey);
+            }
+            return bucketProxy.tryConsume(1);
+        });
+        Assert.assertEquals(String.valueOf(SESSIONS_LIMIT), redisTemplate.opsForValue().get(sessionsKey));
+
+        RateLimitRedisCacheServiceImpl rateLimitCacheService =
+                new RateLimitRedisCacheServiceImpl(redisTemplate, proxyManager, bucketConfiguration, null);
+        rateLimitCacheService.setCachePrefix(BrokerConstants.EMPTY_STR);
+        rateLimitCacheService.setSessionsLimit(SESSIONS_LIMIT);
+        rateLimitCacheService.setTokenLeaseSize(TOKEN_LEASE_SIZE);
+        rateLimitCacheService.init();
+        String batched = runStorm(() -> {
+            long sessions = rateLimitCacheService.incrementSessionCount();
+            if (sessions > SESSIONS_LIMIT) {
+                rateLimitCacheService.decrementSessionCount();
+            }
+            return rateLimitCacheService.tryConsumeDevicePersistedMsg();
+        });
+        Assert.assertEquals(String.valueOf(SESSIONS_LIMIT), redisTemplate.opsForValue().get(CacheConstants.CLIENT_SESSIONS_LIMIT_CACHE_KEY));
+
+        log.info("{} CONNECTs from {} threads, sessions limit {}: one Redis call per operation: {}; " +
+                        "combined counter updates and token lease of {}: {}",
+                CONNECTS, THREADS, SESSIONS_LIMIT, direct, TOKEN_LEASE_SIZE, batched);
+    }
+
+    private String runStorm(ConnectChecks connectChecks) throws Exception {
+        long commandsBefore = getProcessedCommands();
+        long[] latencies = new long[CONNECTS];
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int i = thread; i < CONNECTS; i += THREADS) {
+                        long start = System.nanoTime();
+                        Assert.assertTrue(connectChecks.check());
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                    return null;
+                }));
+            }
+            long start = System.nanoTime();
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            long wallTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            long commands = getProcessedCommands() - commandsBefore;
+            Arrays.sort(latencies);
+            return String.format("wall time %d ms, CONNECT checks p50 %.2f ms, p99 %.2f ms, %d Redis commands", wallTimeMs,
+                    latencies[CONNECTS / 2] / 1e6, latencies[CONNECTS * 99 / 100] / 1e6, commands);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long getProcessedCommands() {
+        Properties stats = redisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("stats"));
+        return Long.parseLong(stats.getProperty("total_commands_processed"));
+    }
+
+    @FunctionalInterface
+    private interface ConnectChecks {
+        boolean check();
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.limits;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RedisCounterBatcherTest {
+
+    private static final String KEY = "clientSessionsLimit";
+
+    private ValueOperations<String, Object> valueOperations;
+    private RedisCounterBatcher counterBatcher;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        counterBatcher = new RedisCounterBatcher(redisTemplate);
+    }
+
+    @Test
+    public void givenSingleUpdate_whenIncrementOrDecrement_thenSendIncrOrDecr() {
+        when(valueOperations.increment(KEY)).thenReturn(6L);
+
+        assertEquals(6L, counterBatcher.increment(KEY));
+        counterBatcher.decrement(KEY);
+
+        verify(valueOperations).increment(KEY);
+        verify(valueOperations).decrement(KEY);
+    }
+
+    @Test
+    public void givenConcurrentUpdates_whenIncrement_thenCombineRoundTripsAndKeepValuesExact() throws Exception {
+        AtomicLong counter = new AtomicLong();
+        AtomicInteger roundTrips = new AtomicInteger();
+        when(valueOperations.increment(anyString())).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(1);
+            return counter.incrementAndGet();
+        });
+        when(valueOperations.increment(anyString(), anyLong())).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            TimeUnit.MILLISECONDS.sleep(1);
+            return counter.addAndGet(invocation.getArgument(1));
+        });
+        when(valueOperations.decrement(anyString())).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            return counter.decrementAndGet();
+        });
+
+        int threads = 16;
+        int incrementsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> values = new ArrayList<>();
+                    for (int j = 0; j < incrementsPerThread; j++) {
+                        values.add(counterBatcher.increment(KEY));
+                    }
+                    return values;
+                }));
+            }
+            Set<Long> values = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                values.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+
+            int updates = threads * incrementsPerThread;
+            assertEquals(updates, counter.get());
+            assertEquals(updates, values.size());
+            for (long value = 1; value <= updates; value++) {
+                assertTrue(values.contains(value));
+            }
+            assertTrue(roundTrips.get() < updates);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenRedisFails_whenIncrement_thenThrow() {
+        RuntimeException error = new RuntimeException("test");
+        when(valueOperations.increment(KEY)).thenThrow(error);
+
+        try {
+            counterBatcher.increment(KEY);
+            fail("Expected Redis failure");
+        } catch (RuntimeException e) {
+            assertSame(error, e);
+        }
+    }
+}
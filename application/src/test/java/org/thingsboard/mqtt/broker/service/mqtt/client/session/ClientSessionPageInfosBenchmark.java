@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.client.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
+import org.thingsboard.mqtt.broker.common.data.ClientSessionQuery;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.data.ConnectionState;
+import org.thingsboard.mqtt.broker.common.data.page.PageData;
+import org.thingsboard.mqtt.broker.common.data.page.SortOrder;
+import org.thingsboard.mqtt.broker.common.data.page.TimePageLink;
+import org.thingsboard.mqtt.broker.dto.ShortClientSessionInfoDto;
+import org.thingsboard.mqtt.broker.service.subscription.ClientSubscriptionCache;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getClientSessionInfo;
+
+/**
+ * Compares serving client session pages from the sorted index with copying, filtering and sorting all the sessions for
+ * every page. Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+@RunWith(MockitoJUnitRunner.class)
+public class ClientSessionPageInfosBenchmark {
+
+    private static final int NUMBER_OF_SESSIONS = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int PAGES = 5;
+
+    private final Map<String, ClientSessionInfo> clientSessions = new HashMap<>(NUMBER_OF_SESSIONS * 2);
+    private ClientSessionIndex clientSessionIndex;
+    private ClientSessionPageInfosImpl clientSessionPageInfos;
+
+    @Before
+    public void before() {
+        for (int i = 0; i < NUMBER_OF_SESSIONS; i++) {
+            String clientId = "client_" + i;
+            boolean connected = i % 3 != 0;
+            clientSessions.put(clientId, getClientSessionInfo(clientId, connected, "node_" + i % 4, i % 2 == 0,
+                    ClientType.DEVICE, 1_000_000L + i * 7L % NUMBER_OF_SESSIONS, connected ? 0 : 2_000_000L + i));
+        }
+        clientSessionIndex = new ClientSessionIndex();
+        clientSessionIndex.init(clientSessions);
+
+        ClientSubscriptionCache clientSubscriptionCache = Mockito.mock(ClientSubscriptionCache.class);
+        when(clientSubscriptionCache.getClientSubscriptions(any())).thenReturn(Set.of());
+        clientSessionPageInfos = new ClientSessionPageInfosImpl(clientSessionIndex, clientSubscriptionCache);
+    }
+
+    @Test
+    public void testPagingByClientId() {
+        runComparison("clientId, all sessions", new SortOrder("clientId"), null);
+    }
+
+    @Test
+    public void testPagingByConnectedAtAmongConnected() {
+        runComparison("connectedAt desc, connected only", new SortOrder("connectedAt", SortOrder.Direction.DESC),
+                List.of(ConnectionState.CONNECTED));
+    }
+
+    private void runComparison(String name, SortOrder sortOrder, List<ConnectionState> connectedStatusList) {
+        // warm up both paths
+        fullScanPage(sortOrder, connectedStatusList, 0);
+        indexedPages(sortOrder, connectedStatusList, 2);
+
+        long start = System.nanoTime();
+        PageData<ShortClientSessionInfoDto> expected = null;
+        for (int page = 0; page < PAGES; page++) {
+            expected = fullScanPage(sortOrder, connectedStatusList, page);
+        }
+        long fullScanNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        PageData<ShortClientSessionInfoDto> actual = indexedPages(sortOrder, connectedStatusList, PAGES);
+        long indexedNanos = System.nanoTime() - start;
+
+        Assert.assertEquals(expected.getTotalElements(), actual.getTotalElements());
+        Assert.assertEquals(expected.getData().stream().map(ShortClientSessionInfoDto::getClientId).toList(),
+                actual.getData().stream().map(ShortClientSessionInfoDto::getClientId).toList());
+
+        log.info("{}, {} sessions, {} pages of {}: full scan {} ms/page, indexed keyset {} us/page", name, NUMBER_OF_SESSIONS,
+                PAGES, PAGE_SIZE, TimeUnit.NANOSECONDS.toMillis(fullScanNanos) / PAGES, TimeUnit.NANOSECONDS.toMicros(indexedNanos) / PAGES);
+    }
+
+    /**
+     * Walks the first pages following the keyset cursor returned by each previous page.
+     */
+    private PageData<ShortClientSessionInfoDto> indexedPages(SortOrder sortOrder, List<ConnectionState> connectedStatusList, int pages) {
+        String afterClientId = null;
+        PageData<ShortClientSessionInfoDto> pageData = null;
+        for (int page = 0; page < pages; page++) {
+            ClientSessionQuery query = ClientSessionQuery.builder()
+                    .pageLink(new TimePageLink(PAGE_SIZE, 0, null, sortOrder))
+                    .connectedStatusList(connectedStatusList)
+                    .afterClientId(afterClientId)
+                    .build();
+            pageData = clientSessionPageInfos.getClientSessionInfos(query);
+            afterClientId = pageData.getData().get(pageData.getData().size() - 1).getClientId();
+        }
+        return pageData;
+    }
+
+    /**
+     * Copies, filters and sorts all the sessions for every page, which is how pages were served before the index.
+     */
+    private PageData<ShortClientSessionInfoDto> fullScanPage(SortOrder sortOrder, List<ConnectionState> connectedStatusList, int page) {
+        List<ClientSessionInfo> filtered = new HashMap<>(clientSessions).values().stream()
+                .filter(csi -> connectedStatusList == null || connectedStatusList.contains(csi.isConnected() ? ConnectionState.CONNECTED : ConnectionState.DISCONNECTED))
+                .toList();
+        Comparator<ShortClientSessionInfoDto> comparator = ShortClientSessionInfoDto.getComparator(sortOrder)
+                .thenComparing(ShortClientSessionInfoDto::getClientId);
+        List<ShortClientSessionInfoDto> data = filtered.stream()
+                .map(csi -> ShortClientSessionInfoDto.builder()
+                        .id(csi.getClientId())
+                        .clientId(csi.getClientId())
+                        .connectedAt(csi.getConnectedAt())
+                        .disconnectedAt(csi.getDisconnectedAt())
+                        .build())
+                .sorted(comparator)
+                .skip((long) page * PAGE_SIZE)
+                .limit(PAGE_SIZE)
+                .toList();
+        int totalPages = (int) Math.ceil((double) filtered.size() / PAGE_SIZE);
+        return new PageData<>(data, totalPages, filtered.size(), page < totalPages - 1);
+    }
+}
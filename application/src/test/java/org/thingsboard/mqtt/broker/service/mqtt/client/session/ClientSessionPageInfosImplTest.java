@@ -31,12 +31,14 @@ import org.thingsboard.mqtt.broker.common.data.page.PageLink;
 import org.thingsboard.mqtt.broker.common.data.page.SortOrder;
 import org.thingsboard.mqtt.broker.common.data.page.TimePageLink;
 import org.thingsboard.mqtt.broker.common.data.subscription.TopicSubscription;
+import org.thingsboard.mqtt.broker.dto.ClientSessionStatsInfoDto;
 import org.thingsboard.mqtt.broker.dto.ShortClientSessionInfoDto;
 import org.thingsboard.mqtt.broker.service.subscription.ClientSubscriptionCache;
 
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,7 +47,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -54,23 +55,23 @@ import static org.thingsboard.mqtt.broker.util.ClientSessionInfoFactory.getClien
 @RunWith(MockitoJUnitRunner.class)
 public class ClientSessionPageInfosImplTest {
 
-    ClientSessionCache clientSessionCache;
+    ClientSessionIndex clientSessionIndex;
     ClientSubscriptionCache clientSubscriptionCache;
     ClientSessionPageInfosImpl clientSessionPageInfos;
 
     @Before
     public void setUp() {
-        clientSessionCache = mock(ClientSessionCache.class);
+        clientSessionIndex = new ClientSessionIndex();
         clientSubscriptionCache = mock(ClientSubscriptionCache.class);
-        clientSessionPageInfos = spy(new ClientSessionPageInfosImpl(clientSessionCache, clientSubscriptionCache));
+        clientSessionPageInfos = spy(new ClientSessionPageInfosImpl(clientSessionIndex, clientSubscriptionCache));
 
         Map<String, ClientSessionInfo> clientSessionInfoMap = getClientSessionInfoMap();
-        doReturn(clientSessionInfoMap).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(clientSessionInfoMap);
     }
 
     @After
     public void destroy() {
-        Mockito.reset(clientSessionCache, clientSubscriptionCache);
+        Mockito.reset(clientSubscriptionCache);
     }
 
     private Map<String, ClientSessionInfo> getClientSessionInfoMap() {
@@ -98,6 +99,25 @@ public class ClientSessionPageInfosImplTest {
         assertTrue(clientSessionInfos.hasNext());
     }
 
+    @Test
+    public void testGetClientSessionInfosFollowingAfterClientIdCursor() {
+        List<String> clientIds = new ArrayList<>();
+        String afterClientId = null;
+        PageData<ShortClientSessionInfoDto> clientSessionInfos;
+        do {
+            ClientSessionQuery query = ClientSessionQuery.builder()
+                    .pageLink(new TimePageLink(3, 0, null, new SortOrder("clientId")))
+                    .afterClientId(afterClientId)
+                    .build();
+            clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(query);
+            clientSessionInfos.getData().forEach(dto -> clientIds.add(dto.getClientId()));
+            afterClientId = clientIds.get(clientIds.size() - 1);
+        } while (clientSessionInfos.hasNext());
+
+        assertEquals(List.of("clientId1", "clientId2", "clientId3", "clientId4", "clientId5",
+                "test1", "test2", "test3", "test4", "test5"), clientIds);
+    }
+
     @Test
     public void testGetClientSessionInfosWithPageSizePageAndTextSearch() {
         PageData<ShortClientSessionInfoDto> clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(
@@ -154,7 +174,7 @@ public class ClientSessionPageInfosImplTest {
                 "test4", getClientSessionInfo("test4"),
                 "test3", getClientSessionInfo("test3")
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         PageData<ShortClientSessionInfoDto> clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(new PageLink(3, 0));
         assertNotNull(clientSessionInfos);
@@ -256,7 +276,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId3", clientSessionInfo3
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         long startTime = convertStringToTimestamp("2023-10-10 12:00:00");
         long endTime = convertStringToTimestamp("2023-10-11 12:00:00");
@@ -286,7 +306,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId3", clientSessionInfo3
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         ClientSessionQuery clientSessionQuery = ClientSessionQuery
                 .builder()
@@ -334,7 +354,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId4", clientSessionInfo4
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         ClientSessionQuery clientSessionQuery = ClientSessionQuery
                 .builder()
@@ -382,7 +402,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId4", clientSessionInfo4
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         ClientSessionQuery clientSessionQuery = ClientSessionQuery
                 .builder()
@@ -430,7 +450,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId4", clientSessionInfo4
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         ClientSessionQuery clientSessionQuery = ClientSessionQuery
                 .builder()
@@ -486,7 +506,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId4", clientSessionInfo4
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         when(clientSubscriptionCache.getClientSubscriptions("clientId1")).thenReturn(Set.of(new TopicSubscription("tf1", 1)));
         when(clientSubscriptionCache.getClientSubscriptions("clientId2")).thenReturn(Set.of(new TopicSubscription("tf2", 2)));
@@ -532,7 +552,7 @@ public class ClientSessionPageInfosImplTest {
                 "clientId4", clientSessionInfo4
 
         );
-        doReturn(map).when(clientSessionCache).getAllClientSessions();
+        clientSessionIndex.init(map);
 
         ClientSessionQuery clientSessionQuery = ClientSessionQuery
                 .builder()
@@ -557,6 +577,78 @@ public class ClientSessionPageInfosImplTest {
         assertEquals(1, clientSessionInfos.getData().size());
     }
 
+    @Test
+    public void testGetClientSessionInfosWithKeysetCursor() {
+        ClientSessionQuery clientSessionQuery = ClientSessionQuery
+                .builder()
+                .pageLink(new TimePageLink(3, 0, null, new SortOrder("clientId")))
+                .build();
+        PageData<ShortClientSessionInfoDto> clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(clientSessionQuery);
+        assertEquals(List.of("clientId1", "clientId2", "clientId3"), getClientIds(clientSessionInfos));
+        assertEquals(10, clientSessionInfos.getTotalElements());
+        assertTrue(clientSessionInfos.hasNext());
+
+        clientSessionQuery.setAfterClientId("clientId3");
+        clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(clientSessionQuery);
+        assertEquals(List.of("clientId4", "clientId5", "test1"), getClientIds(clientSessionInfos));
+        assertEquals(10, clientSessionInfos.getTotalElements());
+        assertTrue(clientSessionInfos.hasNext());
+
+        clientSessionQuery.setAfterClientId("test3");
+        clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(clientSessionQuery);
+        assertEquals(List.of("test4", "test5"), getClientIds(clientSessionInfos));
+        assertFalse(clientSessionInfos.hasNext());
+
+        clientSessionQuery.setPageLink(new TimePageLink(3, 0, "test", new SortOrder("clientId", SortOrder.Direction.DESC)));
+        clientSessionQuery.setAfterClientId("test4");
+        clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(clientSessionQuery);
+        assertEquals(List.of("test3", "test2", "test1"), getClientIds(clientSessionInfos));
+        assertEquals(5, clientSessionInfos.getTotalElements());
+        assertFalse(clientSessionInfos.hasNext());
+    }
+
+    @Test
+    public void testGetClientSessionInfosSortedByConnectedAtAfterSessionUpdates() {
+        clientSessionIndex.init(Map.of(
+                "c1", getClientSessionInfo("c1", true, "tbmq1", true, ClientType.DEVICE, 30, 0),
+                "c2", getClientSessionInfo("c2", true, "tbmq1", true, ClientType.DEVICE, 10, 0),
+                "c3", getClientSessionInfo("c3", true, "tbmq2", true, ClientType.DEVICE, 20, 0)));
+        clientSessionIndex.put("c2", getClientSessionInfo("c2", false, "tbmq1", true, ClientType.DEVICE, 40, 50));
+        clientSessionIndex.remove("c3");
+        clientSessionIndex.put("c4", getClientSessionInfo("c4", true, "tbmq2", true, ClientType.DEVICE, 5, 0));
+
+        PageData<ShortClientSessionInfoDto> clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(
+                new PageLink(10, 0, null, new SortOrder("connectedAt", SortOrder.Direction.DESC)));
+        assertEquals(List.of("c2", "c1", "c4"), getClientIds(clientSessionInfos));
+        assertEquals(3, clientSessionInfos.getTotalElements());
+
+        ClientSessionQuery clientSessionQuery = ClientSessionQuery
+                .builder()
+                .pageLink(new TimePageLink(10, 0, null, new SortOrder("connectedAt")))
+                .connectedStatusList(List.of(ConnectionState.CONNECTED))
+                .build();
+        clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(clientSessionQuery);
+        assertEquals(List.of("c4", "c1"), getClientIds(clientSessionInfos));
+        assertEquals(2, clientSessionInfos.getTotalElements());
+
+        clientSessionQuery = ClientSessionQuery
+                .builder()
+                .pageLink(new TimePageLink(10, 0))
+                .nodeIdList(List.of("tbmq2"))
+                .build();
+        clientSessionInfos = clientSessionPageInfos.getClientSessionInfos(clientSessionQuery);
+        assertEquals(List.of("c4"), getClientIds(clientSessionInfos));
+
+        ClientSessionStatsInfoDto statsInfo = clientSessionPageInfos.getClientSessionStatsInfo();
+        assertEquals(3, statsInfo.getTotalCount());
+        assertEquals(2, statsInfo.getConnectedCount());
+        assertEquals(1, statsInfo.getDisconnectedCount());
+    }
+
+    private List<String> getClientIds(PageData<ShortClientSessionInfoDto> pageData) {
+        return pageData.getData().stream().map(ShortClientSessionInfoDto::getClientId).toList();
+    }
+
     public static long convertStringToTimestamp(String dateString) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         LocalDateTime dateTime = LocalDateTime.parse(dateString, formatter);
@@ -30,6 +30,8 @@ import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.ApplicationMsgQueuePublisher;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.ApplicationPersistenceProcessor;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionDictionaryService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.ZstdPayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.DevicePersistenceProcessor;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.device.queue.DeviceMsgQueuePublisher;
 import org.thingsboard.mqtt.broker.service.processing.PublishMsgCallback;
@@ -86,7 +88,8 @@ public class MsgPersistenceManagerImplTest {
 
         msgPersistenceManager = spy(new MsgPersistenceManagerImpl(
                 genericClientSessionCtxManager, applicationMsgQueuePublisher, applicationPersistenceProcessor,
-                deviceMsgQueuePublisher, devicePersistenceProcessor, clientLogger, rateLimitService));
+                deviceMsgQueuePublisher, devicePersistenceProcessor, clientLogger, rateLimitService,
+                new ZstdPayloadCompressionService(mock(PayloadCompressionDictionaryService.class))));
 
         ctx = mock(ClientSessionCtx.class);
         sessionInfo = mock(SessionInfo.class);
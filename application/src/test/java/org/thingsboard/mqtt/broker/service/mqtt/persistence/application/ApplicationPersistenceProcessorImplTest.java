@@ -37,6 +37,7 @@ import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processi
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.processing.ApplicationSubmitStrategyFactory;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.topic.ApplicationTopicService;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.application.util.ApplicationClientHelperService;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.PayloadCompressionService;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscription;
 import org.thingsboard.mqtt.broker.session.ClientMqttActorManager;
@@ -79,6 +80,8 @@ public class ApplicationPersistenceProcessorImplTest {
     ApplicationTopicService applicationTopicService;
     @MockBean
     ApplicationClientHelperService appClientHelperService;
+    @MockBean
+    PayloadCompressionService payloadCompressionService;
 
     @SpyBean
     ApplicationPersistenceProcessorImpl applicationPersistenceProcessor;
@@ -0,0 +1,163 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.compression;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.dao.settings.AdminSettingsService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.ZstdPayloadCompressionServiceTest.newCompressionService;
+import static org.thingsboard.mqtt.broker.service.mqtt.persistence.compression.ZstdPayloadCompressionServiceTest.newDictionaryService;
+
+/**
+ * Compares compression ratio and CPU cost of plain zstd and zstd with a trained dictionary on payloads of sample fleets.
+ * Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+public class PayloadCompressionBenchmark {
+
+    static final int DICTIONARY_SIZE = 16384;
+    static final int TRAINING_SAMPLES = 1000;
+    static final int BENCHMARK_PAYLOADS = 5000;
+
+    @Test
+    public void givenSampleFleets_whenCompressWithTrainedDictionary_thenRatioIsBetterThanPlainZstd() {
+        runFleet("thermostats", this::thermostatPayload);
+        runFleet("gps-trackers", this::trackerPayload);
+        runFleet("smart-meters", this::smartMeterPayload);
+    }
+
+    private void runFleet(String fleet, Function<Random, String> payloadGenerator) {
+        List<byte[]> samples = generatePayloads(new Random(1), payloadGenerator, TRAINING_SAMPLES);
+        List<byte[]> payloads = generatePayloads(new Random(2), payloadGenerator, BENCHMARK_PAYLOADS);
+
+        PayloadCompressionDictionaryService plainDictionaryService = newDictionaryService(mock(AdminSettingsService.class));
+        ReflectionTestUtils.setField(plainDictionaryService, "dictionaryEnabled", false);
+        ZstdPayloadCompressionService plainCompressionService = newCompressionService(plainDictionaryService, true);
+
+        PayloadCompressionDictionaryService dictionaryService = newDictionaryService(mock(AdminSettingsService.class));
+        ReflectionTestUtils.setField(dictionaryService, "dictionarySize", DICTIONARY_SIZE);
+        ZstdPayloadCompressionService compressionService = newCompressionService(dictionaryService, true);
+        long trainingStart = System.nanoTime();
+        dictionaryService.trainDictionary(fleet, samples);
+        long trainingTimeMs = (System.nanoTime() - trainingStart) / 1_000_000;
+
+        // warm up
+        compressAll(payloads, payload -> plainCompressionService.compress(fleet, payload));
+        compressAll(payloads, payload -> compressionService.compress(fleet, payload));
+
+        long rawSize = payloads.stream().mapToLong(payload -> payload.length).sum();
+        BenchmarkResult plain = compressAll(payloads, payload -> plainCompressionService.compress(fleet, payload));
+        BenchmarkResult withDictionary = compressAll(payloads, payload -> compressionService.compress(fleet, payload));
+
+        List<byte[]> restored = new ArrayList<>(payloads.size());
+        long decompressStart = System.nanoTime();
+        for (byte[] compressed : withDictionary.compressed) {
+            restored.add(compressionService.decompress(compressed));
+        }
+        long decompressNanosPerMsg = (System.nanoTime() - decompressStart) / payloads.size();
+        for (int i = 0; i < payloads.size(); i++) {
+            assertArrayEquals(payloads.get(i), restored.get(i));
+        }
+
+        double plainRatio = (double) rawSize / plain.compressedSize;
+        double dictionaryRatio = (double) rawSize / withDictionary.compressedSize;
+        log.info(String.format(Locale.ROOT,
+                "[%s] avg payload %d B, dictionary trained in %d ms | plain zstd: ratio %.2f, compress %d ns/msg | " +
+                        "dictionary zstd: ratio %.2f, compress %d ns/msg, decompress %d ns/msg",
+                fleet, rawSize / payloads.size(), trainingTimeMs,
+                plainRatio, plain.nanosPerMsg, dictionaryRatio, withDictionary.nanosPerMsg, decompressNanosPerMsg));
+
+        assertTrue(dictionaryRatio > plainRatio);
+    }
+
+    private BenchmarkResult compressAll(List<byte[]> payloads, Function<byte[], byte[]> compressor) {
+        List<byte[]> compressed = new ArrayList<>(payloads.size());
+        long compressedSize = 0;
+        long start = System.nanoTime();
+        for (byte[] payload : payloads) {
+            byte[] compressedPayload = compressor.apply(payload);
+            compressed.add(compressedPayload);
+            compressedSize += compressedPayload.length;
+        }
+        return new BenchmarkResult(compressed, compressedSize, (System.nanoTime() - start) / payloads.size());
+    }
+
+    private List<byte[]> generatePayloads(Random random, Function<Random, String> payloadGenerator, int count) {
+        List<byte[]> payloads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            payloads.add(payloadGenerator.apply(random).getBytes(StandardCharsets.UTF_8));
+        }
+        return payloads;
+    }
+
+    private String thermostatPayload(Random random) {
+        return String.format(Locale.ROOT,
+                "{\"deviceId\":\"thermostat-%05d\",\"ts\":%d,\"temperature\":%.2f,\"humidity\":%.1f,\"setpoint\":%.1f," +
+                        "\"mode\":\"%s\",\"fanSpeed\":\"%s\",\"firmware\":\"2.4.%d\",\"battery\":%d}",
+                random.nextInt(10000), 1700000000000L + random.nextInt(1_000_000_000), 15 + random.nextDouble() * 15,
+                30 + random.nextDouble() * 40, 18 + random.nextInt(8) * 0.5, random.nextBoolean() ? "heat" : "cool",
+                random.nextBoolean() ? "auto" : "low", random.nextInt(4), random.nextInt(101));
+    }
+
+    private String trackerPayload(Random random) {
+        return String.format(Locale.ROOT,
+                "{\"imei\":\"3569380356%05d\",\"ts\":%d,\"position\":{\"lat\":%.6f,\"lon\":%.6f,\"alt\":%.1f}," +
+                        "\"speed\":%.1f,\"heading\":%d,\"satellites\":%d,\"ignition\":%b,\"odometer\":%d,\"status\":\"%s\"}",
+                random.nextInt(100000), 1700000000000L + random.nextInt(1_000_000_000), 48 + random.nextDouble() * 4,
+                20 + random.nextDouble() * 8, 100 + random.nextDouble() * 300, random.nextDouble() * 120,
+                random.nextInt(360), 4 + random.nextInt(12), random.nextBoolean(), random.nextInt(500000),
+                random.nextBoolean() ? "moving" : "parked");
+    }
+
+    private String smartMeterPayload(Random random) {
+        StringBuilder phases = new StringBuilder();
+        for (int phase = 1; phase <= 3; phase++) {
+            if (phase > 1) {
+                phases.append(',');
+            }
+            phases.append(String.format(Locale.ROOT,
+                    "{\"phase\":\"L%d\",\"voltage\":%.1f,\"current\":%.2f,\"activePower\":%.1f,\"reactivePower\":%.1f,\"powerFactor\":%.2f}",
+                    phase, 225 + random.nextDouble() * 10, random.nextDouble() * 32, random.nextDouble() * 7000,
+                    random.nextDouble() * 1500, 0.8 + random.nextDouble() * 0.2));
+        }
+        return String.format(Locale.ROOT,
+                "{\"meterId\":\"SM-%08d\",\"ts\":%d,\"tariff\":\"T%d\",\"energyImportKWh\":%.3f,\"energyExportKWh\":%.3f," +
+                        "\"frequency\":%.2f,\"phases\":[%s],\"alarms\":[]}",
+                random.nextInt(100_000_000), 1700000000000L + random.nextInt(1_000_000_000), 1 + random.nextInt(2),
+                random.nextDouble() * 100000, random.nextDouble() * 10000, 49.9 + random.nextDouble() * 0.2, phases);
+    }
+
+    @RequiredArgsConstructor
+    private static class BenchmarkResult {
+
+        private final List<byte[]> compressed;
+        private final long compressedSize;
+        private final long nanosPerMsg;
+    }
+}
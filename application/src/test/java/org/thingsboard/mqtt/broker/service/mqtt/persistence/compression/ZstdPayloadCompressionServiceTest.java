@@ -0,0 +1,184 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.persistence.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.google.protobuf.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.common.data.AdminSettings;
+import org.thingsboard.mqtt.broker.common.data.DevicePublishMsg;
+import org.thingsboard.mqtt.broker.dao.settings.AdminSettingsService;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ZstdPayloadCompressionServiceTest {
+
+    static final String TOPIC = "sensors/thermostat-1/telemetry";
+
+    @Mock
+    AdminSettingsService adminSettingsService;
+
+    PayloadCompressionDictionaryService dictionaryService;
+    ZstdPayloadCompressionService compressionService;
+
+    @Before
+    public void setUp() {
+        dictionaryService = newDictionaryService(adminSettingsService);
+        compressionService = newCompressionService(dictionaryService, true);
+    }
+
+    @Test
+    public void givenCompressionDisabled_whenCompress_thenMsgIsNotChanged() {
+        ZstdPayloadCompressionService disabledCompressionService = newCompressionService(dictionaryService, false);
+        PublishMsgProto publishMsgProto = newPublishMsgProto(telemetryPayload(1));
+
+        assertSame(publishMsgProto, disabledCompressionService.compress(publishMsgProto));
+    }
+
+    @Test
+    public void givenSmallPayload_whenCompress_thenMsgIsNotChanged() {
+        PublishMsgProto publishMsgProto = newPublishMsgProto("{\"t\":1}".getBytes(StandardCharsets.UTF_8));
+
+        assertSame(publishMsgProto, compressionService.compress(publishMsgProto));
+    }
+
+    @Test
+    public void givenJsonPayload_whenCompressWithoutDictionary_thenPayloadIsRestored() {
+        byte[] payload = telemetryPayload(1);
+        PublishMsgProto compressedMsgProto = compressionService.compress(newPublishMsgProto(payload));
+
+        assertTrue(compressedMsgProto.getPayloadCompressed());
+        assertTrue(compressedMsgProto.getPayload().size() < payload.length);
+        assertEquals(0, Zstd.getDictIdFromFrame(compressedMsgProto.getPayload().toByteArray()));
+        assertArrayEquals(payload, compressionService.getPayload(compressedMsgProto));
+    }
+
+    @Test
+    public void givenTrainedDictionary_whenPayloadDecompressedOnAnotherNode_thenDictionaryIsLoadedFromAdminSettings() {
+        for (int i = 0; i < 200; i++) {
+            compressionService.compress(newPublishMsgProto(telemetryPayload(i)));
+        }
+        dictionaryService.trainDictionaries();
+
+        ArgumentCaptor<AdminSettings> adminSettingsCaptor = ArgumentCaptor.forClass(AdminSettings.class);
+        verify(adminSettingsService).saveAdminSettings(adminSettingsCaptor.capture());
+        AdminSettings dictionarySettings = adminSettingsCaptor.getValue();
+        assertEquals("sensors", dictionarySettings.getJsonValue().get("topicPrefix").asText());
+
+        byte[] payload = telemetryPayload(1000);
+        PublishMsgProto compressedMsgProto = compressionService.compress(newPublishMsgProto(payload));
+        long dictionaryId = Zstd.getDictIdFromFrame(compressedMsgProto.getPayload().toByteArray());
+        assertNotEquals(0, dictionaryId);
+        assertEquals(PayloadCompressionDictionaryService.DICTIONARY_KEY_PREFIX + dictionaryId, dictionarySettings.getKey());
+
+        AdminSettingsService otherNodeAdminSettingsService = mock(AdminSettingsService.class);
+        when(otherNodeAdminSettingsService.findAdminSettingsByKey(dictionarySettings.getKey())).thenReturn(dictionarySettings);
+        ZstdPayloadCompressionService otherNodeCompressionService =
+                newCompressionService(newDictionaryService(otherNodeAdminSettingsService), true);
+
+        assertArrayEquals(payload, otherNodeCompressionService.getPayload(compressedMsgProto));
+    }
+
+    @Test
+    public void givenCompressedDevicePublishMsg_whenGetPayload_thenPayloadIsRestored() {
+        byte[] payload = telemetryPayload(1);
+        PublishMsgProto compressedMsgProto = compressionService.compress(newPublishMsgProto(payload));
+        DevicePublishMsg devicePublishMsg = DevicePublishMsg.builder()
+                .payload(compressedMsgProto.getPayload().toByteArray())
+                .payloadCompressed(compressedMsgProto.getPayloadCompressed())
+                .build();
+
+        assertArrayEquals(payload, compressionService.getPayload(devicePublishMsg));
+    }
+
+    @Test
+    public void givenNotCompressedMsg_whenGetPayload_thenPayloadIsReturnedAsIs() {
+        byte[] payload = telemetryPayload(1);
+
+        assertArrayEquals(payload, compressionService.getPayload(newPublishMsgProto(payload)));
+        assertArrayEquals(payload, compressionService.getPayload(DevicePublishMsg.builder().payload(payload).build()));
+        assertFalse(newPublishMsgProto(payload).getPayloadCompressed());
+    }
+
+    @Test
+    public void givenTopicPrefixLevels_whenGetTopicPrefix_thenLeadingLevelsReturned() {
+        assertEquals("sensors", dictionaryService.getTopicPrefix(TOPIC));
+        assertEquals("sensors", dictionaryService.getTopicPrefix("sensors"));
+
+        ReflectionTestUtils.setField(dictionaryService, "topicPrefixLevels", 2);
+        assertEquals("sensors/thermostat-1", dictionaryService.getTopicPrefix(TOPIC));
+        assertEquals("sensors/", dictionaryService.getTopicPrefix("sensors/"));
+    }
+
+    static PayloadCompressionDictionaryService newDictionaryService(AdminSettingsService adminSettingsService) {
+        PayloadCompressionDictionaryService dictionaryService = new PayloadCompressionDictionaryService(adminSettingsService);
+        ReflectionTestUtils.setField(dictionaryService, "compressionEnabled", true);
+        ReflectionTestUtils.setField(dictionaryService, "level", 3);
+        ReflectionTestUtils.setField(dictionaryService, "dictionaryEnabled", true);
+        ReflectionTestUtils.setField(dictionaryService, "topicPrefixLevels", 1);
+        ReflectionTestUtils.setField(dictionaryService, "maxDictionaries", 16);
+        ReflectionTestUtils.setField(dictionaryService, "samplesCount", 200);
+        ReflectionTestUtils.setField(dictionaryService, "maxSampleSize", 4096);
+        ReflectionTestUtils.setField(dictionaryService, "dictionarySize", 4096);
+        return dictionaryService;
+    }
+
+    static ZstdPayloadCompressionService newCompressionService(PayloadCompressionDictionaryService dictionaryService, boolean enabled) {
+        ZstdPayloadCompressionService compressionService = new ZstdPayloadCompressionService(dictionaryService);
+        ReflectionTestUtils.setField(compressionService, "enabled", enabled);
+        ReflectionTestUtils.setField(compressionService, "level", 3);
+        ReflectionTestUtils.setField(compressionService, "minPayloadSize", 64);
+        return compressionService;
+    }
+
+    private PublishMsgProto newPublishMsgProto(byte[] payload) {
+        return PublishMsgProto.newBuilder()
+                .setTopicName(TOPIC)
+                .setPayload(ByteString.copyFrom(payload))
+                .build();
+    }
+
+    private byte[] telemetryPayload(int i) {
+        List<String> fields = new ArrayList<>();
+        fields.add("\"deviceId\":\"thermostat-" + (i % 50) + "\"");
+        fields.add("\"ts\":" + (1700000000000L + i * 1000L));
+        fields.add("\"temperature\":" + (20 + i % 7) + "." + (i % 10));
+        fields.add("\"humidity\":" + (40 + i % 13));
+        fields.add("\"mode\":\"" + (i % 2 == 0 ? "heat" : "cool") + "\"");
+        fields.add("\"firmware\":\"2.4." + (i % 3) + "\"");
+        return ("{" + String.join(",", fields) + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
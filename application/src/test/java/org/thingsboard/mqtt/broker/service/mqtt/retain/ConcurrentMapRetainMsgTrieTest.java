@@ -25,9 +25,12 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.mqtt.broker.exception.RetainMsgTrieClearException;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -143,6 +146,54 @@ public class ConcurrentMapRetainMsgTrieTest {
         Assert.assertEquals(Set.of("test1"), new HashSet<>(retainMsgTrie.get("$SYS/monitor/+")));
     }
 
+    @Test
+    public void testIterateWithWildcards() {
+        retainMsgTrie.put("$SYS/monitor/Clients", "test0");
+        retainMsgTrie.put("1/11/3", "test1");
+        retainMsgTrie.put("1/22/3", "test2");
+        retainMsgTrie.put("1/22/4", "test3");
+        retainMsgTrie.put("1", "test4");
+        retainMsgTrie.put("2/22/5", "test5");
+
+        Iterator<String> iterator = retainMsgTrie.iterate("1/#");
+        Set<String> result = new HashSet<>();
+        iterator.forEachRemaining(result::add);
+        Assert.assertEquals(Set.of("test1", "test2", "test3", "test4"), result);
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertThrows(NoSuchElementException.class, iterator::next);
+
+        for (String topicFilter : List.of("#", "+/22/+", "1/+/3", "$SYS/#", "1", "3/#", "+/monitor/Clients")) {
+            List<String> iterated = new ArrayList<>();
+            retainMsgTrie.iterate(topicFilter).forEachRemaining(iterated::add);
+            Assert.assertEquals(new HashSet<>(retainMsgTrie.get(topicFilter)), new HashSet<>(iterated));
+            Assert.assertEquals(retainMsgTrie.get(topicFilter).size(), iterated.size());
+        }
+    }
+
+    @Test
+    public void testIterateInChunks() {
+        int chunkSize = 100;
+        for (int i = 0; i < 5_000; i++) {
+            retainMsgTrie.put("building/" + i % 100 + "/floor/" + i % 7 + "/sensor/" + i, "test" + i);
+        }
+
+        for (String topicFilter : List.of("#", "building/+/floor/3/+/#")) {
+            Iterator<String> cursor = retainMsgTrie.iterate(topicFilter);
+            Set<String> delivered = new HashSet<>();
+            int maxHeldMsgs = 0;
+            while (cursor.hasNext()) {
+                List<String> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && cursor.hasNext()) {
+                    chunk.add(cursor.next());
+                }
+                delivered.addAll(chunk);
+                maxHeldMsgs = Math.max(maxHeldMsgs, chunk.size());
+            }
+            Assert.assertEquals(new HashSet<>(retainMsgTrie.get(topicFilter)), delivered);
+            Assert.assertTrue(maxHeldMsgs <= chunkSize);
+        }
+    }
+
     @Test
     public void testRetainedMsgCount() {
         for (int i = 0; i < 10; i++) {
@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the time to the first message and the allocation of looking up all the retained messages of a wildcard
+ * subscription at once with walking them through the trie cursor in chunks. Not a part of the default build, run with
+ * -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+@RunWith(MockitoJUnitRunner.class)
+public class RetainMsgTrieCursorBenchmark {
+
+    private static final int NUMBER_OF_RETAINED_MESSAGES = 500_000;
+    private static final int CHUNK_SIZE = 100;
+
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private ConcurrentMapRetainMsgTrie<RetainedMsg> retainMsgTrie;
+
+    @Before
+    public void before() {
+        StatsManager statsManagerMock = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManagerMock.createRetainMsgSizeCounter()).thenReturn(new AtomicInteger());
+        Mockito.when(statsManagerMock.createRetainMsgTrieNodesCounter()).thenReturn(new AtomicLong());
+        retainMsgTrie = new ConcurrentMapRetainMsgTrie<>(statsManagerMock);
+
+        byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < NUMBER_OF_RETAINED_MESSAGES; i++) {
+            String topic = "building/" + i % 100 + "/floor/" + i % 7 + "/sensor/" + i;
+            retainMsgTrie.put(topic, new RetainedMsg(topic, payload, i % 3, MqttProperties.NO_PROPERTIES, i));
+        }
+    }
+
+    @Test
+    public void testMultiLevelWildcardSubscribe() {
+        runComparison("#");
+    }
+
+    @Test
+    public void testSingleLevelWildcardSubscribe() {
+        runComparison("building/+/floor/3/+/#");
+    }
+
+    private void runComparison(String topicFilter) {
+        // warm up both paths
+        eagerLookup(topicFilter);
+        cursorLookup(topicFilter);
+
+        long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        Set<RetainedMsg> eager = eagerLookup(topicFilter);
+        long eagerFirstMsgNanos = System.nanoTime() - start;
+        long eagerAllocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+        start = System.nanoTime();
+        Iterator<RetainedMsg> cursor = retainMsgTrie.iterate(topicFilter);
+        List<RetainedMsg> chunk = nextChunk(cursor);
+        long cursorFirstChunkNanos = System.nanoTime() - start;
+        long cursorFirstChunkAllocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        int delivered = chunk.size();
+        int maxHeldMsgs = chunk.size();
+        while (cursor.hasNext()) {
+            chunk = nextChunk(cursor);
+            delivered += chunk.size();
+            maxHeldMsgs = Math.max(maxHeldMsgs, chunk.size());
+        }
+        long cursorTotalNanos = System.nanoTime() - start;
+
+        Assert.assertEquals(eager.size(), delivered);
+        Assert.assertTrue(cursorFirstChunkAllocated < eagerAllocated);
+
+        log.info("'{}', {} retained messages, {} matched: eager lookup {} ms to first message, {} MB allocated, {} messages held" +
+                        " | cursor {} us to first message, {} KB allocated, {} messages held, {} ms to walk all matches",
+                topicFilter, NUMBER_OF_RETAINED_MESSAGES, eager.size(),
+                TimeUnit.NANOSECONDS.toMillis(eagerFirstMsgNanos), eagerAllocated / 1024 / 1024, eager.size(),
+                TimeUnit.NANOSECONDS.toMicros(cursorFirstChunkNanos), cursorFirstChunkAllocated / 1024, maxHeldMsgs,
+                TimeUnit.NANOSECONDS.toMillis(cursorTotalNanos));
+    }
+
+    /**
+     * Collects every match into a set before the first message can be sent, which is how retained messages were looked up before the cursor.
+     */
+    private Set<RetainedMsg> eagerLookup(String topicFilter) {
+        return new HashSet<>(retainMsgTrie.get(topicFilter));
+    }
+
+    private void cursorLookup(String topicFilter) {
+        Iterator<RetainedMsg> cursor = retainMsgTrie.iterate(topicFilter);
+        while (cursor.hasNext()) {
+            nextChunk(cursor);
+        }
+    }
+
+    private List<RetainedMsg> nextChunk(Iterator<RetainedMsg> cursor) {
+        List<RetainedMsg> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (chunk.size() < CHUNK_SIZE && cursor.hasNext()) {
+            chunk.add(cursor.next());
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Devices publish retained telemetry several times per coalescing period. Compares the records produced to the
+ * retained msg topic and the CPU time a consumer on another node spends to apply them, with every update persisted
+ * at once and with the updates coalesced per period. Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+public class RetainedMsgCoalescingBenchmark {
+
+    static final int TOPICS = 10_000;
+    static final int UPDATES_PER_TOPIC_PER_PERIOD = 10;
+    static final int PERIODS = 10;
+
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private StatsManager statsManager;
+
+    @Before
+    public void setUp() {
+        statsManager = Mockito.mock(StatsManager.class);
+        Mockito.when(statsManager.createRetainMsgSizeCounter()).thenReturn(new AtomicInteger());
+        Mockito.when(statsManager.createRetainMsgTrieNodesCounter()).thenReturn(new AtomicLong());
+    }
+
+    @Test
+    public void givenHighFrequencyRetainedPublishing_whenCoalesce_thenReportRecordsAndConsumerCpu() {
+        List<Record> directRecords = new ArrayList<>();
+        publish((topic, retainedMsgProto) -> directRecords.add(new Record(topic, retainedMsgProto)), () -> {
+        });
+
+        List<Record> coalescedRecords = new ArrayList<>();
+        RetainedMsgUpdatesCoalescer coalescer = new RetainedMsgUpdatesCoalescer(
+                (topic, retainedMsgProto, messageExpiryInterval, callback) -> coalescedRecords.add(new Record(topic, retainedMsgProto)));
+        publish((topic, retainedMsgProto) -> coalescer.add(topic, retainedMsgProto, null, null), coalescer::flush);
+
+        ConcurrentMap<String, RetainedMsg> directState = new ConcurrentHashMap<>();
+        ConcurrentMap<String, RetainedMsg> coalescedState = new ConcurrentHashMap<>();
+        consume(directRecords, directState);
+        consume(coalescedRecords, coalescedState);
+        long directCpuMs = consume(directRecords, directState);
+        long coalescedCpuMs = consume(coalescedRecords, coalescedState);
+
+        log.info("{} topics updated {} times per period for {} periods: produced {} records, consumer CPU {} ms without coalescing; " +
+                        "{} records, consumer CPU {} ms with coalescing",
+                TOPICS, UPDATES_PER_TOPIC_PER_PERIOD, PERIODS, directRecords.size(), directCpuMs, coalescedRecords.size(), coalescedCpuMs);
+
+        assertEquals(TOPICS * PERIODS, coalescedRecords.size());
+        assertEquals(directState.keySet(), coalescedState.keySet());
+        directState.forEach((topic, retainedMsg) -> assertEquals(new String(retainedMsg.getPayload(), StandardCharsets.UTF_8),
+                new String(coalescedState.get(topic).getPayload(), StandardCharsets.UTF_8)));
+    }
+
+    private void publish(Producer producer, Runnable periodEnd) {
+        for (int period = 0; period < PERIODS; period++) {
+            for (int update = 0; update < UPDATES_PER_TOPIC_PER_PERIOD; update++) {
+                for (int i = 0; i < TOPICS; i++) {
+                    String topic = "fleet/" + i % 100 + "/device/" + i + "/state";
+                    byte[] payload = ("{\"seq\":" + (period * UPDATES_PER_TOPIC_PER_PERIOD + update) + ",\"temperature\":21.5}")
+                            .getBytes(StandardCharsets.UTF_8);
+                    RetainedMsg retainedMsg = new RetainedMsg(topic, payload, 1, MqttProperties.NO_PROPERTIES);
+                    producer.produce(topic, ProtoConverter.convertToRetainedMsgProto(retainedMsg));
+                }
+            }
+            periodEnd.run();
+        }
+    }
+
+    // what a consumer on another node does with each record: converts it and updates the retained msg storage
+    private long consume(List<Record> records, ConcurrentMap<String, RetainedMsg> state) {
+        ConcurrentMapRetainMsgTrie<RetainedMsg> retainMsgTrie = new ConcurrentMapRetainMsgTrie<>(statsManager);
+        long cpuBefore = threadMXBean.getCurrentThreadCpuTime();
+        for (Record record : records) {
+            RetainedMsg retainedMsg = ProtoConverter.convertProtoToRetainedMsg(record.retainedMsgProto);
+            retainMsgTrie.put(record.topic, retainedMsg);
+            state.put(record.topic, retainedMsg);
+        }
+        return (threadMXBean.getCurrentThreadCpuTime() - cpuBefore) / 1_000_000;
+    }
+
+    @FunctionalInterface
+    private interface Producer {
+        void produce(String topic, QueueProtos.RetainedMsgProto retainedMsgProto);
+    }
+
+    @RequiredArgsConstructor
+    private static class Record {
+        private final String topic;
+        private final QueueProtos.RetainedMsgProto retainedMsgProto;
+    }
+}
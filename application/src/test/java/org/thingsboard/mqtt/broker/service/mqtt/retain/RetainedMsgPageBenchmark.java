@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.common.data.page.PageData;
+import org.thingsboard.mqtt.broker.common.data.page.PageLink;
+import org.thingsboard.mqtt.broker.common.data.page.SortOrder;
+import org.thingsboard.mqtt.broker.dto.RetainedMsgDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serving retained message pages from the sorted index with copying, filtering and sorting all the retained
+ * messages for every page. Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+@RunWith(MockitoJUnitRunner.class)
+public class RetainedMsgPageBenchmark {
+
+    private static final int NUMBER_OF_RETAINED_MESSAGES = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int PAGES = 5;
+
+    private final Map<String, RetainedMsg> retainedMessages = new HashMap<>(NUMBER_OF_RETAINED_MESSAGES * 2);
+    private RetainedMsgPageServiceImpl retainedMsgPageService;
+
+    @Before
+    public void before() {
+        byte[] payload = "payload".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < NUMBER_OF_RETAINED_MESSAGES; i++) {
+            String topic = "building/" + i % 100 + "/sensor/" + i;
+            retainedMessages.put(topic, new RetainedMsg(topic, payload, i % 3, MqttProperties.NO_PROPERTIES, 1_000_000L + i * 7L % NUMBER_OF_RETAINED_MESSAGES));
+        }
+        RetainedMsgIndex retainedMsgIndex = new RetainedMsgIndex();
+        retainedMsgIndex.init(retainedMessages);
+        retainedMsgPageService = new RetainedMsgPageServiceImpl(retainedMsgIndex);
+    }
+
+    @Test
+    public void testPagingByTopic() {
+        runComparison("topic, all messages", new SortOrder("topic"), null);
+    }
+
+    @Test
+    public void testPagingByCreatedTimeDesc() {
+        runComparison("createdTime desc, all messages", new SortOrder("createdTime", SortOrder.Direction.DESC), null);
+    }
+
+    @Test
+    public void testPagingByTopicPrefix() {
+        runComparison("topic, 'building/42/' prefix", new SortOrder("topic"), "building/42/");
+    }
+
+    private void runComparison(String name, SortOrder sortOrder, String topicPrefix) {
+        // warm up both paths
+        fullScanPage(sortOrder, topicPrefix, 0);
+        indexedPages(sortOrder, topicPrefix, 2);
+
+        long start = System.nanoTime();
+        PageData<RetainedMsgDto> expected = null;
+        for (int page = 0; page < PAGES; page++) {
+            expected = fullScanPage(sortOrder, topicPrefix, page);
+        }
+        long fullScanNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        PageData<RetainedMsgDto> actual = indexedPages(sortOrder, topicPrefix, PAGES);
+        long indexedNanos = System.nanoTime() - start;
+
+        Assert.assertEquals(expected.getTotalElements(), actual.getTotalElements());
+        Assert.assertEquals(expected.getData().stream().map(RetainedMsgDto::getTopic).toList(),
+                actual.getData().stream().map(RetainedMsgDto::getTopic).toList());
+
+        log.info("{}, {} retained messages, {} pages of {}: full scan {} ms/page, indexed keyset {} us/page", name,
+                NUMBER_OF_RETAINED_MESSAGES, PAGES, PAGE_SIZE, TimeUnit.NANOSECONDS.toMillis(fullScanNanos) / PAGES,
+                TimeUnit.NANOSECONDS.toMicros(indexedNanos) / PAGES);
+    }
+
+    /**
+     * Walks the first pages following the keyset cursor returned by each previous page.
+     */
+    private PageData<RetainedMsgDto> indexedPages(SortOrder sortOrder, String topicPrefix, int pages) {
+        String afterTopic = null;
+        PageData<RetainedMsgDto> pageData = null;
+        for (int page = 0; page < pages; page++) {
+            pageData = retainedMsgPageService.getRetainedMessages(new PageLink(PAGE_SIZE, 0, null, sortOrder), topicPrefix, afterTopic);
+            afterTopic = pageData.getData().get(pageData.getData().size() - 1).getTopic();
+        }
+        return pageData;
+    }
+
+    /**
+     * Copies, filters and sorts all the retained messages for every page, which is how pages were served before the index.
+     */
+    private PageData<RetainedMsgDto> fullScanPage(SortOrder sortOrder, String topicPrefix, int page) {
+        List<RetainedMsg> filtered = new ArrayList<>(retainedMessages.values()).stream()
+                .filter(retainedMsg -> topicPrefix == null || retainedMsg.getTopic().startsWith(topicPrefix))
+                .toList();
+        Comparator<RetainedMsgDto> comparator = RetainedMsgDto.getComparator(sortOrder).thenComparing(RetainedMsgDto::getTopic);
+        List<RetainedMsgDto> data = filtered.stream()
+                .map(RetainedMsgDto::newInstance)
+                .sorted(comparator)
+                .skip((long) page * PAGE_SIZE)
+                .limit(PAGE_SIZE)
+                .toList();
+        int totalPages = (int) Math.ceil((double) filtered.size() / PAGE_SIZE);
+        return new PageData<>(data, totalPages, filtered.size(), page < totalPages - 1);
+    }
+}
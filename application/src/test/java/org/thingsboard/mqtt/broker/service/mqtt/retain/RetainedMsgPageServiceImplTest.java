@@ -15,6 +15,7 @@
  */
 package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
+import io.netty.handler.codec.mqtt.MqttProperties;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,6 +23,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.mqtt.broker.common.data.page.PageData;
 import org.thingsboard.mqtt.broker.common.data.page.PageLink;
 import org.thingsboard.mqtt.broker.common.data.page.SortOrder;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.dto.RetainedMsgDto;
 
 import java.nio.charset.StandardCharsets;
@@ -30,23 +32,21 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RetainedMsgPageServiceImplTest {
 
-    RetainedMsgListenerService retainedMsgListenerService;
+    RetainedMsgIndex retainedMsgIndex;
     RetainedMsgPageServiceImpl retainedMsgPageService;
 
     @Before
     public void setUp() {
-        retainedMsgListenerService = mock(RetainedMsgListenerService.class);
-        retainedMsgPageService = spy(new RetainedMsgPageServiceImpl(retainedMsgListenerService));
+        retainedMsgIndex = new RetainedMsgIndex();
+        retainedMsgPageService = spy(new RetainedMsgPageServiceImpl(retainedMsgIndex));
 
         List<RetainedMsg> retainedMsgs = getAllRetainedMessages();
-        doReturn(retainedMsgs).when(retainedMsgListenerService).getRetainedMessages();
+        retainedMsgs.forEach(retainedMsg -> retainedMsgIndex.put(retainedMsg.getTopic(), retainedMsg));
     }
 
     private List<RetainedMsg> getAllRetainedMessages() {
@@ -88,6 +88,22 @@ public class RetainedMsgPageServiceImplTest {
         assertFalse(retainedMessages.hasNext());
     }
 
+    @Test
+    public void testGetRetainedMessagesWithPageLinkNotCountingExpiredMsgs() {
+        MqttProperties properties = new MqttProperties();
+        properties.add(new MqttProperties.IntegerProperty(BrokerConstants.PUB_EXPIRY_INTERVAL_PROP_ID, 1));
+        RetainedMsg expiredMsg = new RetainedMsg("topic/expired", "payload".getBytes(StandardCharsets.UTF_8), 1,
+                properties, System.currentTimeMillis() - 10_000);
+        retainedMsgIndex.put(expiredMsg.getTopic(), expiredMsg);
+
+        PageData<RetainedMsgDto> retainedMessages = retainedMsgPageService.getRetainedMessages(new PageLink(5, 0));
+
+        assertEquals(5, retainedMessages.getData().size());
+        assertEquals(5, retainedMessages.getTotalElements());
+        assertEquals(1, retainedMessages.getTotalPages());
+        assertFalse(retainedMessages.hasNext());
+    }
+
     @Test
     public void testGetRetainedMessagesWithPageLinkAndTextSearch() {
         PageData<RetainedMsgDto> retainedMessages = retainedMsgPageService.getRetainedMessages(
@@ -113,6 +129,53 @@ public class RetainedMsgPageServiceImplTest {
         assertEquals("topic/test3", data.get(4).getTopic());
     }
 
+    @Test
+    public void testGetRetainedMessagesWithTopicPrefix() {
+        PageData<RetainedMsgDto> retainedMessages = retainedMsgPageService.getRetainedMessages(
+                new PageLink(2, 0, null, new SortOrder("topic", SortOrder.Direction.DESC)), "topic/", null);
+        List<RetainedMsgDto> data = retainedMessages.getData();
+
+        assertEquals(2, data.size());
+        assertEquals(3, retainedMessages.getTotalElements());
+        assertTrue(retainedMessages.hasNext());
+        assertEquals("topic/test3", data.get(0).getTopic());
+        assertEquals("topic/test2", data.get(1).getTopic());
+    }
+
+    @Test
+    public void testGetRetainedMessagesWithKeysetCursor() {
+        PageData<RetainedMsgDto> retainedMessages = retainedMsgPageService.getRetainedMessages(
+                new PageLink(2, 0, null, new SortOrder("topic", SortOrder.Direction.ASC)), null, "my/topic");
+        List<RetainedMsgDto> data = retainedMessages.getData();
+
+        assertEquals(2, data.size());
+        assertEquals(5, retainedMessages.getTotalElements());
+        assertTrue(retainedMessages.hasNext());
+        assertEquals("topic/test1", data.get(0).getTopic());
+        assertEquals("topic/test2", data.get(1).getTopic());
+    }
+
+    @Test
+    public void testGetRetainedMessagesSortedByCreatedTimeSkipsExpiredAndRemoved() {
+        retainedMsgIndex.put("old/expired", new RetainedMsg("old/expired", new byte[0], 1, expiredProperties(), 0));
+        retainedMsgIndex.put("oldest", new RetainedMsg("oldest", new byte[0], 1, MqttProperties.NO_PROPERTIES, 1));
+        retainedMsgIndex.remove("my/topic");
+
+        PageData<RetainedMsgDto> retainedMessages = retainedMsgPageService.getRetainedMessages(
+                new PageLink(10, 0, "o", new SortOrder("createdTime", SortOrder.Direction.ASC)));
+        List<RetainedMsgDto> data = retainedMessages.getData();
+
+        assertEquals(5, retainedMessages.getTotalElements());
+        assertEquals("oldest", data.get(0).getTopic());
+        assertFalse(data.stream().anyMatch(dto -> dto.getTopic().equals("old/expired") || dto.getTopic().equals("my/topic")));
+    }
+
+    private static MqttProperties expiredProperties() {
+        MqttProperties properties = new MqttProperties();
+        properties.add(new MqttProperties.IntegerProperty(MqttProperties.MqttPropertyType.PUBLICATION_EXPIRY_INTERVAL.value(), 1));
+        return properties;
+    }
+
     private static RetainedMsg getRetainedMsg(String topic) {
         return new RetainedMsg(topic, "payload".getBytes(StandardCharsets.UTF_8), 1);
     }
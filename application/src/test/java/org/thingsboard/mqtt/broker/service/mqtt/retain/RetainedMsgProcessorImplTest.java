@@ -16,15 +16,21 @@
 package org.thingsboard.mqtt.broker.service.mqtt.retain;
 
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -60,6 +66,32 @@ public class RetainedMsgProcessorImplTest {
         verify(retainedMsgListenerService, times(1)).clearRetainedMsgAndPersist(eq("test"));
     }
 
+    @Test
+    public void testProcessRetainMsgsUpdatesEveryTopicOnce() {
+        PublishMsg publishMsg = getPublishMsg();
+        PublishMsg emptyPublishMsg = emptyPublishMsg();
+        PublishMsg otherTopicPublishMsg = new PublishMsg(1, "other", "data".getBytes(), 2, true, false);
+
+        List<PublishMsg> processedMsgs = retainedMsgProcessor.process(List.of(publishMsg, otherTopicPublishMsg, emptyPublishMsg));
+
+        Assert.assertEquals(List.of(publishMsg, otherTopicPublishMsg, emptyPublishMsg), processedMsgs);
+        verify(retainedMsgListenerService, times(1)).clearRetainedMsgAndPersist(eq("test"));
+        verify(retainedMsgListenerService, never()).cacheRetainedMsgAndPersist(eq("test"), any());
+        verify(retainedMsgListenerService, times(1)).cacheRetainedMsgAndPersist(eq("other"), any());
+    }
+
+    @Test
+    public void testProcessRetainMsgsReturnsNullForFailedTopicOnly() {
+        PublishMsg publishMsg = getPublishMsg();
+        PublishMsg otherTopicPublishMsg = new PublishMsg(1, "other", "data".getBytes(), 2, true, false);
+        doThrow(new RuntimeException("failed")).when(retainedMsgListenerService).cacheRetainedMsgAndPersist(eq("test"), any());
+
+        List<PublishMsg> processedMsgs = retainedMsgProcessor.process(List.of(publishMsg, otherTopicPublishMsg));
+
+        Assert.assertEquals(Arrays.asList(null, otherTopicPublishMsg), processedMsgs);
+        verify(retainedMsgListenerService, times(1)).cacheRetainedMsgAndPersist(eq("other"), any());
+    }
+
     private PublishMsg emptyPublishMsg() {
         return getMsg(new byte[0]);
     }
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.retain;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.adaptor.ProtoConverter;
+import org.thingsboard.mqtt.broker.common.data.BasicCallback;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgUpdatesCoalescer.RetainedMsgUpdateSender;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+public class RetainedMsgUpdatesCoalescerTest {
+
+    RetainedMsgUpdateSender sender;
+    RetainedMsgUpdatesCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        sender = mock(RetainedMsgUpdateSender.class);
+        coalescer = new RetainedMsgUpdatesCoalescer(sender);
+    }
+
+    @Test
+    public void givenSeveralUpdatesOfTopic_whenFlush_thenSendOnlyLatestAndCompleteAllCallbacks() {
+        BasicCallback firstCallback = mock(BasicCallback.class);
+        BasicCallback secondCallback = mock(BasicCallback.class);
+        QueueProtos.RetainedMsgProto latest = newRetainedMsgProto("t/1", "3", System.currentTimeMillis());
+        doAnswer(invocation -> {
+            invocation.<BasicCallback>getArgument(3).onSuccess();
+            return null;
+        }).when(sender).send(any(), any(), any(), any());
+
+        coalescer.add("t/1", newRetainedMsgProto("t/1", "1", System.currentTimeMillis()), null, firstCallback);
+        coalescer.add("t/1", newRetainedMsgProto("t/1", "2", System.currentTimeMillis()), null, null);
+        coalescer.add("t/1", latest, null, secondCallback);
+        coalescer.add("t/2", newRetainedMsgProto("t/2", "1", System.currentTimeMillis()), null, null);
+
+        assertEquals(2, coalescer.flush());
+
+        verify(sender).send(eq("t/1"), eq(latest), isNull(), any());
+        verify(sender).send(eq("t/2"), any(), isNull(), any());
+        verify(firstCallback).onSuccess();
+        verify(secondCallback).onSuccess();
+        assertEquals(0, coalescer.getPendingUpdatesCount());
+        assertEquals(0, coalescer.flush());
+    }
+
+    @Test
+    public void givenClearAfterUpdateAndUpdateAfterClear_whenFlush_thenLastOneWins() {
+        QueueProtos.RetainedMsgProto retainedMsgProto = newRetainedMsgProto("t/2", "1", System.currentTimeMillis());
+
+        coalescer.add("t/1", newRetainedMsgProto("t/1", "1", System.currentTimeMillis()), 60, null);
+        coalescer.add("t/1", QueueConstants.EMPTY_RETAINED_MSG_PROTO, null, null);
+        coalescer.add("t/2", QueueConstants.EMPTY_RETAINED_MSG_PROTO, null, null);
+        coalescer.add("t/2", retainedMsgProto, 60, null);
+        coalescer.flush();
+
+        verify(sender).send(eq("t/1"), eq(QueueConstants.EMPTY_RETAINED_MSG_PROTO), isNull(), any());
+        verify(sender).send(eq("t/2"), eq(retainedMsgProto), eq(60), any());
+    }
+
+    @Test
+    public void givenRetainedMsgExpiredWhilePending_whenFlush_thenSendClear() {
+        long createdTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(11);
+        coalescer.add("t/1", newRetainedMsgProto("t/1", "1", createdTime), 10, null);
+        coalescer.add("t/2", newRetainedMsgProto("t/2", "1", createdTime), 0, null);
+        coalescer.flush();
+
+        verify(sender).send(eq("t/1"), eq(QueueConstants.EMPTY_RETAINED_MSG_PROTO), isNull(), any());
+        verify(sender, never()).send(eq("t/2"), eq(QueueConstants.EMPTY_RETAINED_MSG_PROTO), any(), any());
+    }
+
+    @Test
+    public void givenPendingUpdate_whenDiscard_thenNotSentAndCallbackCompleted() {
+        BasicCallback callback = mock(BasicCallback.class);
+        coalescer.add("t/1", newRetainedMsgProto("t/1", "1", System.currentTimeMillis()), null, callback);
+
+        coalescer.discard("t/1");
+
+        assertEquals(0, coalescer.flush());
+        verifyNoInteractions(sender);
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void givenSenderFails_whenFlush_thenFailCallbacksAndFlushOtherTopics() {
+        BasicCallback callback = mock(BasicCallback.class);
+        RuntimeException error = new RuntimeException("test");
+        doThrow(error).when(sender).send(eq("t/1"), any(), any(), any());
+        coalescer.add("t/1", newRetainedMsgProto("t/1", "1", System.currentTimeMillis()), null, callback);
+        coalescer.add("t/2", newRetainedMsgProto("t/2", "1", System.currentTimeMillis()), null, null);
+
+        assertEquals(2, coalescer.flush());
+
+        verify(callback).onFailure(error);
+        verify(sender, times(1)).send(eq("t/2"), any(), any(), any());
+    }
+
+    private QueueProtos.RetainedMsgProto newRetainedMsgProto(String topic, String payload, long createdTime) {
+        return ProtoConverter.convertToRetainedMsgProto(
+                new RetainedMsg(topic, payload.getBytes(StandardCharsets.UTF_8), 1, MqttProperties.NO_PROPERTIES, createdTime));
+    }
+}
@@ -16,23 +16,30 @@
 package org.thingsboard.mqtt.broker.service.mqtt.will;
 
 import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.util.Timer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.verification.VerificationMode;
+import org.thingsboard.mqtt.broker.common.data.ClientInfo;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
 import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
 import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgProcessor;
 import org.thingsboard.mqtt.broker.service.processing.MsgDispatcherService;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgToPersist;
 import org.thingsboard.mqtt.broker.service.stats.StatsManager;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.ScheduledExecutorService;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -63,8 +70,8 @@ public class DefaultLastWillServiceTest {
         savedSessionId = UUID.randomUUID();
         when(sessionInfo.getSessionId()).thenReturn(savedSessionId);
 
-        ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
-        lastWillService.setScheduler(scheduledExecutorService);
+        Timer timer = mock(Timer.class);
+        lastWillService.setTimer(timer);
         doNothing().when(lastWillService).scheduleLastWill(any(), any(), anyInt());
     }
 
@@ -95,6 +102,64 @@ public class DefaultLastWillServiceTest {
         verifyPersistPublishMsg(never());
     }
 
+    @Test
+    public void testLastWillBatchPersistedWithOneCall() {
+        PublishMsg retainedWillMsg = newWillMsg("devices/status", true);
+        PublishMsg lastRetainedWillMsg = newWillMsg("devices/status", true);
+        PublishMsg willMsg = newWillMsg("devices/1/status", false);
+        when(retainedMsgProcessor.process(List.of(retainedWillMsg, lastRetainedWillMsg)))
+                .thenReturn(List.of(retainedWillMsg, lastRetainedWillMsg));
+
+        DefaultLastWillService.ScheduledLastWill cancelledLastWill = newScheduledLastWill("cancelled", willMsg);
+        cancelledLastWill.cancel();
+        lastWillService.processLastWillBatch(List.of(
+                newScheduledLastWill("c1", retainedWillMsg),
+                cancelledLastWill,
+                newScheduledLastWill("c2", willMsg),
+                newScheduledLastWill("c3", lastRetainedWillMsg)));
+
+        verify(retainedMsgProcessor).process(List.of(retainedWillMsg, lastRetainedWillMsg));
+        verify(msgDispatcherService).persistPublishMsgs(argThat(msgs -> msgs.stream().map(PublishMsgToPersist::getPublishMsg).toList()
+                .equals(List.of(retainedWillMsg, willMsg, lastRetainedWillMsg))));
+        verify(msgDispatcherService, never()).persistPublishMsg(any(), any(), any());
+    }
+
+    @Test
+    public void testLastWillBatchRetainedFailureSkipsOnlyFailedWill() {
+        PublishMsg failingWillMsg = newWillMsg("devices/1/status", true);
+        PublishMsg retainedWillMsg = newWillMsg("devices/2/status", true);
+        PublishMsg willMsg = newWillMsg("devices/3/status", false);
+        when(retainedMsgProcessor.process(anyList())).thenThrow(new RuntimeException("failed"));
+        when(retainedMsgProcessor.process(failingWillMsg)).thenThrow(new RuntimeException("failed"));
+        when(retainedMsgProcessor.process(retainedWillMsg)).thenReturn(retainedWillMsg);
+
+        lastWillService.processLastWillBatch(List.of(
+                newScheduledLastWill("c1", failingWillMsg),
+                newScheduledLastWill("c2", retainedWillMsg),
+                newScheduledLastWill("c3", willMsg)));
+
+        verify(msgDispatcherService).persistPublishMsgs(argThat(msgs -> msgs.stream().map(PublishMsgToPersist::getPublishMsg).toList()
+                .equals(List.of(retainedWillMsg, willMsg))));
+    }
+
+    private DefaultLastWillService.ScheduledLastWill newScheduledLastWill(String clientId, PublishMsg willMsg) {
+        SessionInfo willSessionInfo = SessionInfo.builder()
+                .sessionId(UUID.randomUUID())
+                .clientInfo(new ClientInfo(clientId, ClientType.DEVICE))
+                .build();
+        return new DefaultLastWillService.ScheduledLastWill(
+                new DefaultLastWillService.MsgWithSessionInfo(willMsg, willSessionInfo), willSessionInfo.getSessionId());
+    }
+
+    private PublishMsg newWillMsg(String topic, boolean retained) {
+        return PublishMsg.builder()
+                .topicName(topic)
+                .payload("offline".getBytes(StandardCharsets.UTF_8))
+                .isRetained(retained)
+                .properties(new MqttProperties())
+                .build();
+    }
+
     private void verifyPersistPublishMsg(VerificationMode mode) {
         verify(lastWillService, mode).scheduleLastWill(any(), any(), anyInt());
     }
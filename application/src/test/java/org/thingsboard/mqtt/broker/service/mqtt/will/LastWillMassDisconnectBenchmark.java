@@ -0,0 +1,148 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.mqtt.will;
+
+import io.netty.handler.codec.mqtt.MqttProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.mqtt.broker.common.data.ClientInfo;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.data.ConnectionInfo;
+import org.thingsboard.mqtt.broker.common.data.SessionInfo;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.retain.RetainedMsgProcessor;
+import org.thingsboard.mqtt.broker.service.processing.MsgDispatcherService;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgCallback;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgToPersist;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgWithId;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disconnects many clients with last will messages at once and reports the time to schedule the wills and to deliver
+ * the last of them. Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+@RunWith(MockitoJUnitRunner.class)
+public class LastWillMassDisconnectBenchmark {
+
+    private static final String SERVICE_ID = "serviceId";
+    private static final int NUMBER_OF_CLIENTS = 100_000;
+    private static final int WILL_DELAY_SEC = 1;
+
+    private DefaultLastWillService lastWillService;
+    private CountDownLatch deliveredLatch;
+
+    @Before
+    public void before() {
+        deliveredLatch = new CountDownLatch(NUMBER_OF_CLIENTS);
+        MsgDispatcherService msgDispatcherService = new MsgDispatcherService() {
+            @Override
+            public void persistPublishMsg(SessionInfo sessionInfo, PublishMsg publishMsg, TbQueueCallback callback) {
+                deliveredLatch.countDown();
+            }
+
+            @Override
+            public void persistPublishMsgs(List<PublishMsgToPersist> publishMsgs) {
+                publishMsgs.forEach(publishMsg -> deliveredLatch.countDown());
+            }
+
+            @Override
+            public void processPublishMsg(PublishMsgWithId publishMsgWithId, PublishMsgCallback callback) {
+            }
+        };
+        lastWillService = new DefaultLastWillService(msgDispatcherService,
+                Mockito.mock(RetainedMsgProcessor.class), Mockito.mock(StatsManager.class));
+        lastWillService.setTickDurationMs(100);
+        lastWillService.setTicksPerWheel(512);
+        lastWillService.setBatchSize(1000);
+        lastWillService.init();
+    }
+
+    @After
+    public void after() {
+        lastWillService.destroy();
+    }
+
+    @Test
+    public void testMassDisconnectWithoutWillDelay() throws Exception {
+        runMassDisconnect(false);
+    }
+
+    @Test
+    public void testMassDisconnectWithWillDelay() throws Exception {
+        runMassDisconnect(true);
+    }
+
+    private void runMassDisconnect(boolean withWillDelay) throws Exception {
+        List<SessionInfo> sessions = new ArrayList<>(NUMBER_OF_CLIENTS);
+        for (int i = 0; i < NUMBER_OF_CLIENTS; i++) {
+            SessionInfo sessionInfo = new SessionInfo(SERVICE_ID, UUID.randomUUID(), false, 0,
+                    new ClientInfo("client_" + i, ClientType.DEVICE), new ConnectionInfo(0, 0, 0));
+            lastWillService.saveLastWillMsg(sessionInfo, newWillMsg(i, withWillDelay));
+            sessions.add(sessionInfo);
+        }
+
+        long heapBefore = usedHeap();
+        long startTime = System.nanoTime();
+        for (SessionInfo sessionInfo : sessions) {
+            lastWillService.removeAndExecuteLastWillIfNeeded(sessionInfo.getSessionId(), true, true, -1);
+        }
+        long scheduledTime = System.nanoTime();
+        long heapAfterScheduling = usedHeap();
+
+        boolean delivered = deliveredLatch.await(30, TimeUnit.SECONDS);
+        long endTime = System.nanoTime();
+        Assert.assertTrue(delivered);
+
+        log.info("Will delay {} sec, clients {}: scheduling took {} ms, time-to-last-will-delivered {} ms, heap growth while scheduled ~{} MB",
+                withWillDelay ? WILL_DELAY_SEC : 0, NUMBER_OF_CLIENTS, TimeUnit.NANOSECONDS.toMillis(scheduledTime - startTime),
+                TimeUnit.NANOSECONDS.toMillis(endTime - startTime), (heapAfterScheduling - heapBefore) / 1024 / 1024);
+    }
+
+    private PublishMsg newWillMsg(int i, boolean withWillDelay) {
+        MqttProperties properties = new MqttProperties();
+        if (withWillDelay) {
+            properties.add(new MqttProperties.IntegerProperty(BrokerConstants.WILL_DELAY_INTERVAL_PROP_ID, WILL_DELAY_SEC));
+        }
+        return PublishMsg.builder()
+                .topicName("devices/" + i + "/status")
+                .payload("offline".getBytes(StandardCharsets.UTF_8))
+                .qosLevel(1)
+                .properties(properties)
+                .build();
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
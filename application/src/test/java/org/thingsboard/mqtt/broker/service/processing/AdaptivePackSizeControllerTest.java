@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptivePackSizeControllerTest {
+
+    @Test
+    public void givenDisabledController_whenPackProcessed_thenPackIsNotLimitedAndNoLinger() {
+        AdaptivePackSizeController controller = new AdaptivePackSizeController("test", newConfiguration(false));
+
+        controller.onPackProcessed(10, TimeUnit.MILLISECONDS.toNanos(1), 0);
+
+        assertEquals(Integer.MAX_VALUE, controller.getPackSize());
+        assertEquals(0, controller.getLingerMs());
+    }
+
+    @Test
+    public void givenBacklogAndFastPacks_whenPackProcessed_thenPackSizeGrowsUpToMax() {
+        AdaptivePackSizeController controller = new AdaptivePackSizeController("test", newConfiguration(true));
+        assertEquals(50, controller.getPackSize());
+
+        controller.onPackProcessed(50, TimeUnit.MILLISECONDS.toNanos(5), 1000);
+        assertEquals(100, controller.getPackSize());
+
+        for (int i = 0; i < 10; i++) {
+            controller.onPackProcessed(controller.getPackSize(), TimeUnit.MILLISECONDS.toNanos(5), 1000);
+        }
+        assertEquals(1000, controller.getPackSize());
+        assertEquals(0, controller.getLingerMs());
+    }
+
+    @Test
+    public void givenSlowPack_whenPackProcessed_thenPackSizeIsHalvedDownToMin() {
+        AdaptivePackSizeController controller = new AdaptivePackSizeController("test", newConfiguration(true));
+        for (int i = 0; i < 5; i++) {
+            controller.onPackProcessed(controller.getPackSize(), TimeUnit.MILLISECONDS.toNanos(5), 1000);
+        }
+        assertEquals(1000, controller.getPackSize());
+
+        controller.onPackProcessed(1000, TimeUnit.MILLISECONDS.toNanos(80), 1000);
+        assertEquals(500, controller.getPackSize());
+
+        for (int i = 0; i < 10; i++) {
+            controller.onPackProcessed(controller.getPackSize(), TimeUnit.MILLISECONDS.toNanos(80), 1000);
+        }
+        assertEquals(50, controller.getPackSize());
+    }
+
+    @Test
+    public void givenNoBacklog_whenPackProcessed_thenLingerWithinUnusedTargetLatency() {
+        AdaptivePackSizeController controller = new AdaptivePackSizeController("test", newConfiguration(true));
+
+        controller.onPackProcessed(1, TimeUnit.MILLISECONDS.toNanos(1), 0);
+        assertEquals(10, controller.getLingerMs());
+
+        controller.onPackProcessed(40, TimeUnit.MILLISECONDS.toNanos(45), 0);
+        assertEquals(5, controller.getLingerMs());
+
+        controller.onPackProcessed(40, TimeUnit.MILLISECONDS.toNanos(60), 0);
+        assertEquals(0, controller.getLingerMs());
+        assertEquals(50, controller.getPackSize());
+    }
+
+    private AdaptivePollConfiguration newConfiguration(boolean enabled) {
+        AdaptivePollConfiguration configuration = new AdaptivePollConfiguration();
+        configuration.setEnabled(enabled);
+        configuration.setTargetLatencyMs(50);
+        configuration.setMinPackSize(50);
+        configuration.setMaxPackSize(1000);
+        configuration.setMaxLingerMs(10);
+        return configuration;
+    }
+}
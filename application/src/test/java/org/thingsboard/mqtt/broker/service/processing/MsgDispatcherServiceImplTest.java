@@ -15,22 +15,30 @@
  */
 package org.thingsboard.mqtt.broker.service.processing;
 
+import io.netty.handler.codec.mqtt.MqttProperties;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.mqtt.broker.actors.client.service.subscription.SubscriptionService;
 import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.common.data.ClientInfo;
 import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
 import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.data.SessionInfo;
 import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.stats.MessagesStats;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
 import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
 import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
 import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
 import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCache;
 import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManager;
 import org.thingsboard.mqtt.broker.service.processing.data.MsgSubscriptions;
@@ -49,14 +57,20 @@ import org.thingsboard.mqtt.broker.service.subscription.shared.TopicSharedSubscr
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
@@ -437,6 +451,28 @@ public class MsgDispatcherServiceImplTest {
         assertTrue(appClientIds.containsAll(List.of("clientId1", "clientId2")));
     }
 
+    @Test
+    public void testPersistPublishMsgs_whenOneMsgFails_thenRestOfBatchSentAndFlushedOnce() {
+        ReflectionTestUtils.setField(msgDispatcherService, "producerStats", mock(MessagesStats.class));
+        SessionInfo sessionInfo = SessionInfo.builder()
+                .sessionId(UUID.randomUUID())
+                .clientInfo(new ClientInfo("c1", ClientType.DEVICE))
+                .build();
+        TbQueueCallback failingCallback = mock(TbQueueCallback.class);
+        TbQueueCallback callback = mock(TbQueueCallback.class);
+        PublishMsg invalidMsg = PublishMsg.builder().payload(new byte[0]).properties(new MqttProperties()).build();
+        PublishMsg publishMsg = PublishMsg.builder().topicName(TOPIC).payload(new byte[0]).properties(new MqttProperties()).build();
+
+        msgDispatcherService.persistPublishMsgs(List.of(
+                new PublishMsgToPersist(sessionInfo, invalidMsg, failingCallback),
+                new PublishMsgToPersist(sessionInfo, publishMsg, callback)));
+
+        verify(failingCallback).onFailure(any());
+        InOrder inOrder = inOrder(publishMsgQueuePublisher);
+        inOrder.verify(publishMsgQueuePublisher, times(1)).sendMsg(argThat(msg -> TOPIC.equals(msg.getValue().getTopicName())), any());
+        inOrder.verify(publishMsgQueuePublisher, times(1)).flush();
+    }
+
     private List<String> getClientIds(Stream<Subscription> msgSubscriptions) {
         return msgSubscriptions
                 .map(subscription -> subscription.getClientSessionInfo().getClientId())
@@ -0,0 +1,241 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.processing;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.common.data.SessionInfo;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.queue.TbQueueConsumer;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.provider.PublishMsgQueueFactory;
+import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.stats.PublishMsgConsumerStats;
+import org.thingsboard.mqtt.broker.service.stats.StatsManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays bursty traffic (a trickle of single messages followed by a burst) against the msg-all consumer loop
+ * with a fixed commit cost and per-message dispatch cost, and reports the dispatch latency for fixed and adaptive packs.
+ */
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+public class PublishMsgConsumerServiceImplTest {
+
+    static final int ROUNDS = 3;
+    static final int TRICKLE_MSGS = 200;
+    static final long TRICKLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    static final int BURST_MSGS = 5000;
+    static final int MAX_POLL_RECORDS = 500;
+    static final long COMMIT_COST_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    static final long DISPATCH_COST_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+    static final int TOTAL_MSGS = ROUNDS * (TRICKLE_MSGS + BURST_MSGS);
+
+    @Mock
+    PublishMsgQueueFactory publishMsgQueueFactory;
+    @Mock
+    ServiceInfoProvider serviceInfoProvider;
+    @Mock
+    StatsManager statsManager;
+    @Mock
+    RateLimitService rateLimitService;
+
+    @Before
+    public void setUp() {
+        when(serviceInfoProvider.getServiceId()).thenReturn("test");
+        when(statsManager.createPublishMsgConsumerStats(any())).thenReturn(mock(PublishMsgConsumerStats.class));
+    }
+
+    @Test
+    public void givenBurstyTraffic_whenConsumingWithAdaptivePacks_thenAllMsgsDispatchedWithFewerCommits() throws Exception {
+        ReplayResult fixedResult = replay(false);
+        ReplayResult adaptiveResult = replay(true);
+
+        log.info("Fixed packs: {}", fixedResult);
+        log.info("Adaptive packs: {}", adaptiveResult);
+
+        assertEquals(TOTAL_MSGS, fixedResult.getDispatchedMsgs());
+        assertEquals(TOTAL_MSGS, adaptiveResult.getDispatchedMsgs());
+        assertTrue(adaptiveResult.getCommits() < fixedResult.getCommits());
+    }
+
+    private ReplayResult replay(boolean adaptive) throws Exception {
+        ReplayConsumer consumer = new ReplayConsumer();
+        ReplayMsgDispatcherService msgDispatcherService = new ReplayMsgDispatcherService(consumer);
+        when(publishMsgQueueFactory.createConsumer(any())).thenReturn(consumer);
+
+        AckStrategyConfiguration ackStrategyConfiguration = new AckStrategyConfiguration();
+        ackStrategyConfiguration.setType(AckStrategyType.SKIP_ALL);
+        AdaptivePollConfiguration adaptivePollConfiguration = new AdaptivePollConfiguration();
+        adaptivePollConfiguration.setEnabled(adaptive);
+        adaptivePollConfiguration.setTargetLatencyMs(50);
+        adaptivePollConfiguration.setMinPackSize(50);
+        adaptivePollConfiguration.setMaxPackSize(1000);
+        adaptivePollConfiguration.setMaxLingerMs(10);
+
+        PublishMsgConsumerServiceImpl publishMsgConsumerService = new PublishMsgConsumerServiceImpl(msgDispatcherService,
+                publishMsgQueueFactory, new AckStrategyFactory(ackStrategyConfiguration), new SubmitStrategyFactory(),
+                serviceInfoProvider, statsManager, rateLimitService, adaptivePollConfiguration);
+        ReflectionTestUtils.setField(publishMsgConsumerService, "threadsCount", 1);
+        ReflectionTestUtils.setField(publishMsgConsumerService, "consumersCount", 1);
+        ReflectionTestUtils.setField(publishMsgConsumerService, "pollDuration", 100L);
+        ReflectionTestUtils.setField(publishMsgConsumerService, "packProcessingTimeout", 20000L);
+
+        publishMsgConsumerService.init();
+        publishMsgConsumerService.startConsuming();
+        try {
+            int seq = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < TRICKLE_MSGS; i++) {
+                    consumer.produce(seq++, System.nanoTime());
+                    LockSupport.parkNanos(TRICKLE_INTERVAL_NANOS);
+                }
+                long burstTime = System.nanoTime();
+                for (int i = 0; i < BURST_MSGS; i++) {
+                    consumer.produce(seq++, burstTime);
+                }
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (msgDispatcherService.dispatchedMsgs.get() < TOTAL_MSGS && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            publishMsgConsumerService.destroy();
+        }
+        return new ReplayResult(msgDispatcherService.dispatchedMsgs.get(), consumer.commits.get(),
+                percentileMs(msgDispatcherService.latencies, 0.5), percentileMs(msgDispatcherService.latencies, 0.99));
+    }
+
+    private static double percentileMs(long[] latencies, double percentile) {
+        long[] sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    @Data
+    private static class ReplayResult {
+        private final int dispatchedMsgs;
+        private final int commits;
+        private final double p50LatencyMs;
+        private final double p99LatencyMs;
+    }
+
+    private static class ReplayConsumer implements TbQueueConsumer<TbProtoQueueMsg<PublishMsgProto>> {
+
+        private final BlockingQueue<TbProtoQueueMsg<PublishMsgProto>> queue = new LinkedBlockingQueue<>();
+        private final long[] producedTimes = new long[TOTAL_MSGS];
+        private final AtomicInteger commits = new AtomicInteger();
+
+        void produce(int seq, long producedTime) {
+            producedTimes[seq] = producedTime;
+            queue.add(new TbProtoQueueMsg<>(PublishMsgProto.newBuilder().setPacketId(seq).setTopicName("test").build()));
+        }
+
+        @Override
+        public String getTopic() {
+            return "tbmq.msg.all";
+        }
+
+        @Override
+        public void subscribe() {
+        }
+
+        @Override
+        public void unsubscribeAndClose() {
+        }
+
+        @Override
+        public List<TbProtoQueueMsg<PublishMsgProto>> poll(long durationInMillis) {
+            try {
+                TbProtoQueueMsg<PublishMsgProto> first = queue.poll(durationInMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return Collections.emptyList();
+                }
+                List<TbProtoQueueMsg<PublishMsgProto>> msgs = new ArrayList<>();
+                msgs.add(first);
+                queue.drainTo(msgs, MAX_POLL_RECORDS - 1);
+                return msgs;
+            } catch (InterruptedException e) {
+                return Collections.emptyList();
+            }
+        }
+
+        @Override
+        public void commitSync() {
+            commits.incrementAndGet();
+            LockSupport.parkNanos(COMMIT_COST_NANOS);
+        }
+
+        @Override
+        public String getConsumerGroupId() {
+            return "test";
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class ReplayMsgDispatcherService implements MsgDispatcherService {
+
+        private final ReplayConsumer consumer;
+        private final long[] latencies = new long[TOTAL_MSGS];
+        private final AtomicInteger dispatchedMsgs = new AtomicInteger();
+
+        @Override
+        public void persistPublishMsg(SessionInfo sessionInfo, PublishMsg publishMsg, TbQueueCallback callback) {
+        }
+
+        @Override
+        public void persistPublishMsgs(List<PublishMsgToPersist> publishMsgs) {
+        }
+
+        @Override
+        public void processPublishMsg(PublishMsgWithId publishMsgWithId, PublishMsgCallback callback) {
+            int seq = publishMsgWithId.getPublishMsgProto().getPacketId();
+            latencies[seq] = System.nanoTime() - consumer.producedTimes[seq];
+            long dispatchEnd = System.nanoTime() + DISPATCH_COST_NANOS;
+            while (System.nanoTime() < dispatchEnd) {
+                Thread.onSpinWait();
+            }
+            dispatchedMsgs.incrementAndGet();
+            callback.onSuccess();
+        }
+    }
+}
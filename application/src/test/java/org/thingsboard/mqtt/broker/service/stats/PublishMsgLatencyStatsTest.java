@@ -0,0 +1,187 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.service.stats;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.mqtt.broker.actors.client.service.subscription.SubscriptionService;
+import org.thingsboard.mqtt.broker.cluster.ServiceInfoProvider;
+import org.thingsboard.mqtt.broker.common.data.ClientInfo;
+import org.thingsboard.mqtt.broker.common.data.ClientSessionInfo;
+import org.thingsboard.mqtt.broker.common.data.ClientType;
+import org.thingsboard.mqtt.broker.common.data.SessionInfo;
+import org.thingsboard.mqtt.broker.common.data.subscription.SubscriptionOptions;
+import org.thingsboard.mqtt.broker.common.stats.DefaultStatsFactory;
+import org.thingsboard.mqtt.broker.common.stats.MessagesStats;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos.PublishMsgProto;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.service.analysis.ClientLogger;
+import org.thingsboard.mqtt.broker.service.historical.stats.TbMessageStatsReportClient;
+import org.thingsboard.mqtt.broker.service.limits.RateLimitService;
+import org.thingsboard.mqtt.broker.service.mqtt.DefaultPublishMsgDeliveryService;
+import org.thingsboard.mqtt.broker.service.mqtt.MqttMessageGenerator;
+import org.thingsboard.mqtt.broker.service.mqtt.PublishMsg;
+import org.thingsboard.mqtt.broker.service.mqtt.client.session.ClientSessionCache;
+import org.thingsboard.mqtt.broker.service.mqtt.persistence.MsgPersistenceManager;
+import org.thingsboard.mqtt.broker.service.mqtt.retransmission.RetransmissionService;
+import org.thingsboard.mqtt.broker.service.processing.MsgDispatcherServiceImpl;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgCallback;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgQueuePublisher;
+import org.thingsboard.mqtt.broker.service.processing.PublishMsgWithId;
+import org.thingsboard.mqtt.broker.service.processing.downlink.DownLinkProxy;
+import org.thingsboard.mqtt.broker.service.stats.timer.DefaultPublishMsgLatencyStats;
+import org.thingsboard.mqtt.broker.service.stats.timer.PublishMsgLatencyStage;
+import org.thingsboard.mqtt.broker.service.stats.timer.StubTimerStats;
+import org.thingsboard.mqtt.broker.service.subscription.ClientSubscription;
+import org.thingsboard.mqtt.broker.service.subscription.Subscription;
+import org.thingsboard.mqtt.broker.service.subscription.ValueWithTopicFilter;
+import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionCacheService;
+import org.thingsboard.mqtt.broker.service.subscription.shared.SharedSubscriptionProcessingStrategyFactory;
+import org.thingsboard.mqtt.broker.session.ClientSessionCtx;
+import org.thingsboard.mqtt.broker.session.TopicAliasCtx;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PublishMsgLatencyStatsTest {
+
+    private static final String TOPIC = "test/topic";
+    private static final String PUBLISHER_CLIENT_ID = "publisher";
+    private static final String SUBSCRIBER_CLIENT_ID = "subscriber";
+
+    @Mock
+    StatsManager statsManager;
+    @Mock
+    SubscriptionService subscriptionService;
+    @Mock
+    ClientSessionCache clientSessionCache;
+    @Mock
+    DownLinkProxy downLinkProxy;
+    @Mock
+    PublishMsgQueuePublisher publishMsgQueuePublisher;
+    @Mock
+    SharedSubscriptionCacheService sharedSubscriptionCacheService;
+    @Mock
+    RateLimitService rateLimitService;
+
+    PrometheusMeterRegistry meterRegistry;
+    MsgDispatcherServiceImpl msgDispatcherService;
+    DefaultPublishMsgDeliveryService publishMsgDeliveryService;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        StubTimerStats stubTimerStats = new StubTimerStats();
+        when(statsManager.getPublishMsgLatencyStats()).thenReturn(new DefaultPublishMsgLatencyStats(new DefaultStatsFactory(meterRegistry)));
+        when(statsManager.getPublishMsgProcessingTimerStats()).thenReturn(stubTimerStats);
+        when(statsManager.getDeliveryTimerStats()).thenReturn(stubTimerStats);
+        when(statsManager.createMsgDispatcherPublishStats()).thenReturn(mock(MessagesStats.class));
+        when(statsManager.wrapTbQueueCallback(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        msgDispatcherService = new MsgDispatcherServiceImpl(subscriptionService, statsManager, mock(MsgPersistenceManager.class),
+                clientSessionCache, downLinkProxy, mock(ClientLogger.class), publishMsgQueuePublisher,
+                mock(SharedSubscriptionProcessingStrategyFactory.class), sharedSubscriptionCacheService,
+                mock(TbMessageStatsReportClient.class), mock(ServiceInfoProvider.class), rateLimitService);
+        msgDispatcherService.init();
+        publishMsgDeliveryService = new DefaultPublishMsgDeliveryService(mock(MqttMessageGenerator.class),
+                mock(RetransmissionService.class), statsManager, mock(TbMessageStatsReportClient.class));
+        ReflectionTestUtils.setField(publishMsgDeliveryService, "writeAndFlush", true);
+    }
+
+    /**
+     * Passes a QoS 0 message through the produce, consume, dispatch and delivery stages, with the queue and the downlink
+     * hop replaced by the captured messages.
+     */
+    @Test
+    public void givenPublishMsgPassedThroughPipeline_whenDelivered_thenAllStageHistogramsArePopulated() {
+        PublishMsg publishMsg = PublishMsg.builder()
+                .topicName(TOPIC)
+                .payload("test".getBytes(StandardCharsets.UTF_8))
+                .qosLevel(0)
+                .properties(MqttProperties.NO_PROPERTIES)
+                .receivedTimeNanos(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5))
+                .build();
+        SessionInfo sessionInfo = SessionInfo.builder().clientInfo(ClientInfo.builder().clientId(PUBLISHER_CLIENT_ID).build()).build();
+        msgDispatcherService.persistPublishMsg(sessionInfo, publishMsg, mock(TbQueueCallback.class));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<TbProtoQueueMsg<PublishMsgProto>> producedMsgCaptor = ArgumentCaptor.forClass(TbProtoQueueMsg.class);
+        verify(publishMsgQueuePublisher).sendMsg(producedMsgCaptor.capture(), any());
+        PublishMsgProto producedMsg = producedMsgCaptor.getValue().getValue();
+        Assert.assertTrue(producedMsg.getTiming().getReceivedTime() > 0);
+        Assert.assertTrue(producedMsg.getTiming().getProducedTime() >= producedMsg.getTiming().getReceivedTime());
+
+        when(subscriptionService.getSubscriptions(TOPIC)).thenReturn(List.of(new ValueWithTopicFilter<>(
+                new ClientSubscription(SUBSCRIBER_CLIENT_ID, 0, null, SubscriptionOptions.newInstance()), TOPIC)));
+        when(clientSessionCache.getClientSessionInfo(SUBSCRIBER_CLIENT_ID)).thenReturn(ClientSessionInfo.builder()
+                .clientId(SUBSCRIBER_CLIENT_ID).type(ClientType.DEVICE).connected(true).cleanStart(true).build());
+        msgDispatcherService.processPublishMsg(new PublishMsgWithId(UUID.randomUUID(), producedMsg, null), mock(PublishMsgCallback.class));
+
+        ArgumentCaptor<PublishMsgProto> dispatchedMsgCaptor = ArgumentCaptor.forClass(PublishMsgProto.class);
+        verify(downLinkProxy).sendBasicMsg(any(Subscription.class), dispatchedMsgCaptor.capture());
+        PublishMsgProto dispatchedMsg = dispatchedMsgCaptor.getValue();
+        Assert.assertTrue(dispatchedMsg.getTiming().getDispatchedTime() >= producedMsg.getTiming().getProducedTime());
+
+        publishMsgDeliveryService.sendPublishMsgProtoToClient(newClientSessionCtx(), dispatchedMsg);
+
+        String scrape = meterRegistry.scrape();
+        for (PublishMsgLatencyStage stage : PublishMsgLatencyStage.values()) {
+            Timer timer = meterRegistry.get(StatsType.PUBLISH_MSG_LATENCY.getPrintName()).tag("stage", stage.getPrintName()).timer();
+            Assert.assertEquals(stage.name(), 1, timer.count());
+            Assert.assertTrue(stage.name(), scrape.contains("publishMsgLatency_seconds_bucket{stage=\"" + stage.getPrintName() + "\""));
+        }
+        Timer endToEndTimer = meterRegistry.get(StatsType.PUBLISH_MSG_LATENCY.getPrintName())
+                .tag("stage", PublishMsgLatencyStage.END_TO_END.getPrintName()).timer();
+        Assert.assertTrue(endToEndTimer.totalTime(TimeUnit.MILLISECONDS) >= 5);
+    }
+
+    @Test
+    public void givenPublishMsgWithoutTiming_whenDelivered_thenHistogramsAreNotPopulated() {
+        PublishMsgProto publishMsgProto = PublishMsgProto.newBuilder().setTopicName(TOPIC).setClientId(PUBLISHER_CLIENT_ID).build();
+
+        publishMsgDeliveryService.sendPublishMsgProtoToClient(newClientSessionCtx(), publishMsgProto);
+
+        Timer endToEndTimer = meterRegistry.get(StatsType.PUBLISH_MSG_LATENCY.getPrintName())
+                .tag("stage", PublishMsgLatencyStage.END_TO_END.getPrintName()).timer();
+        Assert.assertEquals(0, endToEndTimer.count());
+    }
+
+    private ClientSessionCtx newClientSessionCtx() {
+        ClientSessionCtx clientSessionCtx = new ClientSessionCtx();
+        clientSessionCtx.setTopicAliasCtx(new TopicAliasCtx(false, 0));
+        return clientSessionCtx;
+    }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.actors.TbActorMailbox;
+import org.thingsboard.mqtt.broker.actors.TbTypeActorId;
+import org.thingsboard.mqtt.broker.actors.client.state.DefaultClientActorState;
+import org.thingsboard.mqtt.broker.actors.client.state.PubResponseProcessingCtx;
+import org.thingsboard.mqtt.broker.actors.client.state.SessionState;
+import org.thingsboard.mqtt.broker.common.data.id.ActorType;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.server.MqttHandlerCtx;
+
+import java.lang.ref.Reference;
+import java.util.LinkedList;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Keeps the per-connection state of many idle sessions, each of which has published one QoS 1 and one QoS 2 message,
+ * and reports the heap retained per session, together with the heap the collections allocated eagerly per session
+ * before they were made lazy would take on top of it. Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+public class IdleSessionMemoryFootprintBenchmark {
+
+    static final int SESSIONS = 100_000;
+
+    @Test
+    public void givenIdleSessions_whenMeasureRetainedHeap_thenReportBytesPerSession() throws Exception {
+        MqttHandlerCtx mqttHandlerCtx = mock(MqttHandlerCtx.class);
+        when(mqttHandlerCtx.getMaxInFlightMsgs()).thenReturn(BrokerConstants.MAX_IN_FLIGHT_MESSAGES);
+        when(mqttHandlerCtx.isRetransmissionEnabled()).thenReturn(true);
+
+        Object[] sessions = new Object[SESSIONS];
+        long heapBefore = usedHeap();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions[i] = newIdleSession(mqttHandlerCtx, "client-" + i);
+        }
+        long sessionsHeap = usedHeap() - heapBefore;
+
+        Object[] eagerCollections = new Object[SESSIONS];
+        heapBefore = usedHeap();
+        for (int i = 0; i < SESSIONS; i++) {
+            eagerCollections[i] = newEagerCollections();
+        }
+        long eagerCollectionsHeap = usedHeap() - heapBefore;
+
+        log.info("Idle session state: {} bytes per session, the collections allocated eagerly before: {} bytes per session more",
+                sessionsHeap / SESSIONS, eagerCollectionsHeap / SESSIONS);
+
+        ClientSessionCtx sessionCtx = (ClientSessionCtx) ((Object[]) sessions[SESSIONS - 1])[0];
+        assertTrue(sessionCtx.getAwaitingPubRelPacketsCtx().getAwaitingPackets().isEmpty());
+        assertNull(sessionCtx.getTopicAliasCtx().getClientMappings());
+        Reference.reachabilityFence(eagerCollections);
+    }
+
+    private Object[] newIdleSession(MqttHandlerCtx mqttHandlerCtx, String clientId) {
+        ClientSessionCtx sessionCtx = new ClientSessionCtx(mqttHandlerCtx, UUID.randomUUID(), null, BrokerConstants.TCP);
+        sessionCtx.setTopicAliasCtx(new TopicAliasCtx(true, 10));
+
+        DefaultClientActorState actorState = new DefaultClientActorState(clientId, false, 100);
+        actorState.setClientSessionCtx(sessionCtx);
+        actorState.updateSessionState(SessionState.CONNECTED);
+        TbActorMailbox mailbox = new TbActorMailbox(null, null, new TbTypeActorId(ActorType.CLIENT, clientId), null, null, null);
+
+        PubResponseProcessingCtx pubResponseProcessingCtx = sessionCtx.getPubResponseProcessingCtx();
+        pubResponseProcessingCtx.getQos1PubAckResponseMessages().addAwaiting(1);
+        pubResponseProcessingCtx.getQos1PubAckResponseMessages().finish(1);
+        pubResponseProcessingCtx.getQos2PubRecResponseMessages().addAwaiting(2);
+        pubResponseProcessingCtx.getQos2PubRecResponseMessages().finishAll(2);
+        sessionCtx.getAwaitingPubRelPacketsCtx().await(clientId, 2);
+        sessionCtx.getAwaitingPubRelPacketsCtx().complete(clientId, 2);
+
+        return new Object[]{sessionCtx, actorState, mailbox};
+    }
+
+    private Object[] newEagerCollections() {
+        return new Object[]{
+                // pending publishes and awaiting PUBREL packets
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                // awaiting and finished messages of the QoS 1 and QoS 2 responses
+                new LinkedList<>(), new LinkedList<>(), new LinkedList<>(), new LinkedList<>(),
+                // persisted messages waiting for the responses on the event loop
+                new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(),
+                // topic alias mappings
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                // pre-connect queue and the mailbox queues
+                new LinkedList<>(), new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>()
+        };
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
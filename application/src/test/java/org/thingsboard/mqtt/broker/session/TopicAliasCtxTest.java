@@ -42,6 +42,16 @@ public class TopicAliasCtxTest {
         Assert.assertNull(topicNameByAlias);
     }
 
+    @Test
+    public void givenPubMsgWithoutTopicAlias_whenGetTopicNameByAlias_thenMappingsAreNotCreated() {
+        topicAliasCtx = new TopicAliasCtx(true, 5);
+
+        topicAliasCtx.getTopicNameByAlias(PublishMsg.builder().properties(new MqttProperties()).build());
+
+        Assert.assertNull(topicAliasCtx.getClientMappings());
+        Assert.assertNull(topicAliasCtx.getServerMappings());
+    }
+
     @Test(expected = MqttException.class)
     public void givenPubMsgWithTopicAliasAndAbsentTopicAndMapping_whenGetTopicNameByAlias_thenThrownException() {
         topicAliasCtx = new TopicAliasCtx(true, 5);
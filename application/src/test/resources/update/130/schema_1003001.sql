@@ -0,0 +1,66 @@
+--
+-- Copyright © 2016-2024 The Thingsboard Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- The tables touched by the upgrade from 1.3.0 as they are in a 1.3.0 install with schema version 1003001.
+
+CREATE TABLE IF NOT EXISTS tb_schema_settings (
+    schema_version bigint NOT NULL,
+    CONSTRAINT tb_schema_settings_pkey PRIMARY KEY (schema_version)
+);
+
+INSERT INTO tb_schema_settings (schema_version) VALUES (1003001);
+
+CREATE TABLE IF NOT EXISTS device_publish_msg (
+    client_id varchar(255) NOT NULL,
+    serial_number bigint NOT NULL,
+    topic varchar NOT NULL,
+    time bigint NOT NULL,
+    packet_id int,
+    packet_type varchar(255),
+    qos int NOT NULL,
+    payload bytea NOT NULL,
+    user_properties varchar,
+    retain boolean,
+    msg_expiry_interval int,
+    payload_format_indicator int,
+    content_type varchar(255),
+    response_topic varchar(255),
+    correlation_data bytea,
+    CONSTRAINT device_publish_msg_pkey PRIMARY KEY (client_id, serial_number)
+);
+
+CREATE TABLE IF NOT EXISTS application_session_ctx (
+    client_id varchar(255) NOT NULL CONSTRAINT application_session_ctx_pkey PRIMARY KEY,
+    last_updated_time bigint NOT NULL,
+    publish_msg_infos varchar,
+    pubrel_msg_infos varchar
+);
+
+CREATE TABLE IF NOT EXISTS ts_kv (
+    entity_id varchar (255) NOT NULL,
+    key int NOT NULL,
+    ts bigint NOT NULL,
+    long_v bigint,
+    CONSTRAINT ts_kv_pkey PRIMARY KEY (entity_id, key, ts)
+) PARTITION BY RANGE (ts);
+
+-- 2024-01-01T00:00:00Z to 2024-02-01T00:00:00Z
+CREATE TABLE IF NOT EXISTS ts_kv_2024_01 PARTITION OF ts_kv FOR VALUES FROM (1704067200000) TO (1706745600000);
+
+-- two values in the first hour of 2024-01-01 and one in the second hour
+INSERT INTO ts_kv (entity_id, key, ts, long_v) VALUES ('serviceId', 1, 1704067200000, 10);
+INSERT INTO ts_kv (entity_id, key, ts, long_v) VALUES ('serviceId', 1, 1704067260000, 30);
+INSERT INTO ts_kv (entity_id, key, ts, long_v) VALUES ('serviceId', 1, 1704070800000, 5);
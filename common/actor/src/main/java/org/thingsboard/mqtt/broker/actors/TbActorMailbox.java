@@ -15,7 +15,10 @@
  */
 package org.thingsboard.mqtt.broker.actors;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.mqtt.broker.actors.msg.TbActorMsg;
 
@@ -23,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -39,14 +43,26 @@ public final class TbActorMailbox implements TbActorCtx {
     private static final boolean NOT_READY = false;
     private static final boolean READY = true;
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TbActorMailbox, ConcurrentLinkedQueue> HIGH_PRIORITY_MSGS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TbActorMailbox.class, ConcurrentLinkedQueue.class, "highPriorityMsgs");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TbActorMailbox, ConcurrentLinkedQueue> NORMAL_PRIORITY_MSGS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(TbActorMailbox.class, ConcurrentLinkedQueue.class, "normalPriorityMsgs");
+
     private final TbActorSystem system;
     private final TbActorSystemSettings settings;
     private final TbActorId selfId;
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    // the queues are created with the first message of the priority, most of the actors never get high priority messages
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
@@ -101,16 +117,16 @@ public final class TbActorMailbox implements TbActorCtx {
             return;
         }
         if (highPriority) {
-            highPriorityMsgs.add(msg);
+            getOrCreateQueue(HIGH_PRIORITY_MSGS_UPDATER).add(msg);
         } else {
-            normalPriorityMsgs.add(msg);
+            getOrCreateQueue(NORMAL_PRIORITY_MSGS_UPDATER).add(msg);
         }
         tryProcessQueue(true);
     }
 
     private void tryProcessQueue(boolean newMsg) {
         if (ready.get() == READY) {
-            if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
+            if (newMsg || !isEmpty(highPriorityMsgs) || !isEmpty(normalPriorityMsgs)) {
                 if (busy.compareAndSet(FREE, BUSY)) {
                     dispatcher.getExecutor().execute(this::processMailbox);
                 } else {
@@ -133,9 +149,9 @@ public final class TbActorMailbox implements TbActorCtx {
     private void processMailbox() {
         boolean noMoreElements = false;
         for (int i = 0; i < settings.getActorThroughput(); i++) {
-            TbActorMsg msg = highPriorityMsgs.poll();
+            TbActorMsg msg = poll(highPriorityMsgs);
             if (msg == null) {
-                msg = normalPriorityMsgs.poll();
+                msg = poll(normalPriorityMsgs);
             }
             if (msg != null) {
                 try {
@@ -165,6 +181,35 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    @SuppressWarnings("rawtypes")
+    private ConcurrentLinkedQueue<TbActorMsg> getOrCreateQueue(AtomicReferenceFieldUpdater<TbActorMailbox, ConcurrentLinkedQueue> updater) {
+        ConcurrentLinkedQueue<TbActorMsg> queue = getQueue(updater);
+        if (queue == null) {
+            updater.compareAndSet(this, null, new ConcurrentLinkedQueue<TbActorMsg>());
+            queue = getQueue(updater);
+        }
+        return queue;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private ConcurrentLinkedQueue<TbActorMsg> getQueue(AtomicReferenceFieldUpdater<TbActorMailbox, ConcurrentLinkedQueue> updater) {
+        return updater.get(this);
+    }
+
+    private static boolean isEmpty(ConcurrentLinkedQueue<TbActorMsg> queue) {
+        return queue == null || queue.isEmpty();
+    }
+
+    private static TbActorMsg poll(ConcurrentLinkedQueue<TbActorMsg> queue) {
+        return queue != null ? queue.poll() : null;
+    }
+
+    private void onTbActorStopped(ConcurrentLinkedQueue<TbActorMsg> queue) {
+        if (queue != null) {
+            queue.forEach(msg -> msg.onTbActorStopped(selfId));
+        }
+    }
+
     @Override
     public TbActorId getSelf() {
         return selfId;
@@ -211,8 +256,8 @@ public final class TbActorMailbox implements TbActorCtx {
             try {
                 ready.set(NOT_READY);
                 actor.destroy();
-                highPriorityMsgs.forEach(msg -> msg.onTbActorStopped(selfId));
-                normalPriorityMsgs.forEach(msg -> msg.onTbActorStopped(selfId));
+                onTbActorStopped(highPriorityMsgs);
+                onTbActorStopped(normalPriorityMsgs);
             } catch (Throwable t) {
                 log.warn("[{}] Failed to destroy actor", selfId, t);
             }
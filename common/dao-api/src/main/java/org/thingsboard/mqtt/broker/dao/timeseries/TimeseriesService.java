@@ -36,7 +36,18 @@ public interface TimeseriesService {
 
     ListenableFuture<Void> save(String entityId, TsKvEntry tsKvEntry);
 
+    /**
+     * Writes the entries directly with a single multi-row upsert, bypassing the timeseries batching queue.
+     * Entries must be unique by (key, ts).
+     */
+    ListenableFuture<Void> saveBatch(String entityId, List<TsKvEntry> tsKvEntries);
+
     ListenableFuture<List<Void>> remove(String entityId, List<TsKvQuery> queries);
 
     CleanUpResult cleanUp(long systemTtl);
+
+    /**
+     * Removes the hourly and daily rollup buckets that are older than the corresponding TTL in seconds. 0 - buckets are never expired.
+     */
+    CleanUpResult cleanUpRollups(long hourlyTtl, long dailyTtl);
 }
@@ -33,5 +33,6 @@ public class ClientSessionQuery {
     private List<Boolean> cleanStartList;
     private List<String> nodeIdList;
     private Integer subscriptions;
+    private String afterClientId;
 
 }
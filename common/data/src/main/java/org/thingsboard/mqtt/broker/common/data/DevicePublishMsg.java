@@ -37,5 +37,6 @@ public class DevicePublishMsg {
     private byte[] payload;
     private MqttProperties properties;
     private boolean isRetained;
+    private boolean payloadCompressed;
 
 }
@@ -58,6 +58,18 @@ public final class SubscriptionOptions {
         }
     }
 
+    // one shared instance per combination of the options, the options are immutable and most subscriptions use the same ones
+    private static final SubscriptionOptions[] CANONICAL_OPTIONS = new SubscriptionOptions[4 * RetainHandlingPolicy.values().length];
+
+    static {
+        for (RetainHandlingPolicy retainHandling : RetainHandlingPolicy.values()) {
+            for (int flags = 0; flags < 4; flags++) {
+                SubscriptionOptions options = new SubscriptionOptions((flags & 1) != 0, (flags & 2) != 0, retainHandling);
+                CANONICAL_OPTIONS[canonicalIndex(options.noLocal, options.retainAsPublish, retainHandling)] = options;
+            }
+        }
+    }
+
     private final boolean noLocal;
     private final boolean retainAsPublish;
     private final RetainHandlingPolicy retainHandling;
@@ -69,7 +81,7 @@ public final class SubscriptionOptions {
     }
 
     public static SubscriptionOptions newInstance(MqttSubscriptionOption option) {
-        return new SubscriptionOptions(
+        return of(
                 option.isNoLocal(),
                 option.isRetainAsPublished(),
                 RetainHandlingPolicy.valueOf(option.retainHandling().value())
@@ -77,7 +89,25 @@ public final class SubscriptionOptions {
     }
 
     public static SubscriptionOptions newInstance() {
-        return new SubscriptionOptions(false, false, RetainHandlingPolicy.SEND_AT_SUBSCRIBE);
+        return of(false, false, RetainHandlingPolicy.SEND_AT_SUBSCRIBE);
+    }
+
+    public static SubscriptionOptions of(boolean noLocal, boolean retainAsPublish, RetainHandlingPolicy retainHandling) {
+        return CANONICAL_OPTIONS[canonicalIndex(noLocal, retainAsPublish, retainHandling)];
+    }
+
+    /**
+     * Returns the shared instance equal to the given options, e.g. to drop the copies created on deserialization.
+     */
+    public static SubscriptionOptions canonical(SubscriptionOptions options) {
+        if (options == null || options.retainHandling == null) {
+            return options;
+        }
+        return of(options.noLocal, options.retainAsPublish, options.retainHandling);
+    }
+
+    private static int canonicalIndex(boolean noLocal, boolean retainAsPublish, RetainHandlingPolicy retainHandling) {
+        return retainHandling.ordinal() * 4 + (noLocal ? 1 : 0) + (retainAsPublish ? 2 : 0);
     }
 
     public boolean isNoLocalOptionMet(String receiverClientId, String senderClientId) {
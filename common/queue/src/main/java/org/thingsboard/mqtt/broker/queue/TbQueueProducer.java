@@ -23,5 +23,10 @@ public interface TbQueueProducer<T extends TbQueueMsg> {
 
     void send(String topic, Integer partition, T msg, TbQueueCallback callback);
 
+    /**
+     * Sends the buffered msgs right away and waits until they are acknowledged.
+     */
+    void flush();
+
     void stop();
 }
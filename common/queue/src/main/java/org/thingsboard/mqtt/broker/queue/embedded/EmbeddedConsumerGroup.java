@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Committed offsets and members of a consumer group. Partitions of a subscribed topic are spread over the members
+ * of the group that subscribed to it ({@code partition % membersCount}); every join or leave bumps the topic generation
+ * so the members pick up the new assignment on their next poll.
+ */
+class EmbeddedConsumerGroup {
+
+    @Getter
+    private final String groupId;
+    private final ConcurrentMap<String, ConcurrentMap<Integer, Long>> committedOffsets = new ConcurrentHashMap<>();
+    private final Map<String, List<Object>> members = new HashMap<>();
+    private final Map<String, Integer> generations = new HashMap<>();
+
+    @Getter
+    private volatile boolean dirty;
+
+    EmbeddedConsumerGroup(String groupId) {
+        this.groupId = groupId;
+    }
+
+    synchronized void join(String topic, Object member) {
+        List<Object> topicMembers = members.computeIfAbsent(topic, t -> new ArrayList<>());
+        if (!topicMembers.contains(member)) {
+            topicMembers.add(member);
+            generations.merge(topic, 1, Integer::sum);
+        }
+    }
+
+    synchronized void leave(Object member) {
+        members.forEach((topic, topicMembers) -> {
+            if (topicMembers.remove(member)) {
+                generations.merge(topic, 1, Integer::sum);
+            }
+        });
+    }
+
+    synchronized int getGeneration(String topic) {
+        return generations.getOrDefault(topic, 0);
+    }
+
+    synchronized List<Integer> getAssignment(String topic, Object member, int partitionsCount) {
+        List<Object> topicMembers = members.getOrDefault(topic, List.of());
+        int memberIdx = topicMembers.indexOf(member);
+        List<Integer> assignment = new ArrayList<>();
+        if (memberIdx >= 0) {
+            for (int partition = memberIdx; partition < partitionsCount; partition += topicMembers.size()) {
+                assignment.add(partition);
+            }
+        }
+        return assignment;
+    }
+
+    synchronized int getMembersCount() {
+        return (int) members.values().stream().flatMap(List::stream).distinct().count();
+    }
+
+    void commit(String topic, int partition, long offset) {
+        committedOffsets.computeIfAbsent(topic, t -> new ConcurrentHashMap<>()).put(partition, offset);
+        dirty = true;
+    }
+
+    Optional<Long> getCommittedOffset(String topic, int partition) {
+        Map<Integer, Long> topicOffsets = committedOffsets.get(topic);
+        return Optional.ofNullable(topicOffsets != null ? topicOffsets.get(partition) : null);
+    }
+
+    Map<String, ConcurrentMap<Integer, Long>> getCommittedOffsets() {
+        return committedOffsets;
+    }
+
+    void removeTopic(String topic) {
+        if (committedOffsets.remove(topic) != null) {
+            dirty = true;
+        }
+    }
+
+    void markClean() {
+        dirty = false;
+    }
+}
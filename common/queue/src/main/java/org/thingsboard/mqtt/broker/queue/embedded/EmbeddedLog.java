@@ -0,0 +1,280 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsgHeaders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append log of one topic partition split into {@link EmbeddedLogSegment}s. Only the last (active) segment is written;
+ * closed segments are either deleted by retention or rewritten by compaction.
+ */
+@Slf4j
+class EmbeddedLog {
+
+    private static final String COMPACTED_SUFFIX = ".compacted";
+
+    @Getter
+    private final int partition;
+    private final File dir;
+    private final int segmentSizeBytes;
+    private final ConcurrentSkipListMap<Long, EmbeddedLogSegment> segments = new ConcurrentSkipListMap<>();
+    private final Lock lock = new ReentrantLock();
+
+    private volatile EmbeddedLogSegment activeSegment;
+    @Getter
+    private volatile long endOffset;
+
+    EmbeddedLog(File dir, int partition, int segmentSizeBytes) throws IOException {
+        this.dir = dir;
+        this.partition = partition;
+        this.segmentSizeBytes = segmentSizeBytes;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create log directory " + dir);
+        }
+        load();
+    }
+
+    long append(long timestamp, String key, TbQueueMsgHeaders headers, byte[] data) throws IOException {
+        lock.lock();
+        try {
+            long offset = endOffset;
+            if (!activeSegment.append(offset, timestamp, key, headers, data)) {
+                int size = EmbeddedLogSegment.recordSize(key, headers, data);
+                roll(offset, Math.max(segmentSizeBytes, size + 4));
+                activeSegment.append(offset, timestamp, key, headers, data);
+            }
+            endOffset = offset + 1;
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getStartOffset() {
+        for (EmbeddedLogSegment segment : segments.values()) {
+            if (!segment.isEmpty()) {
+                return segment.offsetAt(0);
+            }
+        }
+        return endOffset;
+    }
+
+    /**
+     * Reads up to {@code maxRecords} records with offsets starting from {@code fromOffset} into {@code result}.
+     *
+     * @return the offset to continue reading from
+     */
+    long read(long fromOffset, int maxRecords, List<EmbeddedTbQueueMsg> result) {
+        long nextOffset = fromOffset;
+        Map.Entry<Long, EmbeddedLogSegment> entry = segments.floorEntry(fromOffset);
+        if (entry == null) {
+            entry = segments.firstEntry();
+        }
+        int read = 0;
+        while (entry != null && read < maxRecords) {
+            EmbeddedLogSegment segment = entry.getValue();
+            int count = segment.getCount();
+            for (int idx = segment.indexOf(nextOffset); idx < count && read < maxRecords; idx++) {
+                EmbeddedTbQueueMsg msg = segment.read(idx, partition);
+                result.add(msg);
+                nextOffset = msg.getOffset() + 1;
+                read++;
+            }
+            if (read < maxRecords) {
+                // skip the gaps left by compaction up to the start of the next segment
+                entry = segments.higherEntry(entry.getKey());
+                if (entry != null) {
+                    nextOffset = Math.max(nextOffset, entry.getKey());
+                }
+            }
+        }
+        return nextOffset;
+    }
+
+    long getSizeBytes() {
+        long size = 0;
+        for (EmbeddedLogSegment segment : segments.values()) {
+            size += segment.getSizeBytes();
+        }
+        return size;
+    }
+
+    /**
+     * Deletes closed segments whose last record was appended before {@code minTimestamp}.
+     */
+    void deleteSegmentsOlderThan(long minTimestamp) {
+        for (EmbeddedLogSegment segment : segments.values()) {
+            if (segment == activeSegment) {
+                return;
+            }
+            if (segment.getLastAppendTime() < minTimestamp) {
+                log.debug("[{}] Deleting segment by retention", segment.getFile());
+                segments.remove(segment.getBaseOffset());
+                segment.delete();
+            }
+        }
+    }
+
+    /**
+     * Rewrites closed segments keeping only the latest record of every key, including the records of the active segment
+     * in the key lookup. Offsets of the retained records are preserved; records without a key are always retained.
+     */
+    void compact() throws IOException {
+        EmbeddedLogSegment active = activeSegment;
+        List<EmbeddedLogSegment> closedSegments = new ArrayList<>(segments.headMap(active.getBaseOffset()).values());
+        if (closedSegments.isEmpty()) {
+            return;
+        }
+        Map<String, Long> latestOffsets = new HashMap<>();
+        for (EmbeddedLogSegment segment : segments.values()) {
+            int count = segment.getCount();
+            for (int idx = 0; idx < count; idx++) {
+                String key = segment.keyAt(idx);
+                if (key != null) {
+                    latestOffsets.put(key, segment.offsetAt(idx));
+                }
+            }
+        }
+
+        for (EmbeddedLogSegment segment : closedSegments) {
+            int count = segment.getCount();
+            List<Integer> retained = new ArrayList<>();
+            for (int idx = 0; idx < count; idx++) {
+                String key = segment.keyAt(idx);
+                if (key == null || latestOffsets.get(key) == segment.offsetAt(idx)) {
+                    retained.add(idx);
+                }
+            }
+            if (retained.size() == count) {
+                continue;
+            }
+            if (retained.isEmpty()) {
+                segments.remove(segment.getBaseOffset());
+                segment.delete();
+                continue;
+            }
+            rewriteSegment(segment, retained);
+        }
+    }
+
+    void flush() {
+        EmbeddedLogSegment segment = activeSegment;
+        if (segment != null) {
+            segment.flush();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            for (EmbeddedLogSegment segment : segments.values()) {
+                segment.flush();
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void delete() {
+        lock.lock();
+        try {
+            for (EmbeddedLogSegment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            Files.deleteIfExists(dir.toPath());
+        } catch (IOException e) {
+            log.warn("[{}] Failed to delete log directory", dir, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rewriteSegment(EmbeddedLogSegment segment, List<Integer> retained) throws IOException {
+        File compactedFile = new File(dir, segment.getFile().getName() + COMPACTED_SUFFIX);
+        Files.deleteIfExists(compactedFile.toPath());
+        EmbeddedLogSegment compacted = EmbeddedLogSegment.create(compactedFile, segment.getBaseOffset(), (int) segment.getSizeBytes() + 4);
+        for (int idx : retained) {
+            EmbeddedTbQueueMsg msg = segment.read(idx, partition);
+            compacted.append(msg.getOffset(), msg.getTimestamp(), msg.getKey(), msg.getHeaders(), msg.getData());
+        }
+        compacted.flush();
+        compacted.close();
+        Files.move(compactedFile.toPath(), segment.getFile().toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // readers that already hold the previous segment keep reading its (still mapped) data
+        segments.put(segment.getBaseOffset(), EmbeddedLogSegment.open(segment.getFile()));
+        segment.close();
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Compacted segment, {} of {} records retained", segment.getFile(), retained.size(), segment.getCount());
+        }
+    }
+
+    private void roll(long baseOffset, int capacity) throws IOException {
+        EmbeddedLogSegment previous = activeSegment;
+        if (previous != null) {
+            if (previous.isEmpty()) {
+                segments.remove(previous.getBaseOffset());
+                previous.delete();
+            } else {
+                previous.flush();
+            }
+        }
+        EmbeddedLogSegment segment = EmbeddedLogSegment.create(new File(dir, EmbeddedLogSegment.fileName(baseOffset)), baseOffset, capacity);
+        segments.put(baseOffset, segment);
+        activeSegment = segment;
+    }
+
+    private void load() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EmbeddedLogSegment.FILE_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                EmbeddedLogSegment segment = EmbeddedLogSegment.open(file);
+                segments.put(segment.getBaseOffset(), segment);
+            }
+        }
+        File[] leftovers = dir.listFiles((d, name) -> name.endsWith(COMPACTED_SUFFIX));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                Files.deleteIfExists(leftover.toPath());
+            }
+        }
+        long offset = 0;
+        for (EmbeddedLogSegment segment : new ArrayList<>(segments.values())) {
+            offset = Math.max(offset, segment.getLastOffset() + 1);
+            if (segment.isEmpty()) {
+                segments.remove(segment.getBaseOffset());
+                segment.delete();
+            }
+        }
+        endOffset = offset;
+        roll(offset, segmentSizeBytes);
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Memory-mapped append-only file holding the records of one partition starting from {@code baseOffset}.
+ * <p>
+ * Record layout: [int size][long offset][long timestamp][int keyLength][key][int headersCount]
+ * ([int nameLength][name][int valueLength][value])*[int dataLength][data], where {@code size} excludes its own 4 bytes.
+ * A zero {@code size} marks the end of the written data. Offsets inside a segment are increasing but not necessarily
+ * contiguous, since compaction drops the records that were overwritten by later records with the same key.
+ * <p>
+ * Single writer (guarded by {@link EmbeddedLog}), many readers: the record count is published through a volatile write
+ * after the record bytes and the in-memory index are in place.
+ */
+@Slf4j
+class EmbeddedLogSegment {
+
+    static final String FILE_SUFFIX = ".log";
+
+    private static final int RECORD_SIZE_BYTES = 4;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    @Getter
+    private final File file;
+    @Getter
+    private final long baseOffset;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int writePosition;
+    private volatile long[] offsets;
+    private volatile int[] positions;
+    private volatile int count;
+    @Getter
+    private volatile long lastAppendTime;
+
+    private EmbeddedLogSegment(File file, long baseOffset, int capacity) throws IOException {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.offsets = new long[INITIAL_INDEX_CAPACITY];
+        this.positions = new int[INITIAL_INDEX_CAPACITY];
+        this.lastAppendTime = file.lastModified();
+    }
+
+    static EmbeddedLogSegment create(File file, long baseOffset, int capacity) throws IOException {
+        return new EmbeddedLogSegment(file, baseOffset, capacity);
+    }
+
+    static EmbeddedLogSegment open(File file) throws IOException {
+        long baseOffset = Long.parseLong(file.getName().substring(0, file.getName().length() - FILE_SUFFIX.length()));
+        EmbeddedLogSegment segment = new EmbeddedLogSegment(file, baseOffset, (int) file.length());
+        segment.recover();
+        return segment;
+    }
+
+    static String fileName(long baseOffset) {
+        return String.format("%020d", baseOffset) + FILE_SUFFIX;
+    }
+
+    static int recordSize(String key, TbQueueMsgHeaders headers, byte[] data) {
+        int size = RECORD_SIZE_BYTES + 8 + 8 + 4 + (key != null ? key.getBytes(StandardCharsets.UTF_8).length : 0) + 4;
+        if (headers != null) {
+            for (Map.Entry<String, byte[]> header : headers.getData().entrySet()) {
+                size += 4 + header.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + lengthOf(header.getValue());
+            }
+        }
+        return size + 4 + lengthOf(data);
+    }
+
+    /**
+     * @return false if the record does not fit into the remaining space of the segment
+     */
+    boolean append(long offset, long timestamp, String key, TbQueueMsgHeaders headers, byte[] data) {
+        int size = recordSize(key, headers, data);
+        // keep room for the zero end marker
+        if (writePosition + size + RECORD_SIZE_BYTES > capacity) {
+            return false;
+        }
+        int position = writePosition;
+        int p = position + RECORD_SIZE_BYTES;
+        buffer.putLong(p, offset);
+        p += 8;
+        buffer.putLong(p, timestamp);
+        p += 8;
+        p = putBytes(p, key != null ? key.getBytes(StandardCharsets.UTF_8) : null);
+        Map<String, byte[]> headersData = headers != null ? headers.getData() : Map.of();
+        buffer.putInt(p, headersData.size());
+        p += 4;
+        for (Map.Entry<String, byte[]> header : headersData.entrySet()) {
+            p = putBytes(p, header.getKey().getBytes(StandardCharsets.UTF_8));
+            p = putBytes(p, header.getValue());
+        }
+        putBytes(p, data);
+        buffer.putInt(position, size - RECORD_SIZE_BYTES);
+
+        addToIndex(offset, position);
+        writePosition = position + size;
+        lastAppendTime = timestamp;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getSizeBytes() {
+        return writePosition;
+    }
+
+    /**
+     * @return offset of the last record or {@code baseOffset - 1} if the segment is empty
+     */
+    long getLastOffset() {
+        int count = this.count;
+        return count == 0 ? baseOffset - 1 : offsets[count - 1];
+    }
+
+    /**
+     * @return index of the first record with offset not less than {@code offset} or the records count if there is none
+     */
+    int indexOf(long offset) {
+        int count = this.count;
+        int idx = Arrays.binarySearch(offsets, 0, count, offset);
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    long offsetAt(int idx) {
+        return offsets[idx];
+    }
+
+    String keyAt(int idx) {
+        int p = positions[idx] + RECORD_SIZE_BYTES + 8 + 8;
+        byte[] key = getBytes(p);
+        return key != null ? new String(key, StandardCharsets.UTF_8) : null;
+    }
+
+    EmbeddedTbQueueMsg read(int idx, int partition) {
+        int p = positions[idx] + RECORD_SIZE_BYTES;
+        long offset = buffer.getLong(p);
+        p += 8;
+        long timestamp = buffer.getLong(p);
+        p += 8;
+        byte[] keyBytes = getBytes(p);
+        p += 4 + lengthOf(keyBytes);
+        int headersCount = buffer.getInt(p);
+        p += 4;
+        DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        for (int i = 0; i < headersCount; i++) {
+            byte[] name = getBytes(p);
+            p += 4 + lengthOf(name);
+            byte[] value = getBytes(p);
+            p += 4 + lengthOf(value);
+            headers.put(new String(name, StandardCharsets.UTF_8), value);
+        }
+        byte[] data = getBytes(p);
+        String key = keyBytes != null ? new String(keyBytes, StandardCharsets.UTF_8) : null;
+        return new EmbeddedTbQueueMsg(key, headers, data, partition, offset, timestamp);
+    }
+
+    void flush() {
+        buffer.force();
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("[{}] Failed to close segment file", file, e);
+        }
+    }
+
+    void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("[{}] Failed to delete segment file", file, e);
+        }
+    }
+
+    private void recover() {
+        int position = 0;
+        while (position + RECORD_SIZE_BYTES <= capacity) {
+            int size = buffer.getInt(position);
+            if (size <= 0 || position + RECORD_SIZE_BYTES + size > capacity) {
+                break;
+            }
+            addToIndex(buffer.getLong(position + RECORD_SIZE_BYTES), position);
+            lastAppendTime = buffer.getLong(position + RECORD_SIZE_BYTES + 8);
+            position += RECORD_SIZE_BYTES + size;
+        }
+        writePosition = position;
+    }
+
+    private void addToIndex(long offset, int position) {
+        int count = this.count;
+        if (count == offsets.length) {
+            int newCapacity = count * 2;
+            positions = Arrays.copyOf(positions, newCapacity);
+            offsets = Arrays.copyOf(offsets, newCapacity);
+        }
+        offsets[count] = offset;
+        positions[count] = position;
+        this.count = count + 1;
+    }
+
+    private int putBytes(int position, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(position, -1);
+            return position + 4;
+        }
+        buffer.putInt(position, bytes.length);
+        buffer.put(position + 4, bytes);
+        return position + 4 + bytes.length;
+    }
+
+    private byte[] getBytes(int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return bytes;
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+}
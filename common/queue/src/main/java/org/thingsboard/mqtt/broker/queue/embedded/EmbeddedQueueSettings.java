@@ -0,0 +1,48 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+public class EmbeddedQueueSettings {
+
+    @Value("${queue.embedded.data-dir:${java.io.tmpdir}/tbmq/queue}")
+    private String dataDir;
+
+    @Value("${queue.embedded.segment-size-bytes:67108864}")
+    private int segmentSizeBytes;
+
+    @Value("${queue.embedded.max-poll-records:8192}")
+    private int maxPollRecords;
+
+    @Value("${queue.embedded.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${queue.embedded.cleanup-interval-ms:60000}")
+    private long cleanupIntervalMs;
+
+    @Value("${queue.embedded.enable-topic-deletion:true}")
+    private boolean enableTopicDeletion;
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsgHeaders;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-node storage behind the embedded queue: topics are kept as segmented memory-mapped logs under
+ * {@code <data-dir>/topics}, consumer group offsets are periodically flushed to {@code <data-dir>/consumer-groups}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+@RequiredArgsConstructor
+public class EmbeddedQueueStorage {
+
+    private static final String TOPIC_PROPERTIES_FILE = "topic.properties";
+    private static final String TOPIC_NAME_PROPERTY = "name";
+    private static final String TOPIC_CONFIG_PREFIX = "config.";
+    private static final String GROUP_OFFSETS_SUFFIX = ".offsets";
+    private static final char TOPIC_PARTITION_SEPARATOR = '#';
+
+    private final EmbeddedQueueSettings settings;
+
+    private final ConcurrentMap<String, EmbeddedTopic> topics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, EmbeddedConsumerGroup> groups = new ConcurrentHashMap<>();
+
+    private File topicsDir;
+    private File groupsDir;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() throws IOException {
+        File dataDir = new File(settings.getDataDir());
+        this.topicsDir = new File(dataDir, "topics");
+        this.groupsDir = new File(dataDir, "consumer-groups");
+        Files.createDirectories(topicsDir.toPath());
+        Files.createDirectories(groupsDir.toPath());
+        loadTopics();
+        loadGroups();
+        log.info("Embedded queue started in {} with {} topics and {} consumer groups", dataDir.getAbsolutePath(), topics.size(), groups.size());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("embedded-queue-maintenance"));
+        scheduler.scheduleWithFixedDelay(this::flush, settings.getFlushIntervalMs(), settings.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::cleanUp, settings.getCleanupIntervalMs(), settings.getCleanupIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flushGroups();
+        topics.values().forEach(EmbeddedTopic::close);
+    }
+
+    EmbeddedTopic getOrCreateTopic(String name, Map<String, String> configs) {
+        EmbeddedTopic topic = topics.get(name);
+        if (topic != null) {
+            return topic;
+        }
+        return topics.computeIfAbsent(name, n -> createTopic(n, configs != null ? configs : Map.of()));
+    }
+
+    EmbeddedTopic getTopic(String name) {
+        return topics.get(name);
+    }
+
+    Collection<EmbeddedTopic> getTopics() {
+        return topics.values();
+    }
+
+    boolean deleteTopic(String name) {
+        EmbeddedTopic topic = topics.remove(name);
+        if (topic == null) {
+            return false;
+        }
+        topic.delete();
+        try {
+            Files.deleteIfExists(new File(topic.getDir(), TOPIC_PROPERTIES_FILE).toPath());
+            Files.deleteIfExists(topic.getDir().toPath());
+        } catch (IOException e) {
+            log.warn("[{}] Failed to delete topic directory", name, e);
+        }
+        groups.values().forEach(group -> group.removeTopic(name));
+        return true;
+    }
+
+    /**
+     * Appends the record to the partition and wakes up the consumers waiting for data in the topic.
+     *
+     * @return the offset of the appended record
+     */
+    long append(EmbeddedTopic topic, int partition, long timestamp, String key, TbQueueMsgHeaders headers, byte[] data) throws IOException {
+        long offset = topic.getPartition(partition).append(timestamp, key, headers, data);
+        topic.signalNewData();
+        return offset;
+    }
+
+    EmbeddedConsumerGroup getOrCreateGroup(String groupId) {
+        return groups.computeIfAbsent(groupId, EmbeddedConsumerGroup::new);
+    }
+
+    Collection<EmbeddedConsumerGroup> getGroups() {
+        return groups.values();
+    }
+
+    void deleteGroup(String groupId) {
+        if (groups.remove(groupId) != null) {
+            try {
+                Files.deleteIfExists(groupFile(groupId).toPath());
+            } catch (IOException e) {
+                log.warn("[{}] Failed to delete consumer group offsets", groupId, e);
+            }
+        }
+    }
+
+    int getMaxPollRecords() {
+        return settings.getMaxPollRecords();
+    }
+
+    boolean isTopicDeletionEnabled() {
+        return settings.isEnableTopicDeletion();
+    }
+
+    void flush() {
+        try {
+            topics.values().forEach(EmbeddedTopic::flush);
+            flushGroups();
+        } catch (Exception e) {
+            log.warn("Failed to flush embedded queue", e);
+        }
+    }
+
+    void cleanUp() {
+        long now = System.currentTimeMillis();
+        for (EmbeddedTopic topic : topics.values()) {
+            try {
+                for (EmbeddedLog partitionLog : topic.getPartitions()) {
+                    if (topic.isCompacted()) {
+                        partitionLog.compact();
+                    } else if (topic.getRetentionMs() > 0) {
+                        partitionLog.deleteSegmentsOlderThan(now - topic.getRetentionMs());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("[{}] Failed to clean up topic", topic.getName(), e);
+            }
+        }
+    }
+
+    private EmbeddedTopic createTopic(String name, Map<String, String> configs) {
+        File dir = new File(topicsDir, encode(name));
+        try {
+            Files.createDirectories(dir.toPath());
+            Properties properties = new Properties();
+            properties.setProperty(TOPIC_NAME_PROPERTY, name);
+            configs.forEach((key, value) -> properties.setProperty(TOPIC_CONFIG_PREFIX + key, value));
+            try (OutputStream out = new FileOutputStream(new File(dir, TOPIC_PROPERTIES_FILE))) {
+                properties.store(out, null);
+            }
+            log.debug("[{}] Created topic with configs {}", name, configs);
+            return new EmbeddedTopic(name, new HashMap<>(configs), dir, settings.getSegmentSizeBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create topic " + name, e);
+        }
+    }
+
+    private void loadTopics() throws IOException {
+        File[] dirs = topicsDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            File propertiesFile = new File(dir, TOPIC_PROPERTIES_FILE);
+            if (!propertiesFile.exists()) {
+                log.warn("[{}] Skipping topic directory without {}", dir, TOPIC_PROPERTIES_FILE);
+                continue;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(propertiesFile)) {
+                properties.load(in);
+            }
+            String name = properties.getProperty(TOPIC_NAME_PROPERTY);
+            Map<String, String> configs = new HashMap<>();
+            for (String property : properties.stringPropertyNames()) {
+                if (property.startsWith(TOPIC_CONFIG_PREFIX)) {
+                    configs.put(property.substring(TOPIC_CONFIG_PREFIX.length()), properties.getProperty(property));
+                }
+            }
+            topics.put(name, new EmbeddedTopic(name, configs, dir, settings.getSegmentSizeBytes()));
+        }
+    }
+
+    private void loadGroups() throws IOException {
+        File[] files = groupsDir.listFiles((dir, name) -> name.endsWith(GROUP_OFFSETS_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String groupId = decode(file.getName().substring(0, file.getName().length() - GROUP_OFFSETS_SUFFIX.length()));
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            }
+            EmbeddedConsumerGroup group = getOrCreateGroup(groupId);
+            for (String topicPartition : properties.stringPropertyNames()) {
+                int separatorIdx = topicPartition.lastIndexOf(TOPIC_PARTITION_SEPARATOR);
+                group.commit(topicPartition.substring(0, separatorIdx), Integer.parseInt(topicPartition.substring(separatorIdx + 1)),
+                        Long.parseLong(properties.getProperty(topicPartition)));
+            }
+            group.markClean();
+        }
+    }
+
+    private void flushGroups() {
+        for (EmbeddedConsumerGroup group : groups.values()) {
+            if (!group.isDirty()) {
+                continue;
+            }
+            group.markClean();
+            Properties properties = new Properties();
+            group.getCommittedOffsets().forEach((topic, offsets) -> offsets.forEach((partition, offset) ->
+                    properties.setProperty(topic + TOPIC_PARTITION_SEPARATOR + partition, String.valueOf(offset))));
+            File file = groupFile(group.getGroupId());
+            File tmpFile = new File(file.getPath() + ".tmp");
+            try {
+                try (OutputStream out = new FileOutputStream(tmpFile)) {
+                    properties.store(out, null);
+                }
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.warn("[{}] Failed to flush consumer group offsets", group.getGroupId(), e);
+            }
+        }
+    }
+
+    private File groupFile(String groupId) {
+        return new File(groupsDir, encode(groupId) + GROUP_OFFSETS_SUFFIX);
+    }
+
+    private static String encode(String name) {
+        return URLEncoder.encode(name, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String name) {
+        return URLDecoder.decode(name, StandardCharsets.UTF_8);
+    }
+}
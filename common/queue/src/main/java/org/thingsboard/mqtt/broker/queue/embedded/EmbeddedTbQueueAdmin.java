@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.data.BasicCallback;
+import org.thingsboard.mqtt.broker.common.data.page.PageData;
+import org.thingsboard.mqtt.broker.common.data.page.PageLink;
+import org.thingsboard.mqtt.broker.common.data.queue.KafkaBroker;
+import org.thingsboard.mqtt.broker.common.data.queue.KafkaConsumerGroup;
+import org.thingsboard.mqtt.broker.common.data.queue.KafkaConsumerGroupState;
+import org.thingsboard.mqtt.broker.common.data.queue.KafkaTopic;
+import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * {@link TbQueueAdmin} over the {@link EmbeddedQueueStorage}. The storage is reported as a single broker so the
+ * monitoring pages keep working the same way as with Kafka.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+@RequiredArgsConstructor
+public class EmbeddedTbQueueAdmin implements TbQueueAdmin {
+
+    private static final int BROKER_ID = 0;
+    private static final String BROKER_ADDRESS = "embedded";
+
+    private final EmbeddedQueueStorage storage;
+
+    @Value("${queue.kafka.kafka-prefix:}")
+    private String kafkaPrefix;
+    @Value("${queue.kafka.client-session-event-response.topic-prefix}")
+    private String clientSessionEventRespTopicPrefix;
+
+    @Override
+    public void createTopicIfNotExists(String topic, Map<String, String> topicConfigs) {
+        storage.getOrCreateTopic(topic, topicConfigs);
+    }
+
+    @Override
+    public void createTopic(String topic, Map<String, String> topicConfigs) {
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Creating topic", topic);
+        }
+        storage.getOrCreateTopic(topic, topicConfigs);
+    }
+
+    @Override
+    public void deleteTopic(String topic, BasicCallback callback) {
+        if (!storage.isTopicDeletionEnabled()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring deletion of topic {}", topic);
+            }
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Deleting topic", topic);
+        }
+        try {
+            storage.deleteTopic(topic);
+            callback.onSuccess();
+        } catch (Exception e) {
+            callback.onFailure(e);
+        }
+    }
+
+    @Override
+    public void deleteConsumerGroups(Collection<String> consumerGroups) {
+        if (log.isDebugEnabled()) {
+            log.debug("Deleting Consumer Groups - {}", consumerGroups);
+        }
+        consumerGroups.forEach(storage::deleteGroup);
+    }
+
+    @Override
+    public void deleteConsumerGroup(String groupId) {
+        if (log.isTraceEnabled()) {
+            log.trace("Executing deleteConsumerGroup {}", groupId);
+        }
+        storage.deleteGroup(groupId);
+    }
+
+    @Override
+    public int getNumberOfPartitions(String topic) {
+        EmbeddedTopic embeddedTopic = storage.getTopic(topic);
+        if (embeddedTopic == null) {
+            throw new IllegalArgumentException("Topic " + topic + " does not exist");
+        }
+        return embeddedTopic.getPartitionsCount();
+    }
+
+    @Override
+    public PageData<KafkaBroker> getClusterInfo() {
+        long size = storage.getTopics().stream().mapToLong(EmbeddedTopic::getSizeBytes).sum();
+        List<KafkaBroker> brokers = List.of(new KafkaBroker(BROKER_ID, BROKER_ADDRESS, size));
+        return new PageData<>(brokers, 1, brokers.size(), false);
+    }
+
+    @Override
+    public PageData<KafkaTopic> getTopics(PageLink pageLink) {
+        List<KafkaTopic> topics = storage.getTopics().stream()
+                .filter(topic -> topic.getName().startsWith(kafkaPrefix))
+                .filter(topic -> matches(pageLink, topic.getName()))
+                .map(this::toKafkaTopic)
+                .collect(Collectors.toList());
+        return toPageData(topics, pageLink, KafkaTopic.sorted(pageLink));
+    }
+
+    @Override
+    public List<String> getBrokerServiceIds() {
+        String prefix = kafkaPrefix + clientSessionEventRespTopicPrefix;
+        return storage.getTopics().stream()
+                .map(EmbeddedTopic::getName)
+                .filter(topic -> topic.startsWith(prefix))
+                .map(topic -> topic.replace(prefix + ".", ""))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public PageData<KafkaConsumerGroup> getConsumerGroups(PageLink pageLink) {
+        List<KafkaConsumerGroup> groups = storage.getGroups().stream()
+                .filter(group -> group.getGroupId().startsWith(kafkaPrefix))
+                .filter(group -> matches(pageLink, group.getGroupId()))
+                .map(this::toKafkaConsumerGroup)
+                .collect(Collectors.toList());
+        return toPageData(groups, pageLink, KafkaConsumerGroup.sorted(pageLink));
+    }
+
+    private KafkaTopic toKafkaTopic(EmbeddedTopic topic) {
+        KafkaTopic kafkaTopic = new KafkaTopic();
+        kafkaTopic.setName(topic.getName());
+        kafkaTopic.setPartitions(topic.getPartitionsCount());
+        kafkaTopic.setReplicationFactor(1);
+        kafkaTopic.setSize(topic.getSizeBytes());
+        return kafkaTopic;
+    }
+
+    private KafkaConsumerGroup toKafkaConsumerGroup(EmbeddedConsumerGroup group) {
+        KafkaConsumerGroup kafkaConsumerGroup = new KafkaConsumerGroup();
+        kafkaConsumerGroup.setGroupId(group.getGroupId());
+        int members = group.getMembersCount();
+        kafkaConsumerGroup.setMembers(members);
+        kafkaConsumerGroup.setState(members > 0 ? KafkaConsumerGroupState.STABLE : KafkaConsumerGroupState.EMPTY);
+        long lag = 0;
+        for (var topicOffsets : group.getCommittedOffsets().entrySet()) {
+            EmbeddedTopic topic = storage.getTopic(topicOffsets.getKey());
+            if (topic == null) {
+                continue;
+            }
+            for (var partitionOffset : topicOffsets.getValue().entrySet()) {
+                if (partitionOffset.getKey() < topic.getPartitionsCount()) {
+                    lag += Math.max(0, topic.getPartition(partitionOffset.getKey()).getEndOffset() - partitionOffset.getValue());
+                }
+            }
+        }
+        kafkaConsumerGroup.setLag(lag);
+        return kafkaConsumerGroup;
+    }
+
+    private boolean matches(PageLink pageLink, String name) {
+        return pageLink.getTextSearch() == null || name.toLowerCase().contains(pageLink.getTextSearch().toLowerCase());
+    }
+
+    private <E> PageData<E> toPageData(List<E> items, PageLink pageLink, Comparator<? super E> comparator) {
+        List<E> data = items.stream()
+                .sorted(comparator)
+                .skip((long) pageLink.getPage() * pageLink.getPageSize())
+                .limit(pageLink.getPageSize())
+                .collect(Collectors.toList());
+        int totalPages = (int) Math.ceil((double) items.size() / pageLink.getPageSize());
+        return new PageData<>(data, totalPages, items.size(), pageLink.getPage() < totalPages - 1);
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.common.AbstractTbQueueConsumerTemplate;
+import org.thingsboard.mqtt.broker.queue.kafka.TbKafkaDecoder;
+import org.thingsboard.mqtt.broker.queue.stats.ConsumerStatsManager;
+import org.thingsboard.mqtt.broker.queue.stats.Timer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the partitions of an {@link EmbeddedTopic} directly from the memory-mapped segments. When nothing is available
+ * the poll blocks until a producer appends to the topic or the poll duration expires.
+ * <p>
+ * Offset semantics follow the Kafka consumer: positions start from the committed offset of the group, falling back to
+ * the beginning or the end of the partition depending on {@code autoOffsetResetEarliest}, and {@link #commitSync()}
+ * commits the current positions.
+ */
+@Slf4j
+public class EmbeddedTbQueueConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQueueConsumerTemplate<EmbeddedTbQueueMsg, T> {
+
+    private final EmbeddedQueueStorage storage;
+    private final TbKafkaDecoder<T> decoder;
+    @Getter
+    private final Map<String, String> topicConfigs;
+    private final String groupId;
+    private final EmbeddedConsumerGroup group;
+    private final boolean autoOffsetResetEarliest;
+    private final int maxPollRecords;
+    private final boolean createTopicIfNotExists;
+    private final Timer commitTimer;
+
+    private final Map<Integer, Long> positions = new LinkedHashMap<>();
+    private EmbeddedTopic embeddedTopic;
+    private boolean groupManaged;
+    private int groupGeneration = -1;
+    private int nextPartitionIdx;
+
+    /**
+     * Not thread-safe
+     */
+
+    @Builder
+    private EmbeddedTbQueueConsumerTemplate(EmbeddedQueueStorage storage, TbKafkaDecoder<T> decoder,
+                                            String clientId, String groupId, String topic,
+                                            Map<String, String> topicConfigs, Boolean createTopicIfNotExists,
+                                            boolean autoOffsetResetEarliest, int maxPollRecords,
+                                            ConsumerStatsManager statsManager) {
+        super(topic);
+        this.storage = storage;
+        this.decoder = decoder;
+        this.topicConfigs = topicConfigs != null ? topicConfigs : Collections.emptyMap();
+        this.groupId = groupId;
+        this.group = groupId != null ? storage.getOrCreateGroup(groupId) : null;
+        this.autoOffsetResetEarliest = autoOffsetResetEarliest;
+        this.maxPollRecords = maxPollRecords > 0 ? maxPollRecords : storage.getMaxPollRecords();
+        this.createTopicIfNotExists = createTopicIfNotExists != null ? createTopicIfNotExists : true;
+        this.commitTimer = statsManager != null ? statsManager.createCommitTimer(clientId) : (amount, unit) -> {
+        };
+    }
+
+    @Override
+    protected void doSubscribe(String topic) {
+        if (group == null) {
+            throw new IllegalStateException("Consumer group is required to subscribe to topic " + topic);
+        }
+        embeddedTopic = findTopic(topic);
+        positions.clear();
+        groupManaged = true;
+        groupGeneration = -1;
+        group.join(topic, this);
+    }
+
+    @Override
+    protected void doAssignPartition(String topic, int partition) {
+        assign(topic, List.of(partition));
+    }
+
+    @Override
+    protected void doAssignAllPartitions(String topic) {
+        EmbeddedTopic embeddedTopic = findTopic(topic);
+        if (embeddedTopic == null) {
+            throw new IllegalStateException("Topic " + topic + " does not exist");
+        }
+        List<Integer> partitions = new ArrayList<>(embeddedTopic.getPartitionsCount());
+        for (int i = 0; i < embeddedTopic.getPartitionsCount(); i++) {
+            partitions.add(i);
+        }
+        assign(topic, partitions);
+    }
+
+    private void assign(String topic, List<Integer> partitions) {
+        if (groupManaged) {
+            group.leave(this);
+            groupManaged = false;
+        }
+        embeddedTopic = findTopic(topic);
+        positions.clear();
+        for (int partition : partitions) {
+            // positions of a topic that is not created yet are resolved once it appears, see refreshTopic()
+            positions.put(partition, embeddedTopic != null ? resolveOffset(partition) : 0L);
+        }
+    }
+
+    private EmbeddedTopic findTopic(String topic) {
+        return createTopicIfNotExists ? storage.getOrCreateTopic(topic, topicConfigs) : storage.getTopic(topic);
+    }
+
+    @Override
+    protected List<EmbeddedTbQueueMsg> doPoll(long durationInMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationInMillis);
+        while (!stopped) {
+            if (!refreshTopic()) {
+                return Collections.emptyList();
+            }
+            EmbeddedTopic topic = embeddedTopic;
+            long seenVersion = topic.getDataVersion();
+            List<EmbeddedTbQueueMsg> records = readRecords(topic);
+            if (!records.isEmpty()) {
+                return records;
+            }
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                break;
+            }
+            try {
+                topic.awaitNewData(seenVersion, remainingMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private List<EmbeddedTbQueueMsg> readRecords(EmbeddedTopic topic) {
+        if (positions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> partitions = new ArrayList<>(positions.keySet());
+        List<EmbeddedTbQueueMsg> records = new ArrayList<>();
+        // start from a different partition on every poll so a busy partition does not starve the others
+        int startIdx = nextPartitionIdx++ % partitions.size();
+        for (int i = 0; i < partitions.size() && records.size() < maxPollRecords; i++) {
+            int partition = partitions.get((startIdx + i) % partitions.size());
+            long position = positions.get(partition);
+            EmbeddedLog partitionLog = topic.getPartition(partition);
+            if (position < partitionLog.getEndOffset()) {
+                positions.put(partition, partitionLog.read(position, maxPollRecords - records.size(), records));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Picks up topic re-creation and, for group-managed consumers, the partitions reassigned after a member joined or left.
+     *
+     * @return false if the topic does not exist anymore
+     */
+    private boolean refreshTopic() {
+        EmbeddedTopic current = storage.getTopic(getTopic());
+        if (current == null) {
+            return false;
+        }
+        if (current != embeddedTopic) {
+            log.debug("[{}] Topic was (re-)created, resetting positions", getTopic());
+            embeddedTopic = current;
+            positions.replaceAll((partition, offset) -> resolveOffset(partition));
+        }
+        if (groupManaged) {
+            int generation = group.getGeneration(getTopic());
+            if (generation != groupGeneration) {
+                groupGeneration = generation;
+                List<Integer> assignment = group.getAssignment(getTopic(), this, current.getPartitionsCount());
+                positions.keySet().retainAll(assignment);
+                for (int partition : assignment) {
+                    positions.computeIfAbsent(partition, this::resolveOffset);
+                }
+                log.debug("[{}][{}] Assigned partitions {}", groupId, getTopic(), assignment);
+            }
+        }
+        return true;
+    }
+
+    private long resolveOffset(int partition) {
+        EmbeddedLog partitionLog = embeddedTopic.getPartition(partition);
+        Optional<Long> committedOffset = group != null ? group.getCommittedOffset(getTopic(), partition) : Optional.empty();
+        if (committedOffset.isPresent()) {
+            return Math.min(committedOffset.get(), partitionLog.getEndOffset());
+        }
+        return autoOffsetResetEarliest ? partitionLog.getStartOffset() : partitionLog.getEndOffset();
+    }
+
+    @Override
+    public T decode(EmbeddedTbQueueMsg record) throws IOException {
+        return decoder.decode(record);
+    }
+
+    @Override
+    protected void doCommitSync() {
+        if (group == null) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        positions.forEach((partition, offset) -> group.commit(getTopic(), partition, offset));
+        commitTimer.logTime(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void doCommit(String topic, int partition, long offset) {
+        if (group != null) {
+            group.commit(topic, partition, offset);
+        }
+    }
+
+    @Override
+    protected void doUnsubscribeAndClose() {
+        if (groupManaged) {
+            group.leave(this);
+            groupManaged = false;
+        }
+        positions.clear();
+    }
+
+    @Override
+    public long doGetEndOffset(String topic, int partition) {
+        EmbeddedTopic embeddedTopic = storage.getTopic(topic);
+        return embeddedTopic != null ? embeddedTopic.getPartition(partition).getEndOffset() : 0L;
+    }
+
+    @Override
+    public Optional<Long> doGetCommittedOffset(String topic, int partition) {
+        return group != null ? group.getCommittedOffset(topic, partition) : Optional.empty();
+    }
+
+    @Override
+    public String getConsumerGroupId() {
+        return groupId;
+    }
+
+    @Override
+    public void doSeekToTheBeginning() {
+        if (embeddedTopic != null) {
+            positions.replaceAll((partition, offset) -> embeddedTopic.getPartition(partition).getStartOffset());
+        }
+    }
+}
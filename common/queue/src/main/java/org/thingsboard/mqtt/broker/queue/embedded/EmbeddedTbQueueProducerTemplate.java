@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.thingsboard.mqtt.broker.common.data.StringUtils;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
+import org.thingsboard.mqtt.broker.queue.kafka.KafkaTbQueueMsgMetadata;
+import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
+import org.thingsboard.mqtt.broker.queue.stats.Timer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends messages directly to the {@link EmbeddedQueueStorage} log, so the callback is invoked in the caller thread
+ * as soon as the record is written to the memory-mapped segment. Partition selection mirrors the Kafka default
+ * partitioner: explicit partition, then murmur2 of the key, then round-robin.
+ */
+@Slf4j
+public class EmbeddedTbQueueProducerTemplate<T extends TbQueueMsg> implements TbQueueProducer<T> {
+
+    private final EmbeddedQueueStorage storage;
+    private final String defaultTopic;
+    private final Map<String, String> topicConfigs;
+    private final Timer sendTimer;
+
+    @Builder
+    private EmbeddedTbQueueProducerTemplate(EmbeddedQueueStorage storage, String defaultTopic, String clientId,
+                                            Map<String, String> topicConfigs, ProducerStatsManager statsManager) {
+        this.storage = storage;
+        this.defaultTopic = defaultTopic;
+        this.topicConfigs = topicConfigs;
+        this.sendTimer = statsManager != null ? statsManager.createSendTimer(clientId) : (amount, unit) -> {};
+    }
+
+    @Override
+    public String getDefaultTopic() {
+        return defaultTopic;
+    }
+
+    @Override
+    public void send(T msg, TbQueueCallback callback) {
+        if (StringUtils.isEmpty(defaultTopic)) {
+            throw new RuntimeException("No default topic defined for producer.");
+        }
+        send(defaultTopic, null, msg, callback);
+    }
+
+    @Override
+    public void send(String topic, Integer partition, T msg, TbQueueCallback callback) {
+        long startTime = System.nanoTime();
+        RecordMetadata metadata;
+        try {
+            EmbeddedTopic embeddedTopic = storage.getOrCreateTopic(topic, topicConfigs);
+            int targetPartition = partition != null ? partition : selectPartition(embeddedTopic, msg.getKey());
+            long timestamp = System.currentTimeMillis();
+            byte[] data = msg.getData();
+            long offset = storage.append(embeddedTopic, targetPartition, timestamp, msg.getKey(), msg.getHeaders(), data);
+            metadata = new RecordMetadata(new TopicPartition(topic, targetPartition), offset, 0, timestamp,
+                    msg.getKey() != null ? msg.getKey().length() : -1, data != null ? data.length : -1);
+        } catch (Exception e) {
+            sendTimer.logTime(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            if (callback != null) {
+                callback.onFailure(e);
+            } else {
+                log.warn("Producer template failure: {}", e.getMessage(), e);
+            }
+            return;
+        }
+        sendTimer.logTime(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        if (callback != null) {
+            callback.onSuccess(new KafkaTbQueueMsgMetadata(metadata));
+        }
+    }
+
+    private int selectPartition(EmbeddedTopic topic, String key) {
+        int partitionsCount = topic.getPartitionsCount();
+        if (partitionsCount == 1) {
+            return 0;
+        }
+        if (key == null) {
+            return topic.nextRoundRobinPartition();
+        }
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitionsCount;
+    }
+
+    // msgs are appended to the storage in send, nothing is buffered
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void stop() {
+    }
+}
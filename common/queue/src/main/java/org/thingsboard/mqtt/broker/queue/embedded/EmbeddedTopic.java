@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import lombok.Getter;
+import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+class EmbeddedTopic {
+
+    static final String RETENTION_MS_PROPERTY = "retention.ms";
+
+    @Getter
+    private final String name;
+    @Getter
+    private final Map<String, String> configs;
+    @Getter
+    private final File dir;
+    private final List<EmbeddedLog> partitions;
+    @Getter
+    private final boolean compacted;
+    @Getter
+    private final long retentionMs;
+
+    private final AtomicInteger roundRobinCounter = new AtomicInteger();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Lock signalLock = new ReentrantLock();
+    private final Condition newData = signalLock.newCondition();
+
+    EmbeddedTopic(String name, Map<String, String> configs, File dir, int segmentSizeBytes) throws IOException {
+        this.name = name;
+        this.configs = Collections.unmodifiableMap(configs);
+        this.dir = dir;
+        this.compacted = QueueConstants.COMPACT_POLICY.equals(configs.get(QueueConstants.CLEANUP_POLICY_PROPERTY));
+        this.retentionMs = Long.parseLong(configs.getOrDefault(RETENTION_MS_PROPERTY, "-1"));
+        int partitionsCount = Integer.parseInt(configs.getOrDefault(QueueConstants.PARTITIONS, "1"));
+        List<EmbeddedLog> logs = new ArrayList<>(partitionsCount);
+        for (int i = 0; i < partitionsCount; i++) {
+            logs.add(new EmbeddedLog(new File(dir, String.valueOf(i)), i, segmentSizeBytes));
+        }
+        this.partitions = Collections.unmodifiableList(logs);
+    }
+
+    int getPartitionsCount() {
+        return partitions.size();
+    }
+
+    EmbeddedLog getPartition(int partition) {
+        if (partition < 0 || partition >= partitions.size()) {
+            throw new IllegalArgumentException("Topic " + name + " has no partition " + partition);
+        }
+        return partitions.get(partition);
+    }
+
+    List<EmbeddedLog> getPartitions() {
+        return partitions;
+    }
+
+    int nextRoundRobinPartition() {
+        return (roundRobinCounter.getAndIncrement() & Integer.MAX_VALUE) % partitions.size();
+    }
+
+    long getSizeBytes() {
+        long size = 0;
+        for (EmbeddedLog log : partitions) {
+            size += log.getSizeBytes();
+        }
+        return size;
+    }
+
+    long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Wakes up consumers blocked in {@link #awaitNewData(long, long)}. Producers take the lock only when someone is waiting:
+     * a consumer registers as a waiter before re-checking the version, so either it sees the new version or it is signalled.
+     */
+    void signalNewData() {
+        dataVersion.incrementAndGet();
+        if (waiters.get() > 0) {
+            signalLock.lock();
+            try {
+                newData.signalAll();
+            } finally {
+                signalLock.unlock();
+            }
+        }
+    }
+
+    void awaitNewData(long seenVersion, long timeoutMs) throws InterruptedException {
+        signalLock.lock();
+        waiters.incrementAndGet();
+        try {
+            if (dataVersion.get() == seenVersion) {
+                newData.await(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            waiters.decrementAndGet();
+            signalLock.unlock();
+        }
+    }
+
+    void flush() {
+        partitions.forEach(EmbeddedLog::flush);
+    }
+
+    void close() {
+        partitions.forEach(EmbeddedLog::close);
+    }
+
+    void delete() {
+        partitions.forEach(EmbeddedLog::delete);
+    }
+}
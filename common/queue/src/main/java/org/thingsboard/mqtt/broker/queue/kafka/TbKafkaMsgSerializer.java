@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.kafka;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Value serializer of {@link TbKafkaProducerTemplate}. It is invoked by the Kafka producer in the sending thread with the
+ * record headers already allocated, so the message headers are added to them directly instead of being copied
+ * into an intermediate list, and protobuf values are written with a {@link CodedOutputStream} straight into an array
+ * of the exact (memoized) serialized size.
+ * <p>
+ * The Kafka {@link Serializer} contract requires an exactly sized array that the producer copies into the batch buffer,
+ * so the single array allocated here is the minimum for a record.
+ */
+public class TbKafkaMsgSerializer implements Serializer<TbQueueMsg> {
+
+    @Override
+    public byte[] serialize(String topic, TbQueueMsg msg) {
+        return serialize(topic, null, msg);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, TbQueueMsg msg) {
+        if (msg == null) {
+            return null;
+        }
+        if (headers != null && msg.getHeaders() != null) {
+            for (Map.Entry<String, byte[]> header : msg.getHeaders().getData().entrySet()) {
+                headers.add(header.getKey(), header.getValue());
+            }
+        }
+        if (msg instanceof TbProtoQueueMsg<?> protoMsg) {
+            return toBytes(protoMsg.getValue());
+        }
+        return msg.getData();
+    }
+
+    static byte[] toBytes(MessageLite value) {
+        byte[] result = new byte[value.getSerializedSize()];
+        CodedOutputStream output = CodedOutputStream.newInstance(result);
+        try {
+            value.writeTo(output);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize " + value.getClass().getSimpleName(), e);
+        }
+        return result;
+    }
+}
@@ -20,8 +20,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.common.header.Header;
-import org.apache.kafka.common.header.internals.RecordHeader;
 import org.thingsboard.mqtt.broker.common.data.StringUtils;
 import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
 import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
@@ -30,8 +28,6 @@ import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
 import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
 import org.thingsboard.mqtt.broker.queue.stats.Timer;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
@@ -39,7 +35,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueueProducer<T> {
 
-    private final KafkaProducer<String, byte[]> producer;
+    private final KafkaProducer<String, TbQueueMsg> producer;
 
     private final String defaultTopic;
 
@@ -52,7 +48,7 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
     private TbKafkaProducerTemplate(Properties properties, String defaultTopic, String clientId, TbQueueAdmin admin,
                                     Boolean createTopicIfNotExists, Map<String, String> topicConfigs, ProducerStatsManager statsManager) {
         properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
-        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArraySerializer");
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, TbKafkaMsgSerializer.class.getName());
         if (!StringUtils.isEmpty(clientId)) {
             properties.put(ProducerConfig.CLIENT_ID_CONFIG, clientId);
         }
@@ -61,7 +57,8 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
         this.admin = admin;
         this.defaultTopic = defaultTopic;
         this.topicConfigs = topicConfigs;
-        this.createTopicIfNotExists = createTopicIfNotExists != null ? createTopicIfNotExists : true;
+        // topic existence itself is cached by the admin and invalidated on topic deletion
+        this.createTopicIfNotExists = admin != null && topicConfigs != null && (createTopicIfNotExists == null || createTopicIfNotExists);
         this.sendTimer = statsManager != null ? statsManager.createSendTimer(clientId) : (amount, unit) -> {};
     }
 
@@ -80,12 +77,13 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
 
     @Override
     public void send(String topic, Integer partition, T msg, TbQueueCallback callback) {
-        if (admin != null && topicConfigs != null && createTopicIfNotExists) {
+        if (createTopicIfNotExists) {
             admin.createTopicIfNotExists(topic, topicConfigs);
         }
 
         long startTime = System.nanoTime();
-        ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, partition, msg.getKey(), msg.getData(), extractHeaders(msg));
+        // value and headers are serialized by TbKafkaMsgSerializer inside producer.send
+        ProducerRecord<String, TbQueueMsg> record = new ProducerRecord<>(topic, partition, msg.getKey(), msg);
         producer.send(record, (metadata, exception) -> {
             if (exception == null) {
                 if (callback != null) {
@@ -102,13 +100,9 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
         sendTimer.logTime(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
     }
 
-    private List<Header> extractHeaders(T msg) {
-        var entries = msg.getHeaders().getData().entrySet();
-        List<Header> headers = new ArrayList<>(entries.size());
-        for (var entry : entries) {
-            headers.add(new RecordHeader(entry.getKey(), entry.getValue()));
-        }
-        return headers;
+    @Override
+    public void flush() {
+        producer.flush();
     }
 
     @Override
@@ -0,0 +1,119 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.provider;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedQueueStorage;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueConsumerTemplate;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueProducerTemplate;
+import org.thingsboard.mqtt.broker.queue.kafka.settings.ApplicationPersistenceMsgKafkaSettings;
+import org.thingsboard.mqtt.broker.queue.kafka.settings.ApplicationSharedTopicMsgKafkaSettings;
+import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
+import org.thingsboard.mqtt.broker.queue.util.QueueUtil;
+
+import java.util.Map;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+@RequiredArgsConstructor
+public class EmbeddedApplicationPersistenceMsgQueueFactory extends AbstractQueueFactory implements ApplicationPersistenceMsgQueueFactory {
+
+    private final EmbeddedQueueStorage storage;
+    private final ApplicationPersistenceMsgKafkaSettings applicationPersistenceMsgSettings;
+    private final ApplicationSharedTopicMsgKafkaSettings applicationSharedTopicMsgSettings;
+
+    @Autowired(required = false)
+    private ProducerStatsManager producerStatsManager;
+
+    private Map<String, String> topicConfigs;
+    private Map<String, String> sharedTopicConfigs;
+
+    @PostConstruct
+    public void init() {
+        this.topicConfigs = QueueUtil.getConfigs(applicationPersistenceMsgSettings.getTopicProperties());
+        String configuredPartitions = topicConfigs.get(QueueConstants.PARTITIONS);
+        if (configuredPartitions != null && Integer.parseInt(configuredPartitions) != 1) {
+            log.warn("Application persistent message topic must have only 1 partition.");
+        }
+        topicConfigs.put(QueueConstants.PARTITIONS, "1");
+
+        this.sharedTopicConfigs = QueueUtil.getConfigs(applicationSharedTopicMsgSettings.getTopicProperties());
+    }
+
+    @Override
+    public TbQueueProducer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createProducer(String serviceId) {
+        return createProducer("application-persisted-msg-producer-", serviceId);
+    }
+
+    @Override
+    public TbQueueProducer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createSharedSubsProducer(String serviceId) {
+        return createProducer("application-shared-msg-producer-", serviceId);
+    }
+
+    private EmbeddedTbQueueProducerTemplate<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createProducer(String clientIdPrefix, String serviceId) {
+        EmbeddedTbQueueProducerTemplate.EmbeddedTbQueueProducerTemplateBuilder<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> producerBuilder = EmbeddedTbQueueProducerTemplate.builder();
+        producerBuilder.storage(storage);
+        producerBuilder.clientId(kafkaPrefix + clientIdPrefix + serviceId);
+        producerBuilder.statsManager(producerStatsManager);
+        return producerBuilder.build();
+    }
+
+    @Override
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createConsumer(
+            String topic, String consumerGroupId, String consumerId) {
+        return buildConsumer(topic, consumerGroupId, "application-persisted-msg-consumer-" + consumerId);
+    }
+
+    @Override
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> createConsumerForSharedTopic(
+            String topic, String consumerGroupId, String consumerId) {
+        return buildConsumer(topic, consumerGroupId, "application-shared-msg-consumer-" + consumerId);
+    }
+
+    private TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> buildConsumer(
+            String topic, String consumerGroupId, String clientId) {
+        EmbeddedTbQueueConsumerTemplate.EmbeddedTbQueueConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> consumerBuilder = EmbeddedTbQueueConsumerTemplate.builder();
+        consumerBuilder.storage(storage);
+        consumerBuilder.topic(topic);
+        consumerBuilder.clientId(kafkaPrefix + clientId);
+        consumerBuilder.groupId(consumerGroupId);
+        consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.PublishMsgProto.parseFrom(msg.getData()), msg.getHeaders(),
+                msg.getPartition(), msg.getOffset()));
+        consumerBuilder.createTopicIfNotExists(false);
+        return consumerBuilder.build();
+    }
+
+    @Override
+    public Map<String, String> getTopicConfigs() {
+        return topicConfigs;
+    }
+
+    @Override
+    public Map<String, String> getSharedTopicConfigs() {
+        return sharedTopicConfigs;
+    }
+}
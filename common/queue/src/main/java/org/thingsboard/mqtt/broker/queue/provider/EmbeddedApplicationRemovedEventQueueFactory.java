@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.provider;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedQueueStorage;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueConsumerTemplate;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueProducerTemplate;
+import org.thingsboard.mqtt.broker.queue.kafka.settings.ApplicationRemovedEventKafkaSettings;
+import org.thingsboard.mqtt.broker.queue.util.QueueUtil;
+
+import java.util.Map;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+@RequiredArgsConstructor
+public class EmbeddedApplicationRemovedEventQueueFactory extends AbstractQueueFactory implements ApplicationRemovedEventQueueFactory {
+
+    private final EmbeddedQueueStorage storage;
+    private final ApplicationRemovedEventKafkaSettings kafkaSettings;
+
+    @Override
+    public TbQueueProducer<TbProtoQueueMsg<QueueProtos.ApplicationRemovedEventProto>> createEventProducer(String serviceId) {
+        EmbeddedTbQueueProducerTemplate.EmbeddedTbQueueProducerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ApplicationRemovedEventProto>> producerBuilder = EmbeddedTbQueueProducerTemplate.builder();
+        producerBuilder.storage(storage);
+        producerBuilder.clientId(kafkaPrefix + "application-removed-event-producer-" + serviceId);
+        producerBuilder.defaultTopic(kafkaSettings.getKafkaTopic());
+        producerBuilder.topicConfigs(QueueUtil.getConfigs(kafkaSettings.getTopicProperties()));
+        return producerBuilder.build();
+    }
+
+    @Override
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ApplicationRemovedEventProto>> createEventConsumer(String serviceId) {
+        EmbeddedTbQueueConsumerTemplate.EmbeddedTbQueueConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ApplicationRemovedEventProto>> consumerBuilder = EmbeddedTbQueueConsumerTemplate.builder();
+        consumerBuilder.storage(storage);
+        consumerBuilder.autoOffsetResetEarliest(true);
+        consumerBuilder.topic(kafkaSettings.getKafkaTopic());
+        consumerBuilder.topicConfigs(QueueUtil.getConfigs(kafkaSettings.getTopicProperties()));
+        consumerBuilder.clientId(kafkaPrefix + "application-removed-event-consumer-" + serviceId);
+        consumerBuilder.groupId(kafkaPrefix + "application-removed-event-consumer-group");
+        consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.ApplicationRemovedEventProto.parseFrom(msg.getData()), msg.getHeaders(),
+                msg.getPartition(), msg.getOffset()));
+        return consumerBuilder.build();
+    }
+}
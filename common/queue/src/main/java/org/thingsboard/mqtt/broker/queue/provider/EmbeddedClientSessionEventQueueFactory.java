@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.provider;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedQueueStorage;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueConsumerTemplate;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueProducerTemplate;
+import org.thingsboard.mqtt.broker.queue.kafka.settings.ClientSessionEventKafkaSettings;
+import org.thingsboard.mqtt.broker.queue.kafka.settings.ClientSessionEventResponseKafkaSettings;
+import org.thingsboard.mqtt.broker.queue.stats.ConsumerStatsManager;
+import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
+import org.thingsboard.mqtt.broker.queue.util.QueueUtil;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+@RequiredArgsConstructor
+public class EmbeddedClientSessionEventQueueFactory extends AbstractQueueFactory implements ClientSessionEventQueueFactory {
+
+    private final EmbeddedQueueStorage storage;
+    private final ClientSessionEventKafkaSettings clientSessionEventSettings;
+    private final ClientSessionEventResponseKafkaSettings clientSessionEventResponseSettings;
+
+    @Autowired(required = false)
+    private ProducerStatsManager producerStatsManager;
+    @Autowired(required = false)
+    private ConsumerStatsManager consumerStatsManager;
+
+    @Override
+    public TbQueueProducer<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> createEventProducer(String serviceId) {
+        EmbeddedTbQueueProducerTemplate.EmbeddedTbQueueProducerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> producerBuilder = EmbeddedTbQueueProducerTemplate.builder();
+        producerBuilder.storage(storage);
+        producerBuilder.clientId(kafkaPrefix + "client-session-event-producer-" + serviceId);
+        producerBuilder.defaultTopic(clientSessionEventSettings.getKafkaTopic());
+        producerBuilder.topicConfigs(QueueUtil.getConfigs(clientSessionEventSettings.getTopicProperties()));
+        producerBuilder.statsManager(producerStatsManager);
+        return producerBuilder.build();
+    }
+
+    @Override
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> createEventConsumer(String consumerName) {
+        EmbeddedTbQueueConsumerTemplate.EmbeddedTbQueueConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSessionEventProto>> consumerBuilder = EmbeddedTbQueueConsumerTemplate.builder();
+        consumerBuilder.storage(storage);
+        consumerBuilder.topic(clientSessionEventSettings.getKafkaTopic());
+        consumerBuilder.topicConfigs(QueueUtil.getConfigs(clientSessionEventSettings.getTopicProperties()));
+        consumerBuilder.clientId(kafkaPrefix + "client-session-event-consumer-" + consumerName);
+        consumerBuilder.groupId(kafkaPrefix + "client-session-event-consumer-group");
+        consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.ClientSessionEventProto.parseFrom(msg.getData()), msg.getHeaders(),
+                msg.getPartition(), msg.getOffset()));
+        consumerBuilder.statsManager(consumerStatsManager);
+        return consumerBuilder.build();
+    }
+
+    @Override
+    public TbQueueProducer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> createEventResponseProducer(String serviceId) {
+        EmbeddedTbQueueProducerTemplate.EmbeddedTbQueueProducerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> producerBuilder = EmbeddedTbQueueProducerTemplate.builder();
+        producerBuilder.storage(storage);
+        producerBuilder.clientId(kafkaPrefix + "client-session-event-response-" + serviceId);
+        return producerBuilder.build();
+    }
+
+    @Override
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> createEventResponseConsumer(String serviceId) {
+        EmbeddedTbQueueConsumerTemplate.EmbeddedTbQueueConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSessionEventResponseProto>> consumerBuilder = EmbeddedTbQueueConsumerTemplate.builder();
+        String topic = clientSessionEventResponseSettings.getKafkaTopicPrefix() + "." + serviceId;
+        consumerBuilder.storage(storage);
+        consumerBuilder.topic(topic);
+        consumerBuilder.topicConfigs(QueueUtil.getConfigs(clientSessionEventResponseSettings.getTopicProperties()));
+        consumerBuilder.clientId(kafkaPrefix + "client-session-event-response-consumer-" + serviceId);
+        consumerBuilder.groupId(kafkaPrefix + "client-session-event-response-consumer-group-" + serviceId);
+        consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.ClientSessionEventResponseProto.parseFrom(msg.getData()), msg.getHeaders()));
+        consumerBuilder.statsManager(consumerStatsManager);
+        return consumerBuilder.build();
+    }
+}
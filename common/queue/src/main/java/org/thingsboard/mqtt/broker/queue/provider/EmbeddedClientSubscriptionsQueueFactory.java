@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.provider;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.util.BrokerConstants;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
+import org.thingsboard.mqtt.broker.queue.TbQueueProducer;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedQueueStorage;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueConsumerTemplate;
+import org.thingsboard.mqtt.broker.queue.embedded.EmbeddedTbQueueProducerTemplate;
+import org.thingsboard.mqtt.broker.queue.kafka.settings.ClientSubscriptionsKafkaSettings;
+import org.thingsboard.mqtt.broker.queue.stats.ConsumerStatsManager;
+import org.thingsboard.mqtt.broker.queue.stats.ProducerStatsManager;
+import org.thingsboard.mqtt.broker.queue.util.QueueUtil;
+
+import java.util.Map;
+
+import static org.thingsboard.mqtt.broker.queue.constants.QueueConstants.CLEANUP_POLICY_PROPERTY;
+import static org.thingsboard.mqtt.broker.queue.constants.QueueConstants.COMPACT_POLICY;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "embedded")
+@RequiredArgsConstructor
+public class EmbeddedClientSubscriptionsQueueFactory extends AbstractQueueFactory implements ClientSubscriptionsQueueFactory {
+
+    private final EmbeddedQueueStorage storage;
+    private final ClientSubscriptionsKafkaSettings clientSubscriptionsSettings;
+
+    @Autowired(required = false)
+    private ProducerStatsManager producerStatsManager;
+    @Autowired(required = false)
+    private ConsumerStatsManager consumerStatsManager;
+
+    private Map<String, String> topicConfigs;
+
+    @PostConstruct
+    public void init() {
+        this.topicConfigs = QueueUtil.getConfigs(clientSubscriptionsSettings.getTopicProperties());
+        String configuredLogCleanupPolicy = topicConfigs.get(CLEANUP_POLICY_PROPERTY);
+        if (configuredLogCleanupPolicy != null && !configuredLogCleanupPolicy.equals(COMPACT_POLICY)) {
+            log.warn("Client subscriptions clean-up policy should be " + COMPACT_POLICY + ".");
+        }
+        topicConfigs.put(CLEANUP_POLICY_PROPERTY, COMPACT_POLICY);
+    }
+
+    @Override
+    public TbQueueProducer<TbProtoQueueMsg<QueueProtos.ClientSubscriptionsProto>> createProducer() {
+        EmbeddedTbQueueProducerTemplate.EmbeddedTbQueueProducerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSubscriptionsProto>> producerBuilder = EmbeddedTbQueueProducerTemplate.builder();
+        producerBuilder.storage(storage);
+        producerBuilder.clientId(kafkaPrefix + "client-subscriptions-producer");
+        producerBuilder.defaultTopic(clientSubscriptionsSettings.getKafkaTopic());
+        producerBuilder.topicConfigs(topicConfigs);
+        producerBuilder.statsManager(producerStatsManager);
+        return producerBuilder.build();
+    }
+
+    @Override
+    public TbQueueControlledOffsetConsumer<TbProtoQueueMsg<QueueProtos.ClientSubscriptionsProto>> createConsumer(String consumerId, String groupId) {
+        EmbeddedTbQueueConsumerTemplate.EmbeddedTbQueueConsumerTemplateBuilder<TbProtoQueueMsg<QueueProtos.ClientSubscriptionsProto>> consumerBuilder = EmbeddedTbQueueConsumerTemplate.builder();
+        consumerBuilder.storage(storage);
+        consumerBuilder.autoOffsetResetEarliest(true);
+
+        consumerBuilder.topic(clientSubscriptionsSettings.getKafkaTopic());
+        consumerBuilder.topicConfigs(topicConfigs);
+        consumerBuilder.clientId(kafkaPrefix + "client-subscriptions-consumer-" + consumerId);
+        consumerBuilder.groupId(kafkaPrefix + BrokerConstants.CLIENT_SUBSCRIPTIONS_CG_PREFIX + groupId);
+        consumerBuilder.decoder(msg -> new TbProtoQueueMsg<>(msg.getKey(), QueueProtos.ClientSubscriptionsProto.parseFrom(msg.getData()), msg.getHeaders(),
+                msg.getPartition(), msg.getOffset()));
+        consumerBuilder.statsManager(consumerStatsManager);
+        return consumerBuilder.build();
+    }
+}
@@ -19,6 +19,7 @@ import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueControlledOffsetConsumer;
@@ -40,6 +41,7 @@ import java.util.Properties;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 public class KafkaApplicationPersistenceMsgQueueFactory extends AbstractQueueFactory implements ApplicationPersistenceMsgQueueFactory {
 
@@ -17,6 +17,7 @@ package org.thingsboard.mqtt.broker.queue.provider;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
@@ -36,6 +37,7 @@ import java.util.Properties;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 public class KafkaApplicationRemovedEventQueueFactory extends AbstractQueueFactory implements ApplicationRemovedEventQueueFactory {
 
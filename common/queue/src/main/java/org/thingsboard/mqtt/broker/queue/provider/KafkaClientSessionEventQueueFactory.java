@@ -18,6 +18,7 @@ package org.thingsboard.mqtt.broker.queue.provider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
@@ -37,6 +38,7 @@ import org.thingsboard.mqtt.broker.queue.util.QueueUtil;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 public class KafkaClientSessionEventQueueFactory extends AbstractQueueFactory implements ClientSessionEventQueueFactory {
 
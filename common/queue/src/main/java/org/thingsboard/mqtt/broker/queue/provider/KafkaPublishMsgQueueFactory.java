@@ -18,6 +18,7 @@ package org.thingsboard.mqtt.broker.queue.provider;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
 import org.thingsboard.mqtt.broker.queue.TbQueueAdmin;
@@ -37,6 +38,7 @@ import org.thingsboard.mqtt.broker.queue.util.QueueUtil;
 import java.util.Map;
 
 @Component
+@ConditionalOnProperty(prefix = "queue", value = "type", havingValue = "kafka", matchIfMissing = true)
 @RequiredArgsConstructor
 public class KafkaPublishMsgQueueFactory extends AbstractQueueFactory implements PublishMsgQueueFactory {
 
@@ -28,4 +28,6 @@ public interface TbPublishService<PROTO extends GeneratedMessageV3> {
     void send(TbProtoQueueMsg<PROTO> msg, TbQueueCallback callback);
 
     void send(TbProtoQueueMsg<PROTO> msg, TbQueueCallback callback, String topic);
+
+    void flush();
 }
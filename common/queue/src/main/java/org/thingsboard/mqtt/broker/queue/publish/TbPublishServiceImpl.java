@@ -60,6 +60,15 @@ public class TbPublishServiceImpl<PROTO extends GeneratedMessageV3> implements T
         }
     }
 
+    @Override
+    public void flush() {
+        try {
+            producer.flush();
+        } catch (Exception e) {
+            log.error("[{}] Failed to flush msgs to the queue", queueName, e);
+        }
+    }
+
     @Override
     public void destroy() {
     }
@@ -0,0 +1,241 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.embedded;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thingsboard.mqtt.broker.queue.TbQueueCallback;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsgMetadata;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.constants.QueueConstants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmbeddedQueueStorageTest {
+
+    private static final String TOPIC = "tbmq.test";
+    private static final String GROUP = "test-group";
+
+    @TempDir
+    Path dataDir;
+
+    EmbeddedQueueSettings settings;
+    EmbeddedQueueStorage storage;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        settings = new EmbeddedQueueSettings();
+        settings.setDataDir(dataDir.toString());
+        settings.setSegmentSizeBytes(4096);
+        settings.setMaxPollRecords(100);
+        settings.setFlushIntervalMs(60000);
+        settings.setCleanupIntervalMs(60000);
+        settings.setEnableTopicDeletion(true);
+        storage = new EmbeddedQueueStorage(settings);
+        storage.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        storage.destroy();
+    }
+
+    @Test
+    public void givenProducedMessages_whenConsumerCommitsAndStorageReopened_thenConsumptionResumesFromCommittedOffset() throws IOException {
+        EmbeddedTbQueueProducerTemplate<TbQueueMsg> producer = newProducer(Map.of());
+        for (int i = 0; i < 250; i++) {
+            producer.send(msg("key-" + i, "value-" + i), null);
+        }
+
+        EmbeddedTbQueueConsumerTemplate<TbQueueMsg> consumer = newConsumer(Map.of(), true);
+        consumer.assignPartition(0);
+        List<TbQueueMsg> firstPoll = consumer.poll(100);
+        assertThat(firstPoll).hasSize(100);
+        assertThat(value(firstPoll.get(0))).isEqualTo("value-0");
+        consumer.commitSync();
+        consumer.unsubscribeAndClose();
+
+        storage.destroy();
+        storage = new EmbeddedQueueStorage(settings);
+        storage.init();
+
+        consumer = newConsumer(Map.of(), true);
+        consumer.assignPartition(0);
+        List<TbQueueMsg> records = pollAll(consumer);
+        assertThat(records).hasSize(150);
+        assertThat(value(records.get(0))).isEqualTo("value-100");
+        assertThat(records.get(0).getOffset()).isEqualTo(100);
+        assertThat(value(records.get(149))).isEqualTo("value-249");
+    }
+
+    @Test
+    public void givenCompactedTopic_whenCleanUp_thenOnlyLatestRecordOfEveryKeyIsRetained() {
+        Map<String, String> configs = Map.of(QueueConstants.CLEANUP_POLICY_PROPERTY, QueueConstants.COMPACT_POLICY);
+        EmbeddedTbQueueProducerTemplate<TbQueueMsg> producer = newProducer(configs);
+        // a few hundred records of ~60 bytes roll over several 4KB segments
+        for (int i = 0; i < 500; i++) {
+            producer.send(msg("key-" + (i % 10), "value-" + i), null);
+        }
+        long sizeBefore = storage.getTopic(TOPIC).getSizeBytes();
+
+        storage.cleanUp();
+
+        assertThat(storage.getTopic(TOPIC).getSizeBytes()).isLessThan(sizeBefore);
+        EmbeddedTbQueueConsumerTemplate<TbQueueMsg> consumer = newConsumer(configs, true);
+        consumer.assignPartition(0);
+        List<TbQueueMsg> records = pollAll(consumer);
+        Map<String, String> latest = new HashMap<>();
+        records.forEach(record -> latest.put(record.getKey(), value(record)));
+        for (int i = 490; i < 500; i++) {
+            assertThat(latest.get("key-" + (i % 10))).isEqualTo("value-" + i);
+        }
+        // offsets stay increasing after compaction
+        List<Long> offsets = records.stream().map(TbQueueMsg::getOffset).collect(Collectors.toList());
+        assertThat(offsets).isSorted();
+        assertThat(records.size()).isLessThan(500);
+    }
+
+    @Test
+    public void givenLatestOffsetReset_whenConsumerAssigned_thenOnlyNewMessagesAreConsumed() {
+        EmbeddedTbQueueProducerTemplate<TbQueueMsg> producer = newProducer(Map.of());
+        producer.send(msg("old", "old"), null);
+
+        EmbeddedTbQueueConsumerTemplate<TbQueueMsg> consumer = newConsumer(Map.of(), false);
+        consumer.assignPartition(0);
+        producer.send(msg("new", "new"), null);
+
+        List<TbQueueMsg> records = pollAll(consumer);
+        assertThat(records).extracting(TbQueueMsg::getKey).containsExactly("new");
+        assertThat(consumer.getEndOffset(TOPIC, 0)).isEqualTo(2);
+    }
+
+    @Test
+    public void givenGroupWithTwoMembers_whenSubscribed_thenPartitionsAreSplitBetweenMembers() {
+        Map<String, String> configs = Map.of(QueueConstants.PARTITIONS, "4");
+        EmbeddedTbQueueProducerTemplate<TbQueueMsg> producer = newProducer(configs);
+        for (int i = 0; i < 40; i++) {
+            producer.send(TOPIC, i % 4, msg("key-" + i, "value-" + i), null);
+        }
+
+        EmbeddedTbQueueConsumerTemplate<TbQueueMsg> first = newConsumer(configs, true);
+        EmbeddedTbQueueConsumerTemplate<TbQueueMsg> second = newConsumer(configs, true);
+        first.subscribe();
+        second.subscribe();
+
+        List<TbQueueMsg> firstRecords = pollAll(first);
+        List<TbQueueMsg> secondRecords = pollAll(second);
+        assertThat(firstRecords).hasSize(20);
+        assertThat(secondRecords).hasSize(20);
+        assertThat(firstRecords).extracting(TbQueueMsg::getPartition).containsOnly(0, 2);
+        assertThat(secondRecords).extracting(TbQueueMsg::getPartition).containsOnly(1, 3);
+    }
+
+    @Test
+    public void givenProducerCallback_whenMessageSent_thenMetadataIsReportedSynchronously() {
+        EmbeddedTbQueueProducerTemplate<TbQueueMsg> producer = newProducer(Map.of());
+        List<TbQueueMsgMetadata> metadata = new ArrayList<>();
+        producer.send(msg("key", "value"), new TbQueueCallback() {
+            @Override
+            public void onSuccess(TbQueueMsgMetadata msgMetadata) {
+                metadata.add(msgMetadata);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        });
+        assertThat(metadata).hasSize(1);
+    }
+
+    @Test
+    public void givenBlockedPoll_whenMessageProduced_thenConsumerIsWokenUpImmediately() throws Exception {
+        EmbeddedTbQueueProducerTemplate<TbQueueMsg> producer = newProducer(Map.of());
+        EmbeddedTbQueueConsumerTemplate<TbQueueMsg> consumer = newConsumer(Map.of(), true);
+        consumer.assignPartition(0);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 10; i++) {
+                // the poll timeout is far longer than the wait for the result, so only a wake-up by the producer completes it
+                CompletableFuture<List<TbQueueMsg>> received = CompletableFuture.supplyAsync(() -> consumer.poll(60000), executor);
+                // give the consumer a chance to block in the poll before the message is produced
+                Thread.sleep(20);
+                producer.send(msg("key", "value-" + i), null);
+                List<TbQueueMsg> records = received.get(10, TimeUnit.SECONDS);
+                assertThat(records).hasSize(1);
+                assertThat(value(records.get(0))).isEqualTo("value-" + i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<TbQueueMsg> pollAll(EmbeddedTbQueueConsumerTemplate<TbQueueMsg> consumer) {
+        List<TbQueueMsg> result = new ArrayList<>();
+        List<TbQueueMsg> records;
+        while (!(records = consumer.poll(10)).isEmpty()) {
+            result.addAll(records);
+        }
+        return result;
+    }
+
+    private EmbeddedTbQueueProducerTemplate<TbQueueMsg> newProducer(Map<String, String> topicConfigs) {
+        return EmbeddedTbQueueProducerTemplate.builder()
+                .storage(storage)
+                .defaultTopic(TOPIC)
+                .clientId("test-producer")
+                .topicConfigs(topicConfigs)
+                .build();
+    }
+
+    private EmbeddedTbQueueConsumerTemplate<TbQueueMsg> newConsumer(Map<String, String> topicConfigs, boolean earliest) {
+        return EmbeddedTbQueueConsumerTemplate.<TbQueueMsg>builder()
+                .storage(storage)
+                .decoder(msg -> msg)
+                .clientId("test-consumer")
+                .groupId(GROUP)
+                .topic(TOPIC)
+                .topicConfigs(topicConfigs)
+                .autoOffsetResetEarliest(earliest)
+                .build();
+    }
+
+    private TbQueueMsg msg(String key, String value) {
+        DefaultTbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put("header", key.getBytes(StandardCharsets.UTF_8));
+        return new EmbeddedTbQueueMsg(key, headers, value.getBytes(StandardCharsets.UTF_8), 0, 0, 0);
+    }
+
+    private String value(TbQueueMsg msg) {
+        return new String(msg.getData(), StandardCharsets.UTF_8);
+    }
+}
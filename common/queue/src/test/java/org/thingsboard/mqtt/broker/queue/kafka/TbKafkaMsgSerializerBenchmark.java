@@ -0,0 +1,155 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.kafka;
+
+import com.google.protobuf.ByteString;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the allocation per record of publishing to 'tbmq.msg.all' through {@link TbKafkaMsgSerializer} with the
+ * byte array value used before it. Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+public class TbKafkaMsgSerializerBenchmark {
+
+    private static final String TOPIC = "tbmq.msg.all";
+    private static final int RECORDS = 200_000;
+    private static final int WARMUP_RECORDS = 50_000;
+
+    private final TbKafkaMsgSerializer serializer = new TbKafkaMsgSerializer();
+
+    @Test
+    public void givenMsgAllPublishing_whenSerializedThroughSerializer_thenLessAllocatedThanByteArrayPath() {
+        List<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> msgs = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            TbProtoQueueMsg<QueueProtos.PublishMsgProto> msg = newMsg(ThreadLocalRandom.current().nextInt(32, 512));
+            if (i % 4 == 0) {
+                msg.getHeaders().put("expiry", new byte[]{0, 0, 0, 60});
+            }
+            msgs.add(msg);
+        }
+        ByteBuffer batchBuffer = ByteBuffer.allocate(1024 * 1024);
+
+        runByteArrayPath(msgs, batchBuffer, WARMUP_RECORDS);
+        runSerializerPath(msgs, batchBuffer, WARMUP_RECORDS);
+
+        Result byteArrayPath = measure(() -> runByteArrayPath(msgs, batchBuffer, RECORDS));
+        Result serializerPath = measure(() -> runSerializerPath(msgs, batchBuffer, RECORDS));
+
+        log.info("'{}' publishing, byte array path: {} B/record, {} records/s", TOPIC, byteArrayPath.getBytesPerRecord(), byteArrayPath.getRecordsPerSecond());
+        log.info("'{}' publishing, serializer path: {} B/record, {} records/s", TOPIC, serializerPath.getBytesPerRecord(), serializerPath.getRecordsPerSecond());
+        assertThat(serializerPath.getBytesPerRecord()).isLessThan(byteArrayPath.getBytesPerRecord());
+    }
+
+    /**
+     * Producer work per record before {@link TbKafkaMsgSerializer}: the value array and a header list are built upfront
+     * and the record is appended to the batch the same way the Kafka record accumulator does.
+     */
+    private void runByteArrayPath(List<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> msgs, ByteBuffer batchBuffer, int records) {
+        ByteArraySerializer byteArraySerializer = new ByteArraySerializer();
+        MemoryRecordsBuilder builder = newBatch(batchBuffer);
+        for (int i = 0; i < records; i++) {
+            TbProtoQueueMsg<QueueProtos.PublishMsgProto> msg = msgs.get(i & (msgs.size() - 1));
+            var entries = msg.getHeaders().getData().entrySet();
+            List<Header> headers = new ArrayList<>(entries.size());
+            for (var entry : entries) {
+                headers.add(new RecordHeader(entry.getKey(), entry.getValue()));
+            }
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(TOPIC, null, msg.getKey(), msg.getData(), headers);
+            byte[] value = byteArraySerializer.serialize(TOPIC, record.headers(), record.value());
+            builder = append(builder, batchBuffer, record.key(), value, record.headers().toArray());
+        }
+    }
+
+    private void runSerializerPath(List<TbProtoQueueMsg<QueueProtos.PublishMsgProto>> msgs, ByteBuffer batchBuffer, int records) {
+        MemoryRecordsBuilder builder = newBatch(batchBuffer);
+        for (int i = 0; i < records; i++) {
+            TbProtoQueueMsg<QueueProtos.PublishMsgProto> msg = msgs.get(i & (msgs.size() - 1));
+            ProducerRecord<String, TbQueueMsg> record = new ProducerRecord<>(TOPIC, null, msg.getKey(), msg);
+            byte[] value = serializer.serialize(TOPIC, record.headers(), record.value());
+            builder = append(builder, batchBuffer, record.key(), value, record.headers().toArray());
+        }
+    }
+
+    private MemoryRecordsBuilder append(MemoryRecordsBuilder builder, ByteBuffer batchBuffer, String key, byte[] value, Header[] headers) {
+        if (!builder.hasRoomFor(0, null, value, headers)) {
+            builder = newBatch(batchBuffer);
+        }
+        builder.append(0, key.getBytes(StandardCharsets.UTF_8), value, headers);
+        return builder;
+    }
+
+    private MemoryRecordsBuilder newBatch(ByteBuffer batchBuffer) {
+        batchBuffer.clear();
+        return MemoryRecords.builder(batchBuffer, CompressionType.NONE, TimestampType.CREATE_TIME, 0L);
+    }
+
+    private Result measure(Runnable run) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        run.run();
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Result(allocated / RECORDS, RECORDS * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsedNanos, 1));
+    }
+
+    private TbProtoQueueMsg<QueueProtos.PublishMsgProto> newMsg(int payloadSize) {
+        byte[] payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        QueueProtos.PublishMsgProto proto = QueueProtos.PublishMsgProto.newBuilder()
+                .setClientId("client-" + payloadSize)
+                .setPacketId(payloadSize)
+                .setPayload(ByteString.copyFrom(payload))
+                .setQos(1)
+                .setTopicName("sensors/" + payloadSize + "/temperature")
+                .build();
+        return new TbProtoQueueMsg<>("sensors/" + payloadSize + "/temperature", proto, new DefaultTbQueueMsgHeaders());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Result {
+        private final long bytesPerRecord;
+        private final long recordsPerSecond;
+    }
+}
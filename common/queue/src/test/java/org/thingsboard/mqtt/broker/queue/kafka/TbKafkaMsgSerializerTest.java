@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.queue.kafka;
+
+import com.google.protobuf.ByteString;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.mqtt.broker.gen.queue.QueueProtos;
+import org.thingsboard.mqtt.broker.queue.TbQueueMsg;
+import org.thingsboard.mqtt.broker.queue.common.DefaultTbQueueMsgHeaders;
+import org.thingsboard.mqtt.broker.queue.common.TbProtoQueueMsg;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TbKafkaMsgSerializerTest {
+
+    private static final String TOPIC = "tbmq.msg.all";
+
+    private final TbKafkaMsgSerializer serializer = new TbKafkaMsgSerializer();
+
+    @Test
+    public void givenProtoMsgWithHeaders_whenSerialize_thenBytesAndHeadersMatchProto() throws Exception {
+        TbProtoQueueMsg<QueueProtos.PublishMsgProto> msg = newMsg(64);
+        msg.getHeaders().put("expiry", new byte[]{1, 2});
+
+        ProducerRecord<String, TbQueueMsg> record = new ProducerRecord<>(TOPIC, null, msg.getKey(), msg);
+        byte[] bytes = serializer.serialize(TOPIC, record.headers(), msg);
+
+        assertThat(bytes).isEqualTo(msg.getValue().toByteArray());
+        assertThat(QueueProtos.PublishMsgProto.parseFrom(bytes)).isEqualTo(msg.getValue());
+        assertThat(record.headers().lastHeader("expiry").value()).containsExactly(1, 2);
+        assertThat(serializer.serialize(TOPIC, null)).isNull();
+    }
+
+    private TbProtoQueueMsg<QueueProtos.PublishMsgProto> newMsg(int payloadSize) {
+        byte[] payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        QueueProtos.PublishMsgProto proto = QueueProtos.PublishMsgProto.newBuilder()
+                .setClientId("client-" + payloadSize)
+                .setPacketId(payloadSize)
+                .setPayload(ByteString.copyFrom(payload))
+                .setQos(1)
+                .setTopicName("sensors/" + payloadSize + "/temperature")
+                .build();
+        return new TbProtoQueueMsg<>("sensors/" + payloadSize + "/temperature", proto, new DefaultTbQueueMsgHeaders());
+    }
+}
@@ -106,4 +106,15 @@ public class DefaultStatsFactory implements StatsFactory {
         }
         return timerBuilder.register(meterRegistry);
     }
+
+    @Override
+    public Timer createHistogramTimer(String key, String... tags) {
+        Timer.Builder timerBuilder = Timer.builder(key)
+                .tags(tags)
+                .publishPercentileHistogram();
+        if (timerPercentiles != null && timerPercentiles.length > 0) {
+            timerBuilder.publishPercentiles(timerPercentiles);
+        }
+        return timerBuilder.register(meterRegistry);
+    }
 }
@@ -47,5 +47,10 @@ public class StatsConstantNames {
     public static final String NEW_RETAINED_MSGS = "newRetainedMsgs";
     public static final String CLEARED_RETAINED_MSGS = "clearedRetainedMsgs";
 
+    public static final String SUCCESSFUL_HANDSHAKES = "successfulHandshakes";
+    public static final String RESUMED_HANDSHAKES = "resumedHandshakes";
+    public static final String FAILED_HANDSHAKES = "failedHandshakes";
+    public static final String LISTENER_TAG = "listener";
+
     public static final String STATS_NAME_TAG = "statsName";
 }
@@ -32,4 +32,6 @@ public interface StatsFactory {
     MessagesStats createMessagesStats(String key, String... tags);
 
     Timer createTimer(String key, String... tags);
+
+    Timer createHistogramTimer(String key, String... tags);
 }
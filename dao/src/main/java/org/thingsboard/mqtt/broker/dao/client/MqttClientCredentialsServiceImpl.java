@@ -306,7 +306,8 @@ public class MqttClientCredentialsServiceImpl implements MqttClientCredentialsSe
 
     private void evictCache(MqttClientCredentials newCredentials, MqttClientCredentials currentCredentials) {
         evictMqttClientCredentialsCache(currentCredentials);
-        invalidateBasicCredentialsPasswordCache(currentCredentials);
+        evictBasicCredentialsPasswordCache(newCredentials);
+        evictBasicCredentialsPasswordCache(currentCredentials);
         invalidateSslRegexBasedCredentialsCache(newCredentials, currentCredentials);
     }
 
@@ -316,9 +317,13 @@ public class MqttClientCredentialsServiceImpl implements MqttClientCredentialsSe
         }
     }
 
-    private void invalidateBasicCredentialsPasswordCache(MqttClientCredentials clientCredentials) {
+    /**
+     * Entries are kept per credentials id, so only the entry of the changed credentials is evicted. The new credentials id
+     * is evicted as well to drop the cached absence of credentials with such id.
+     */
+    private void evictBasicCredentialsPasswordCache(MqttClientCredentials clientCredentials) {
         if (clientCredentials != null && ClientCredentialsType.MQTT_BASIC == clientCredentials.getCredentialsType()) {
-            getCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE).invalidate();
+            getCache(CacheConstants.BASIC_CREDENTIALS_PASSWORD_CACHE).evictIfPresent(clientCredentials.getCredentialsId());
         }
     }
 
@@ -18,7 +18,6 @@ package org.thingsboard.mqtt.broker.dao.messages.sql;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.transaction.annotation.Transactional;
 import org.thingsboard.mqtt.broker.dao.model.sql.DevicePublishMsgCompositeKey;
 import org.thingsboard.mqtt.broker.dao.model.sql.DevicePublishMsgEntity;
 
@@ -51,19 +50,4 @@ public interface DeviceMsgRepository extends JpaRepository<DevicePublishMsgEntit
     List<DevicePublishMsgEntity> findByClientIdAndSerialNumberInRange(@Param("clientId") String clientId,
                                                                       @Param("fromSerialNumber") long fromSerialNumber,
                                                                       @Param("toSerialNumber") long toSerialNumber);
-
-    @Query(value = "SELECT * FROM " + DEVICE_PUBLISH_MSG + " pubMsg " +
-            "WHERE pubMsg." + CLIENT_ID + " = :clientId " +
-            "ORDER BY pubMsg." + SERIAL_NUMBER + " DESC " +
-            "OFFSET :offset " +
-            "LIMIT 1",
-            nativeQuery = true)
-    DevicePublishMsgEntity findEntityByClientIdAfterOffset(@Param("clientId") String clientId,
-                                                           @Param("offset") int offset);
-
-    @Transactional
-    int removeAllByTimeLessThan(long earliestAcceptableTime);
-
-    @Transactional
-    int removeAllByClientIdAndSerialNumberLessThan(String clientId, long earliestAcceptableSerialNumber);
 }
@@ -15,17 +15,17 @@
  */
 package org.thingsboard.mqtt.broker.dao.messages.sql;
 
+import com.google.common.util.concurrent.RateLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.thingsboard.mqtt.broker.dao.client.device.DeviceSessionCtxRepository;
 import org.thingsboard.mqtt.broker.dao.messages.DeviceMsgCleanUpDao;
-import org.thingsboard.mqtt.broker.dao.model.DeviceSessionCtxEntity;
-import org.thingsboard.mqtt.broker.dao.model.sql.DevicePublishMsgEntity;
 
+import java.sql.Array;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
@@ -33,17 +33,65 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class SqlDeviceMsgCleanUpDao implements DeviceMsgCleanUpDao {
 
-    private final DeviceMsgRepository deviceMsgRepository;
-    private final DeviceSessionCtxRepository deviceSessionCtxRepository;
+    private static final String SELECT_CLIENT_IDS_AFTER = "SELECT client_id FROM device_session_ctx " +
+            "WHERE client_id > ? ORDER BY client_id LIMIT ?;";
+
+    // for every client of the batch finds the oldest of the messages to keep and deletes all older ones in one statement
+    private static final String DELETE_MSGS_EXCEEDING_LIMIT = "DELETE FROM device_publish_msg msg " +
+            "USING (SELECT client.client_id, oldest_kept.serial_number " +
+            "FROM unnest(?) AS client(client_id) " +
+            "CROSS JOIN LATERAL (SELECT serial_number FROM device_publish_msg " +
+            "WHERE client_id = client.client_id ORDER BY serial_number DESC OFFSET ? LIMIT 1) oldest_kept) boundary " +
+            "WHERE msg.client_id = boundary.client_id AND msg.serial_number < boundary.serial_number;";
+
+    // the TTL clean-up walks the primary key in ranges of ttl-batch-size rows, so every statement reads a bounded
+    // index range and the whole run visits each row once instead of rescanning the table for every batch
+    private static final String SELECT_RANGE_END_AFTER = "SELECT client_id, serial_number FROM device_publish_msg " +
+            "WHERE (client_id, serial_number) > (?, ?) ORDER BY client_id, serial_number OFFSET ? LIMIT 1;";
+
+    private static final String DELETE_MSGS_OLDER_THAN_IN_RANGE = "DELETE FROM device_publish_msg " +
+            "WHERE (client_id, serial_number) > (?, ?) AND (client_id, serial_number) <= (?, ?) AND time < ?;";
+
+    private static final String DELETE_MSGS_OLDER_THAN_AFTER = "DELETE FROM device_publish_msg " +
+            "WHERE (client_id, serial_number) > (?, ?) AND time < ?;";
+
+    private final JdbcTemplate jdbcTemplate;
 
     @Value("${mqtt.persistent-session.device.persisted-messages.clean-up.session-ctx-page-size:1000}")
     private int sessionCtxPageSize;
 
+    @Value("${mqtt.persistent-session.device.persisted-messages.clean-up.ttl-batch-size:10000}")
+    private int ttlBatchSize;
+
+    @Value("${mqtt.persistent-session.device.persisted-messages.clean-up.max-removed-msgs-per-second:0}")
+    private int maxRemovedMsgsPerSecond;
+
     @Override
     public void cleanUpByTime(long ttl) {
         log.trace("Cleaning up device publish messages for TTL {} seconds.", ttl);
         long earliestAcceptableTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttl);
-        int removed = deviceMsgRepository.removeAllByTimeLessThan(earliestAcceptableTime);
+        RateLimiter rateLimiter = newRemovedMsgsRateLimiter();
+        long removed = 0;
+        String lastClientId = "";
+        long lastSerialNumber = Long.MIN_VALUE;
+        while (true) {
+            List<Map<String, Object>> rangeEnd = jdbcTemplate.queryForList(SELECT_RANGE_END_AFTER,
+                    lastClientId, lastSerialNumber, ttlBatchSize - 1);
+            if (rangeEnd.isEmpty()) {
+                int removedInBatch = jdbcTemplate.update(DELETE_MSGS_OLDER_THAN_AFTER,
+                        lastClientId, lastSerialNumber, earliestAcceptableTime);
+                removed += removedInBatch;
+                break;
+            }
+            String rangeEndClientId = (String) rangeEnd.get(0).get("client_id");
+            long rangeEndSerialNumber = ((Number) rangeEnd.get(0).get("serial_number")).longValue();
+            int removedInBatch = jdbcTemplate.update(DELETE_MSGS_OLDER_THAN_IN_RANGE,
+                    lastClientId, lastSerialNumber, rangeEndClientId, rangeEndSerialNumber, earliestAcceptableTime);
+            removed += removedInBatch;
+            throttle(rateLimiter, removedInBatch);
+            lastClientId = rangeEndClientId;
+            lastSerialNumber = rangeEndSerialNumber;
+        }
         log.info("Cleared {} publish messages older than {}.", removed, earliestAcceptableTime);
     }
 
@@ -55,22 +103,40 @@ public class SqlDeviceMsgCleanUpDao implements DeviceMsgCleanUpDao {
         }
         log.trace("Cleaning up device publish messages to match max size {}.", maxPersistedMessages);
 
-        Page<DeviceSessionCtxEntity> deviceSessionCtxEntities;
-        int pageCounter = 0;
+        RateLimiter rateLimiter = newRemovedMsgsRateLimiter();
+        long removed = 0;
+        String lastClientId = "";
+        List<String> clientIds;
         do {
-            deviceSessionCtxEntities = deviceSessionCtxRepository.findAll(PageRequest.of(pageCounter++, sessionCtxPageSize));
-            for (DeviceSessionCtxEntity deviceSessionCtxEntity : deviceSessionCtxEntities) {
-                String clientId = deviceSessionCtxEntity.getClientId();
-                DevicePublishMsgEntity earliestPersistedMsg = deviceMsgRepository.findEntityByClientIdAfterOffset(clientId, maxPersistedMessages - 1);
-                if (earliestPersistedMsg == null) {
-                    log.trace("[{}] No messages to clean up.", clientId);
-                } else {
-                    log.trace("[{}] Clearing messages with serial number less than {}.", clientId, earliestPersistedMsg.getSerialNumber());
-                    int removed = deviceMsgRepository.removeAllByClientIdAndSerialNumberLessThan(clientId, earliestPersistedMsg.getSerialNumber());
-                    log.debug("[{}] Removed {} messages.", clientId, removed);
-                }
+            clientIds = jdbcTemplate.queryForList(SELECT_CLIENT_IDS_AFTER, String.class, lastClientId, sessionCtxPageSize);
+            if (clientIds.isEmpty()) {
+                break;
             }
-        } while (!deviceSessionCtxEntities.isLast());
+            int removedInBatch = removeMsgsExceedingLimit(clientIds, maxPersistedMessages);
+            log.debug("Removed {} messages of {} clients starting from [{}].", removedInBatch, clientIds.size(), clientIds.get(0));
+            removed += removedInBatch;
+            throttle(rateLimiter, removedInBatch);
+            lastClientId = clientIds.get(clientIds.size() - 1);
+        } while (clientIds.size() >= sessionCtxPageSize);
+        log.info("Cleared {} publish messages exceeding max size {}.", removed, maxPersistedMessages);
+    }
+
+    private int removeMsgsExceedingLimit(List<String> clientIds, int maxPersistedMessages) {
+        return jdbcTemplate.update(DELETE_MSGS_EXCEEDING_LIMIT, ps -> {
+            Array clientIdsArray = ps.getConnection().createArrayOf("varchar", clientIds.toArray());
+            ps.setArray(1, clientIdsArray);
+            ps.setInt(2, maxPersistedMessages - 1);
+        });
+    }
 
+    private RateLimiter newRemovedMsgsRateLimiter() {
+        return maxRemovedMsgsPerSecond > 0 ? RateLimiter.create(maxRemovedMsgsPerSecond) : null;
+    }
+
+    // the next batch waits until the messages removed so far fit the budget, which keeps the clean-up from saturating the DB
+    private void throttle(RateLimiter rateLimiter, int removedInBatch) {
+        if (rateLimiter != null && removedInBatch > 0) {
+            rateLimiter.acquire(removedInBatch);
+        }
     }
 }
@@ -39,15 +39,15 @@ import java.util.stream.IntStream;
 public class SqlLowLevelDeviceMsgRepository implements LowLevelDeviceMsgRepository {
 
     private static final String INSERT_OR_UPDATE = "INSERT INTO device_publish_msg " +
-            "(client_id, topic, serial_number, packet_id, packet_type, time, qos, payload, user_properties, retain, msg_expiry_interval, payload_format_indicator, content_type, response_topic, correlation_data)" +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "(client_id, topic, serial_number, packet_id, packet_type, time, qos, payload, user_properties, retain, msg_expiry_interval, payload_format_indicator, content_type, response_topic, correlation_data, payload_compressed)" +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
             "ON CONFLICT (client_id, serial_number) DO UPDATE SET " +
             "topic = ?, packet_id = ?, packet_type = ?, time = ?, qos = ?, payload = ?, user_properties = ?, retain = ?, msg_expiry_interval = ?, payload_format_indicator = ?, content_type = ?, " +
-            "response_topic = ?, correlation_data = ?;";
+            "response_topic = ?, correlation_data = ?, payload_compressed = ?;";
 
     private static final String INSERT = "INSERT INTO device_publish_msg " +
-            "(client_id, topic, serial_number, packet_id, packet_type, time, qos, payload, user_properties, retain, msg_expiry_interval, payload_format_indicator, content_type, response_topic, correlation_data) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+            "(client_id, topic, serial_number, packet_id, packet_type, time, qos, payload, user_properties, retain, msg_expiry_interval, payload_format_indicator, content_type, response_topic, correlation_data, payload_compressed) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
 
     private static final String UPDATE_PACKET_TYPE = "UPDATE device_publish_msg SET packet_type = ? " +
             "WHERE client_id = ? AND packet_id = ?;";
@@ -81,6 +81,7 @@ public class SqlLowLevelDeviceMsgRepository implements LowLevelDeviceMsgReposito
                 ps.setString(13, devicePublishMsgEntity.getContentType());
                 ps.setString(14, devicePublishMsgEntity.getResponseTopic());
                 ps.setBytes(15, devicePublishMsgEntity.getCorrelationData());
+                ps.setObject(16, devicePublishMsgEntity.getPayloadCompressed(), Types.BOOLEAN);
             }
 
             @Override
@@ -111,19 +112,21 @@ public class SqlLowLevelDeviceMsgRepository implements LowLevelDeviceMsgReposito
                 ps.setString(13, devicePublishMsgEntity.getContentType());
                 ps.setString(14, devicePublishMsgEntity.getResponseTopic());
                 ps.setBytes(15, devicePublishMsgEntity.getCorrelationData());
-                ps.setString(16, devicePublishMsgEntity.getTopic());
-                ps.setInt(17, devicePublishMsgEntity.getPacketId());
-                ps.setString(18, devicePublishMsgEntity.getPacketType().toString());
-                ps.setLong(19, devicePublishMsgEntity.getTime());
-                ps.setInt(20, devicePublishMsgEntity.getQos());
-                ps.setBytes(21, devicePublishMsgEntity.getPayload());
-                ps.setString(22, devicePublishMsgEntity.getUserProperties());
-                ps.setBoolean(23, devicePublishMsgEntity.isRetain());
-                ps.setObject(24, devicePublishMsgEntity.getMsgExpiryInterval(), Types.INTEGER);
-                ps.setObject(25, devicePublishMsgEntity.getPayloadFormatIndicator(), Types.INTEGER);
-                ps.setString(26, devicePublishMsgEntity.getContentType());
-                ps.setString(27, devicePublishMsgEntity.getResponseTopic());
-                ps.setBytes(28, devicePublishMsgEntity.getCorrelationData());
+                ps.setObject(16, devicePublishMsgEntity.getPayloadCompressed(), Types.BOOLEAN);
+                ps.setString(17, devicePublishMsgEntity.getTopic());
+                ps.setInt(18, devicePublishMsgEntity.getPacketId());
+                ps.setString(19, devicePublishMsgEntity.getPacketType().toString());
+                ps.setLong(20, devicePublishMsgEntity.getTime());
+                ps.setInt(21, devicePublishMsgEntity.getQos());
+                ps.setBytes(22, devicePublishMsgEntity.getPayload());
+                ps.setString(23, devicePublishMsgEntity.getUserProperties());
+                ps.setBoolean(24, devicePublishMsgEntity.isRetain());
+                ps.setObject(25, devicePublishMsgEntity.getMsgExpiryInterval(), Types.INTEGER);
+                ps.setObject(26, devicePublishMsgEntity.getPayloadFormatIndicator(), Types.INTEGER);
+                ps.setString(27, devicePublishMsgEntity.getContentType());
+                ps.setString(28, devicePublishMsgEntity.getResponseTopic());
+                ps.setBytes(29, devicePublishMsgEntity.getCorrelationData());
+                ps.setObject(30, devicePublishMsgEntity.getPayloadCompressed(), Types.BOOLEAN);
             }
 
             @Override
@@ -27,6 +27,8 @@ import lombok.EqualsAndHashCode;
 import org.thingsboard.mqtt.broker.common.data.ApplicationMsgInfo;
 import org.thingsboard.mqtt.broker.common.data.ApplicationSessionCtx;
 import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+import org.thingsboard.mqtt.broker.dao.util.mapping.ApplicationMsgInfosCodec;
+import org.thingsboard.mqtt.broker.dao.util.mapping.ApplicationMsgInfosCodec.DecodedMsgInfos;
 import org.thingsboard.mqtt.broker.dao.util.mapping.JsonConverter;
 
 import java.util.ArrayList;
@@ -45,6 +47,7 @@ public class ApplicationSessionCtxEntity implements ToData<ApplicationSessionCtx
     @Column(name = ModelConstants.APPLICATION_SESSION_CTX_LAST_UPDATED_PROPERTY)
     private long lastUpdatedTime;
 
+    // the JSON columns are only read for the rows saved before the binary format, saving a row moves it to 'msgInfos'
     @Convert(converter = JsonConverter.class)
     @Column(name = ModelConstants.APPLICATION_SESSION_CTX_PUBLISH_MSG_INFOS_PROPERTY)
     private JsonNode publishMsgInfos;
@@ -52,28 +55,28 @@ public class ApplicationSessionCtxEntity implements ToData<ApplicationSessionCtx
     @Column(name = ModelConstants.APPLICATION_SESSION_CTX_PUBREL_MSG_INFOS_PROPERTY)
     private JsonNode pubRelMsgInfos;
 
+    @Column(name = ModelConstants.APPLICATION_SESSION_CTX_MSG_INFOS_PROPERTY, columnDefinition = "BINARY")
+    private byte[] msgInfos;
+
     public ApplicationSessionCtxEntity() {
     }
 
     public ApplicationSessionCtxEntity(ApplicationSessionCtx applicationSessionCtx) {
         this.clientId = applicationSessionCtx.getClientId();
         this.lastUpdatedTime = applicationSessionCtx.getLastUpdatedTime();
-        this.publishMsgInfos = JacksonUtil.toJsonNode(JacksonUtil.toString(applicationSessionCtx.getPublishMsgInfos()));
-        this.pubRelMsgInfos = JacksonUtil.toJsonNode(JacksonUtil.toString(applicationSessionCtx.getPubRelMsgInfos()));
+        this.msgInfos = ApplicationMsgInfosCodec.encode(applicationSessionCtx.getPublishMsgInfos(), applicationSessionCtx.getPubRelMsgInfos());
     }
 
     @Override
     public ApplicationSessionCtx toData() {
-        ArrayNode publishMsgInfoJsonArray = (ArrayNode) this.publishMsgInfos;
-        List<ApplicationMsgInfo> publishMsgInfos = new ArrayList<>(publishMsgInfoJsonArray.size());
-        for (JsonNode publishMsgInfoJson : publishMsgInfoJsonArray) {
-            publishMsgInfos.add(JacksonUtil.toValue(publishMsgInfoJson, ApplicationMsgInfo.class));
-        }
-        ArrayNode pubRelMsgInfoJsonArray = (ArrayNode) this.pubRelMsgInfos;
-        List<ApplicationMsgInfo> pubRelMsgInfos = new ArrayList<>(publishMsgInfoJsonArray.size());
-        for (JsonNode pubRelMsgInfoJson : pubRelMsgInfoJsonArray) {
-            pubRelMsgInfos.add(JacksonUtil.toValue(pubRelMsgInfoJson, ApplicationMsgInfo.class));
+        if (msgInfos != null) {
+            DecodedMsgInfos decodedMsgInfos = ApplicationMsgInfosCodec.decode(msgInfos);
+            return toData(decodedMsgInfos.getPublishMsgInfos(), decodedMsgInfos.getPubRelMsgInfos());
         }
+        return toData(fromJson(publishMsgInfos), fromJson(pubRelMsgInfos));
+    }
+
+    private ApplicationSessionCtx toData(List<ApplicationMsgInfo> publishMsgInfos, List<ApplicationMsgInfo> pubRelMsgInfos) {
         return ApplicationSessionCtx.builder()
                 .clientId(clientId)
                 .lastUpdatedTime(lastUpdatedTime)
@@ -81,4 +84,16 @@ public class ApplicationSessionCtxEntity implements ToData<ApplicationSessionCtx
                 .pubRelMsgInfos(pubRelMsgInfos)
                 .build();
     }
+
+    private static List<ApplicationMsgInfo> fromJson(JsonNode msgInfosJson) {
+        if (msgInfosJson == null) {
+            return new ArrayList<>();
+        }
+        ArrayNode msgInfoJsonArray = (ArrayNode) msgInfosJson;
+        List<ApplicationMsgInfo> msgInfos = new ArrayList<>(msgInfoJsonArray.size());
+        for (JsonNode msgInfoJson : msgInfoJsonArray) {
+            msgInfos.add(JacksonUtil.toValue(msgInfoJson, ApplicationMsgInfo.class));
+        }
+        return msgInfos;
+    }
 }
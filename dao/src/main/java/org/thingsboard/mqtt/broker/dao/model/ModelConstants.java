@@ -94,6 +94,7 @@ public class ModelConstants {
     public static final String DEVICE_PUBLISH_MSG_CONTENT_TYPE_PROPERTY = "content_type";
     public static final String DEVICE_PUBLISH_MSG_RESPONSE_TOPIC_PROPERTY = "response_topic";
     public static final String DEVICE_PUBLISH_MSG_CORRELATION_DATA_PROPERTY = "correlation_data";
+    public static final String DEVICE_PUBLISH_MSG_PAYLOAD_COMPRESSED_PROPERTY = "payload_compressed";
 
     /**
      * application_shared_subscription constants.
@@ -135,6 +136,7 @@ public class ModelConstants {
     public static final String APPLICATION_SESSION_CTX_LAST_UPDATED_PROPERTY = "last_updated_time";
     public static final String APPLICATION_SESSION_CTX_PUBLISH_MSG_INFOS_PROPERTY = "publish_msg_infos";
     public static final String APPLICATION_SESSION_CTX_PUBREL_MSG_INFOS_PROPERTY = "pubrel_msg_infos";
+    public static final String APPLICATION_SESSION_CTX_MSG_INFOS_PROPERTY = "msg_infos";
 
     /**
      * generic_client_session_ctx constants.
@@ -88,6 +88,9 @@ public class DevicePublishMsgEntity implements ToData<DevicePublishMsg> {
     @Column(name = ModelConstants.DEVICE_PUBLISH_MSG_CORRELATION_DATA_PROPERTY, columnDefinition = "BINARY")
     private byte[] correlationData;
 
+    @Column(name = ModelConstants.DEVICE_PUBLISH_MSG_PAYLOAD_COMPRESSED_PROPERTY)
+    private Boolean payloadCompressed;
+
     public DevicePublishMsgEntity() {
     }
 
@@ -107,6 +110,7 @@ public class DevicePublishMsgEntity implements ToData<DevicePublishMsg> {
         this.contentType = getContentType(devicePublishMsg);
         this.responseTopic = getResponseTopic(devicePublishMsg);
         this.correlationData = getCorrelationData(devicePublishMsg);
+        this.payloadCompressed = devicePublishMsg.isPayloadCompressed();
     }
 
     private Integer getMsgExpiryInterval(DevicePublishMsg devicePublishMsg) {
@@ -163,6 +167,7 @@ public class DevicePublishMsgEntity implements ToData<DevicePublishMsg> {
                 .packetType(packetType)
                 .properties(properties)
                 .isRetained(retain)
+                .payloadCompressed(Boolean.TRUE.equals(payloadCompressed))
                 .build();
     }
 }
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sql;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the number of queued elements the next batch of a {@link TbSqlBlockingQueue} takes.
+ * <p>
+ * While the queue keeps up, a batch is kept short enough to be executed within {@code maxDelay} according to the
+ * observed cost of an element, so that the elements queued behind it do not wait longer than that. When the queue
+ * grows faster than it is drained, the batch size is doubled up to {@code maxBatchSize}, since the elements already
+ * wait longer and bigger batches catch up faster.
+ */
+class TbSqlBatchSizer {
+
+    static final int MIN_BATCH_SIZE = 16;
+    private static final double COST_SMOOTHING_FACTOR = 0.2;
+
+    private final int maxBatchSize;
+    private final int minBatchSize;
+    private final long targetBatchNanos;
+
+    private double nanosPerElement;
+    @Getter
+    private int batchSize;
+
+    TbSqlBatchSizer(int maxBatchSize, long maxDelayMs) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.minBatchSize = Math.min(this.maxBatchSize, MIN_BATCH_SIZE);
+        this.targetBatchNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.batchSize = this.maxBatchSize;
+    }
+
+    void onBatchProcessed(int processedElements, long durationNanos, int queueDepth) {
+        if (processedElements <= 0) {
+            return;
+        }
+        double sample = (double) durationNanos / processedElements;
+        nanosPerElement = nanosPerElement == 0 ? sample : nanosPerElement + COST_SMOOTHING_FACTOR * (sample - nanosPerElement);
+
+        if (queueDepth >= batchSize) {
+            batchSize = (int) Math.min(maxBatchSize, 2L * batchSize);
+        } else if (targetBatchNanos > 0 && nanosPerElement > 0) {
+            batchSize = (int) Math.max(minBatchSize, Math.min(maxBatchSize, targetBatchNanos / nanosPerElement));
+        }
+    }
+}
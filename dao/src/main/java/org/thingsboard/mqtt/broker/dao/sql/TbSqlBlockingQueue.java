@@ -56,23 +56,22 @@ class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
     }
 
     private void processElementsQueue(String queueName) {
-        int batchSize = params.getBatchSize();
         long maxDelay = params.getMaxDelay();
-        List<TbSqlQueueElement<E>> elements = new ArrayList<>(batchSize);
+        TbSqlBatchSizer batchSizer = new TbSqlBatchSizer(params.getBatchSize(), maxDelay);
+        List<TbSqlQueueElement<E>> elements = new ArrayList<>(params.getBatchSize());
         while (!Thread.interrupted()) {
             try {
-                long currentTs = System.currentTimeMillis();
                 TbSqlQueueElement<E> queuedElement = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
                 if (queuedElement == null) {
                     continue;
                 } else {
                     elements.add(queuedElement);
                 }
-                queue.drainTo(elements, batchSize - 1);
-                boolean fullPack = elements.size() == batchSize;
+                queue.drainTo(elements, batchSizer.getBatchSize() - 1);
                 if (log.isDebugEnabled()) {
                     log.debug("[{}] Going to process {} elements.", queueName, elements.size());
                 }
+                long startNanos = System.nanoTime();
                 Stream<E> elementsStream = elements.stream().map(TbSqlQueueElement::getElement);
                 processingFunction.accept(
                         (params.isBatchSortEnabled() ? elementsStream.sorted(batchUpdateComparator) : elementsStream)
@@ -80,12 +79,8 @@ class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
                 );
                 elements.forEach(element -> element.getFuture().set(null));
                 stats.incrementSuccessful(elements.size());
-                if (!fullPack) {
-                    long remainingDelay = maxDelay - (System.currentTimeMillis() - currentTs);
-                    if (remainingDelay > 0) {
-                        Thread.sleep(remainingDelay);
-                    }
-                }
+                // no pause after the batch: the elements queued while it was executed form the next one
+                batchSizer.onBatchProcessed(elements.size(), System.nanoTime() - startNanos, queue.size());
             } catch (Exception e) {
                 stats.incrementFailed(elements.size());
                 elements.forEach(element -> element.getFuture().setException(e));
@@ -41,6 +41,7 @@ import org.thingsboard.mqtt.broker.dao.sql.TbSqlQueueParams;
 import org.thingsboard.mqtt.broker.dao.sqlts.insert.InsertTsRepository;
 import org.thingsboard.mqtt.broker.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.mqtt.broker.dao.timeseries.TimeseriesDao;
+import org.thingsboard.mqtt.broker.dao.timeseries.TimeseriesRollupDao;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -66,12 +67,17 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends BaseAbstra
     @Value("${sql.batch_sort:true}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.ts.rollup.enabled:true}")
+    protected boolean rollupEnabled;
+
     @Autowired
     protected TsKvRepository tsKvRepository;
     @Autowired
     protected InsertTsRepository<TsKvEntity> insertRepository;
     @Autowired(required = false)
     private SqlQueueStatsManager statsManager;
+    @Autowired(required = false)
+    protected TimeseriesRollupDao rollupDao;
 
     protected TbSqlBlockingQueuePool<TsKvEntity> tsQueue;
 
@@ -93,7 +99,10 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends BaseAbstra
                 .params(tsParams)
                 .maxThreads(tsBatchThreads)
                 .queueIndexHashFunction(hashcodeFunction)
-                .processingFunction(v -> insertRepository.saveOrUpdate(v))
+                .processingFunction(v -> {
+                    insertRepository.saveOrUpdate(v);
+                    refreshRollups(v);
+                })
                 .statsManager(statsManager)
                 .batchUpdateComparator(tsKvEntityComparator)
                 .build();
@@ -107,6 +116,19 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends BaseAbstra
         }
     }
 
+    /**
+     * Rollups are derived data, so a failure to refresh them is logged instead of failing the already persisted raw entries.
+     */
+    protected void refreshRollups(List<TsKvEntity> entities) {
+        if (rollupEnabled && rollupDao != null) {
+            try {
+                rollupDao.refresh(entities);
+            } catch (Exception e) {
+                log.warn("Failed to refresh timeseries rollups for {} entries", entities.size(), e);
+            }
+        }
+    }
+
     @Override
     public ListenableFuture<List<TsKvEntry>> findAllAsync(String entityId, List<ReadTsKvQuery> queries) {
         return processFindAllAsync(entityId, queries);
@@ -24,4 +24,10 @@ public interface InsertTsRepository<T extends AbstractTsKvEntity> {
 
     void saveOrUpdate(List<T> entities);
 
+    /**
+     * Upserts the entities with multi-row INSERT statements instead of one statement per row.
+     * Entities must be unique by (entity_id, key, ts) since a single statement can't update the same row twice.
+     */
+    void saveOrUpdateMultiRow(List<T> entities);
+
 }
@@ -33,6 +33,13 @@ public class SqlInsertTsRepository extends AbstractInsertRepository implements I
     private static final String INSERT_ON_CONFLICT_DO_UPDATE = "INSERT INTO ts_kv (entity_id, key, ts, long_v) VALUES (?, ?, ?, ?) " +
             "ON CONFLICT (entity_id, key, ts) DO UPDATE SET long_v = ?;";
 
+    private static final String MULTI_ROW_INSERT_PREFIX = "INSERT INTO ts_kv (entity_id, key, ts, long_v) VALUES ";
+    private static final String MULTI_ROW_VALUES = "(?, ?, ?, ?)";
+    private static final String MULTI_ROW_ON_CONFLICT_DO_UPDATE = " ON CONFLICT (entity_id, key, ts) DO UPDATE SET long_v = EXCLUDED.long_v;";
+
+    // keeps the bind parameters of one statement well below the PostgreSQL limit of 65535
+    private static final int MULTI_ROW_MAX_ROWS = 1000;
+
     @Override
     public void saveOrUpdate(List<TsKvEntity> entities) {
         jdbcTemplate.batchUpdate(INSERT_ON_CONFLICT_DO_UPDATE, new BatchPreparedStatementSetter() {
@@ -54,4 +61,32 @@ public class SqlInsertTsRepository extends AbstractInsertRepository implements I
         });
     }
 
+    @Override
+    public void saveOrUpdateMultiRow(List<TsKvEntity> entities) {
+        for (int from = 0; from < entities.size(); from += MULTI_ROW_MAX_ROWS) {
+            List<TsKvEntity> chunk = entities.subList(from, Math.min(from + MULTI_ROW_MAX_ROWS, entities.size()));
+            jdbcTemplate.update(getMultiRowInsertSql(chunk.size()), ps -> {
+                int idx = 1;
+                for (TsKvEntity tsKvEntity : chunk) {
+                    ps.setObject(idx++, tsKvEntity.getEntityId());
+                    ps.setInt(idx++, tsKvEntity.getKey());
+                    ps.setLong(idx++, tsKvEntity.getTs());
+                    ps.setLong(idx++, tsKvEntity.getLongValue());
+                }
+            });
+        }
+    }
+
+    private String getMultiRowInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(MULTI_ROW_INSERT_PREFIX.length() + rows * (MULTI_ROW_VALUES.length() + 2) + MULTI_ROW_ON_CONFLICT_DO_UPDATE.length());
+        sql.append(MULTI_ROW_INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(MULTI_ROW_VALUES);
+        }
+        return sql.append(MULTI_ROW_ON_CONFLICT_DO_UPDATE).toString();
+    }
+
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sqlts.rollup;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.thingsboard.mqtt.broker.dao.sqlts.insert.AbstractInsertRepository;
+import org.thingsboard.mqtt.broker.dao.timeseries.TsRollupInterval;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+@Transactional
+public class SqlTsRollupRepository extends AbstractInsertRepository {
+
+    private static final String REFRESH_HOURLY = "INSERT INTO ts_rollup_hourly (entity_id, key, ts, min_v, max_v, sum_v, count_v) " +
+            "SELECT entity_id, key, ?, MIN(long_v), MAX(long_v), SUM(long_v), COUNT(long_v) FROM ts_kv " +
+            "WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ? AND long_v IS NOT NULL GROUP BY entity_id, key " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET " +
+            "min_v = EXCLUDED.min_v, max_v = EXCLUDED.max_v, sum_v = EXCLUDED.sum_v, count_v = EXCLUDED.count_v;";
+
+    private static final String REFRESH_DAILY = "INSERT INTO ts_rollup_daily (entity_id, key, ts, min_v, max_v, sum_v, count_v) " +
+            "SELECT entity_id, key, ?, MIN(min_v), MAX(max_v), SUM(sum_v), SUM(count_v) FROM ts_rollup_hourly " +
+            "WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ? GROUP BY entity_id, key " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET " +
+            "min_v = EXCLUDED.min_v, max_v = EXCLUDED.max_v, sum_v = EXCLUDED.sum_v, count_v = EXCLUDED.count_v;";
+
+    private static final String FIND_ROLLUP_AGGREGATE = "SELECT MIN(min_v), MAX(max_v), SUM(sum_v), SUM(count_v) FROM %s " +
+            "WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ?";
+
+    private static final String FIND_RAW_AGGREGATE = "SELECT MIN(long_v), MAX(long_v), SUM(long_v), COUNT(long_v) FROM ts_kv " +
+            "WHERE entity_id = ? AND key = ? AND ts >= ? AND ts < ?";
+
+    private static final String CLEAN_UP = "DELETE FROM %s WHERE ts < ?";
+
+    private static final RowMapper<TsRollupAggregate> AGGREGATE_ROW_MAPPER = (rs, rowNum) -> {
+        long count = rs.getLong(4);
+        if (count == 0) {
+            return TsRollupAggregate.empty();
+        }
+        return new TsRollupAggregate(getLong(rs, 1), getLong(rs, 2), rs.getLong(3), count);
+    };
+
+    /**
+     * Recomputes the buckets from their source: raw ts_kv rows for the hourly rollup, hourly buckets for the daily one.
+     * Recomputing instead of adding deltas keeps the buckets correct when raw values are overwritten.
+     */
+    public void refresh(TsRollupInterval rollupInterval, List<TsRollupBucket> buckets) {
+        String sql = rollupInterval == TsRollupInterval.HOURLY ? REFRESH_HOURLY : REFRESH_DAILY;
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TsRollupBucket bucket = buckets.get(i);
+                ps.setLong(1, bucket.getTs());
+                ps.setString(2, bucket.getEntityId());
+                ps.setInt(3, bucket.getKey());
+                ps.setLong(4, bucket.getTs());
+                ps.setLong(5, bucket.getTs() + rollupInterval.getDurationMs());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return buckets.size();
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public TsRollupAggregate findAggregate(TsRollupInterval rollupInterval, String entityId, int key, long startTs, long endTs) {
+        return jdbcTemplate.queryForObject(String.format(FIND_ROLLUP_AGGREGATE, rollupInterval.getTable()), AGGREGATE_ROW_MAPPER, entityId, key, startTs, endTs);
+    }
+
+    @Transactional(readOnly = true)
+    public TsRollupAggregate findRawAggregate(String entityId, int key, long startTs, long endTs) {
+        return jdbcTemplate.queryForObject(FIND_RAW_AGGREGATE, AGGREGATE_ROW_MAPPER, entityId, key, startTs, endTs);
+    }
+
+    public int cleanUp(TsRollupInterval rollupInterval, long expirationTime) {
+        return jdbcTemplate.update(String.format(CLEAN_UP, rollupInterval.getTable()), expirationTime);
+    }
+
+    private static Long getLong(ResultSet rs, int columnIndex) throws SQLException {
+        long value = rs.getLong(columnIndex);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sqlts.rollup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.thingsboard.mqtt.broker.common.data.kv.Aggregation;
+import org.thingsboard.mqtt.broker.dao.model.sqlts.TsKvEntity;
+
+@Data
+@AllArgsConstructor
+public class TsRollupAggregate {
+
+    private Long min;
+    private Long max;
+    private long sum;
+    private long count;
+
+    public static TsRollupAggregate empty() {
+        return new TsRollupAggregate(null, null, 0L, 0L);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public TsRollupAggregate merge(TsRollupAggregate other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        return new TsRollupAggregate(Math.min(min, other.min), Math.max(max, other.max), sum + other.sum, count + other.count);
+    }
+
+    public TsKvEntity toEntity(Aggregation aggregation) {
+        switch (aggregation) {
+            case MIN:
+                return new TsKvEntity(min, count, aggregation.name());
+            case MAX:
+                return new TsKvEntity(max, count, aggregation.name());
+            case AVG:
+            case SUM:
+                return new TsKvEntity(sum, count, aggregation.name());
+            case COUNT:
+                return new TsKvEntity(count);
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -94,6 +95,28 @@ public class JpaSqlTimeseriesDao extends AbstractChunkedAggregationTimeseriesDao
         return Futures.transform(tsQueue.add(entity), v -> null, MoreExecutors.directExecutor());
     }
 
+    @Override
+    public ListenableFuture<Void> saveBatch(String entityId, List<TsKvEntry> tsKvEntries) {
+        return service.submit(() -> {
+            List<TsKvEntity> entities = new ArrayList<>(tsKvEntries.size());
+            for (TsKvEntry tsKvEntry : tsKvEntries) {
+                savePartitionIfNotExist(tsKvEntry.getTs());
+                TsKvEntity entity = new TsKvEntity();
+                entity.setEntityId(entityId);
+                entity.setTs(tsKvEntry.getTs());
+                entity.setKey(getOrSaveKeyId(tsKvEntry.getKey()));
+                entity.setLongValue(tsKvEntry.getLongValue().orElse(null));
+                entities.add(entity);
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("[{}] Saving {} entities in batch", entityId, entities.size());
+            }
+            insertRepository.saveOrUpdateMultiRow(entities);
+            refreshRollups(entities);
+            return null;
+        });
+    }
+
     @Override
     public CleanUpResult cleanUp(long systemTtl) {
         int deletedPartitions = cleanUpPartitions(systemTtl);
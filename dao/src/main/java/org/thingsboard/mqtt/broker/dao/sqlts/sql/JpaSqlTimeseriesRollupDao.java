@@ -0,0 +1,243 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sqlts.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.thingsboard.mqtt.broker.common.data.kv.CleanUpResult;
+import org.thingsboard.mqtt.broker.common.data.kv.ReadTsKvQuery;
+import org.thingsboard.mqtt.broker.common.data.kv.TsKvEntry;
+import org.thingsboard.mqtt.broker.dao.model.sqlts.TsKvEntity;
+import org.thingsboard.mqtt.broker.dao.sqlts.BaseAbstractSqlTimeseriesDao;
+import org.thingsboard.mqtt.broker.dao.sqlts.insert.sql.SqlPartitioningRepository;
+import org.thingsboard.mqtt.broker.dao.sqlts.rollup.SqlTsRollupRepository;
+import org.thingsboard.mqtt.broker.dao.sqlts.rollup.TsRollupAggregate;
+import org.thingsboard.mqtt.broker.dao.sqlts.rollup.TsRollupBucket;
+import org.thingsboard.mqtt.broker.dao.timeseries.SqlPartition;
+import org.thingsboard.mqtt.broker.dao.timeseries.SqlTsPartitionDate;
+import org.thingsboard.mqtt.broker.dao.timeseries.TimeseriesRollupDao;
+import org.thingsboard.mqtt.broker.dao.timeseries.TsRollupInterval;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JpaSqlTimeseriesRollupDao extends BaseAbstractSqlTimeseriesDao implements TimeseriesRollupDao {
+
+    private static final ReentrantLock partitionCreationLock = new ReentrantLock();
+    private final Map<String, SqlPartition> partitions = new ConcurrentHashMap<>();
+
+    private final SqlTsRollupRepository rollupRepository;
+    private final SqlPartitioningRepository partitioningRepository;
+
+    @Value("${sql.ttl.ts.enabled:true}")
+    private boolean ttlEnabled;
+    @Value("${sql.ttl.ts.rollup_hourly_ttl:2592000}")
+    private long rollupHourlyTtl;
+
+    @Override
+    public void refresh(List<TsKvEntity> entities) {
+        Set<TsRollupBucket> hourlyBuckets = new LinkedHashSet<>();
+        Set<TsRollupBucket> dailyBuckets = new LinkedHashSet<>();
+        for (TsKvEntity entity : entities) {
+            hourlyBuckets.add(toBucket(TsRollupInterval.HOURLY, entity));
+            dailyBuckets.add(toBucket(TsRollupInterval.DAILY, entity));
+        }
+        refresh(TsRollupInterval.HOURLY, hourlyBuckets);
+        dailyBuckets.removeIf(bucket -> !isDailyBucketRecomputable(bucket.getTs(), System.currentTimeMillis()));
+        if (!dailyBuckets.isEmpty()) {
+            refresh(TsRollupInterval.DAILY, dailyBuckets);
+        }
+    }
+
+    /**
+     * Daily buckets are recomputed from the hourly ones, which are kept for a shorter time. A day whose hourly buckets
+     * may already be removed by the TTL is left as it is, otherwise a late value would shrink it to the remaining hours.
+     */
+    boolean isDailyBucketRecomputable(long dailyBucketTs, long now) {
+        if (!ttlEnabled || rollupHourlyTtl <= 0) {
+            return true;
+        }
+        boolean recomputable = dailyBucketTs >= now - TimeUnit.SECONDS.toMillis(rollupHourlyTtl);
+        if (!recomputable && log.isDebugEnabled()) {
+            log.debug("Skipping refresh of the daily bucket [{}], it is older than the hourly rollups ttl {}s", dailyBucketTs, rollupHourlyTtl);
+        }
+        return recomputable;
+    }
+
+    private void refresh(TsRollupInterval rollupInterval, Set<TsRollupBucket> buckets) {
+        for (TsRollupBucket bucket : buckets) {
+            savePartitionIfNotExist(rollupInterval, bucket.getTs());
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Refreshing {} {} buckets", buckets.size(), rollupInterval);
+        }
+        rollupRepository.refresh(rollupInterval, new ArrayList<>(buckets));
+    }
+
+    private TsRollupBucket toBucket(TsRollupInterval rollupInterval, TsKvEntity entity) {
+        return new TsRollupBucket(entity.getEntityId(), entity.getKey(), rollupInterval.truncate(entity.getTs()));
+    }
+
+    /**
+     * Every aggregation interval is served from the rollup buckets it fully covers. The interval start is always
+     * aligned by the planner, so only the tail of the last interval (e.g. when the query ends 'now') is read from ts_kv.
+     */
+    @Override
+    public ListenableFuture<List<TsKvEntry>> findAllAsync(String entityId, ReadTsKvQuery query, TsRollupInterval rollupInterval) {
+        List<ListenableFuture<Optional<TsKvEntity>>> futures = new ArrayList<>();
+        long startPeriod = query.getStartTs();
+        long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
+        long step = query.getInterval();
+        while (startPeriod < endPeriod) {
+            long startTs = startPeriod;
+            long endTs = Math.min(startPeriod + step, endPeriod);
+            long ts = startTs + (endTs - startTs) / 2;
+            futures.add(service.submit(() -> findAndAggregate(entityId, query, rollupInterval, startTs, endTs, ts)));
+            startPeriod = endTs;
+        }
+        return getTsKvEntriesFuture(Futures.allAsList(futures));
+    }
+
+    private Optional<TsKvEntity> findAndAggregate(String entityId, ReadTsKvQuery query, TsRollupInterval rollupInterval,
+                                                  long startTs, long endTs, long ts) {
+        int keyId = getOrSaveKeyId(query.getKey());
+        long rollupEndTs = rollupInterval.truncate(endTs);
+        TsRollupAggregate aggregate = rollupEndTs > startTs ?
+                rollupRepository.findAggregate(rollupInterval, entityId, keyId, startTs, rollupEndTs) : TsRollupAggregate.empty();
+        long rawStartTs = Math.max(startTs, rollupEndTs);
+        if (rawStartTs < endTs) {
+            aggregate = aggregate.merge(rollupRepository.findRawAggregate(entityId, keyId, rawStartTs, endTs));
+        }
+        if (aggregate.isEmpty()) {
+            return Optional.empty();
+        }
+        TsKvEntity entity = aggregate.toEntity(query.getAggregation());
+        if (!entity.isNotEmpty()) {
+            return Optional.empty();
+        }
+        entity.setEntityId(entityId);
+        entity.setStrKey(query.getKey());
+        entity.setTs(ts);
+        return Optional.of(entity);
+    }
+
+    @Override
+    public CleanUpResult cleanUp(TsRollupInterval rollupInterval, long ttl) {
+        long expirationTime = rollupInterval.truncate(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttl));
+        log.info("Going to cleanup {} rollups using ttl: {}s", rollupInterval, ttl);
+        int deletedPartitions = cleanUpPartitions(rollupInterval, expirationTime);
+        long deletedRows = 0;
+        try {
+            deletedRows = rollupRepository.cleanUp(rollupInterval, expirationTime);
+        } catch (Exception e) {
+            log.error("Failed to execute {} rollups cleanup using ttl {}", rollupInterval, ttl, e);
+        }
+        log.info("Removed {} partitions and {} rows of {} rollups by TTL!", deletedPartitions, deletedRows, rollupInterval);
+        return new CleanUpResult(deletedPartitions, deletedRows);
+    }
+
+    /**
+     * Drops the partitions that end before the expiration time, so that only the partition
+     * containing the expiration time has to be cleaned up row by row.
+     */
+    private int cleanUpPartitions(TsRollupInterval rollupInterval, long expirationTime) {
+        String prefix = rollupInterval.getTable() + "_";
+        int deleted = 0;
+        try {
+            List<String> tableNames = jdbcTemplate.queryForList("SELECT tablename FROM pg_tables WHERE schemaname = 'public' AND tablename LIKE ?",
+                    String.class, prefix + "%");
+            for (String tableName : tableNames) {
+                Long partitionEndTs = getPartitionEndTs(rollupInterval, tableName.substring(prefix.length()));
+                if (partitionEndTs != null && partitionEndTs <= expirationTime) {
+                    log.info("Dropping {} table", tableName);
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableName);
+                    partitions.remove(tableName);
+                    deleted++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to cleanup {} rollup partitions", rollupInterval, e);
+        }
+        return deleted;
+    }
+
+    Long getPartitionEndTs(TsRollupInterval rollupInterval, String partitionDate) {
+        String[] parts = partitionDate.split("_");
+        try {
+            SqlTsPartitionDate partitioning = rollupInterval.getPartitioning();
+            LocalDateTime start = switch (partitioning) {
+                case MONTHS -> parts.length == 2 ? LocalDateTime.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), 1, 0, 0) : null;
+                case YEARS -> parts.length == 1 ? LocalDateTime.of(Integer.parseInt(parts[0]), 1, 1, 0, 0) : null;
+                default -> null;
+            };
+            return start != null ? toMills(partitioning.plusTo(start)) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void savePartitionIfNotExist(TsRollupInterval rollupInterval, long ts) {
+        SqlTsPartitionDate partitioning = rollupInterval.getPartitioning();
+        LocalDateTime localDateTimeStart = partitioning.truncateTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), ZoneOffset.UTC));
+        String partitionDate = localDateTimeStart.format(DateTimeFormatter.ofPattern(partitioning.getPattern()));
+        String partitionKey = rollupInterval.getTable() + "_" + partitionDate;
+        if (partitions.containsKey(partitionKey)) {
+            return;
+        }
+        partitionCreationLock.lock();
+        try {
+            if (!partitions.containsKey(partitionKey)) {
+                SqlPartition partition = new SqlPartition(rollupInterval.getTable(), toMills(localDateTimeStart),
+                        toMills(partitioning.plusTo(localDateTimeStart)), partitionDate);
+                try {
+                    partitioningRepository.save(partition);
+                } catch (DataIntegrityViolationException ex) {
+                    if (!(ex.getCause() instanceof ConstraintViolationException)) {
+                        throw ex;
+                    }
+                    log.warn("Saving partition [{}] rejected, it is already present", partitionKey);
+                }
+                partitions.put(partitionKey, partition);
+            }
+        } finally {
+            partitionCreationLock.unlock();
+        }
+    }
+
+    private static long toMills(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
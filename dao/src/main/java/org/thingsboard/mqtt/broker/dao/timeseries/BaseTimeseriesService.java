@@ -36,6 +36,9 @@ import org.thingsboard.mqtt.broker.dao.service.Validator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -44,17 +47,36 @@ import java.util.List;
 public class BaseTimeseriesService implements TimeseriesService {
 
     private final TimeseriesDao timeseriesDao;
+    private final TimeseriesRollupDao timeseriesRollupDao;
 
     @Value("${database.ts_max_intervals}")
     private long maxTsIntervals;
 
+    @Value("${sql.ts.rollup.enabled:true}")
+    private boolean rollupEnabled;
+
     @Override
     public ListenableFuture<List<TsKvEntry>> findAll(String entityId, List<ReadTsKvQuery> queries) {
         validate(entityId);
         for (ReadTsKvQuery query : queries) {
             validate(query);
         }
-        return timeseriesDao.findAllAsync(entityId, queries);
+        if (!rollupEnabled || queries.stream().map(TsRollupInterval::findCoarsest).noneMatch(Optional::isPresent)) {
+            return timeseriesDao.findAllAsync(entityId, queries);
+        }
+        List<ListenableFuture<List<TsKvEntry>>> futures = Lists.newArrayListWithExpectedSize(queries.size());
+        for (ReadTsKvQuery query : queries) {
+            Optional<TsRollupInterval> rollupInterval = TsRollupInterval.findCoarsest(query);
+            if (rollupInterval.isPresent()) {
+                futures.add(timeseriesRollupDao.findAllAsync(entityId, query, rollupInterval.get()));
+            } else {
+                futures.add(timeseriesDao.findAllAsync(entityId, Collections.singletonList(query)));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures), results -> results.stream()
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toList()), MoreExecutors.directExecutor());
     }
 
     @Override
@@ -86,6 +108,20 @@ public class BaseTimeseriesService implements TimeseriesService {
         return save(entityId, Collections.singletonList(tsKvEntry));
     }
 
+    @Override
+    public ListenableFuture<Void> saveBatch(String entityId, List<TsKvEntry> tsKvEntries) {
+        validate(entityId);
+        if (CollectionUtils.isEmpty(tsKvEntries)) {
+            throw new IncorrectParameterException("Key value entries can't be null or empty");
+        }
+        for (TsKvEntry tsKvEntry : tsKvEntries) {
+            if (tsKvEntry == null) {
+                throw new IncorrectParameterException("Key value entry can't be null");
+            }
+        }
+        return timeseriesDao.saveBatch(entityId, tsKvEntries);
+    }
+
     @Override
     public ListenableFuture<List<Void>> remove(String entityId, List<TsKvQuery> deleteTsKvQueries) {
         validate(entityId);
@@ -106,6 +142,25 @@ public class BaseTimeseriesService implements TimeseriesService {
         return timeseriesDao.cleanUp(systemTtl);
     }
 
+    @Override
+    public CleanUpResult cleanUpRollups(long hourlyTtl, long dailyTtl) {
+        if (!rollupEnabled) {
+            return CleanUpResult.newInstance();
+        }
+        CleanUpResult result = CleanUpResult.newInstance();
+        if (hourlyTtl > 0) {
+            result = merge(result, timeseriesRollupDao.cleanUp(TsRollupInterval.HOURLY, hourlyTtl));
+        }
+        if (dailyTtl > 0) {
+            result = merge(result, timeseriesRollupDao.cleanUp(TsRollupInterval.DAILY, dailyTtl));
+        }
+        return result;
+    }
+
+    private static CleanUpResult merge(CleanUpResult first, CleanUpResult second) {
+        return new CleanUpResult(first.getDeletedPartitions() + second.getDeletedPartitions(), first.getDeletedRows() + second.getDeletedRows());
+    }
+
     private ListenableFuture<Void> doSave(String entityId, List<TsKvEntry> tsKvEntries) {
         List<ListenableFuture<Void>> futures = Lists.newArrayListWithExpectedSize(tsKvEntries.size());
         for (TsKvEntry tsKvEntry : tsKvEntries) {
@@ -29,6 +29,8 @@ public interface TimeseriesDao {
 
     ListenableFuture<Void> save(String entityId, TsKvEntry tsKvEntry);
 
+    ListenableFuture<Void> saveBatch(String entityId, List<TsKvEntry> tsKvEntries);
+
     ListenableFuture<Void> remove(String entityId, TsKvQuery query);
 
     CleanUpResult cleanUp(long systemTtl);
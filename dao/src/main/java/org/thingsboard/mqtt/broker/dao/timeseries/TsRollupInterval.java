@@ -0,0 +1,67 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.timeseries;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.thingsboard.mqtt.broker.common.data.kv.Aggregation;
+import org.thingsboard.mqtt.broker.common.data.kv.ReadTsKvQuery;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-aggregated (min/max/sum/count) time buckets maintained next to the raw ts_kv table.
+ * Buckets are aligned to UTC and stored by their start timestamp.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TsRollupInterval {
+
+    HOURLY("ts_rollup_hourly", TimeUnit.HOURS.toMillis(1), SqlTsPartitionDate.MONTHS),
+    DAILY("ts_rollup_daily", TimeUnit.DAYS.toMillis(1), SqlTsPartitionDate.YEARS);
+
+    private static final TsRollupInterval[] COARSEST_FIRST = {DAILY, HOURLY};
+
+    private final String table;
+    private final long durationMs;
+    private final SqlTsPartitionDate partitioning;
+
+    public long truncate(long ts) {
+        return ts - Math.floorMod(ts, durationMs);
+    }
+
+    public boolean isAligned(long ts) {
+        return Math.floorMod(ts, durationMs) == 0;
+    }
+
+    /**
+     * Picks the coarsest rollup whose buckets fit exactly into every aggregation interval of the query,
+     * i.e. the query starts on a bucket boundary and its interval is a multiple of the bucket duration.
+     */
+    public static Optional<TsRollupInterval> findCoarsest(ReadTsKvQuery query) {
+        if (query.getAggregation() == null || query.getAggregation() == Aggregation.NONE) {
+            return Optional.empty();
+        }
+        for (TsRollupInterval rollupInterval : COARSEST_FIRST) {
+            long interval = query.getInterval();
+            if (interval >= rollupInterval.durationMs && interval % rollupInterval.durationMs == 0 && rollupInterval.isAligned(query.getStartTs())) {
+                return Optional.of(rollupInterval);
+            }
+        }
+        return Optional.empty();
+    }
+}
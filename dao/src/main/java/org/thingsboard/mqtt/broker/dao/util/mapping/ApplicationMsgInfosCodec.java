@@ -0,0 +1,151 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.util.mapping;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.thingsboard.mqtt.broker.common.data.ApplicationMsgInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary format of the pending PUBLISH and PUBREL messages of an APPLICATION session.
+ * <p>
+ * After a version byte, each of the two lists is written as its size followed by the offset and packet id of every
+ * message, both as zigzag varint deltas to the previous message of the list. Offsets of the pending messages grow and
+ * their packet ids mostly follow each other, so a message usually takes two or three bytes. The order of the messages is kept.
+ */
+public final class ApplicationMsgInfosCodec {
+
+    static final byte VERSION = 1;
+
+    // a varint of a long takes up to 10 bytes, of an int up to 5
+    private static final int MAX_MSG_INFO_BYTES = 15;
+    private static final int MAX_SIZE_BYTES = 5;
+
+    private ApplicationMsgInfosCodec() {
+    }
+
+    public static byte[] encode(Collection<ApplicationMsgInfo> publishMsgInfos, Collection<ApplicationMsgInfo> pubRelMsgInfos) {
+        int publishMsgsCount = size(publishMsgInfos);
+        int pubRelMsgsCount = size(pubRelMsgInfos);
+        Writer writer = new Writer(new byte[1 + 2 * MAX_SIZE_BYTES + (publishMsgsCount + pubRelMsgsCount) * MAX_MSG_INFO_BYTES]);
+        writer.buf[writer.pos++] = VERSION;
+        writer.writeMsgInfos(publishMsgInfos, publishMsgsCount);
+        writer.writeMsgInfos(pubRelMsgInfos, pubRelMsgsCount);
+        return Arrays.copyOf(writer.buf, writer.pos);
+    }
+
+    public static DecodedMsgInfos decode(byte[] data) {
+        if (data.length == 0 || data[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported application msg infos format version: " + (data.length == 0 ? "none" : data[0]));
+        }
+        Reader reader = new Reader(data);
+        reader.pos = 1;
+        try {
+            List<ApplicationMsgInfo> publishMsgInfos = reader.readMsgInfos();
+            List<ApplicationMsgInfo> pubRelMsgInfos = reader.readMsgInfos();
+            return new DecodedMsgInfos(publishMsgInfos, pubRelMsgInfos);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated application msg infos of " + data.length + " bytes", e);
+        }
+    }
+
+    private static int size(Collection<ApplicationMsgInfo> msgInfos) {
+        return msgInfos == null ? 0 : msgInfos.size();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class DecodedMsgInfos {
+        private final List<ApplicationMsgInfo> publishMsgInfos;
+        private final List<ApplicationMsgInfo> pubRelMsgInfos;
+    }
+
+    @RequiredArgsConstructor
+    private static class Writer {
+        private final byte[] buf;
+        private int pos;
+
+        void writeMsgInfos(Collection<ApplicationMsgInfo> msgInfos, int count) {
+            writeVarLong(count);
+            if (count == 0) {
+                return;
+            }
+            long prevOffset = 0;
+            int prevPacketId = 0;
+            for (ApplicationMsgInfo msgInfo : msgInfos) {
+                writeVarLong(zigzag(msgInfo.getOffset() - prevOffset));
+                writeVarLong(zigzag(msgInfo.getPacketId() - prevPacketId));
+                prevOffset = msgInfo.getOffset();
+                prevPacketId = msgInfo.getPacketId();
+            }
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        List<ApplicationMsgInfo> readMsgInfos() {
+            int count = (int) readVarLong();
+            if (count < 0 || count > buf.length - pos) {
+                throw new IllegalArgumentException("Invalid application msg infos count: " + count);
+            }
+            List<ApplicationMsgInfo> msgInfos = new ArrayList<>(count);
+            long offset = 0;
+            int packetId = 0;
+            for (int i = 0; i < count; i++) {
+                offset += unzigzag(readVarLong());
+                packetId += (int) unzigzag(readVarLong());
+                msgInfos.add(new ApplicationMsgInfo(offset, packetId));
+            }
+            return msgInfos;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in application msg infos");
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
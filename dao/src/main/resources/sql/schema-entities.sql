@@ -27,7 +27,7 @@ BEGIN
     IF (SELECT COUNT(*) FROM tb_schema_settings) = 0 THEN
         INSERT
         INTO tb_schema_settings (schema_version)
-        VALUES (1003001);
+        VALUES (1003003);
     END IF;
 END;
 $$;
@@ -90,6 +90,7 @@ CREATE TABLE IF NOT EXISTS device_publish_msg (
     content_type varchar(255),
     response_topic varchar(255),
     correlation_data bytea,
+    payload_compressed boolean,
     CONSTRAINT device_publish_msg_pkey PRIMARY KEY (client_id, serial_number)
 );
 
@@ -104,7 +105,8 @@ CREATE TABLE IF NOT EXISTS application_session_ctx (
     client_id varchar(255) NOT NULL CONSTRAINT application_session_ctx_pkey PRIMARY KEY,
     last_updated_time bigint NOT NULL,
     publish_msg_infos varchar,
-    pubrel_msg_infos varchar
+    pubrel_msg_infos varchar,
+    msg_infos bytea
 );
 
 CREATE TABLE IF NOT EXISTS generic_client_session_ctx (
@@ -131,6 +133,28 @@ CREATE TABLE IF NOT EXISTS ts_kv (
     CONSTRAINT ts_kv_pkey PRIMARY KEY (entity_id, key, ts)
 ) PARTITION BY RANGE (ts);
 
+CREATE TABLE IF NOT EXISTS ts_rollup_hourly (
+    entity_id varchar (255) NOT NULL,
+    key int NOT NULL,
+    ts bigint NOT NULL,
+    min_v bigint NOT NULL,
+    max_v bigint NOT NULL,
+    sum_v bigint NOT NULL,
+    count_v bigint NOT NULL,
+    CONSTRAINT ts_rollup_hourly_pkey PRIMARY KEY (entity_id, key, ts)
+) PARTITION BY RANGE (ts);
+
+CREATE TABLE IF NOT EXISTS ts_rollup_daily (
+    entity_id varchar (255) NOT NULL,
+    key int NOT NULL,
+    ts bigint NOT NULL,
+    min_v bigint NOT NULL,
+    max_v bigint NOT NULL,
+    sum_v bigint NOT NULL,
+    count_v bigint NOT NULL,
+    CONSTRAINT ts_rollup_daily_pkey PRIMARY KEY (entity_id, key, ts)
+) PARTITION BY RANGE (ts);
+
 CREATE TABLE IF NOT EXISTS ts_kv_dictionary (
     key varchar (255) NOT NULL,
     key_id serial UNIQUE,
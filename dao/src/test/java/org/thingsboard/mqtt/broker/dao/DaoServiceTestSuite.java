@@ -25,7 +25,9 @@ import org.junit.runner.RunWith;
         "org.thingsboard.mqtt.broker.dao.client.device.*ServiceTest",
         "org.thingsboard.mqtt.broker.dao.data.*Test",
         "org.thingsboard.mqtt.broker.dao.messages.sql.*Test",
+        "org.thingsboard.mqtt.broker.dao.sql.*Test",
         "org.thingsboard.mqtt.broker.dao.sqlts.sql.*Test",
+        "org.thingsboard.mqtt.broker.dao.util.mapping.*Test",
         "org.thingsboard.mqtt.broker.dao.util.protocol.*Test",
         "org.thingsboard.mqtt.broker.dao.validation.*Test",
         "org.thingsboard.mqtt.broker.dao.ws.*Test"
@@ -0,0 +1,187 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.messages.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.thingsboard.mqtt.broker.common.data.PersistedPacketType;
+import org.thingsboard.mqtt.broker.dao.DaoSqlTest;
+import org.thingsboard.mqtt.broker.dao.client.device.DeviceSessionCtxRepository;
+import org.thingsboard.mqtt.broker.dao.client.device.InsertDeviceSessionCtxRepository;
+import org.thingsboard.mqtt.broker.dao.messages.DeviceMsgCleanUpDao;
+import org.thingsboard.mqtt.broker.dao.messages.LowLevelDeviceMsgRepository;
+import org.thingsboard.mqtt.broker.dao.model.DeviceSessionCtxEntity;
+import org.thingsboard.mqtt.broker.dao.model.sql.DevicePublishMsgEntity;
+import org.thingsboard.mqtt.broker.dao.service.AbstractServiceTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Trims the DEVICE messages of many clients to the limit with the per-client statements used before the set-based
+ * clean-up and with the set-based clean-up, while another thread keeps inserting messages of the same clients.
+ * Reports the wall time of the clean-up and the latency of the concurrent inserts as a measure of lock contention.
+ * Not a part of the default build, run with -Pbenchmarks (needs Docker for the Postgres test container).
+ */
+@Slf4j(topic = "benchmark")
+@DaoSqlTest
+public class DeviceMsgCleanUpBenchmark extends AbstractServiceTest {
+
+    static final int CLIENTS = 1_000;
+    static final int MSGS_PER_CLIENT = 60;
+    static final int MAX_PERSISTED_MSGS = 20;
+    static final int SESSION_CTX_PAGE_SIZE = 1000;
+
+    private static final String SELECT_EARLIEST_KEPT_SERIAL_NUMBER = "SELECT serial_number FROM device_publish_msg " +
+            "WHERE client_id = ? ORDER BY serial_number DESC OFFSET ? LIMIT 1";
+    private static final String DELETE_MSGS_BEFORE_SERIAL_NUMBER = "DELETE FROM device_publish_msg " +
+            "WHERE client_id = ? AND serial_number < ?";
+
+    @Autowired
+    private DeviceMsgRepository deviceMsgRepository;
+    @Autowired
+    private LowLevelDeviceMsgRepository lowLevelDeviceMsgRepository;
+    @Autowired
+    private DeviceSessionCtxRepository deviceSessionCtxRepository;
+    @Autowired
+    private InsertDeviceSessionCtxRepository insertDeviceSessionCtxRepository;
+    @Autowired
+    private DeviceMsgCleanUpDao deviceMsgCleanUpDao;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @After
+    public void tearDown() {
+        deviceMsgRepository.deleteAll();
+        deviceSessionCtxRepository.deleteAll();
+    }
+
+    @Test
+    public void givenManyClientsExceedingLimit_whenCleanUpBySize_thenReportWallTimeAndInsertLatency() throws Exception {
+        seed();
+        long[] perClient = runWithConcurrentInserts(this::cleanUpBySizePerClient);
+        Assert.assertEquals((long) CLIENTS * MAX_PERSISTED_MSGS, countSeededMsgs());
+
+        tearDown();
+        seed();
+        long[] setBased = runWithConcurrentInserts(() -> deviceMsgCleanUpDao.cleanUpBySize(MAX_PERSISTED_MSGS));
+        Assert.assertEquals((long) CLIENTS * MAX_PERSISTED_MSGS, countSeededMsgs());
+
+        log.info("Trimming {} clients of {} msgs to {}: per-client statements {} ms, concurrent insert avg {} us, max {} us; " +
+                        "set-based {} ms, concurrent insert avg {} us, max {} us",
+                CLIENTS, MSGS_PER_CLIENT, MAX_PERSISTED_MSGS,
+                perClient[0], perClient[1], perClient[2], setBased[0], setBased[1], setBased[2]);
+    }
+
+    // the clean-up before the set-based one: a SELECT and a DELETE per client
+    private void cleanUpBySizePerClient() {
+        Page<DeviceSessionCtxEntity> deviceSessionCtxEntities;
+        int pageCounter = 0;
+        do {
+            deviceSessionCtxEntities = deviceSessionCtxRepository.findAll(PageRequest.of(pageCounter++, SESSION_CTX_PAGE_SIZE));
+            for (DeviceSessionCtxEntity deviceSessionCtxEntity : deviceSessionCtxEntities) {
+                String clientId = deviceSessionCtxEntity.getClientId();
+                List<Long> earliestPersistedSerialNumber = jdbcTemplate.queryForList(SELECT_EARLIEST_KEPT_SERIAL_NUMBER,
+                        Long.class, clientId, MAX_PERSISTED_MSGS - 1);
+                if (!earliestPersistedSerialNumber.isEmpty()) {
+                    jdbcTemplate.update(DELETE_MSGS_BEFORE_SERIAL_NUMBER, clientId, earliestPersistedSerialNumber.get(0));
+                }
+            }
+        } while (!deviceSessionCtxEntities.isLast());
+    }
+
+    // returns the clean-up wall time in ms and the average and max latency of the concurrent inserts in us
+    private long[] runWithConcurrentInserts(Runnable cleanUp) throws Exception {
+        AtomicBoolean cleanUpDone = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<long[]> insertLatencies = executor.submit(() -> {
+                long total = 0;
+                long max = 0;
+                long count = 0;
+                // messages with serial numbers above the seeded ones are never removed by the clean-up
+                long serialNumber = 1_000_000;
+                while (!cleanUpDone.get()) {
+                    DevicePublishMsgEntity msg = newMsg("client-" + (count % CLIENTS), serialNumber++);
+                    long start = System.nanoTime();
+                    lowLevelDeviceMsgRepository.insert(List.of(msg));
+                    long latency = System.nanoTime() - start;
+                    total += latency;
+                    max = Math.max(max, latency);
+                    count++;
+                }
+                return new long[]{count == 0 ? 0 : total / count / 1000, max / 1000};
+            });
+            long start = System.nanoTime();
+            cleanUp.run();
+            long wallTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            cleanUpDone.set(true);
+            long[] latencies = insertLatencies.get(1, TimeUnit.MINUTES);
+            return new long[]{wallTimeMs, latencies[0], latencies[1]};
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void seed() {
+        List<DeviceSessionCtxEntity> sessionCtxEntities = new ArrayList<>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            DeviceSessionCtxEntity sessionCtxEntity = new DeviceSessionCtxEntity();
+            sessionCtxEntity.setClientId("client-" + i);
+            sessionCtxEntity.setLastUpdatedTime(System.currentTimeMillis());
+            sessionCtxEntity.setLastSerialNumber((long) MSGS_PER_CLIENT - 1);
+            sessionCtxEntity.setLastPacketId(MSGS_PER_CLIENT);
+            sessionCtxEntities.add(sessionCtxEntity);
+
+            DevicePublishMsgEntity[] msgs = new DevicePublishMsgEntity[MSGS_PER_CLIENT];
+            for (int j = 0; j < MSGS_PER_CLIENT; j++) {
+                msgs[j] = newMsg("client-" + i, j);
+            }
+            lowLevelDeviceMsgRepository.insert(Arrays.asList(msgs));
+        }
+        insertDeviceSessionCtxRepository.saveOrUpdate(sessionCtxEntities);
+    }
+
+    private long countSeededMsgs() {
+        return deviceMsgRepository.findAll().stream().filter(msg -> msg.getSerialNumber() < MSGS_PER_CLIENT).count();
+    }
+
+    private DevicePublishMsgEntity newMsg(String clientId, long serialNumber) {
+        DevicePublishMsgEntity msg = new DevicePublishMsgEntity();
+        msg.setClientId(clientId);
+        msg.setSerialNumber(serialNumber);
+        msg.setTopic("devices/" + clientId + "/telemetry");
+        msg.setTime(System.currentTimeMillis());
+        msg.setPacketId((int) (serialNumber % 0xFFFF) + 1);
+        msg.setPacketType(PersistedPacketType.PUBLISH);
+        msg.setQos(1);
+        msg.setPayload("{\"temperature\":21.5}".getBytes(StandardCharsets.UTF_8));
+        return msg;
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.mqtt.broker.common.data.PersistedPacketType;
 import org.thingsboard.mqtt.broker.dao.DaoSqlTest;
 import org.thingsboard.mqtt.broker.dao.client.device.DeviceSessionCtxRepository;
@@ -30,7 +31,9 @@ import org.thingsboard.mqtt.broker.dao.service.AbstractServiceTest;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @DaoSqlTest
 public class SqlDeviceMsgCleanUpDaoTest extends AbstractServiceTest {
@@ -52,9 +55,13 @@ public class SqlDeviceMsgCleanUpDaoTest extends AbstractServiceTest {
         deviceSessionCtxEntity.setClientId("testClientId");
         deviceSessionCtxRepository.save(deviceSessionCtxEntity);
 
-        for (int i = 0; i < 20; i++) {
+        saveMessages("testClientId", 20);
+    }
+
+    private void saveMessages(String clientId, int count) {
+        for (int i = 0; i < count; i++) {
             DevicePublishMsgEntity devicePublishMsgEntity = new DevicePublishMsgEntity();
-            devicePublishMsgEntity.setClientId("testClientId");
+            devicePublishMsgEntity.setClientId(clientId);
             devicePublishMsgEntity.setSerialNumber((long) i);
             devicePublishMsgEntity.setTopic("testTopic");
             devicePublishMsgEntity.setTime(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(i));
@@ -70,6 +77,8 @@ public class SqlDeviceMsgCleanUpDaoTest extends AbstractServiceTest {
     public void tearDown() {
         deviceMsgRepository.deleteAll();
         deviceSessionCtxRepository.deleteAll();
+        ReflectionTestUtils.setField(deviceMsgCleanUpDao, "sessionCtxPageSize", 1000);
+        ReflectionTestUtils.setField(deviceMsgCleanUpDao, "ttlBatchSize", 10000);
     }
 
     @Test
@@ -100,6 +109,41 @@ public class SqlDeviceMsgCleanUpDaoTest extends AbstractServiceTest {
         }
     }
 
+    @Test
+    public void testCleanUpBySize_SeveralBatchesOfClients() {
+        for (int i = 0; i < 5; i++) {
+            DeviceSessionCtxEntity deviceSessionCtxEntity = new DeviceSessionCtxEntity();
+            deviceSessionCtxEntity.setClientId("client" + i);
+            deviceSessionCtxRepository.save(deviceSessionCtxEntity);
+            saveMessages("client" + i, 5 + i * 5);
+        }
+        ReflectionTestUtils.setField(deviceMsgCleanUpDao, "sessionCtxPageSize", 2);
+
+        deviceMsgCleanUpDao.cleanUpBySize(12);
+
+        List<DevicePublishMsgEntity> remainingMessages = deviceMsgRepository.findAll();
+        Map<String, List<Long>> remainingSerialNumbers = remainingMessages.stream()
+                .collect(Collectors.groupingBy(DevicePublishMsgEntity::getClientId,
+                        Collectors.mapping(DevicePublishMsgEntity::getSerialNumber, Collectors.toList())));
+        Assert.assertEquals(12, remainingSerialNumbers.get("testClientId").size());
+        Assert.assertEquals(5, remainingSerialNumbers.get("client0").size());
+        Assert.assertEquals(10, remainingSerialNumbers.get("client1").size());
+        for (int i = 2; i < 5; i++) {
+            List<Long> serialNumbers = remainingSerialNumbers.get("client" + i);
+            Assert.assertEquals(12, serialNumbers.size());
+            Assert.assertEquals(5 + i * 5 - 12, serialNumbers.stream().mapToLong(Long::longValue).min().getAsLong());
+        }
+    }
+
+    @Test
+    public void testCleanUpByTime_SeveralBatches() {
+        ReflectionTestUtils.setField(deviceMsgCleanUpDao, "ttlBatchSize", 3);
+
+        deviceMsgCleanUpDao.cleanUpByTime(10 * 24 * 60 * 60);
+
+        Assert.assertEquals(10, deviceMsgRepository.findAll().size());
+    }
+
     @Test
     public void testCleanUpBySize_NoMessagesToRemove() {
         int maxPersistedMessages = 20;
@@ -49,7 +49,7 @@ public class DeviceMsgServiceTest extends AbstractServiceTest {
 
     private DevicePublishMsg newDevicePublishMsg(long serialNumber) {
         return new DevicePublishMsg(TEST_CLIENT_ID, UUID.randomUUID().toString(), serialNumber, 0L, 0, 0,
-                PersistedPacketType.PUBLISH, TEST_PAYLOAD, new MqttProperties(), false);
+                PersistedPacketType.PUBLISH, TEST_PAYLOAD, new MqttProperties(), false, false);
     }
 
     @After
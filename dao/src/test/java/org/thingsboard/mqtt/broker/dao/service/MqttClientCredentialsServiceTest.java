@@ -388,8 +388,8 @@ public class MqttClientCredentialsServiceTest extends AbstractServiceTest {
 
     @Test
     public void givenCachedBasicCredentials_whenSaveOtherCredentials_thenCachedDataPresent() throws JsonProcessingException {
-        String cacheKey = RandomStringUtils.randomAlphabetic(10);
         MqttClientCredentials savedCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.DEVICE));
+        String cacheKey = savedCredentials.getCredentialsId();
         basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
 
         mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.APPLICATION));
@@ -400,8 +400,8 @@ public class MqttClientCredentialsServiceTest extends AbstractServiceTest {
 
     @Test
     public void givenCachedBasicCredentials_whenUpdateSslCredentials_thenCachedDataPresent() throws JsonProcessingException {
-        String cacheKey = RandomStringUtils.randomAlphabetic(10);
         MqttClientCredentials savedCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.DEVICE));
+        String cacheKey = savedCredentials.getCredentialsId();
         basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
 
         MqttClientCredentials sslCredentials = mqttClientCredentialsService.saveCredentials(validMqttSslClientCredentials(ClientType.APPLICATION));
@@ -411,18 +411,18 @@ public class MqttClientCredentialsServiceTest extends AbstractServiceTest {
     }
 
     @Test
-    public void givenCachedBasicCredentials_whenUpdateBasicCredentials_thenCachedDataRemoved() throws JsonProcessingException {
-        String cacheKey = RandomStringUtils.randomAlphabetic(10);
+    public void givenCachedBasicCredentials_whenUpdateBasicCredentials_thenOnlyTheirCachedDataRemoved() throws JsonProcessingException {
         MqttClientCredentials savedCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.DEVICE));
+        String cacheKey = savedCredentials.getCredentialsId();
         basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
 
         MqttClientCredentials basicCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.APPLICATION));
+        basicCredentialsPasswordCache.put(basicCredentials.getCredentialsId(), basicCredentials);
         basicCredentials.setClientType(ClientType.DEVICE);
         mqttClientCredentialsService.saveCredentials(basicCredentials);
 
-        Assert.assertNull(basicCredentialsPasswordCache.get(cacheKey, MqttClientCredentials.class));
-
-        basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
+        Assert.assertNull(basicCredentialsPasswordCache.get(basicCredentials.getCredentialsId(), MqttClientCredentials.class));
+        Assert.assertEquals(savedCredentials, basicCredentialsPasswordCache.get(cacheKey, MqttClientCredentials.class));
 
         savedCredentials.setClientType(ClientType.APPLICATION);
         mqttClientCredentialsService.saveCredentials(savedCredentials);
@@ -430,10 +430,23 @@ public class MqttClientCredentialsServiceTest extends AbstractServiceTest {
         Assert.assertNull(basicCredentialsPasswordCache.get(cacheKey, MqttClientCredentials.class));
     }
 
+    @Test
+    public void givenCachedAbsentBasicCredentials_whenCreateBasicCredentials_thenCachedDataRemoved() throws JsonProcessingException {
+        MqttClientCredentials clientCredentials = validMqttBasicClientCredentials(ClientType.DEVICE);
+        BasicMqttCredentials basicMqttCredentials = MqttClientCredentialsUtil.getMqttCredentials(clientCredentials, BasicMqttCredentials.class);
+        String cacheKey = ProtocolUtil.mixedCredentialsId(basicMqttCredentials.getUserName(), basicMqttCredentials.getClientId());
+        basicCredentialsPasswordCache.put(cacheKey, ClientCredentialsType.MQTT_BASIC);
+
+        MqttClientCredentials savedCredentials = mqttClientCredentialsService.saveCredentials(clientCredentials);
+
+        Assert.assertEquals(cacheKey, savedCredentials.getCredentialsId());
+        Assert.assertNull(basicCredentialsPasswordCache.get(cacheKey));
+    }
+
     @Test
     public void givenCachedBasicCredentials_whenDeleteSslCredentials_thenCachedDataPresent() throws JsonProcessingException {
-        String cacheKey = RandomStringUtils.randomAlphabetic(10);
         MqttClientCredentials savedCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.DEVICE));
+        String cacheKey = savedCredentials.getCredentialsId();
         basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
 
         MqttClientCredentials sslCredentials = mqttClientCredentialsService.saveCredentials(validMqttSslClientCredentials(ClientType.APPLICATION));
@@ -443,17 +456,15 @@ public class MqttClientCredentialsServiceTest extends AbstractServiceTest {
     }
 
     @Test
-    public void givenCachedBasicCredentials_whenDeleteBasicCredentials_thenCachedDataRemoved() throws JsonProcessingException {
-        String cacheKey = RandomStringUtils.randomAlphabetic(10);
+    public void givenCachedBasicCredentials_whenDeleteBasicCredentials_thenOnlyTheirCachedDataRemoved() throws JsonProcessingException {
         MqttClientCredentials savedCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.DEVICE));
+        String cacheKey = savedCredentials.getCredentialsId();
         basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
 
         MqttClientCredentials basicCredentials = mqttClientCredentialsService.saveCredentials(validMqttBasicClientCredentials(ClientType.APPLICATION));
         mqttClientCredentialsService.deleteCredentials(basicCredentials.getId());
 
-        Assert.assertNull(basicCredentialsPasswordCache.get(cacheKey, MqttClientCredentials.class));
-
-        basicCredentialsPasswordCache.put(cacheKey, savedCredentials);
+        Assert.assertEquals(savedCredentials, basicCredentialsPasswordCache.get(cacheKey, MqttClientCredentials.class));
 
         mqttClientCredentialsService.deleteCredentials(savedCredentials.getId());
 
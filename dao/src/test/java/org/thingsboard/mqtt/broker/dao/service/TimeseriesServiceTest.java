@@ -100,6 +100,51 @@ public class TimeseriesServiceTest extends AbstractServiceTest {
         Assert.assertEquals(toTsEntry(TS, longKvEntry), entries.get(0));
     }
 
+    @Test
+    public void testSaveBatch() throws Exception {
+        String entityId = RandomStringUtils.randomAlphabetic(20);
+
+        saveEntries(entityId, TS - 1);
+
+        List<TsKvEntry> batch = List.of(
+                toTsEntry(TS - 1, new LongDataEntry(LONG_KEY, 5L)),
+                toTsEntry(TS, new LongDataEntry(LONG_KEY, 10L)));
+        tsService.saveBatch(entityId, batch).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        List<ReadTsKvQuery> queries = new ArrayList<>();
+        queries.add(new BaseReadTsKvQuery(LONG_KEY, TS - 1, TS + 1, 0, 1000, Aggregation.NONE, "ASC"));
+
+        List<TsKvEntry> entries = tsService.findAll(entityId, queries).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertEquals(batch, entries);
+    }
+
+    @Test
+    public void testFindAggregatedByRollupsMatchesRaw() throws Exception {
+        String entityId = RandomStringUtils.randomAlphabetic(20);
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long startTs = 1704067200000L; // 2024-01-01T00:00:00Z
+
+        List<TsKvEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 48; i++) {
+            entries.add(toTsEntry(startTs + i * hour / 2, new LongDataEntry(LONG_KEY, (long) i)));
+        }
+        tsService.save(entityId, entries).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        for (Aggregation aggregation : List.of(Aggregation.MIN, Aggregation.MAX, Aggregation.SUM, Aggregation.AVG, Aggregation.COUNT)) {
+            // aligned start and interval are served from the hourly rollups, the unaligned tail from ts_kv
+            List<TsKvEntry> rollupResult = tsService.findAll(entityId, List.of(
+                    new BaseReadTsKvQuery(LONG_KEY, startTs, startTs + 20 * hour + 1, 6 * hour, 100, aggregation))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+            // a 30 minutes interval can't be served from the rollups
+            List<TsKvEntry> rawResult = new ArrayList<>();
+            for (long from = startTs; from < startTs + 20 * hour + 1; from += 6 * hour) {
+                rawResult.addAll(tsService.findAll(entityId, List.of(
+                        new BaseReadTsKvQuery(LONG_KEY, from, Math.min(from + 6 * hour, startTs + 20 * hour + 1), hour / 2 * 13, 100, aggregation)))
+                        .get(MAX_TIMEOUT, TimeUnit.SECONDS));
+            }
+            assertEquals(aggregation.name(), rawResult, rollupResult);
+        }
+    }
+
     @Test
     public void testFindByQueryAscOrder() throws Exception {
         String entityId = RandomStringUtils.randomAlphabetic(20);
@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TbSqlBatchSizerTest {
+
+    @Test
+    public void givenNewSizer_thenStartWithMaxBatchSize() {
+        Assert.assertEquals(1000, new TbSqlBatchSizer(1000, 50).getBatchSize());
+        Assert.assertEquals(1, new TbSqlBatchSizer(0, 50).getBatchSize());
+    }
+
+    @Test
+    public void givenSlowBatches_whenQueueKeepsUp_thenShrinkBatchToMaxDelay() {
+        TbSqlBatchSizer batchSizer = new TbSqlBatchSizer(1000, 50);
+
+        // 1 ms per element, so 50 elements fit into the max delay
+        batchSizer.onBatchProcessed(1000, TimeUnit.MILLISECONDS.toNanos(1000), 0);
+
+        Assert.assertEquals(50, batchSizer.getBatchSize());
+    }
+
+    @Test
+    public void givenVerySlowBatches_thenNotShrinkBelowMinBatchSize() {
+        TbSqlBatchSizer batchSizer = new TbSqlBatchSizer(1000, 50);
+
+        batchSizer.onBatchProcessed(10, TimeUnit.SECONDS.toNanos(10), 0);
+
+        Assert.assertEquals(TbSqlBatchSizer.MIN_BATCH_SIZE, batchSizer.getBatchSize());
+    }
+
+    @Test
+    public void givenFastBatches_thenNotGrowAboveMaxBatchSize() {
+        TbSqlBatchSizer batchSizer = new TbSqlBatchSizer(1000, 50);
+
+        batchSizer.onBatchProcessed(10, TimeUnit.MICROSECONDS.toNanos(10), 0);
+
+        Assert.assertEquals(1000, batchSizer.getBatchSize());
+    }
+
+    @Test
+    public void givenGrowingQueue_thenDoubleBatchSizeUpToMax() {
+        TbSqlBatchSizer batchSizer = new TbSqlBatchSizer(1000, 50);
+        batchSizer.onBatchProcessed(1000, TimeUnit.MILLISECONDS.toNanos(1000), 0);
+        Assert.assertEquals(50, batchSizer.getBatchSize());
+
+        batchSizer.onBatchProcessed(50, TimeUnit.MILLISECONDS.toNanos(50), 5000);
+        Assert.assertEquals(100, batchSizer.getBatchSize());
+        for (int i = 0; i < 5; i++) {
+            batchSizer.onBatchProcessed(batchSizer.getBatchSize(), TimeUnit.MILLISECONDS.toNanos(batchSizer.getBatchSize()), 5000);
+        }
+        Assert.assertEquals(1000, batchSizer.getBatchSize());
+
+        batchSizer.onBatchProcessed(1000, TimeUnit.MILLISECONDS.toNanos(1000), 0);
+        Assert.assertEquals(50, batchSizer.getBatchSize());
+    }
+
+    @Test
+    public void givenNoMaxDelay_thenKeepMaxBatchSize() {
+        TbSqlBatchSizer batchSizer = new TbSqlBatchSizer(1000, 0);
+
+        batchSizer.onBatchProcessed(1000, TimeUnit.SECONDS.toNanos(1), 0);
+
+        Assert.assertEquals(1000, batchSizer.getBatchSize());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.thingsboard.mqtt.broker.dao.DaoSqlTest;
+import org.thingsboard.mqtt.broker.dao.service.AbstractServiceTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts rows into Postgres through a {@link TbSqlBlockingQueuePool} with the settings of the packet queues, once at
+ * a steady low rate and once as a burst. Reports the wall time and the latency from adding a row to the completion
+ * of its future. Not a part of the default build, run with -Pbenchmarks (needs Docker for the Postgres test container).
+ */
+@Slf4j(topic = "benchmark")
+@DaoSqlTest
+public class TbSqlBlockingQueuePoolBenchmark extends AbstractServiceTest {
+
+    static final int THREADS = 3;
+    static final int BATCH_SIZE = 100;
+    static final long MAX_DELAY_MS = 50;
+    static final int LIGHT_LOAD_ROWS = 2_000;
+    static final int BURST_ROWS = 100_000;
+    static final int KEYS = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sql_queue_benchmark (client_id varchar(255) NOT NULL, seq bigint NOT NULL, " +
+                "payload varchar(255), PRIMARY KEY (client_id, seq))");
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS sql_queue_benchmark");
+    }
+
+    @Test
+    public void givenLightLoadAndBurst_whenInsertThroughPool_thenReportWallTimeAndLatency() throws Exception {
+        String lightLoad = run(LIGHT_LOAD_ROWS, 2);
+        String burst = run(BURST_ROWS, 0);
+
+        Assert.assertEquals(LIGHT_LOAD_ROWS + BURST_ROWS,
+                jdbcTemplate.queryForObject("SELECT count(*) FROM sql_queue_benchmark", Long.class).longValue());
+        log.info("{} writers, batch size {}, max delay {} ms: {} rows, one per 2 ms: {}; {} rows at once: {}",
+                THREADS, BATCH_SIZE, MAX_DELAY_MS, LIGHT_LOAD_ROWS, lightLoad, BURST_ROWS, burst);
+    }
+
+    private String run(int rows, long pauseMs) throws Exception {
+        TbSqlBlockingQueuePool<Row> pool = TbSqlBlockingQueuePool.<Row>builder()
+                .params(TbSqlQueueParams.builder()
+                        .queueName("BenchmarkQueue")
+                        .batchSize(BATCH_SIZE)
+                        .maxDelay(MAX_DELAY_MS)
+                        .batchSortEnabled(true)
+                        .build())
+                .maxThreads(THREADS)
+                .queueIndexHashFunction(row -> row.getClientId().hashCode())
+                .processingFunction(this::insert)
+                .batchUpdateComparator(Comparator.comparing(Row::getClientId).thenComparingLong(Row::getSeq))
+                .build();
+        pool.init();
+        try {
+            long[] latencies = new long[rows];
+            List<ListenableFuture<Void>> futures = new ArrayList<>(rows);
+            long start = System.nanoTime();
+            for (int i = 0; i < rows; i++) {
+                int index = i;
+                long addedNanos = System.nanoTime();
+                ListenableFuture<Void> future = pool.add(new Row("client-" + i % KEYS, System.nanoTime()));
+                future.addListener(() -> latencies[index] = System.nanoTime() - addedNanos, MoreExecutors.directExecutor());
+                futures.add(future);
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            }
+            Futures.allAsList(futures).get(5, TimeUnit.MINUTES);
+            long wallTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Arrays.sort(latencies);
+            return String.format("wall time %d ms, latency p50 %.1f ms, p99 %.1f ms, max %.1f ms", wallTimeMs,
+                    latencies[rows / 2] / 1e6, latencies[rows * 99 / 100] / 1e6, latencies[rows - 1] / 1e6);
+        } finally {
+            pool.destroy();
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO sql_queue_benchmark (client_id, seq, payload) VALUES (?, ?, ?)", rows, rows.size(),
+                (ps, row) -> {
+                    ps.setString(1, row.getClientId());
+                    ps.setLong(2, row.getSeq());
+                    ps.setString(3, "{\"temperature\":21.5}");
+                });
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Row {
+        private final String clientId;
+        private final long seq;
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class TbSqlBlockingQueuePoolTest {
+
+    TbSqlBlockingQueuePool<Element> pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.destroy();
+        }
+    }
+
+    @Test
+    public void givenSeveralWriters_whenAddElementsOfManyKeys_thenProcessElementsOfEachKeyInOrder() throws Exception {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        pool = newPool(3, 100, 10, elements -> elements.forEach(element ->
+                processed.computeIfAbsent(element.getKey(), key -> new CopyOnWriteArrayList<>()).add(element.getSeq())));
+
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (int seq = 0; seq < 1000; seq++) {
+            for (int key = 0; key < 20; key++) {
+                futures.add(pool.add(new Element("key-" + key, seq)));
+            }
+        }
+        Futures.allAsList(futures).get(30, TimeUnit.SECONDS);
+
+        Assert.assertEquals(20, processed.size());
+        processed.forEach((key, seqs) -> {
+            Assert.assertEquals(1000, seqs.size());
+            for (int i = 0; i < seqs.size(); i++) {
+                Assert.assertEquals(i, seqs.get(i).intValue());
+            }
+        });
+    }
+
+    @Test
+    public void givenProcessedBatch_whenAddElement_thenProcessWithoutWaitingForMaxDelay() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        // the max delay is far longer than the wait for the futures, so they complete only if the batch is not held back
+        pool = newPool(1, 100, 60000, elements -> batches.add(elements.stream().map(Element::getSeq).toList()));
+
+        pool.add(new Element("key", 0)).get(10, TimeUnit.SECONDS);
+        pool.add(new Element("key", 1)).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(List.of(List.of(0), List.of(1)), batches);
+    }
+
+    @Test
+    public void givenQueueBacklog_whenProcess_thenTakeBatchesUpToBatchSize() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        pool = newPool(1, 100, 10, elements -> batchSizes.add(elements.size()));
+
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (int seq = 0; seq < 1000; seq++) {
+            futures.add(pool.add(new Element("key", seq)));
+        }
+        Futures.allAsList(futures).get(30, TimeUnit.SECONDS);
+
+        Assert.assertEquals(1000, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        Assert.assertTrue(batchSizes.stream().allMatch(size -> size <= 100));
+    }
+
+    @Test
+    public void givenProcessingFails_thenFailFuturesAndKeepProcessing() throws Exception {
+        pool = newPool(1, 100, 10, elements -> {
+            if (elements.stream().anyMatch(element -> element.getSeq() == 0)) {
+                throw new IllegalStateException("test");
+            }
+        });
+
+        ListenableFuture<Void> failed = pool.add(new Element("key", 0));
+        try {
+            failed.get(1, TimeUnit.SECONDS);
+            Assert.fail("Expected processing failure");
+        } catch (Exception e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        pool.add(new Element("key", 1)).get(1, TimeUnit.SECONDS);
+    }
+
+    private TbSqlBlockingQueuePool<Element> newPool(int threads, int batchSize, long maxDelay, Consumer<List<Element>> processingFunction) {
+        TbSqlBlockingQueuePool<Element> pool = TbSqlBlockingQueuePool.<Element>builder()
+                .params(TbSqlQueueParams.builder()
+                        .queueName("TestQueue")
+                        .batchSize(batchSize)
+                        .maxDelay(maxDelay)
+                        .build())
+                .maxThreads(threads)
+                .queueIndexHashFunction(element -> element.getKey().hashCode())
+                .processingFunction(processingFunction)
+                .batchUpdateComparator(Comparator.comparing(Element::getKey))
+                .build();
+        pool.init();
+        return pool;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Element {
+        private final String key;
+        private final int seq;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.sqlts.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JpaSqlTimeseriesRollupDaoTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final long HOURLY_TTL_SEC = TimeUnit.DAYS.toSeconds(30);
+
+    private JpaSqlTimeseriesRollupDao rollupDao;
+
+    @Before
+    public void setUp() {
+        rollupDao = new JpaSqlTimeseriesRollupDao(null, null);
+        ReflectionTestUtils.setField(rollupDao, "ttlEnabled", true);
+        ReflectionTestUtils.setField(rollupDao, "rollupHourlyTtl", HOURLY_TTL_SEC);
+    }
+
+    @Test
+    public void givenDayWithinHourlyTtl_whenIsDailyBucketRecomputable_thenTrue() {
+        assertThat(rollupDao.isDailyBucketRecomputable(NOW, NOW)).isTrue();
+        assertThat(rollupDao.isDailyBucketRecomputable(NOW - 30 * DAY, NOW)).isTrue();
+    }
+
+    @Test
+    public void givenDayOlderThanHourlyTtl_whenIsDailyBucketRecomputable_thenFalse() {
+        assertThat(rollupDao.isDailyBucketRecomputable(NOW - 31 * DAY, NOW)).isFalse();
+        assertThat(rollupDao.isDailyBucketRecomputable(NOW - 30 * DAY - 1, NOW)).isFalse();
+    }
+
+    @Test
+    public void givenHourlyTtlDisabled_whenIsDailyBucketRecomputable_thenTrue() {
+        ReflectionTestUtils.setField(rollupDao, "rollupHourlyTtl", 0L);
+        assertThat(rollupDao.isDailyBucketRecomputable(NOW - 365 * DAY, NOW)).isTrue();
+
+        ReflectionTestUtils.setField(rollupDao, "rollupHourlyTtl", HOURLY_TTL_SEC);
+        ReflectionTestUtils.setField(rollupDao, "ttlEnabled", false);
+        assertThat(rollupDao.isDailyBucketRecomputable(NOW - 365 * DAY, NOW)).isTrue();
+    }
+}
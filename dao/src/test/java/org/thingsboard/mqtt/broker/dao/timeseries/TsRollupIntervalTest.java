@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.timeseries;
+
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.kv.Aggregation;
+import org.thingsboard.mqtt.broker.common.data.kv.BaseReadTsKvQuery;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TsRollupIntervalTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long START_OF_DAY = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    @Test
+    public void givenDayAlignedQuery_whenFindCoarsest_thenDaily() {
+        assertThat(findCoarsest(START_OF_DAY, DAY, Aggregation.SUM)).contains(TsRollupInterval.DAILY);
+        assertThat(findCoarsest(START_OF_DAY, 7 * DAY, Aggregation.MAX)).contains(TsRollupInterval.DAILY);
+    }
+
+    @Test
+    public void givenHourAlignedQuery_whenFindCoarsest_thenHourly() {
+        assertThat(findCoarsest(START_OF_DAY, HOUR, Aggregation.AVG)).contains(TsRollupInterval.HOURLY);
+        assertThat(findCoarsest(START_OF_DAY + 3 * HOUR, DAY, Aggregation.MIN)).contains(TsRollupInterval.HOURLY);
+        assertThat(findCoarsest(START_OF_DAY, 36 * HOUR, Aggregation.COUNT)).contains(TsRollupInterval.HOURLY);
+    }
+
+    @Test
+    public void givenNotAlignedQuery_whenFindCoarsest_thenRaw() {
+        assertThat(findCoarsest(START_OF_DAY + 1, HOUR, Aggregation.SUM)).isEmpty();
+        assertThat(findCoarsest(START_OF_DAY, TimeUnit.MINUTES.toMillis(30), Aggregation.SUM)).isEmpty();
+        assertThat(findCoarsest(START_OF_DAY, 90 * TimeUnit.MINUTES.toMillis(1), Aggregation.SUM)).isEmpty();
+        assertThat(findCoarsest(START_OF_DAY, DAY, Aggregation.NONE)).isEmpty();
+    }
+
+    @Test
+    public void testTruncate() {
+        assertThat(TsRollupInterval.HOURLY.truncate(START_OF_DAY + HOUR + 1234)).isEqualTo(START_OF_DAY + HOUR);
+        assertThat(TsRollupInterval.DAILY.truncate(START_OF_DAY + DAY - 1)).isEqualTo(START_OF_DAY);
+        assertThat(TsRollupInterval.HOURLY.truncate(-1)).isEqualTo(-HOUR);
+    }
+
+    private Optional<TsRollupInterval> findCoarsest(long startTs, long interval, Aggregation aggregation) {
+        return TsRollupInterval.findCoarsest(new BaseReadTsKvQuery("key", startTs, startTs + 30 * DAY, interval, 100, aggregation));
+    }
+}
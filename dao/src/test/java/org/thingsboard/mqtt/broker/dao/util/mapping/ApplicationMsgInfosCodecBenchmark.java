@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.util.mapping;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.ApplicationMsgInfo;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the binary format of the pending messages of an APPLICATION session with the JSON columns used before it,
+ * by the time to encode and decode both lists and by the size of the row values, for large in-flight windows.
+ * Not a part of the default build, run with -Pbenchmarks.
+ */
+@Slf4j(topic = "benchmark")
+public class ApplicationMsgInfosCodecBenchmark {
+
+    static final int[] IN_FLIGHT_WINDOWS = {1_000, 10_000, 65_535};
+    static final int MSG_INFOS_PER_WINDOW_SIZE = 2_000_000;
+
+    private final JsonConverter jsonConverter = new JsonConverter();
+
+    @Test
+    public void givenLargeInFlightWindows_whenEncodeAndDecode_thenReportTimeAndRowSize() {
+        for (int window : IN_FLIGHT_WINDOWS) {
+            List<ApplicationMsgInfo> publishMsgInfos = newMsgInfos(5_000_000_000L, window / 2, 1);
+            List<ApplicationMsgInfo> pubRelMsgInfos = newMsgInfos(5_000_000_000L + window / 2, window - window / 2, window / 2 + 1);
+            int iterations = Math.max(10, MSG_INFOS_PER_WINDOW_SIZE / window);
+
+            String[] json = encodeJson(publishMsgInfos, pubRelMsgInfos);
+            byte[] binary = ApplicationMsgInfosCodec.encode(publishMsgInfos, pubRelMsgInfos);
+            assertEquals(publishMsgInfos, decodeJson(json[0]));
+            assertEquals(pubRelMsgInfos, ApplicationMsgInfosCodec.decode(binary).getPubRelMsgInfos());
+
+            for (int i = 0; i < iterations; i++) {
+                encodeJson(publishMsgInfos, pubRelMsgInfos);
+                ApplicationMsgInfosCodec.encode(publishMsgInfos, pubRelMsgInfos);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                json = encodeJson(publishMsgInfos, pubRelMsgInfos);
+            }
+            long jsonEncodeNs = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                decodeJson(json[0]);
+                decodeJson(json[1]);
+            }
+            long jsonDecodeNs = (System.nanoTime() - start) / iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                binary = ApplicationMsgInfosCodec.encode(publishMsgInfos, pubRelMsgInfos);
+            }
+            long binaryEncodeNs = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                ApplicationMsgInfosCodec.decode(binary);
+            }
+            long binaryDecodeNs = (System.nanoTime() - start) / iterations;
+
+            int jsonSize = json[0].getBytes(StandardCharsets.UTF_8).length + json[1].getBytes(StandardCharsets.UTF_8).length;
+            log.info("{} in-flight msgs: JSON {} bytes, encode {} us, decode {} us; binary {} bytes, encode {} us, decode {} us",
+                    window, jsonSize, jsonEncodeNs / 1000, jsonDecodeNs / 1000,
+                    binary.length, binaryEncodeNs / 1000, binaryDecodeNs / 1000);
+        }
+    }
+
+    // the pending messages of a session have consecutive offsets and packet ids
+    private List<ApplicationMsgInfo> newMsgInfos(long firstOffset, int count, int firstPacketId) {
+        List<ApplicationMsgInfo> msgInfos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            msgInfos.add(new ApplicationMsgInfo(firstOffset + i, (firstPacketId + i - 1) % 0xFFFF + 1));
+        }
+        return msgInfos;
+    }
+
+    // as ApplicationSessionCtxEntity saved the pending messages before the binary format
+    private String[] encodeJson(List<ApplicationMsgInfo> publishMsgInfos, List<ApplicationMsgInfo> pubRelMsgInfos) {
+        return new String[]{
+                jsonConverter.convertToDatabaseColumn(JacksonUtil.toJsonNode(JacksonUtil.toString(publishMsgInfos))),
+                jsonConverter.convertToDatabaseColumn(JacksonUtil.toJsonNode(JacksonUtil.toString(pubRelMsgInfos)))
+        };
+    }
+
+    private List<ApplicationMsgInfo> decodeJson(String json) {
+        JsonNode msgInfosJson = jsonConverter.convertToEntityAttribute(json);
+        List<ApplicationMsgInfo> msgInfos = new ArrayList<>(msgInfosJson.size());
+        for (JsonNode msgInfoJson : msgInfosJson) {
+            msgInfos.add(JacksonUtil.toValue(msgInfoJson, ApplicationMsgInfo.class));
+        }
+        return msgInfos;
+    }
+}
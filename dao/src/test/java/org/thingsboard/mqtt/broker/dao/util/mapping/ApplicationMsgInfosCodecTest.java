@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.dao.util.mapping;
+
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.common.data.ApplicationMsgInfo;
+import org.thingsboard.mqtt.broker.common.data.ApplicationSessionCtx;
+import org.thingsboard.mqtt.broker.common.util.JacksonUtil;
+import org.thingsboard.mqtt.broker.dao.model.ApplicationSessionCtxEntity;
+import org.thingsboard.mqtt.broker.dao.util.mapping.ApplicationMsgInfosCodec.DecodedMsgInfos;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ApplicationMsgInfosCodecTest {
+
+    @Test
+    public void givenMsgInfos_whenEncodeAndDecode_thenSameMsgInfosInSameOrder() {
+        List<ApplicationMsgInfo> publishMsgInfos = List.of(
+                new ApplicationMsgInfo(1000, 65535), new ApplicationMsgInfo(1001, 1),
+                new ApplicationMsgInfo(999, 7), new ApplicationMsgInfo(Long.MAX_VALUE, 2), new ApplicationMsgInfo(0, 3));
+        List<ApplicationMsgInfo> pubRelMsgInfos = List.of(new ApplicationMsgInfo(5, 10));
+
+        DecodedMsgInfos decoded = ApplicationMsgInfosCodec.decode(ApplicationMsgInfosCodec.encode(publishMsgInfos, pubRelMsgInfos));
+
+        assertEquals(publishMsgInfos, decoded.getPublishMsgInfos());
+        assertEquals(pubRelMsgInfos, decoded.getPubRelMsgInfos());
+    }
+
+    @Test
+    public void givenSequentialMsgInfos_whenEncode_thenTwoBytesPerMsg() {
+        List<ApplicationMsgInfo> publishMsgInfos = Arrays.asList(new ApplicationMsgInfo[1000]);
+        for (int i = 0; i < publishMsgInfos.size(); i++) {
+            publishMsgInfos.set(i, new ApplicationMsgInfo(1_000_000 + i, i + 1));
+        }
+
+        byte[] encoded = ApplicationMsgInfosCodec.encode(publishMsgInfos, null);
+
+        // version, list sizes and the first offset that is written in full
+        assertTrue(encoded.length <= 2 * publishMsgInfos.size() + 8);
+        assertEquals(publishMsgInfos, ApplicationMsgInfosCodec.decode(encoded).getPublishMsgInfos());
+        assertTrue(ApplicationMsgInfosCodec.decode(encoded).getPubRelMsgInfos().isEmpty());
+    }
+
+    @Test
+    public void givenUnknownVersionOrTruncatedData_whenDecode_thenThrowIllegalArgumentException() {
+        byte[] encoded = ApplicationMsgInfosCodec.encode(List.of(new ApplicationMsgInfo(300, 400)), Collections.emptyList());
+
+        assertThrows(IllegalArgumentException.class, () -> ApplicationMsgInfosCodec.decode(new byte[]{2, 0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> ApplicationMsgInfosCodec.decode(Arrays.copyOf(encoded, encoded.length - 2)));
+    }
+
+    @Test
+    public void givenEntitySavedAsJson_whenToData_thenReadJsonAndSaveAsBinary() {
+        List<ApplicationMsgInfo> publishMsgInfos = List.of(new ApplicationMsgInfo(10, 1), new ApplicationMsgInfo(11, 2));
+        List<ApplicationMsgInfo> pubRelMsgInfos = List.of(new ApplicationMsgInfo(8, 65535));
+        ApplicationSessionCtxEntity jsonEntity = new ApplicationSessionCtxEntity();
+        jsonEntity.setClientId("clientId");
+        jsonEntity.setPublishMsgInfos(JacksonUtil.valueToTree(publishMsgInfos));
+        jsonEntity.setPubRelMsgInfos(JacksonUtil.valueToTree(pubRelMsgInfos));
+
+        ApplicationSessionCtx sessionCtx = jsonEntity.toData();
+        assertEquals(publishMsgInfos, sessionCtx.getPublishMsgInfos());
+        assertEquals(pubRelMsgInfos, sessionCtx.getPubRelMsgInfos());
+
+        ApplicationSessionCtxEntity binaryEntity = new ApplicationSessionCtxEntity(sessionCtx);
+        assertNull(binaryEntity.getPublishMsgInfos());
+        assertNull(binaryEntity.getPubRelMsgInfos());
+        assertNotNull(binaryEntity.getMsgInfos());
+        assertEquals(sessionCtx, binaryEntity.toData());
+    }
+}
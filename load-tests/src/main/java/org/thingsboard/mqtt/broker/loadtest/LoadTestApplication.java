@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.loadtest.report.LoadTestReport;
+import org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestScenario;
+
+import java.io.File;
+
+/**
+ * Command line entry point:
+ * <pre>
+ * java [-Dloadtest.host=host] [-Dloadtest.port=port] -jar load-tests-boot.jar &lt;scenario&gt; [report]
+ * </pre>
+ * The scenario is a file path or a bundled scenario such as 'classpath:scenarios/fan-in.json'. The JSON report is
+ * written to 'load-test-report.json' by default. The exit code is 0 when the thresholds of the scenario are met,
+ * 1 when any of them is violated and 2 when the test could not be run.
+ */
+@Slf4j
+public class LoadTestApplication {
+
+    private static final String DEFAULT_REPORT_PATH = "load-test-report.json";
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            log.error("Usage: LoadTestApplication <scenario file | classpath:scenarios/name.json> [report file]");
+            System.exit(2);
+        }
+        String reportPath = args.length > 1 ? args[1] : DEFAULT_REPORT_PATH;
+        try {
+            LoadTestScenario scenario = LoadTestScenario.load(args[0]);
+            String host = System.getProperty("loadtest.host");
+            if (host != null) {
+                scenario.setHost(host);
+            }
+            String port = System.getProperty("loadtest.port");
+            if (port != null) {
+                scenario.setPort(Integer.parseInt(port));
+            }
+
+            LoadTestReport report = new LoadTestRunner(scenario).run();
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(reportPath), report);
+
+            log.info("[{}] Published {} ({} msg/s, {} failed), received {} ({} msg/s)", report.getScenario(),
+                    report.getPublished(), report.getPublishRate(), report.getPublishFailed(), report.getReceived(), report.getReceiveRate());
+            log.info("[{}] Publish ack latency p50 {} ms, p99 {} ms; end-to-end latency p50 {} ms, p99 {} ms, p99.9 {} ms, max {} ms",
+                    report.getScenario(), report.getPublishAckLatency().getP50Ms(), report.getPublishAckLatency().getP99Ms(),
+                    report.getEndToEndLatency().getP50Ms(), report.getEndToEndLatency().getP99Ms(),
+                    report.getEndToEndLatency().getP999Ms(), report.getEndToEndLatency().getMaxMs());
+            log.info("[{}] Report is written to {}", report.getScenario(), reportPath);
+            if (!report.isPassed()) {
+                report.getThresholdViolations().forEach(violation -> log.error("[{}] Threshold violated: {}", report.getScenario(), violation));
+                System.exit(1);
+            }
+            System.exit(0);
+        } catch (Exception e) {
+            log.error("Failed to run the load test", e);
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.mqtt.broker.loadtest.client.LoadTestMqttClient;
+import org.thingsboard.mqtt.broker.loadtest.report.IntervalReport;
+import org.thingsboard.mqtt.broker.loadtest.report.LoadTestReport;
+import org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestScenario;
+import org.thingsboard.mqtt.broker.loadtest.scenario.PublisherGroup;
+import org.thingsboard.mqtt.broker.loadtest.scenario.SubscriberGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs a {@link LoadTestScenario}: connects the subscribers and then the publishers, publishes at the scheduled
+ * rates during the warm-up and the measurement, waits for the in-flight messages and disconnects all clients.
+ * <p>
+ * Every publisher sends on a fixed schedule on the event loop of its connection. When the event loop or the broker
+ * falls behind, the late messages are sent back to back, and their latency is measured from the scheduled time.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LoadTestRunner {
+
+    private static final String INDEX_PLACEHOLDER = "{index}";
+
+    private final LoadTestScenario scenario;
+    private final LoadTestStats stats = new LoadTestStats();
+    private final AtomicInteger connectFailures = new AtomicInteger();
+
+    public LoadTestReport run() throws InterruptedException {
+        int threads = scenario.getThreads() > 0 ? scenario.getThreads() : 2 * Runtime.getRuntime().availableProcessors();
+        EventLoopGroup eventLoopGroup = new NioEventLoopGroup(threads, new DefaultThreadFactory("load-test-client"));
+        List<LoadTestMqttClient> subscribers = new ArrayList<>();
+        List<LoadTestMqttClient> publishers = new ArrayList<>();
+        List<ScheduledFuture<?>> publishTasks = new ArrayList<>();
+        try {
+            LoadTestReport report = new LoadTestReport();
+            report.setScenario(scenario.getName());
+            report.setMqttVersion(scenario.getMqttVersion());
+            report.setStartTime(System.currentTimeMillis());
+
+            for (SubscriberGroup group : scenario.getSubscribers()) {
+                subscribers.addAll(connectSubscribers(eventLoopGroup, group));
+            }
+            List<List<LoadTestMqttClient>> publisherGroups = new ArrayList<>();
+            for (PublisherGroup group : scenario.getPublishers()) {
+                List<LoadTestMqttClient> groupPublishers = connect(eventLoopGroup, group.getName(), group.getCount(), index ->
+                        new LoadTestMqttClient(group.getClientIdPrefix() + index, scenario.getMqttVersion(), eventLoopGroup,
+                                (topic, qos, retain, payload) -> {
+                                }), group.isCleanSession(), group.getSessionExpiryInterval());
+                publisherGroups.add(groupPublishers);
+                publishers.addAll(groupPublishers);
+            }
+            report.setSubscribers(subscribers.size());
+            report.setPublishers(publishers.size());
+            report.setConnectFailures(connectFailures.get());
+            log.info("[{}] Connected {} subscribers and {} publishers, {} connect failures",
+                    scenario.getName(), subscribers.size(), publishers.size(), connectFailures.get());
+            if (subscribers.isEmpty() && publishers.isEmpty()) {
+                throw new IllegalStateException("Failed to connect any client to " + scenario.getHost() + ":" + scenario.getPort());
+            }
+
+            for (int i = 0; i < publisherGroups.size(); i++) {
+                publishTasks.addAll(startPublishing(scenario.getPublishers().get(i), publisherGroups.get(i)));
+            }
+            log.info("[{}] Warming up for {} s", scenario.getName(), scenario.getWarmUpSeconds());
+            TimeUnit.SECONDS.sleep(scenario.getWarmUpSeconds());
+
+            stats.startMeasurement();
+            long measurementStartNanos = System.nanoTime();
+            long measurementEndNanos = measurementStartNanos + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+            long intervalNanos = TimeUnit.SECONDS.toNanos(scenario.getReportIntervalSeconds());
+            long nextIntervalNanos = measurementStartNanos + intervalNanos;
+            while (nextIntervalNanos < measurementEndNanos) {
+                TimeUnit.NANOSECONDS.sleep(nextIntervalNanos - System.nanoTime());
+                logInterval(report, stats.completeInterval());
+                nextIntervalNanos += intervalNanos;
+            }
+            TimeUnit.NANOSECONDS.sleep(measurementEndNanos - System.nanoTime());
+            publishTasks.forEach(task -> task.cancel(false));
+            long measuredDurationNanos = System.nanoTime() - measurementStartNanos;
+
+            awaitInFlight(publishers);
+            logInterval(report, stats.completeInterval());
+            stats.fillReport(report, measuredDurationNanos);
+            report.checkThresholds(scenario.getThresholds());
+            return report;
+        } finally {
+            publishTasks.forEach(task -> task.cancel(false));
+            publishers.forEach(LoadTestMqttClient::disconnect);
+            subscribers.forEach(LoadTestMqttClient::disconnect);
+            eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).awaitUninterruptibly();
+        }
+    }
+
+    private List<LoadTestMqttClient> connectSubscribers(EventLoopGroup eventLoopGroup, SubscriberGroup group) throws InterruptedException {
+        List<LoadTestMqttClient> clients = connect(eventLoopGroup, group.getName(), group.getCount(), index ->
+                new LoadTestMqttClient(group.getClientIdPrefix() + index, scenario.getMqttVersion(), eventLoopGroup,
+                        (topic, qos, retain, payload) -> stats.onReceived(payload, retain)), group.isCleanSession(), group.getSessionExpiryInterval());
+        List<LoadTestMqttClient> subscribed = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < clients.size(); i++) {
+            LoadTestMqttClient client = clients.get(i);
+            String topicFilter = group.getSubscriptionTopicFilter(resolve(group.getTopicFilter(), i));
+            futures.add(client.subscribe(topicFilter, MqttQoS.valueOf(group.getQos())).whenComplete((v, e) -> {
+                if (e != null) {
+                    log.warn("[{}] Failed to subscribe to {}", client.getClientId(), topicFilter, e);
+                }
+            }));
+        }
+        await(futures);
+        for (int i = 0; i < clients.size(); i++) {
+            CompletableFuture<Void> future = futures.get(i);
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                subscribed.add(clients.get(i));
+            } else {
+                clients.get(i).disconnect();
+                connectFailures.incrementAndGet();
+            }
+        }
+        return subscribed;
+    }
+
+    private List<LoadTestMqttClient> connect(EventLoopGroup eventLoopGroup, String groupName, int count,
+                                             Function<Integer, LoadTestMqttClient> clientFactory,
+                                             boolean cleanSession, int sessionExpiryInterval) throws InterruptedException {
+        Semaphore connectPermits = new Semaphore(scenario.getMaxConcurrentConnects());
+        List<LoadTestMqttClient> clients = new ArrayList<>(count);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(scenario.getConnectTimeoutSeconds());
+        for (int i = 0; i < count; i++) {
+            if (!connectPermits.tryAcquire(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("[{}] Timed out connecting clients, {} of {} attempted", groupName, i, count);
+                break;
+            }
+            LoadTestMqttClient client = clientFactory.apply(i);
+            clients.add(client);
+            futures.add(client.connect(scenario.getHost(), scenario.getPort(), cleanSession, sessionExpiryInterval, scenario.getKeepAliveSeconds())
+                    .whenComplete((v, e) -> {
+                        connectPermits.release();
+                        if (e != null) {
+                            log.debug("[{}] Failed to connect", client.getClientId(), e);
+                        }
+                    }));
+        }
+        await(futures);
+        List<LoadTestMqttClient> connected = new ArrayList<>(clients.size());
+        for (LoadTestMqttClient client : clients) {
+            if (client.isConnected()) {
+                connected.add(client);
+            } else {
+                client.disconnect();
+            }
+        }
+        connectFailures.addAndGet(count - connected.size());
+        return connected;
+    }
+
+    private List<ScheduledFuture<?>> startPublishing(PublisherGroup group, List<LoadTestMqttClient> clients) {
+        long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / group.getRatePerSecond()));
+        long startNanos = System.nanoTime();
+        List<ScheduledFuture<?>> tasks = new ArrayList<>(clients.size());
+        for (int i = 0; i < clients.size(); i++) {
+            LoadTestMqttClient client = clients.get(i);
+            String topic = resolve(group.getTopic(), i);
+            // spread the publishers over the period to avoid synchronized bursts
+            long firstNanos = startNanos + periodNanos * i / clients.size();
+            tasks.add(client.getChannel().eventLoop().scheduleAtFixedRate(new PublishTask(group, client, topic, firstNanos, periodNanos),
+                    Math.max(0, firstNanos - System.nanoTime()), periodNanos, TimeUnit.NANOSECONDS));
+        }
+        return tasks;
+    }
+
+    private void awaitInFlight(List<LoadTestMqttClient> publishers) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(scenario.getDrainTimeoutSeconds());
+        while (System.nanoTime() < deadlineNanos) {
+            if (publishers.stream().mapToInt(LoadTestMqttClient::getInFlightCount).sum() == 0) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        log.warn("[{}] {} messages are still in flight after {} s", scenario.getName(),
+                publishers.stream().mapToInt(LoadTestMqttClient::getInFlightCount).sum(), scenario.getDrainTimeoutSeconds());
+    }
+
+    private void await(List<CompletableFuture<Void>> futures) throws InterruptedException {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(scenario.getConnectTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // failed and timed out clients are counted by the caller
+        }
+    }
+
+    private void logInterval(LoadTestReport report, IntervalReport interval) {
+        report.getIntervals().add(interval);
+        log.info("[{}] +{} s: publish {} msg/s, receive {} msg/s, failed {}, publish ack p99 {} ms, end-to-end p99 {} ms, max {} ms",
+                scenario.getName(), interval.getOffsetSeconds(), interval.getPublishRate(), interval.getReceiveRate(),
+                interval.getPublishFailed(), interval.getPublishAckP99Ms(), interval.getEndToEndP99Ms(), interval.getEndToEndMaxMs());
+    }
+
+    private static String resolve(String template, int index) {
+        return template.replace(INDEX_PLACEHOLDER, Integer.toString(index));
+    }
+
+    @RequiredArgsConstructor
+    private class PublishTask implements Runnable {
+
+        private final PublisherGroup group;
+        private final LoadTestMqttClient client;
+        private final String topic;
+        private final long firstNanos;
+        private final long periodNanos;
+        private long sequence;
+
+        @Override
+        public void run() {
+            long scheduledNanos = firstNanos + sequence++ * periodNanos;
+            stats.onPublished();
+            if (!client.isConnected()) {
+                stats.onPublishFailed();
+                return;
+            }
+            ByteBuf payload = client.getChannel().alloc().buffer(group.getPayloadSize());
+            LoadTestStats.writeTimestamps(payload, scheduledNanos, System.nanoTime());
+            payload.writeZero(group.getPayloadSize() - PublisherGroup.MIN_PAYLOAD_SIZE);
+            client.publish(topic, group.nextQos(), group.isRetain(), payload).whenComplete((v, e) -> {
+                if (e != null) {
+                    stats.onPublishFailed();
+                } else {
+                    stats.onPublishAcked(scheduledNanos);
+                }
+            });
+        }
+    }
+}
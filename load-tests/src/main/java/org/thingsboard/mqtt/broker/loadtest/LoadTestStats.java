@@ -0,0 +1,179 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.thingsboard.mqtt.broker.loadtest.report.IntervalReport;
+import org.thingsboard.mqtt.broker.loadtest.report.LatencyReport;
+import org.thingsboard.mqtt.broker.loadtest.report.LoadTestReport;
+import org.thingsboard.mqtt.broker.loadtest.scenario.PublisherGroup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a run. Latencies are recorded in microseconds by the event loops and collected
+ * per report interval; everything recorded before {@link #startMeasurement()} is discarded as warm-up.
+ * <p>
+ * Every published payload starts with the time the message was scheduled to be sent and the time it was actually
+ * sent ({@link System#nanoTime()}), so end-to-end latency can only be measured when the publishers and subscribers
+ * run in the same JVM.
+ */
+public class LoadTestStats {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishAcked = new LongAdder();
+    private final LongAdder publishFailed = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder retainedReceived = new LongAdder();
+
+    private final Recorder publishAckRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder endToEndRecorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder endToEndUncorrectedRecorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final Histogram publishAckTotal = newHistogram();
+    private final Histogram endToEndTotal = newHistogram();
+    private final Histogram endToEndUncorrectedTotal = newHistogram();
+
+    private Histogram publishAckInterval;
+    private Histogram endToEndInterval;
+    private Histogram endToEndUncorrectedInterval;
+
+    private long measurementStartNanos;
+    private long lastIntervalNanos;
+    private final long[] measurementStartCounts = new long[5];
+    private final long[] lastIntervalCounts = new long[5];
+
+    public static void writeTimestamps(ByteBuf payload, long scheduledNanos, long sentNanos) {
+        payload.writeLong(scheduledNanos);
+        payload.writeLong(sentNanos);
+    }
+
+    public void onPublished() {
+        published.increment();
+    }
+
+    public void onPublishAcked(long scheduledNanos) {
+        publishAcked.increment();
+        publishAckRecorder.recordValue(toMicros(System.nanoTime() - scheduledNanos));
+    }
+
+    public void onPublishFailed() {
+        publishFailed.increment();
+    }
+
+    public void onReceived(ByteBuf payload, boolean retain) {
+        long nowNanos = System.nanoTime();
+        if (retain) {
+            // retained messages delivered on subscribe may come from earlier runs
+            retainedReceived.increment();
+            return;
+        }
+        received.increment();
+        if (payload.readableBytes() >= PublisherGroup.MIN_PAYLOAD_SIZE) {
+            int index = payload.readerIndex();
+            endToEndRecorder.recordValue(toMicros(nowNanos - payload.getLong(index)));
+            endToEndUncorrectedRecorder.recordValue(toMicros(nowNanos - payload.getLong(index + Long.BYTES)));
+        }
+    }
+
+    public synchronized void startMeasurement() {
+        publishAckInterval = publishAckRecorder.getIntervalHistogram(publishAckInterval);
+        endToEndInterval = endToEndRecorder.getIntervalHistogram(endToEndInterval);
+        endToEndUncorrectedInterval = endToEndUncorrectedRecorder.getIntervalHistogram(endToEndUncorrectedInterval);
+        publishAckTotal.reset();
+        endToEndTotal.reset();
+        endToEndUncorrectedTotal.reset();
+        measurementStartNanos = lastIntervalNanos = System.nanoTime();
+        readCounts(measurementStartCounts);
+        System.arraycopy(measurementStartCounts, 0, lastIntervalCounts, 0, measurementStartCounts.length);
+    }
+
+    /**
+     * Collects the latencies and counters since the previous interval and adds the latencies to the totals.
+     */
+    public synchronized IntervalReport completeInterval() {
+        long nowNanos = System.nanoTime();
+        publishAckInterval = publishAckRecorder.getIntervalHistogram(publishAckInterval);
+        endToEndInterval = endToEndRecorder.getIntervalHistogram(endToEndInterval);
+        endToEndUncorrectedInterval = endToEndUncorrectedRecorder.getIntervalHistogram(endToEndUncorrectedInterval);
+        publishAckTotal.add(publishAckInterval);
+        endToEndTotal.add(endToEndInterval);
+        endToEndUncorrectedTotal.add(endToEndUncorrectedInterval);
+
+        long[] counts = new long[lastIntervalCounts.length];
+        readCounts(counts);
+        double seconds = Math.max(1, nowNanos - lastIntervalNanos) / 1e9;
+        IntervalReport report = new IntervalReport();
+        report.setOffsetSeconds(TimeUnit.NANOSECONDS.toSeconds(nowNanos - measurementStartNanos));
+        report.setPublishRate(round((counts[0] - lastIntervalCounts[0]) / seconds));
+        report.setReceiveRate(round((counts[3] - lastIntervalCounts[3]) / seconds));
+        report.setPublishFailed(counts[2] - lastIntervalCounts[2]);
+        report.setPublishAckP99Ms(publishAckInterval.getValueAtPercentile(99) / 1000.0);
+        report.setEndToEndP99Ms(endToEndInterval.getValueAtPercentile(99) / 1000.0);
+        report.setEndToEndMaxMs(endToEndInterval.getMaxValue() / 1000.0);
+
+        System.arraycopy(counts, 0, lastIntervalCounts, 0, counts.length);
+        lastIntervalNanos = nowNanos;
+        return report;
+    }
+
+    /**
+     * Fills the totals of the measurement into the report, rates are calculated over {@code measuredDurationNanos}.
+     */
+    public synchronized void fillReport(LoadTestReport report, long measuredDurationNanos) {
+        long[] counts = new long[measurementStartCounts.length];
+        readCounts(counts);
+        double seconds = Math.max(1, measuredDurationNanos) / 1e9;
+        report.setMeasuredDurationMs(TimeUnit.NANOSECONDS.toMillis(measuredDurationNanos));
+        report.setPublished(counts[0] - measurementStartCounts[0]);
+        report.setPublishAcked(counts[1] - measurementStartCounts[1]);
+        report.setPublishFailed(counts[2] - measurementStartCounts[2]);
+        report.setReceived(counts[3] - measurementStartCounts[3]);
+        report.setRetainedReceived(counts[4] - measurementStartCounts[4]);
+        report.setPublishRate(round(report.getPublished() / seconds));
+        report.setReceiveRate(round(report.getReceived() / seconds));
+        report.setPublishAckLatency(LatencyReport.of(publishAckTotal));
+        report.setEndToEndLatency(LatencyReport.of(endToEndTotal));
+        report.setEndToEndLatencyUncorrected(LatencyReport.of(endToEndUncorrectedTotal));
+    }
+
+    private void readCounts(long[] counts) {
+        counts[0] = published.sum();
+        counts[1] = publishAcked.sum();
+        counts[2] = publishFailed.sum();
+        counts[3] = received.sum();
+        counts[4] = retainedReceived.sum();
+    }
+
+    private static Histogram newHistogram() {
+        Histogram histogram = new Histogram(SIGNIFICANT_DIGITS);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(0, nanos / 1000);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.mqtt.MqttConnAckMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPubReplyMessageVariableHeader;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubAckMessage;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal MQTT 3.1.1/5 client for load generation: one TCP connection, QoS 0, 1 and 2 in both directions and
+ * keep alive. Unlike general purpose clients it keeps no message store and does not reconnect, so that the
+ * measured latency is that of the broker.
+ */
+@Slf4j
+public class LoadTestMqttClient {
+
+    private static final int MAX_PACKET_ID = 0xFFFF;
+    private static final int MAX_MESSAGE_BYTES = 1024 * 1024;
+
+    @Getter
+    private final String clientId;
+    private final MqttVersion mqttVersion;
+    private final EventLoopGroup eventLoopGroup;
+    private final MqttMessageListener messageListener;
+
+    private final Map<Integer, CompletableFuture<Void>> pendingPublishes = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<Void>> pendingSubscribes = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> connectFuture = new CompletableFuture<>();
+
+    private volatile Channel channel;
+    private int lastPacketId;
+
+    public LoadTestMqttClient(String clientId, MqttVersion mqttVersion, EventLoopGroup eventLoopGroup, MqttMessageListener messageListener) {
+        this.clientId = clientId;
+        this.mqttVersion = mqttVersion;
+        this.eventLoopGroup = eventLoopGroup;
+        this.messageListener = messageListener;
+    }
+
+    public CompletableFuture<Void> connect(String host, int port, boolean cleanSession, int sessionExpiryInterval, int keepAliveSeconds) {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast("idleStateHandler", new IdleStateHandler(0, keepAliveSeconds, 0));
+                        ch.pipeline().addLast("decoder", new MqttDecoder(MAX_MESSAGE_BYTES));
+                        ch.pipeline().addLast("encoder", MqttEncoder.INSTANCE);
+                        ch.pipeline().addLast("handler", new ClientHandler());
+                    }
+                });
+        bootstrap.connect(host, port).addListener((ChannelFuture future) -> {
+            if (!future.isSuccess()) {
+                connectFuture.completeExceptionally(future.cause());
+                return;
+            }
+            channel = future.channel();
+            MqttProperties properties = new MqttProperties();
+            if (mqttVersion == MqttVersion.MQTT_5 && sessionExpiryInterval > 0) {
+                properties.add(new MqttProperties.IntegerProperty(MqttProperties.MqttPropertyType.SESSION_EXPIRY_INTERVAL.value(), sessionExpiryInterval));
+            }
+            channel.writeAndFlush(MqttMessageBuilders.connect()
+                    .clientId(clientId)
+                    .protocolVersion(mqttVersion)
+                    .cleanSession(cleanSession)
+                    .keepAlive(keepAliveSeconds)
+                    .properties(properties)
+                    .build());
+            channel.closeFuture().addListener(closeFuture -> onClose());
+        });
+        return connectFuture;
+    }
+
+    public CompletableFuture<Void> subscribe(String topicFilter, MqttQoS qos) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        channel.eventLoop().execute(() -> {
+            int packetId = nextPacketId();
+            if (packetId < 0) {
+                future.completeExceptionally(new IllegalStateException("No free packet id"));
+                return;
+            }
+            pendingSubscribes.put(packetId, future);
+            channel.writeAndFlush(MqttMessageBuilders.subscribe()
+                    .messageId(packetId)
+                    .addSubscription(qos, topicFilter)
+                    .build());
+        });
+        return future;
+    }
+
+    /**
+     * Publishes the message, the future completes when the message is written for QoS 0, on PUBACK for QoS 1 and
+     * on PUBCOMP for QoS 2. Must be called on the event loop of the client, see {@link #getChannel()}.
+     */
+    public CompletableFuture<Void> publish(String topic, MqttQoS qos, boolean retain, ByteBuf payload) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (qos == MqttQoS.AT_MOST_ONCE) {
+            channel.writeAndFlush(newPublishMessage(topic, qos, retain, 0, payload)).addListener(writeFuture -> {
+                if (writeFuture.isSuccess()) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(writeFuture.cause());
+                }
+            });
+            return future;
+        }
+        int packetId = nextPacketId();
+        if (packetId < 0) {
+            payload.release();
+            future.completeExceptionally(new IllegalStateException("Too many in-flight messages"));
+            return future;
+        }
+        pendingPublishes.put(packetId, future);
+        channel.writeAndFlush(newPublishMessage(topic, qos, retain, packetId, payload)).addListener(writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                CompletableFuture<Void> pending = pendingPublishes.remove(packetId);
+                if (pending != null) {
+                    pending.completeExceptionally(writeFuture.cause());
+                }
+            }
+        });
+        return future;
+    }
+
+    // MqttMessageBuilders.PublishBuilder copies the payload into a new buffer without releasing it, the message is built
+    // around the payload instead so the encoder releases it after the write
+    private static MqttPublishMessage newPublishMessage(String topic, MqttQoS qos, boolean retain, int packetId, ByteBuf payload) {
+        return new MqttPublishMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, false, qos, retain, 0),
+                new MqttPublishVariableHeader(topic, packetId), payload);
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public boolean isConnected() {
+        return channel != null && channel.isActive() && connectFuture.isDone() && !connectFuture.isCompletedExceptionally();
+    }
+
+    public int getInFlightCount() {
+        return pendingPublishes.size();
+    }
+
+    public void disconnect() {
+        Channel ch = channel;
+        if (ch != null && ch.isActive()) {
+            ch.writeAndFlush(new MqttMessage(new MqttFixedHeader(MqttMessageType.DISCONNECT, false, MqttQoS.AT_MOST_ONCE, false, 0)))
+                    .addListener(future -> ch.close());
+        }
+    }
+
+    private int nextPacketId() {
+        for (int attempt = 0; attempt < MAX_PACKET_ID; attempt++) {
+            lastPacketId = lastPacketId % MAX_PACKET_ID + 1;
+            if (!pendingPublishes.containsKey(lastPacketId) && !pendingSubscribes.containsKey(lastPacketId)) {
+                return lastPacketId;
+            }
+        }
+        return -1;
+    }
+
+    private void onClose() {
+        IOException error = new IOException("[" + clientId + "] Connection closed");
+        connectFuture.completeExceptionally(error);
+        pendingPublishes.values().forEach(future -> future.completeExceptionally(error));
+        pendingPublishes.clear();
+        pendingSubscribes.values().forEach(future -> future.completeExceptionally(error));
+        pendingSubscribes.clear();
+    }
+
+    private class ClientHandler extends SimpleChannelInboundHandler<MqttMessage> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
+            if (msg.decoderResult().isFailure()) {
+                log.warn("[{}] Failed to decode message", clientId, msg.decoderResult().cause());
+                ctx.close();
+                return;
+            }
+            switch (msg.fixedHeader().messageType()) {
+                case CONNACK -> onConnAck((MqttConnAckMessage) msg);
+                case SUBACK -> onSubAck((MqttSubAckMessage) msg);
+                case PUBLISH -> onPublish(ctx, (MqttPublishMessage) msg);
+                case PUBACK, PUBCOMP -> onPublishAck(msg);
+                case PUBREC -> ctx.writeAndFlush(pubReply(MqttMessageType.PUBREL, MqttQoS.AT_LEAST_ONCE, getMessageId(msg)));
+                case PUBREL -> ctx.writeAndFlush(pubReply(MqttMessageType.PUBCOMP, MqttQoS.AT_MOST_ONCE, getMessageId(msg)));
+                case DISCONNECT -> {
+                    log.debug("[{}] Disconnected by the broker: {}", clientId, msg.variableHeader());
+                    ctx.close();
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent idleStateEvent && idleStateEvent.state() == IdleState.WRITER_IDLE) {
+                ctx.writeAndFlush(new MqttMessage(new MqttFixedHeader(MqttMessageType.PINGREQ, false, MqttQoS.AT_MOST_ONCE, false, 0)));
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("[{}] Connection failure", clientId, cause);
+            ctx.close();
+        }
+
+        private void onConnAck(MqttConnAckMessage msg) {
+            MqttConnectReturnCode returnCode = msg.variableHeader().connectReturnCode();
+            if (returnCode == MqttConnectReturnCode.CONNECTION_ACCEPTED) {
+                connectFuture.complete(null);
+            } else {
+                connectFuture.completeExceptionally(new IOException("[" + clientId + "] Connection refused: " + returnCode));
+                channel.close();
+            }
+        }
+
+        private void onSubAck(MqttSubAckMessage msg) {
+            CompletableFuture<Void> future = pendingSubscribes.remove(msg.variableHeader().messageId());
+            if (future == null) {
+                return;
+            }
+            if (msg.payload().reasonCodes().stream().anyMatch(reasonCode -> reasonCode >= 0x80)) {
+                future.completeExceptionally(new IOException("[" + clientId + "] Subscription rejected: " + msg.payload().reasonCodes()));
+            } else {
+                future.complete(null);
+            }
+        }
+
+        private void onPublish(ChannelHandlerContext ctx, MqttPublishMessage msg) {
+            MqttQoS qos = msg.fixedHeader().qosLevel();
+            try {
+                messageListener.onMessage(msg.variableHeader().topicName(), qos, msg.fixedHeader().isRetain(), msg.payload());
+            } catch (Exception e) {
+                log.warn("[{}] Failed to process received message", clientId, e);
+            }
+            switch (qos) {
+                case AT_LEAST_ONCE -> ctx.writeAndFlush(pubReply(MqttMessageType.PUBACK, MqttQoS.AT_MOST_ONCE, msg.variableHeader().packetId()));
+                case EXACTLY_ONCE -> ctx.writeAndFlush(pubReply(MqttMessageType.PUBREC, MqttQoS.AT_MOST_ONCE, msg.variableHeader().packetId()));
+                default -> {
+                }
+            }
+        }
+
+        private void onPublishAck(MqttMessage msg) {
+            CompletableFuture<Void> future = pendingPublishes.remove(getMessageId(msg));
+            if (future == null) {
+                return;
+            }
+            if (msg.variableHeader() instanceof MqttPubReplyMessageVariableHeader header && (header.reasonCode() & 0xFF) >= 0x80) {
+                future.completeExceptionally(new IOException("[" + clientId + "] Rejected with reason code " + (header.reasonCode() & 0xFF)));
+            } else {
+                future.complete(null);
+            }
+        }
+
+        private int getMessageId(MqttMessage msg) {
+            return ((MqttMessageIdVariableHeader) msg.variableHeader()).messageId();
+        }
+
+        private MqttMessage pubReply(MqttMessageType type, MqttQoS qos, int messageId) {
+            return new MqttMessage(new MqttFixedHeader(type, false, qos, false, 0), MqttMessageIdVariableHeader.from(messageId));
+        }
+    }
+}
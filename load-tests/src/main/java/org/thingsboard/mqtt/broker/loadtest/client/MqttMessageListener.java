@@ -0,0 +1,30 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+/**
+ * Receives the PUBLISH messages delivered to a {@link LoadTestMqttClient}. Called on the event loop of the client,
+ * the payload is released after the call.
+ */
+@FunctionalInterface
+public interface MqttMessageListener {
+
+    void onMessage(String topic, MqttQoS qos, boolean retain, ByteBuf payload);
+
+}
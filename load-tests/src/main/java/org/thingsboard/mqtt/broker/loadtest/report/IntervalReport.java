@@ -0,0 +1,34 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.report;
+
+import lombok.Data;
+
+/**
+ * Throughput and tail latency of one report interval, used to spot degradation over the course of a soak test.
+ */
+@Data
+public class IntervalReport {
+
+    private long offsetSeconds;
+    private double publishRate;
+    private double receiveRate;
+    private long publishFailed;
+    private double publishAckP99Ms;
+    private double endToEndP99Ms;
+    private double endToEndMaxMs;
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.report;
+
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Latency percentiles in milliseconds. The histogram is also stored in the compressed HdrHistogram encoding (values
+ * in microseconds, Base64) so that reports of several runs or generator nodes can be merged and re-analyzed.
+ */
+@Data
+public class LatencyReport {
+
+    private long count;
+    private double minMs;
+    private double meanMs;
+    private double p50Ms;
+    private double p90Ms;
+    private double p99Ms;
+    private double p999Ms;
+    private double maxMs;
+    private String histogram;
+
+    public static LatencyReport of(Histogram histogramUs) {
+        LatencyReport report = new LatencyReport();
+        report.count = histogramUs.getTotalCount();
+        if (report.count > 0) {
+            report.minMs = toMs(histogramUs.getMinValue());
+            report.meanMs = histogramUs.getMean() / 1000;
+            report.p50Ms = toMs(histogramUs.getValueAtPercentile(50));
+            report.p90Ms = toMs(histogramUs.getValueAtPercentile(90));
+            report.p99Ms = toMs(histogramUs.getValueAtPercentile(99));
+            report.p999Ms = toMs(histogramUs.getValueAtPercentile(99.9));
+            report.maxMs = toMs(histogramUs.getMaxValue());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(histogramUs.getNeededByteBufferCapacity());
+        int length = histogramUs.encodeIntoCompressedByteBuffer(buffer);
+        report.histogram = Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+        return report;
+    }
+
+    static double toMs(long valueUs) {
+        return valueUs / 1000.0;
+    }
+}
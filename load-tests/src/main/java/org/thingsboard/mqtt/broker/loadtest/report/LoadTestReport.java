@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.report;
+
+import io.netty.handler.codec.mqtt.MqttVersion;
+import lombok.Data;
+import org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestThresholds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Machine-readable result of a load test run. Counters and rates cover the measurement period after the warm-up,
+ * latencies also include the messages that were in flight when the publishers stopped.
+ */
+@Data
+public class LoadTestReport {
+
+    private String scenario;
+    private MqttVersion mqttVersion;
+    private long startTime;
+    private long measuredDurationMs;
+
+    private int publishers;
+    private int subscribers;
+    private int connectFailures;
+
+    private long published;
+    private long publishAcked;
+    private long publishFailed;
+    private long received;
+    private long retainedReceived;
+    private double publishRate;
+    private double receiveRate;
+
+    /**
+     * From the time the message was scheduled to be published to PUBACK/PUBCOMP (or the write for QoS 0).
+     */
+    private LatencyReport publishAckLatency;
+    /**
+     * From the time the message was scheduled to be published to its delivery to a subscriber. Measuring from the
+     * scheduled rather than the actual send time corrects for coordinated omission: a stalled publisher does not
+     * hide the latency of the messages it should have sent in the meantime.
+     */
+    private LatencyReport endToEndLatency;
+    /**
+     * From the actual send time to the delivery, for comparison with the corrected latency.
+     */
+    private LatencyReport endToEndLatencyUncorrected;
+
+    private List<IntervalReport> intervals = new ArrayList<>();
+    private List<String> thresholdViolations = new ArrayList<>();
+
+    public void checkThresholds(LoadTestThresholds thresholds) {
+        thresholdViolations.clear();
+        if (thresholds == null) {
+            return;
+        }
+        if (thresholds.getMinPublishRate() != null && publishRate < thresholds.getMinPublishRate()) {
+            thresholdViolations.add("Publish rate " + publishRate + " msg/s is below " + thresholds.getMinPublishRate());
+        }
+        if (thresholds.getMinReceiveRate() != null && receiveRate < thresholds.getMinReceiveRate()) {
+            thresholdViolations.add("Receive rate " + receiveRate + " msg/s is below " + thresholds.getMinReceiveRate());
+        }
+        if (thresholds.getMaxPublishAckP99Ms() != null && publishAckLatency.getP99Ms() > thresholds.getMaxPublishAckP99Ms()) {
+            thresholdViolations.add("Publish ack p99 " + publishAckLatency.getP99Ms() + " ms is above " + thresholds.getMaxPublishAckP99Ms());
+        }
+        if (thresholds.getMaxEndToEndP99Ms() != null && endToEndLatency.getP99Ms() > thresholds.getMaxEndToEndP99Ms()) {
+            thresholdViolations.add("End-to-end p99 " + endToEndLatency.getP99Ms() + " ms is above " + thresholds.getMaxEndToEndP99Ms());
+        }
+        if (thresholds.getMaxPublishFailed() != null && publishFailed > thresholds.getMaxPublishFailed()) {
+            thresholdViolations.add(publishFailed + " failed publishes exceed " + thresholds.getMaxPublishFailed());
+        }
+    }
+
+    public boolean isPassed() {
+        return thresholdViolations.isEmpty();
+    }
+}
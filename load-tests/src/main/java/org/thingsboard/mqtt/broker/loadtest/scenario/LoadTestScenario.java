@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.scenario;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load test scenario: the broker to connect to, the groups of publishers and subscribers and the timing of the run.
+ * <p>
+ * Fan-in and fan-out ratios follow from the group sizes, topics and topic filters, e.g. many publishers of
+ * 'devices/{index}/telemetry' and a few subscribers of 'devices/+/telemetry' is a fan-in scenario.
+ */
+@Data
+public class LoadTestScenario {
+
+    public static final String CLASSPATH_PREFIX = "classpath:";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private String name;
+    private String host = "localhost";
+    private int port = 1883;
+    private MqttVersion mqttVersion = MqttVersion.MQTT_5;
+    private int keepAliveSeconds = 60;
+    /**
+     * Number of Netty event loop threads, 0 means twice the number of available processors.
+     */
+    private int threads;
+    private int maxConcurrentConnects = 100;
+    private int connectTimeoutSeconds = 30;
+    private int warmUpSeconds = 10;
+    private int durationSeconds = 60;
+    private int reportIntervalSeconds = 10;
+    /**
+     * Time to wait for the in-flight messages after the publishers stop.
+     */
+    private int drainTimeoutSeconds = 10;
+    private List<PublisherGroup> publishers = new ArrayList<>();
+    private List<SubscriberGroup> subscribers = new ArrayList<>();
+    private LoadTestThresholds thresholds;
+
+    public static LoadTestScenario load(String location) throws IOException {
+        LoadTestScenario scenario;
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            String resource = location.substring(CLASSPATH_PREFIX.length());
+            try (InputStream in = LoadTestScenario.class.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IllegalArgumentException("Scenario resource not found: " + resource);
+                }
+                scenario = MAPPER.readValue(in, LoadTestScenario.class);
+            }
+        } else {
+            scenario = MAPPER.readValue(Files.readAllBytes(Path.of(location)), LoadTestScenario.class);
+        }
+        scenario.validate();
+        return scenario;
+    }
+
+    public void validate() {
+        require(name != null && !name.isBlank(), "Scenario name is required");
+        require(host != null && !host.isBlank(), "Broker host is required");
+        require(mqttVersion == MqttVersion.MQTT_3_1_1 || mqttVersion == MqttVersion.MQTT_5,
+                "Only MQTT_3_1_1 and MQTT_5 are supported, got " + mqttVersion);
+        require(maxConcurrentConnects > 0, "maxConcurrentConnects must be positive");
+        require(warmUpSeconds >= 0 && durationSeconds > 0, "durationSeconds must be positive and warmUpSeconds not negative");
+        require(reportIntervalSeconds > 0, "reportIntervalSeconds must be positive");
+        require(!publishers.isEmpty() || !subscribers.isEmpty(), "At least one publisher or subscriber group is required");
+        publishers.forEach(PublisherGroup::validate);
+        subscribers.forEach(SubscriberGroup::validate);
+    }
+
+    static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.scenario;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestScenario.require;
+
+/**
+ * Clients that publish to their topic at a fixed rate. Client ids are the client id prefix followed by the
+ * index of the client within the group, '{index}' in the topic is replaced with that index.
+ */
+@Data
+public class PublisherGroup {
+
+    /**
+     * Minimal payload size: the scheduled and the actual send time of a message.
+     */
+    public static final int MIN_PAYLOAD_SIZE = 16;
+
+    private String name;
+    private int count = 1;
+    private String clientIdPrefix;
+    private String topic;
+    private double ratePerSecond = 1;
+    /**
+     * Relative weights of the QoS levels of the published messages, e.g. {"0": 1, "1": 3}.
+     */
+    private Map<Integer, Integer> qos = Map.of(1, 1);
+    private int payloadSize = 64;
+    private boolean retain;
+    private boolean cleanSession = true;
+    /**
+     * Session expiry interval in seconds, MQTT 5 only.
+     */
+    private int sessionExpiryInterval;
+
+    public String getClientIdPrefix() {
+        return clientIdPrefix != null ? clientIdPrefix : name + "-";
+    }
+
+    public MqttQoS nextQos() {
+        int qos0 = qos.getOrDefault(0, 0);
+        int qos1 = qos0 + qos.getOrDefault(1, 0);
+        int value = ThreadLocalRandom.current().nextInt(qos1 + qos.getOrDefault(2, 0));
+        return value < qos0 ? MqttQoS.AT_MOST_ONCE : value < qos1 ? MqttQoS.AT_LEAST_ONCE : MqttQoS.EXACTLY_ONCE;
+    }
+
+    void validate() {
+        require(name != null && !name.isBlank(), "Publisher group name is required");
+        require(count > 0, "[" + name + "] count must be positive");
+        require(topic != null && !topic.isBlank(), "[" + name + "] topic is required");
+        require(ratePerSecond > 0, "[" + name + "] ratePerSecond must be positive");
+        require(payloadSize >= MIN_PAYLOAD_SIZE, "[" + name + "] payloadSize must be at least " + MIN_PAYLOAD_SIZE);
+        require(qos != null && !qos.isEmpty() && qos.keySet().stream().allMatch(level -> level >= 0 && level <= 2)
+                        && qos.values().stream().allMatch(weight -> weight >= 0) && qos.values().stream().mapToInt(Integer::intValue).sum() > 0,
+                "[" + name + "] qos must map QoS levels 0..2 to not negative weights");
+    }
+}
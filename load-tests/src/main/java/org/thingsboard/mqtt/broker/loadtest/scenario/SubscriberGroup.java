@@ -0,0 +1,56 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest.scenario;
+
+import lombok.Data;
+
+import static org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestScenario.require;
+
+/**
+ * Clients that subscribe to a topic filter, optionally within a shared subscription group. Client ids are
+ * the client id prefix followed by the index of the client within the group, '{index}' in the topic filter is
+ * replaced with that index.
+ */
+@Data
+public class SubscriberGroup {
+
+    private String name;
+    private int count = 1;
+    private String clientIdPrefix;
+    private String topicFilter;
+    private int qos = 1;
+    private String sharedGroup;
+    private boolean cleanSession = true;
+    /**
+     * Session expiry interval in seconds, MQTT 5 only.
+     */
+    private int sessionExpiryInterval;
+
+    public String getClientIdPrefix() {
+        return clientIdPrefix != null ? clientIdPrefix : name + "-";
+    }
+
+    public String getSubscriptionTopicFilter(String topicFilter) {
+        return sharedGroup == null ? topicFilter : "$share/" + sharedGroup + "/" + topicFilter;
+    }
+
+    void validate() {
+        require(name != null && !name.isBlank(), "Subscriber group name is required");
+        require(count > 0, "[" + name + "] count must be positive");
+        require(topicFilter != null && !topicFilter.isBlank(), "[" + name + "] topicFilter is required");
+        require(qos >= 0 && qos <= 2, "[" + name + "] qos must be 0, 1 or 2");
+    }
+}
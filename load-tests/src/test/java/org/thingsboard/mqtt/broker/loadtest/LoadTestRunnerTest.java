@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.loadtest.report.LoadTestReport;
+import org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestScenario;
+import org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestThresholds;
+import org.thingsboard.mqtt.broker.loadtest.scenario.PublisherGroup;
+import org.thingsboard.mqtt.broker.loadtest.scenario.SubscriberGroup;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadTestRunnerTest {
+
+    private StubMqttBroker broker;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new StubMqttBroker();
+        port = broker.start();
+    }
+
+    @After
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Test
+    public void givenFanInScenarioWithSharedSubscribers_whenRun_thenAllMessagesAreReceivedAndMeasured() throws Exception {
+        LoadTestScenario scenario = newScenario(MqttVersion.MQTT_5);
+        scenario.setPublishers(List.of(newPublisherGroup("devices/{index}/telemetry", Map.of(0, 1, 1, 1, 2, 1))));
+        scenario.setSubscribers(List.of(newSubscriberGroup(2, "devices/+/telemetry", "processors")));
+
+        LoadTestReport report = new LoadTestRunner(scenario).run();
+
+        assertEquals(10, report.getPublishers());
+        assertEquals(2, report.getSubscribers());
+        assertEquals(0, report.getConnectFailures());
+        assertEquals(0, report.getPublishFailed());
+        assertTrue(report.getPublished() > 0);
+        assertTrue(report.getReceived() > 0);
+        assertTrue(report.getEndToEndLatency().getCount() > 0);
+        assertTrue(report.getPublishAckLatency().getCount() > 0);
+        assertFalse(report.getIntervals().isEmpty());
+        assertTrue(report.isPassed());
+
+        JsonNode json = new ObjectMapper().readTree(new ObjectMapper().writeValueAsString(report));
+        assertEquals("MQTT_5", json.get("mqttVersion").asText());
+        assertFalse(json.get("endToEndLatency").get("histogram").asText().isEmpty());
+    }
+
+    @Test
+    public void givenFanOutScenarioOverMqtt311_whenRun_thenEverySubscriberReceivesMessages() throws Exception {
+        LoadTestScenario scenario = newScenario(MqttVersion.MQTT_3_1_1);
+        PublisherGroup publisherGroup = newPublisherGroup("broadcast", Map.of(1, 1));
+        publisherGroup.setCount(1);
+        scenario.setPublishers(List.of(publisherGroup));
+        scenario.setSubscribers(List.of(newSubscriberGroup(5, "broadcast", null)));
+
+        LoadTestReport report = new LoadTestRunner(scenario).run();
+
+        assertEquals(0, report.getPublishFailed());
+        assertTrue(report.getReceived() >= 4 * report.getPublished());
+    }
+
+    @Test
+    public void givenUnreachableThreshold_whenRun_thenReportIsNotPassed() throws Exception {
+        LoadTestScenario scenario = newScenario(MqttVersion.MQTT_5);
+        scenario.setPublishers(List.of(newPublisherGroup("devices/{index}/telemetry", Map.of(1, 1))));
+        scenario.setSubscribers(List.of(newSubscriberGroup(1, "devices/#", null)));
+        LoadTestThresholds thresholds = new LoadTestThresholds();
+        thresholds.setMinReceiveRate(1_000_000.0);
+        scenario.setThresholds(thresholds);
+
+        LoadTestReport report = new LoadTestRunner(scenario).run();
+
+        assertFalse(report.isPassed());
+        assertEquals(1, report.getThresholdViolations().size());
+    }
+
+    private LoadTestScenario newScenario(MqttVersion mqttVersion) {
+        LoadTestScenario scenario = new LoadTestScenario();
+        scenario.setName("test");
+        scenario.setHost("127.0.0.1");
+        scenario.setPort(port);
+        scenario.setMqttVersion(mqttVersion);
+        scenario.setThreads(2);
+        scenario.setWarmUpSeconds(1);
+        scenario.setDurationSeconds(2);
+        scenario.setReportIntervalSeconds(1);
+        scenario.setDrainTimeoutSeconds(2);
+        return scenario;
+    }
+
+    private PublisherGroup newPublisherGroup(String topic, Map<Integer, Integer> qos) {
+        PublisherGroup group = new PublisherGroup();
+        group.setName("publisher");
+        group.setCount(10);
+        group.setTopic(topic);
+        group.setRatePerSecond(20);
+        group.setQos(qos);
+        return group;
+    }
+
+    private SubscriberGroup newSubscriberGroup(int count, String topicFilter, String sharedGroup) {
+        SubscriberGroup group = new SubscriberGroup();
+        group.setName("subscriber");
+        group.setCount(count);
+        group.setTopicFilter(topicFilter);
+        group.setSharedGroup(sharedGroup);
+        return group;
+    }
+}
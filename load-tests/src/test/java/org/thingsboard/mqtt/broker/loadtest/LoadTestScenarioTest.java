@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.loadtest.scenario.LoadTestScenario;
+import org.thingsboard.mqtt.broker.loadtest.scenario.PublisherGroup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class LoadTestScenarioTest {
+
+    @Test
+    public void givenBundledScenarios_whenLoad_thenValid() throws Exception {
+        LoadTestScenario fanIn = LoadTestScenario.load("classpath:scenarios/fan-in.json");
+        assertEquals(1000, fanIn.getPublishers().get(0).getCount());
+        assertEquals("$share/telemetry-processors/devices/+/telemetry",
+                fanIn.getSubscribers().get(0).getSubscriptionTopicFilter(fanIn.getSubscribers().get(0).getTopicFilter()));
+
+        LoadTestScenario fanOut = LoadTestScenario.load("classpath:scenarios/fan-out.json");
+        assertTrue(fanOut.getPublishers().get(0).isRetain());
+
+        LoadTestScenario pointToPoint = LoadTestScenario.load("classpath:scenarios/point-to-point.json");
+        assertEquals(MqttVersion.MQTT_3_1_1, pointToPoint.getMqttVersion());
+    }
+
+    @Test
+    public void givenScenarioFile_whenLoad_thenDefaultsApplied() throws Exception {
+        Path file = Files.createTempFile("scenario", ".json");
+        try {
+            Files.writeString(file, "{\"name\":\"s\",\"publishers\":[{\"name\":\"p\",\"topic\":\"t\"}]}");
+            LoadTestScenario scenario = LoadTestScenario.load(file.toString());
+            assertEquals("localhost", scenario.getHost());
+            assertEquals(1883, scenario.getPort());
+            assertEquals("p-", scenario.getPublishers().get(0).getClientIdPrefix());
+            assertEquals(MqttQoS.AT_LEAST_ONCE, scenario.getPublishers().get(0).nextQos());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void givenInvalidScenarios_whenValidate_thenThrows() {
+        LoadTestScenario scenario = new LoadTestScenario();
+        scenario.setName("s");
+        assertThrows(IllegalArgumentException.class, scenario::validate);
+
+        PublisherGroup publisher = new PublisherGroup();
+        publisher.setName("p");
+        publisher.setTopic("t");
+        publisher.setPayloadSize(PublisherGroup.MIN_PAYLOAD_SIZE - 1);
+        scenario.getPublishers().add(publisher);
+        assertThrows(IllegalArgumentException.class, scenario::validate);
+
+        publisher.setPayloadSize(PublisherGroup.MIN_PAYLOAD_SIZE);
+        publisher.setQos(Map.of(3, 1));
+        assertThrows(IllegalArgumentException.class, scenario::validate);
+
+        publisher.setQos(Map.of(0, 1));
+        scenario.setMqttVersion(MqttVersion.MQTT_3_1);
+        assertThrows(IllegalArgumentException.class, scenario::validate);
+    }
+
+    @Test
+    public void givenQosWeights_whenNextQos_thenOnlyWeightedLevelsReturned() {
+        PublisherGroup publisher = new PublisherGroup();
+        publisher.setQos(Map.of(0, 1, 2, 1));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(publisher.nextQos() != MqttQoS.AT_LEAST_ONCE);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.thingsboard.mqtt.broker.loadtest.report.IntervalReport;
+import org.thingsboard.mqtt.broker.loadtest.report.LoadTestReport;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadTestStatsTest {
+
+    @Test
+    public void givenMessageSentLate_whenReceived_thenCorrectedLatencyIncludesSchedulingDelay() {
+        LoadTestStats stats = new LoadTestStats();
+        stats.startMeasurement();
+
+        long nowNanos = System.nanoTime();
+        ByteBuf payload = Unpooled.buffer(16);
+        LoadTestStats.writeTimestamps(payload, nowNanos - TimeUnit.MILLISECONDS.toNanos(500), nowNanos);
+        stats.onPublished();
+        stats.onReceived(payload, false);
+
+        LoadTestReport report = new LoadTestReport();
+        stats.completeInterval();
+        stats.fillReport(report, TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(1, report.getEndToEndLatency().getCount());
+        assertTrue(report.getEndToEndLatency().getMaxMs() >= 500);
+        assertTrue(report.getEndToEndLatencyUncorrected().getMaxMs() < 500);
+    }
+
+    @Test
+    public void givenRetainedMessage_whenReceived_thenOnlyCounted() {
+        LoadTestStats stats = new LoadTestStats();
+        stats.startMeasurement();
+
+        ByteBuf payload = Unpooled.buffer(16);
+        LoadTestStats.writeTimestamps(payload, System.nanoTime(), System.nanoTime());
+        stats.onReceived(payload, true);
+
+        IntervalReport interval = stats.completeInterval();
+        LoadTestReport report = new LoadTestReport();
+        stats.fillReport(report, TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(0, interval.getReceiveRate(), 0.0);
+        assertEquals(1, report.getRetainedReceived());
+        assertEquals(0, report.getReceived());
+        assertEquals(0, report.getEndToEndLatency().getCount());
+    }
+
+    @Test
+    public void givenMessagesBeforeMeasurement_whenReportFilled_thenWarmUpIsExcluded() {
+        LoadTestStats stats = new LoadTestStats();
+        stats.onPublished();
+        stats.onPublishAcked(System.nanoTime());
+
+        stats.startMeasurement();
+        stats.onPublished();
+        stats.onPublishAcked(System.nanoTime());
+        stats.completeInterval();
+
+        LoadTestReport report = new LoadTestReport();
+        stats.fillReport(report, TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(1, report.getPublished());
+        assertEquals(1, report.getPublishAcked());
+        assertEquals(1, report.getPublishAckLatency().getCount());
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.mqtt.broker.loadtest;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.mqtt.MqttConnAckMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubAckMessage;
+import io.netty.handler.codec.mqtt.MqttSubAckPayload;
+import io.netty.handler.codec.mqtt.MqttSubscribeMessage;
+import io.netty.handler.codec.mqtt.MqttTopicSubscription;
+import lombok.RequiredArgsConstructor;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-memory MQTT broker for the load generator tests: acknowledges every packet and forwards publishes to
+ * the matching subscriptions with QoS 0, shared subscriptions are served round-robin.
+ */
+class StubMqttBroker {
+
+    private static final String SHARED_PREFIX = "$share/";
+
+    private final EventLoopGroup group = new NioEventLoopGroup(2);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> sharedGroupCounters = new ConcurrentHashMap<>();
+    private Channel serverChannel;
+
+    int start() throws InterruptedException {
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new MqttDecoder(), MqttEncoder.INSTANCE, new BrokerHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().awaitUninterruptibly();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+    }
+
+    private void forward(MqttPublishMessage publish) {
+        String topic = publish.variableHeader().topicName();
+        Map<String, Subscription> sharedTargets = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.channel.isActive() || !matches(subscription.filter, topic)) {
+                continue;
+            }
+            if (subscription.sharedGroup == null) {
+                send(subscription.channel, topic, publish);
+            } else {
+                sharedTargets.putIfAbsent(subscription.sharedGroup + "|" + subscription.filter, subscription);
+            }
+        }
+        for (String key : sharedTargets.keySet()) {
+            List<Subscription> members = subscriptions.stream()
+                    .filter(s -> s.channel.isActive() && key.equals(s.sharedGroup + "|" + s.filter))
+                    .toList();
+            int next = sharedGroupCounters.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+            send(members.get(Math.floorMod(next, members.size())).channel, topic, publish);
+        }
+    }
+
+    private void send(Channel channel, String topic, MqttPublishMessage publish) {
+        // built directly around the duplicate, PublishBuilder would copy it and leave it unreleased
+        channel.writeAndFlush(new MqttPublishMessage(
+                new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_MOST_ONCE, publish.fixedHeader().isRetain(), 0),
+                new MqttPublishVariableHeader(topic, 0),
+                publish.payload().retainedDuplicate()));
+    }
+
+    static boolean matches(String filter, String topic) {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++) {
+            if (filterLevels[i].equals("#")) {
+                return true;
+            }
+            if (i >= topicLevels.length || !(filterLevels[i].equals("+") || filterLevels[i].equals(topicLevels[i]))) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+
+    @RequiredArgsConstructor
+    private static class Subscription {
+        private final Channel channel;
+        private final String filter;
+        private final String sharedGroup;
+    }
+
+    private class BrokerHandler extends SimpleChannelInboundHandler<MqttMessage> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
+            switch (msg.fixedHeader().messageType()) {
+                case CONNECT -> ctx.writeAndFlush(MqttMessageBuilders.connAck()
+                        .returnCode(MqttConnectReturnCode.CONNECTION_ACCEPTED).build());
+                case SUBSCRIBE -> {
+                    MqttSubscribeMessage subscribe = (MqttSubscribeMessage) msg;
+                    int[] grantedQos = new int[subscribe.payload().topicSubscriptions().size()];
+                    for (int i = 0; i < grantedQos.length; i++) {
+                        MqttTopicSubscription topicSubscription = subscribe.payload().topicSubscriptions().get(i);
+                        String filter = topicSubscription.topicFilter();
+                        String sharedGroup = null;
+                        if (filter.startsWith(SHARED_PREFIX)) {
+                            int groupEnd = filter.indexOf('/', SHARED_PREFIX.length());
+                            sharedGroup = filter.substring(SHARED_PREFIX.length(), groupEnd);
+                            filter = filter.substring(groupEnd + 1);
+                        }
+                        subscriptions.add(new Subscription(ctx.channel(), filter, sharedGroup));
+                        grantedQos[i] = topicSubscription.qualityOfService().value();
+                    }
+                    ctx.writeAndFlush(new MqttSubAckMessage(
+                            new MqttFixedHeader(MqttMessageType.SUBACK, false, MqttQoS.AT_MOST_ONCE, false, 0),
+                            MqttMessageIdVariableHeader.from(subscribe.variableHeader().messageId()),
+                            new MqttSubAckPayload(grantedQos)));
+                }
+                case PUBLISH -> {
+                    MqttPublishMessage publish = (MqttPublishMessage) msg;
+                    forward(publish);
+                    int packetId = publish.variableHeader().packetId();
+                    switch (publish.fixedHeader().qosLevel()) {
+                        case AT_LEAST_ONCE -> ctx.writeAndFlush(ack(MqttMessageType.PUBACK, packetId));
+                        case EXACTLY_ONCE -> ctx.writeAndFlush(ack(MqttMessageType.PUBREC, packetId));
+                        default -> {
+                        }
+                    }
+                }
+                case PUBREL -> ctx.writeAndFlush(ack(MqttMessageType.PUBCOMP,
+                        ((MqttMessageIdVariableHeader) msg.variableHeader()).messageId()));
+                case PINGREQ -> ctx.writeAndFlush(new MqttMessage(
+                        new MqttFixedHeader(MqttMessageType.PINGRESP, false, MqttQoS.AT_MOST_ONCE, false, 0)));
+                case DISCONNECT -> ctx.close();
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            subscriptions.removeIf(subscription -> subscription.channel == ctx.channel());
+        }
+
+        private MqttMessage ack(MqttMessageType type, int packetId) {
+            MqttQoS qos = type == MqttMessageType.PUBREL ? MqttQoS.AT_LEAST_ONCE : MqttQoS.AT_MOST_ONCE;
+            return new MqttMessage(new MqttFixedHeader(type, false, qos, false, 0), MqttMessageIdVariableHeader.from(packetId));
+        }
+    }
+}